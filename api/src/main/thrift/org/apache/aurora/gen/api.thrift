@@ -529,6 +529,8 @@ struct ScheduledTask {
 
 struct ScheduleStatusResult {
   1: list<ScheduledTask> tasks
+  /** Cursor of the next page of a paginated query, unset if this is the last page. */
+  2: string nextCursor
 }
 
 struct GetJobsResult {
@@ -550,6 +552,12 @@ struct TaskQuery {
   11: set<JobKey> jobKeys
   12: i32 offset
   13: i32 limit
+  /**
+   * Opts into paginated results, ordered by task ID.  Only tasks with an ID after the cursor are
+   * returned, and the page is capped by the scheduler.  Start with an empty cursor, and pass the
+   * nextCursor of each page to fetch the next one.  May not be combined with an offset.
+   */
+  15: string cursor
 }
 
 struct HostStatus {
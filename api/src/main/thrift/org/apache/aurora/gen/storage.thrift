@@ -164,6 +164,13 @@ struct FrameHeader {
   // The MD5 checksum over the binary blob that was chunked across chunkCount chunks to decompose
   // the message.
   2: binary checksum
+
+  // Whether this header opens a streamed message, whose size was not known before it was encoded.
+  // A streamed message has its chunkCount and checksum carried by a FrameTrailer following its
+  // chunks instead, and its chunks hold the DEFLATE-compressed binary encoding of a LogEntry.
+  // Other entries may be interleaved with the chunks of a streamed message: they were committed
+  // after the point in the log the streamed message is consistent with, and apply after it.
+  3: optional bool streamed
 }
 
 // A chunk of binary data that can be assembled with others to reconstitute a fully framed message.
@@ -171,6 +178,16 @@ struct FrameChunk {
   2: binary data
 }
 
+// Closes a streamed message, see FrameHeader.
+struct FrameTrailer {
+
+  // The number of FrameChunks between the FrameHeader and this FrameTrailer.
+  1: i32 chunkCount
+
+  // The MD5 checksum over the binary blob that was chunked across chunkCount chunks.
+  2: binary checksum
+}
+
 // Frames form a series of LogEntries that can be re-assembled into a basic log entry type like a
 // Snapshot.  The Frame protocol is that a single FrameHeader is followed by one or more FrameChunks
 // that can be re-assembled to obtain the binary content of a basic log entry type.
@@ -186,6 +203,7 @@ struct FrameChunk {
 union Frame {
   1: FrameHeader header
   2: FrameChunk chunk
+  3: FrameTrailer trailer
 }
 
 // A ScheduledTask with its assignedTask.task field set to null. Deserializers must fill in
@@ -210,6 +228,26 @@ struct DeduplicatedSnapshot {
    3: list<api.TaskConfig> taskConfigs
 }
 
+// Codecs that the blocks of a BlockCompressedEntry may be compressed with.
+enum Codec {
+  // The "deflate" compression format, at the compression level used for deflatedEntry.
+  DEFLATE = 1
+
+  // The "deflate" compression format, favoring speed over compression ratio.
+  DEFLATE_FAST = 2
+
+  // The "deflate" compression format, favoring compression ratio over speed.
+  DEFLATE_BEST = 3
+}
+
+// A LogEntry that is first serialized in the thrift binary format, then split into blocks that are
+// compressed independently of each other, so that they can be compressed and decompressed in
+// parallel.  Concatenating the decompressed blocks yields the serialized LogEntry.
+struct BlockCompressedEntry {
+  1: Codec codec
+  2: list<binary> blocks
+}
+
 // A scheduler storage write-ahead log entry consisting of no-ops to skip over or else snapshots or
 // transactions to apply.  Any entry type can also be chopped up into frames if the entry is too big
 // for whatever reason.
@@ -236,5 +274,9 @@ union LogEntry {
   // The full state of the scheduler at some point-in-time, in a compact layout. Transactions
   // appearing before this entry in the log can be ignored.
   6: DeduplicatedSnapshot deduplicatedSnapshot
+
+  // A LogEntry compressed as independent blocks.  Like deflated entries, block compressed entries
+  // may be pieced together by multiple frames, but their contents should not be a Frame.
+  7: BlockCompressedEntry blockCompressedEntry
 }
 
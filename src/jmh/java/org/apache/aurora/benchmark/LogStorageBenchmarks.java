@@ -0,0 +1,286 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.benchmark;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.TypeLiteral;
+
+import org.apache.aurora.benchmark.fakes.FakeEventSink;
+import org.apache.aurora.benchmark.fakes.FakeLog;
+import org.apache.aurora.benchmark.fakes.FakeStatsProvider;
+import org.apache.aurora.common.application.Lifecycle;
+import org.apache.aurora.common.application.ShutdownRegistry;
+import org.apache.aurora.common.application.ShutdownRegistry.ShutdownRegistryImpl;
+import org.apache.aurora.common.inject.Bindings;
+import org.apache.aurora.common.quantity.Amount;
+import org.apache.aurora.common.quantity.Time;
+import org.apache.aurora.common.stats.StatsProvider;
+import org.apache.aurora.common.util.Clock;
+import org.apache.aurora.gen.storage.Snapshot;
+import org.apache.aurora.scheduler.base.Query;
+import org.apache.aurora.scheduler.base.TaskTestUtil;
+import org.apache.aurora.scheduler.events.EventSink;
+import org.apache.aurora.scheduler.log.Log;
+import org.apache.aurora.scheduler.storage.MutationObserver;
+import org.apache.aurora.scheduler.storage.SnapshotStore;
+import org.apache.aurora.scheduler.storage.Storage;
+import org.apache.aurora.scheduler.storage.Storage.MutateWork.NoResult;
+import org.apache.aurora.scheduler.storage.Storage.NonVolatileStorage;
+import org.apache.aurora.scheduler.storage.db.DbModule;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+import org.apache.aurora.scheduler.storage.log.LogStorageModule;
+import org.apache.aurora.scheduler.storage.log.SnapshotStoreImpl;
+import org.apache.aurora.scheduler.storage.log.ThriftBackfill;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Performance benchmarks for the log storage write-ahead path: committing transactions to the
+ * log, snapshotting and recovering from the log.  The replicated log is simulated by an in-memory
+ * log, so these measure the cost of the scheduler's own encoding, framing and replay.
+ */
+public class LogStorageBenchmarks {
+
+  private static final int TASKS_PER_TRANSACTION = 100;
+  private static final int JOB_UPDATES = 10;
+
+  /**
+   * A log storage instance on top of an in-memory log, wired up as it is in the scheduler.
+   */
+  private static final class BenchmarkStorage {
+    private final NonVolatileStorage storage;
+    private final ShutdownRegistryImpl shutdownRegistry = new ShutdownRegistryImpl();
+
+    BenchmarkStorage(FakeLog log) {
+      Bindings.KeyFactory keyFactory = Bindings.annotatedKeyFactory(Storage.Volatile.class);
+      Injector injector = Guice.createInjector(
+          new AbstractModule() {
+            @Override
+            protected void configure() {
+              bind(Clock.class).toInstance(Clock.SYSTEM_CLOCK);
+              bind(StatsProvider.class).toInstance(new FakeStatsProvider());
+              bind(EventSink.class).toInstance(new FakeEventSink());
+              bind(Log.class).toInstance(log);
+              bind(ShutdownRegistry.class).toInstance(shutdownRegistry);
+              bind(Lifecycle.class).toInstance(new Lifecycle(shutdownRegistry));
+              bind(ThriftBackfill.class).toInstance(TaskTestUtil.THRIFT_BACKFILL);
+              bind(new TypeLiteral<SnapshotStore<Snapshot>>() { }).to(SnapshotStoreImpl.class);
+              MutationObserver.getBinder(binder());
+            }
+          },
+          new LogStorageModule(),
+          DbModule.testModuleWithWorkQueue(keyFactory, Optional.absent()));
+
+      storage = injector.getInstance(NonVolatileStorage.class);
+      storage.prepare();
+    }
+
+    void start() {
+      storage.start(stores -> {
+        // No-op.
+      });
+    }
+
+    void stop() {
+      storage.stop();
+      shutdownRegistry.execute();
+    }
+
+    void saveTasks(Set<IScheduledTask> tasks) {
+      for (List<IScheduledTask> batch : Iterables.partition(tasks, TASKS_PER_TRANSACTION)) {
+        storage.write((NoResult.Quiet) stores ->
+            stores.getUnsafeTaskStore().saveTasks(ImmutableSet.copyOf(batch)));
+      }
+    }
+
+    int countTasks() {
+      return storage.read(stores -> Iterables.size(
+          stores.getTaskStore().fetchTasks(Query.unscoped())));
+    }
+  }
+
+  private static BenchmarkStorage populatedStorage(FakeLog log, int taskCount) {
+    BenchmarkStorage logStorage = new BenchmarkStorage(log);
+    logStorage.start();
+    logStorage.saveTasks(new Tasks.Builder().build(taskCount));
+    JobUpdates.saveUpdates(logStorage.storage, new JobUpdates.Builder().build(JOB_UPDATES));
+    return logStorage;
+  }
+
+  /**
+   * Measures storage write throughput with concurrent writers.  Each write saves several tasks
+   * individually, exercising the coalescing of ops within a transaction.
+   */
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @Warmup(iterations = 1, time = 10, timeUnit = TimeUnit.SECONDS)
+  @Measurement(iterations = 5, time = 10, timeUnit = TimeUnit.SECONDS)
+  @Fork(1)
+  @Threads(4)
+  @State(Scope.Benchmark)
+  public static class WriteBenchmark {
+    private static final int NUM_TASKS = 1000;
+
+    private FakeLog log;
+    private BenchmarkStorage logStorage;
+    private List<IScheduledTask> tasks;
+    private final AtomicInteger nextTask = new AtomicInteger();
+
+    // Vary the log append latency to observe the effect of contention on the write lock.
+    @Param({"0", "1", "5"})
+    private long appendLatencyMilliseconds;
+
+    @Param({"1", "10"})
+    private int tasksPerWrite;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      log = new FakeLog();
+      logStorage = new BenchmarkStorage(log);
+      logStorage.start();
+      tasks = ImmutableList.copyOf(new Tasks.Builder().build(NUM_TASKS));
+      log.setAppendLatency(Amount.of(appendLatencyMilliseconds, Time.MILLISECONDS));
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+      // Truncate the log written during the previous iteration.
+      logStorage.storage.snapshot();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      logStorage.stop();
+    }
+
+    @Benchmark
+    public int run() {
+      logStorage.storage.write((NoResult.Quiet) stores -> {
+        for (int i = 0; i < tasksPerWrite; i++) {
+          IScheduledTask task = tasks.get(Math.floorMod(nextTask.getAndIncrement(), NUM_TASKS));
+          stores.getUnsafeTaskStore().saveTasks(ImmutableSet.of(task));
+        }
+      });
+      return log.size();
+    }
+  }
+
+  /**
+   * Measures the duration of a snapshot against the size of the stored state.
+   */
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 1, time = 10, timeUnit = TimeUnit.SECONDS)
+  @Measurement(iterations = 5, time = 10, timeUnit = TimeUnit.SECONDS)
+  @Fork(1)
+  @Threads(1)
+  @State(Scope.Thread)
+  public static class SnapshotBenchmark {
+    private FakeLog log;
+    private BenchmarkStorage logStorage;
+
+    @Param({"1000", "10000", "50000"})
+    private int taskCount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      log = new FakeLog();
+      logStorage = populatedStorage(log, taskCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      logStorage.stop();
+    }
+
+    @Benchmark
+    public int run() {
+      logStorage.storage.snapshot();
+      return log.size();
+    }
+  }
+
+  /**
+   * Measures the time to recover storage from the log, either by replaying the transactions that
+   * stored the state, or by applying a snapshot of it.
+   */
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 1, time = 10, timeUnit = TimeUnit.SECONDS)
+  @Measurement(iterations = 5, time = 10, timeUnit = TimeUnit.SECONDS)
+  @Fork(1)
+  @Threads(1)
+  @State(Scope.Thread)
+  public static class RecoveryBenchmark {
+    private FakeLog log;
+    private BenchmarkStorage logStorage;
+
+    @Param({"1000", "10000"})
+    private int taskCount;
+
+    @Param({"false", "true"})
+    private boolean snapshotted;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      log = new FakeLog();
+      BenchmarkStorage populated = populatedStorage(log, taskCount);
+      if (snapshotted) {
+        populated.storage.snapshot();
+      }
+      populated.stop();
+    }
+
+    // Recovery takes long enough that setting up a fresh storage per invocation does not skew
+    // the measurement.
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+      logStorage = new BenchmarkStorage(log);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() {
+      logStorage.stop();
+    }
+
+    @Benchmark
+    public int run() {
+      logStorage.start();
+      return logStorage.countTasks();
+    }
+  }
+}
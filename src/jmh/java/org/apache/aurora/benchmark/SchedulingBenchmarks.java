@@ -47,11 +47,14 @@ import org.apache.aurora.scheduler.async.DelayExecutor;
 import org.apache.aurora.scheduler.base.TaskTestUtil;
 import org.apache.aurora.scheduler.configuration.executor.ExecutorSettings;
 import org.apache.aurora.scheduler.events.EventSink;
+import org.apache.aurora.scheduler.filter.AttributeAggregateIndex;
+import org.apache.aurora.scheduler.filter.AttributeAggregateIndex.AttributeAggregateIndexImpl;
 import org.apache.aurora.scheduler.filter.SchedulingFilter;
 import org.apache.aurora.scheduler.filter.SchedulingFilterImpl;
 import org.apache.aurora.scheduler.mesos.Driver;
 import org.apache.aurora.scheduler.mesos.TestExecutorSettings;
 import org.apache.aurora.scheduler.offers.OfferManager;
+import org.apache.aurora.scheduler.offers.OfferOrder;
 import org.apache.aurora.scheduler.offers.OfferSettings;
 import org.apache.aurora.scheduler.preemptor.BiCache;
 import org.apache.aurora.scheduler.preemptor.ClusterStateImpl;
@@ -141,6 +144,7 @@ public class SchedulingBenchmarks {
               bind(OfferManager.OfferManagerImpl.class).in(Singleton.class);
               bind(OfferSettings.class).toInstance(
                   new OfferSettings(NO_DELAY, () -> DELAY_FOREVER));
+              bind(OfferOrder.class).toInstance(OfferOrder.BEST_FIT);
               bind(BiCache.BiCacheSettings.class).toInstance(
                   new BiCache.BiCacheSettings(DELAY_FOREVER, ""));
               bind(TaskScheduler.class).to(TaskScheduler.TaskSchedulerImpl.class);
@@ -158,6 +162,8 @@ public class SchedulingBenchmarks {
               bind(TaskIdGenerator.class).to(TaskIdGenerator.TaskIdGeneratorImpl.class);
               bind(SchedulingFilter.class).to(SchedulingFilterImpl.class);
               bind(SchedulingFilterImpl.class).in(Singleton.class);
+              bind(AttributeAggregateIndex.class).to(AttributeAggregateIndexImpl.class);
+              bind(AttributeAggregateIndexImpl.class).in(Singleton.class);
               bind(ExecutorSettings.class).toInstance(TestExecutorSettings.THERMOS_EXECUTOR);
               bind(Storage.class).toInstance(storage);
               bind(Driver.class).toInstance(new FakeDriver());
@@ -174,6 +180,7 @@ public class SchedulingBenchmarks {
       offerManager = injector.getInstance(OfferManager.class);
       pendingTaskProcessor = injector.getInstance(PendingTaskProcessor.class);
       eventBus.register(injector.getInstance(ClusterStateImpl.class));
+      eventBus.register(injector.getInstance(AttributeAggregateIndex.class));
 
       settings = getSettings();
       saveHostAttributes(settings.getHostAttributes());
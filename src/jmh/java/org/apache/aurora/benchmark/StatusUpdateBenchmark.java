@@ -218,6 +218,9 @@ public class StatusUpdateBenchmark {
             bind(new TypeLiteral<Integer>() { })
                 .annotatedWith(TaskStatusHandlerImpl.MaxBatchSize.class)
                 .toInstance(1000);
+            bind(new TypeLiteral<Integer>() { })
+                .annotatedWith(TaskStatusHandlerImpl.StatusUpdateLanes.class)
+                .toInstance(1);
             bind(TaskStatusHandler.class).to(TaskStatusHandlerImpl.class);
             bind(TaskStatusHandlerImpl.class).in(Singleton.class);
             bind(IServerInfo.class).toInstance(IServerInfo.build(new ServerInfo("jmh", "")));
@@ -156,7 +156,8 @@ public class ThriftApiBenchmarks {
         },
         new AsyncModule(),
         DbModule.productionModule(Bindings.KeyFactory.PLAIN),
-        new ThriftModule.ReadOnly());
+        new ThriftModule.ReadOnly(),
+        new ThriftModule.Cache());
   }
 
   private static void bulkLoadTasks(Storage storage, final TestConfiguration config) {
@@ -0,0 +1,93 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.benchmark.fakes;
+
+import java.util.Iterator;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import org.apache.aurora.common.quantity.Amount;
+import org.apache.aurora.common.quantity.Time;
+import org.apache.aurora.scheduler.log.Log;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An in-memory log, which simulates a replicated log by introducing latency on appends.
+ */
+public class FakeLog implements Log {
+  private final NavigableMap<Long, byte[]> entries = new ConcurrentSkipListMap<>();
+  private final AtomicLong nextPosition = new AtomicLong();
+  private volatile Amount<Long, Time> appendLatency = Amount.of(0L, Time.MILLISECONDS);
+
+  public void setAppendLatency(Amount<Long, Time> appendLatency) {
+    this.appendLatency = requireNonNull(appendLatency);
+  }
+
+  /**
+   * Gets the number of entries currently in the log.
+   *
+   * @return Number of log entries.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  @Override
+  public Stream open() {
+    return new Stream() {
+      @Override
+      public Position append(byte[] contents) {
+        Amount<Long, Time> latency = appendLatency;
+        if (latency.getValue() > 0) {
+          Uninterruptibles.sleepUninterruptibly(
+              latency.getValue(),
+              latency.getUnit().getTimeUnit());
+        }
+        long position = nextPosition.getAndIncrement();
+        entries.put(position, contents);
+        return new FakePosition(position);
+      }
+
+      @Override
+      public Iterator<Entry> readAll() {
+        return Iterators.transform(
+            entries.values().iterator(),
+            contents -> (Entry) () -> contents);
+      }
+
+      @Override
+      public void truncateBefore(Position position) {
+        entries.headMap(((FakePosition) position).position).clear();
+      }
+    };
+  }
+
+  private static final class FakePosition implements Position {
+    private final long position;
+
+    FakePosition(long position) {
+      this.position = position;
+    }
+
+    @Override
+    public int compareTo(Position other) {
+      return Long.compare(position, ((FakePosition) other).position);
+    }
+  }
+}
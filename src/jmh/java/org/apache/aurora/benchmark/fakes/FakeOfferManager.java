@@ -13,12 +13,16 @@
  */
 package org.apache.aurora.benchmark.fakes;
 
+import java.util.List;
+
 import com.google.common.base.Optional;
 
 import org.apache.aurora.scheduler.HostOffer;
+import org.apache.aurora.scheduler.TierInfo;
 import org.apache.aurora.scheduler.base.TaskGroupKey;
 import org.apache.aurora.scheduler.events.PubsubEvent;
 import org.apache.aurora.scheduler.offers.OfferManager;
+import org.apache.aurora.scheduler.resources.ResourceBag;
 import org.apache.mesos.v1.Protos;
 
 public class FakeOfferManager implements OfferManager {
@@ -37,6 +41,12 @@ public class FakeOfferManager implements OfferManager {
     // no-op
   }
 
+  @Override
+  public void launchTasks(Protos.OfferID offerId, List<Protos.TaskInfo> tasks)
+      throws LaunchException {
+    // no-op
+  }
+
   @Override
   public void banOffer(Protos.OfferID offerId, TaskGroupKey groupKey) {
     // no-op
@@ -47,6 +57,24 @@ public class FakeOfferManager implements OfferManager {
     return null;
   }
 
+  @Override
+  public Iterable<HostOffer> getOffers(
+      TaskGroupKey groupKey,
+      ResourceBag request,
+      TierInfo tierInfo) {
+
+    return null;
+  }
+
+  @Override
+  public Optional<HostOffer> getNearestMiss(
+      TaskGroupKey groupKey,
+      ResourceBag request,
+      TierInfo tierInfo) {
+
+    return Optional.absent();
+  }
+
   @Override
   public void hostAttributesChanged(PubsubEvent.HostAttributesChanged change) {
     // no-op
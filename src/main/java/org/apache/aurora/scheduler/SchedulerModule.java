@@ -64,6 +64,13 @@ public class SchedulerModule extends AbstractModule {
       help = "The maximum number of status updates that can be processed in a batch.")
   private static final Arg<Integer> MAX_STATUS_UPDATE_BATCH_SIZE = Arg.create(1000);
 
+  @Positive
+  @CmdLine(name = "status_update_lanes",
+      help = "The number of lanes status updates are partitioned into by task ID. Each lane "
+          + "applies its own batches of status updates, so the batch of one lane can be applied "
+          + "while that of another is written to the log (see -dlog_group_commit).")
+  private static final Arg<Integer> STATUS_UPDATE_LANES = Arg.create(1);
+
   @Positive
   @CmdLine(name = "max_task_event_batch_size",
       help = "The maximum number of task state change events that can be processed in a batch.")
@@ -99,6 +106,9 @@ public class SchedulerModule extends AbstractModule {
     bind(new TypeLiteral<Integer>() { })
         .annotatedWith(TaskStatusHandlerImpl.MaxBatchSize.class)
         .toInstance(MAX_STATUS_UPDATE_BATCH_SIZE.get());
+    bind(new TypeLiteral<Integer>() { })
+        .annotatedWith(TaskStatusHandlerImpl.StatusUpdateLanes.class)
+        .toInstance(STATUS_UPDATE_LANES.get());
 
     bind(TaskStatusHandler.class).to(TaskStatusHandlerImpl.class);
     bind(TaskStatusHandlerImpl.class).in(Singleton.class);
@@ -16,8 +16,12 @@ package org.apache.aurora.scheduler;
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
 import java.util.ArrayDeque;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.inject.Inject;
@@ -25,11 +29,17 @@ import javax.inject.Qualifier;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.EvictingQueue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.math.Quantiles;
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
 import com.google.common.util.concurrent.MoreExecutors;
 
 import org.apache.aurora.common.stats.StatsProvider;
 import org.apache.aurora.gen.ScheduleStatus;
+import org.apache.aurora.scheduler.base.AsyncUtil;
 import org.apache.aurora.scheduler.base.Conversions;
 import org.apache.aurora.scheduler.mesos.Driver;
 import org.apache.aurora.scheduler.state.StateChangeResult;
@@ -49,6 +59,15 @@ import static java.util.Objects.requireNonNull;
 
 /**
  * A {@link TaskStatusHandler} implementation.
+ * <p>
+ * Status updates are applied to storage in batches, and acknowledged to the driver on a separate
+ * thread once their batch has been committed.  This pipelines the two, so that the next batch is
+ * applied while the acknowledgements for the previous one are sent.
+ * <p>
+ * Updates may be partitioned by task ID into several lanes, each applying its own batches.  The
+ * updates of a task are always handled by the same lane, and so remain in order.  Lanes contend
+ * for the storage write lock to apply their batches, but one lane may apply a batch while the
+ * batch of another lane is appended to the log, in particular with log group commit enabled.
  */
 @VisibleForTesting
 public class TaskStatusHandlerImpl extends AbstractExecutionThreadService
@@ -56,6 +75,11 @@ public class TaskStatusHandlerImpl extends AbstractExecutionThreadService
 
   private static final Logger LOG = LoggerFactory.getLogger(TaskStatusHandlerImpl.class);
 
+  private static final int BATCH_SIZE_SAMPLES = 1000;
+  private static final int[] BATCH_SIZE_PERCENTILES = {50, 90, 99};
+
+  private static final long ACK_SHUTDOWN_GRACE_PERIOD_SECS = 5L;
+
   @VisibleForTesting
   static final String MEMORY_LIMIT_DISPLAY = "Task used more memory than requested.";
 
@@ -66,10 +90,17 @@ public class TaskStatusHandlerImpl extends AbstractExecutionThreadService
   private final StateManager stateManager;
   private final Driver driver;
   private final BlockingQueue<TaskStatus> pendingUpdates;
+  private final List<BlockingQueue<TaskStatus>> lanes;
   private final int maxBatchSize;
   private final CachedCounters counters;
+  private final BlockingQueue<Runnable> pendingAcks = new LinkedBlockingQueue<>();
+  private final ExecutorService ackExecutor;
+  private final ExecutorService laneExecutor;
+  // Sizes of the most recent batches, which batch size percentiles are computed from.
+  private final Queue<Integer> batchSizes = EvictingQueue.create(BATCH_SIZE_SAMPLES);
 
   private final AtomicReference<Thread> threadReference = new AtomicReference<>();
+  private final AtomicReference<Throwable> laneFailure = new AtomicReference<>();
 
   /**
    * Binding annotation for the status update queue.
@@ -87,6 +118,14 @@ public class TaskStatusHandlerImpl extends AbstractExecutionThreadService
   @Target({ FIELD, PARAMETER, METHOD }) @Retention(RUNTIME)
   public @interface MaxBatchSize { }
 
+  /**
+   * Binding annotation for the number of lanes status updates are partitioned into.
+   */
+  @VisibleForTesting
+  @Qualifier
+  @Target({ FIELD, PARAMETER, METHOD }) @Retention(RUNTIME)
+  public @interface StatusUpdateLanes { }
+
   @Inject
   TaskStatusHandlerImpl(
       Storage storage,
@@ -95,6 +134,7 @@ public class TaskStatusHandlerImpl extends AbstractExecutionThreadService
       final Driver driver,
       @StatusUpdateQueue BlockingQueue<TaskStatus> pendingUpdates,
       @MaxBatchSize Integer maxBatchSize,
+      @StatusUpdateLanes Integer numLanes,
       CachedCounters counters) {
 
     this.storage = requireNonNull(storage);
@@ -104,8 +144,35 @@ public class TaskStatusHandlerImpl extends AbstractExecutionThreadService
     this.maxBatchSize = requireNonNull(maxBatchSize);
     this.counters = requireNonNull(counters);
     requireNonNull(statsProvider);
+    Preconditions.checkArgument(numLanes > 0, "At least one status update lane is required.");
+
+    // The first lane drains the injected queue on the service thread, further lanes drain their
+    // own queues on threads of their own.
+    ImmutableList.Builder<BlockingQueue<TaskStatus>> laneQueues = ImmutableList.builder();
+    laneQueues.add(this.pendingUpdates);
+    for (int i = 1; i < numLanes; i++) {
+      laneQueues.add(new LinkedBlockingQueue<>());
+    }
+    this.lanes = laneQueues.build();
+    laneExecutor = AsyncUtil.loggingExecutor(
+        Math.max(1, numLanes - 1),
+        Math.max(1, numLanes - 1),
+        new LinkedBlockingQueue<>(),
+        "StatusUpdateLane-%d",
+        LOG);
+
+    statsProvider.makeGauge(
+        "status_updates_queue_size",
+        () -> lanes.stream().mapToInt(BlockingQueue::size).sum());
+    statsProvider.exportSize("status_update_acks_queue_size", pendingAcks);
+    for (int percentile : BATCH_SIZE_PERCENTILES) {
+      statsProvider.makeGauge(
+          batchSizeStatName(percentile),
+          () -> getBatchSizePercentile(percentile));
+    }
 
-    statsProvider.exportSize("status_updates_queue_size", this.pendingUpdates);
+    // A single thread, so that acknowledgements are sent in the order the updates were applied.
+    ackExecutor = AsyncUtil.loggingExecutor(1, 1, pendingAcks, "StatusUpdateAcks-%d", LOG);
 
     addListener(
         new Listener() {
@@ -120,7 +187,7 @@ public class TaskStatusHandlerImpl extends AbstractExecutionThreadService
 
   @Override
   public void statusUpdate(TaskStatus status) {
-    pendingUpdates.add(status);
+    lanes.get(Math.floorMod(status.getTaskId().getValue().hashCode(), lanes.size())).add(status);
   }
 
   @Override
@@ -130,25 +197,51 @@ public class TaskStatusHandlerImpl extends AbstractExecutionThreadService
     if (thread != null) {
       thread.interrupt();
     }
+    laneExecutor.shutdownNow();
   }
 
   @Override
-  protected void run() {
+  protected void run() throws Exception {
     threadReference.set(Thread.currentThread());
 
+    for (BlockingQueue<TaskStatus> lane : lanes.subList(1, lanes.size())) {
+      laneExecutor.execute(() -> {
+        try {
+          processUpdates(lane);
+        } catch (RuntimeException e) {
+          // Fail the service along with the lane, as if it were the first lane that failed.
+          laneFailure.compareAndSet(null, e);
+          triggerShutdown();
+        }
+      });
+    }
+
+    processUpdates(pendingUpdates);
+
+    Throwable failure = laneFailure.get();
+    if (failure != null) {
+      Throwables.throwIfUnchecked(failure);
+      throw new IllegalStateException(failure);
+    }
+  }
+
+  private void processUpdates(BlockingQueue<TaskStatus> lane) {
     while (isRunning()) {
       final Queue<TaskStatus> updates = new ArrayDeque<>();
 
       try {
-        updates.add(pendingUpdates.take());
+        updates.add(lane.take());
       } catch (InterruptedException e) {
         Thread.currentThread().interrupt();
         break;
       }
 
-      // Process all other available updates, up to the limit on batch size.
-      // TODO(bmahler): Expose histogram metrics of the batch sizes.
-      pendingUpdates.drainTo(updates, maxBatchSize - updates.size());
+      // Process all other available updates, up to the limit on batch size.  Batches grow with
+      // the depth of the queue, so bursts of updates are applied in few transactions.
+      lane.drainTo(updates, maxBatchSize - updates.size());
+      synchronized (batchSizes) {
+        batchSizes.add(updates.size());
+      }
 
       try {
         storage.write((NoResult.Quiet) storeProvider -> {
@@ -168,20 +261,68 @@ public class TaskStatusHandlerImpl extends AbstractExecutionThreadService
           }
         });
 
-        for (TaskStatus status : updates) {
-          driver.acknowledgeStatusUpdate(status);
-        }
+        acknowledge(ImmutableList.copyOf(updates));
       } catch (RuntimeException e) {
         LOG.error("Failed to process status update batch " + updates, e);
       }
     }
   }
 
+  @Override
+  protected void shutDown() {
+    laneExecutor.shutdownNow();
+
+    // Send the acknowledgements for updates that have already been applied.  The interrupt used
+    // to stop the processing loop is cleared first, so that it does not cut this wait short.
+    boolean interrupted = Thread.interrupted();
+    ackExecutor.shutdown();
+    try {
+      if (!ackExecutor.awaitTermination(ACK_SHUTDOWN_GRACE_PERIOD_SECS, TimeUnit.SECONDS)) {
+        LOG.warn(
+            "Dropping {} pending batches of status update acknowledgements",
+            pendingAcks.size());
+        ackExecutor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      ackExecutor.shutdownNow();
+      interrupted = true;
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void acknowledge(ImmutableList<TaskStatus> updates) {
+    ackExecutor.execute(() -> {
+      for (TaskStatus status : updates) {
+        try {
+          driver.acknowledgeStatusUpdate(status);
+        } catch (RuntimeException e) {
+          // The update is resent by mesos if it is not acknowledged.
+          LOG.error("Failed to acknowledge status update " + status, e);
+        }
+      }
+    });
+  }
+
   @VisibleForTesting
   static String statName(TaskStatus status, StateChangeResult result) {
     return "status_update_" + status.getReason() + "_" + result;
   }
 
+  @VisibleForTesting
+  static String batchSizeStatName(int percentile) {
+    return "status_update_batch_size_" + percentile + "_percentile";
+  }
+
+  private double getBatchSizePercentile(int percentile) {
+    synchronized (batchSizes) {
+      return batchSizes.isEmpty()
+          ? 0d
+          : Quantiles.percentiles().index(percentile).compute(batchSizes);
+    }
+  }
+
   private static Optional<String> formatMessage(TaskStatus status) {
     Optional<String> message = Optional.absent();
     if (status.hasMessage()) {
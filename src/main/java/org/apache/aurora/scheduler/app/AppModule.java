@@ -38,6 +38,8 @@ import org.apache.aurora.scheduler.SchedulerServicesModule;
 import org.apache.aurora.scheduler.async.AsyncModule;
 import org.apache.aurora.scheduler.configuration.ConfigurationManager.ConfigurationManagerSettings;
 import org.apache.aurora.scheduler.events.PubsubEventModule;
+import org.apache.aurora.scheduler.filter.AttributeAggregateIndex;
+import org.apache.aurora.scheduler.filter.AttributeAggregateIndex.AttributeAggregateIndexImpl;
 import org.apache.aurora.scheduler.filter.SchedulingFilterImpl;
 import org.apache.aurora.scheduler.http.JettyServerModule;
 import org.apache.aurora.scheduler.mesos.SchedulerDriverModule;
@@ -52,6 +54,7 @@ import org.apache.aurora.scheduler.sla.SlaModule;
 import org.apache.aurora.scheduler.state.StateModule;
 import org.apache.aurora.scheduler.stats.AsyncStatsModule;
 import org.apache.aurora.scheduler.thrift.Thresholds;
+import org.apache.aurora.scheduler.thrift.ThriftModule;
 import org.apache.aurora.scheduler.updater.UpdaterModule;
 import org.apache.mesos.Scheduler;
 
@@ -138,6 +141,9 @@ public class AppModule extends AbstractModule {
     // Filter layering: notifier filter -> base impl
     PubsubEventModule.bindSchedulingFilterDelegate(binder()).to(SchedulingFilterImpl.class);
     bind(SchedulingFilterImpl.class).in(Singleton.class);
+    bind(AttributeAggregateIndex.class).to(AttributeAggregateIndexImpl.class);
+    bind(AttributeAggregateIndexImpl.class).in(Singleton.class);
+    PubsubEventModule.bindSubscriber(binder(), AttributeAggregateIndex.class);
 
     install(new AsyncModule());
     install(new OffersModule());
@@ -155,6 +161,7 @@ public class AppModule extends AbstractModule {
     install(new StateModule());
     install(new SlaModule());
     install(new UpdaterModule());
+    install(new ThriftModule.Cache());
     bind(StatsProvider.class).toInstance(Stats.STATS_PROVIDER);
   }
 }
@@ -63,4 +63,10 @@ class NotifyingSchedulingFilter implements SchedulingFilter {
 
     return vetoes;
   }
+
+  @Override
+  public boolean isMatch(UnusedResource resource, ResourceRequest request) {
+    // Match checks carry no vetoes to report.
+    return delegate.isMatch(resource, request);
+  }
 }
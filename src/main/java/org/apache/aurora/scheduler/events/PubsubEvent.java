@@ -25,6 +25,7 @@ import org.apache.aurora.scheduler.base.TaskGroupKey;
 import org.apache.aurora.scheduler.base.Tasks;
 import org.apache.aurora.scheduler.filter.SchedulingFilter.Veto;
 import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
+import org.apache.aurora.scheduler.storage.entities.IJobKey;
 import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
 import org.apache.mesos.v1.Protos;
 import org.apache.mesos.v1.Protos.TaskStatus;
@@ -202,6 +203,44 @@ public interface PubsubEvent {
     }
   }
 
+  /**
+   * Event sent when the configuration of a job changed other than through a task state change:
+   * a cron job was saved or removed, or a task's configuration was rewritten in place.
+   */
+  class JobConfigurationChanged implements PubsubEvent {
+    private final IJobKey jobKey;
+
+    public JobConfigurationChanged(IJobKey jobKey) {
+      this.jobKey = requireNonNull(jobKey);
+    }
+
+    public IJobKey getJobKey() {
+      return jobKey;
+    }
+
+    @Override
+    public int hashCode() {
+      return jobKey.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof JobConfigurationChanged)) {
+        return false;
+      }
+
+      JobConfigurationChanged other = (JobConfigurationChanged) o;
+      return Objects.equals(jobKey, other.getJobKey());
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("jobKey", getJobKey())
+          .toString();
+    }
+  }
+
   /**
    * Event sent when a scheduling assignment was vetoed.
    */
@@ -110,6 +110,19 @@ public final class AttributeAggregate {
     return new AttributeAggregate(aggregator);
   }
 
+  /**
+   * Creates an {@link AttributeAggregate} from precomputed attribute counts.
+   *
+   * @param aggregate Attribute name and value counts.
+   * @return An {@link AttributeAggregate} instance.
+   */
+  static AttributeAggregate create(Multiset<Pair<String, String>> aggregate) {
+    AttributeAggregate attributeAggregate = new AttributeAggregate(Suppliers.ofInstance(aggregate));
+    // The counts are already known, so subsequent updates must be applied rather than deferred.
+    attributeAggregate.initialize();
+    return attributeAggregate;
+  }
+
   private static ImmutableMultiset.Builder<Pair<String, String>> addAttributes(
       ImmutableMultiset.Builder<Pair<String, String>> builder,
       Iterable<IAttribute> attributes) {
@@ -0,0 +1,279 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.filter;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.google.common.eventbus.Subscribe;
+
+import org.apache.aurora.common.collections.Pair;
+import org.apache.aurora.gen.ScheduleStatus;
+import org.apache.aurora.scheduler.base.Query;
+import org.apache.aurora.scheduler.base.Tasks;
+import org.apache.aurora.scheduler.events.PubsubEvent.EventSubscriber;
+import org.apache.aurora.scheduler.events.PubsubEvent.HostAttributesChanged;
+import org.apache.aurora.scheduler.events.PubsubEvent.TaskStateChange;
+import org.apache.aurora.scheduler.events.PubsubEvent.TasksDeleted;
+import org.apache.aurora.scheduler.storage.Storage;
+import org.apache.aurora.scheduler.storage.Storage.StoreProvider;
+import org.apache.aurora.scheduler.storage.entities.IAttribute;
+import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
+import org.apache.aurora.scheduler.storage.entities.IJobKey;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A long-lived index of the {@link AttributeAggregate} of every job, kept up to date by pubsub
+ * notifications rather than rebuilt from storage for each scheduling attempt.
+ */
+public interface AttributeAggregateIndex extends EventSubscriber {
+
+  /**
+   * Gets a snapshot of the attribute aggregate of a job's active tasks.
+   *
+   * @param storeProvider Store provider, used to populate the index the first time it is queried.
+   * @param jobKey Job key.
+   * @return An {@link AttributeAggregate} instance.
+   */
+  AttributeAggregate getJobActiveState(StoreProvider storeProvider, IJobKey jobKey);
+
+  /**
+   * Records tasks that were just assigned to hosts within the caller's transaction. Pubsub
+   * notifications are delivered asynchronously, so this makes assignments visible to the next
+   * scheduling attempt immediately.
+   *
+   * @param storeProvider Store provider to look up the tasks with.
+   * @param taskIds IDs of the assigned tasks.
+   */
+  void tasksAssigned(StoreProvider storeProvider, Iterable<String> taskIds);
+
+  /**
+   * Maintains per-job attribute counts from task state changes and host attribute changes.
+   * <p>
+   * Notifications may be delivered more than once or out of order, so the index remembers how far
+   * each task has progressed through its lifecycle (pending, assigned to a host, terminal) and
+   * ignores notifications that would move a task backwards.
+   */
+  class AttributeAggregateIndexImpl implements AttributeAggregateIndex {
+    private static final int STAGE_PENDING = 0;
+    private static final int STAGE_ASSIGNED = 1;
+    private static final int STAGE_TERMINAL = 2;
+
+    private final Storage storage;
+
+    // Lifecycle stage and placement of every task that has been assigned to a host.
+    private final Map<String, TaskEntry> tasks = Maps.newHashMap();
+    // Attribute name and value pairs of every host with assigned tasks.
+    private final Map<String, List<Pair<String, String>>> hostAttributes = Maps.newHashMap();
+    // Active task count by host and job, used to re-count tasks when host attributes change.
+    private final Map<String, Multiset<IJobKey>> hostJobs = Maps.newHashMap();
+    private final Map<IJobKey, Multiset<Pair<String, String>>> aggregates = Maps.newHashMap();
+    private boolean populated = false;
+
+    @Inject
+    public AttributeAggregateIndexImpl(Storage storage) {
+      this.storage = requireNonNull(storage);
+    }
+
+    private static final class TaskEntry {
+      private final int stage;
+      private final IJobKey jobKey;
+      private final String host;
+
+      TaskEntry(int stage, IJobKey jobKey, String host) {
+        this.stage = stage;
+        this.jobKey = jobKey;
+        this.host = host;
+      }
+    }
+
+    private static int getStage(ScheduleStatus status) {
+      if (Tasks.SLAVE_ASSIGNED_STATES.contains(status)) {
+        return STAGE_ASSIGNED;
+      }
+      return Tasks.isTerminated(status) ? STAGE_TERMINAL : STAGE_PENDING;
+    }
+
+    private static List<Pair<String, String>> toPairs(Optional<IHostAttributes> attributes) {
+      ImmutableList.Builder<Pair<String, String>> pairs = ImmutableList.builder();
+      if (attributes.isPresent()) {
+        for (IAttribute attribute : attributes.get().getAttributes()) {
+          for (String value : attribute.getValues()) {
+            pairs.add(Pair.of(attribute.getName(), value));
+          }
+        }
+      }
+      return pairs.build();
+    }
+
+    @Override
+    public synchronized AttributeAggregate getJobActiveState(
+        StoreProvider storeProvider,
+        IJobKey jobKey) {
+
+      if (!populated) {
+        populate(storeProvider);
+      }
+
+      Multiset<Pair<String, String>> aggregate = aggregates.get(jobKey);
+      return AttributeAggregate.create(
+          aggregate == null ? ImmutableMultiset.of() : ImmutableMultiset.copyOf(aggregate));
+    }
+
+    private void populate(StoreProvider storeProvider) {
+      for (IScheduledTask task : storeProvider.getTaskStore()
+          .fetchTasks(Query.unscoped().byStatus(Tasks.SLAVE_ASSIGNED_STATES))) {
+
+        update(task, storeProvider);
+      }
+      populated = true;
+    }
+
+    @Override
+    public synchronized void tasksAssigned(StoreProvider storeProvider, Iterable<String> taskIds) {
+      for (IScheduledTask task
+          : storeProvider.getTaskStore().fetchTasks(Query.taskScoped(taskIds))) {
+
+        update(task, storeProvider);
+      }
+    }
+
+    private void update(IScheduledTask task, StoreProvider storeProvider) {
+      String host = task.getAssignedTask().getSlaveHost();
+      if (host != null && !hostAttributes.containsKey(host)) {
+        hostAttributes.put(
+            host,
+            toPairs(storeProvider.getAttributeStore().getHostAttributes(host)));
+      }
+      update(task);
+    }
+
+    private void update(IScheduledTask task) {
+      String taskId = Tasks.id(task);
+      TaskEntry previous = tasks.get(taskId);
+      int previousStage = previous == null ? STAGE_PENDING : previous.stage;
+      int stage = getStage(task.getStatus());
+      if (stage <= previousStage) {
+        // Either a duplicate or a late notification.
+        return;
+      }
+
+      if (previousStage == STAGE_ASSIGNED) {
+        removeActive(previous);
+      }
+      TaskEntry entry = new TaskEntry(
+          stage,
+          Tasks.getJob(task),
+          task.getAssignedTask().getSlaveHost());
+      if (stage == STAGE_ASSIGNED) {
+        addActive(entry);
+      }
+      tasks.put(taskId, entry);
+    }
+
+    private void addActive(TaskEntry entry) {
+      hostJobs.computeIfAbsent(entry.host, host -> HashMultiset.create()).add(entry.jobKey);
+      Multiset<Pair<String, String>> aggregate =
+          aggregates.computeIfAbsent(entry.jobKey, job -> HashMultiset.create());
+      aggregate.addAll(hostAttributes.get(entry.host));
+    }
+
+    private void removeActive(TaskEntry entry) {
+      Multiset<IJobKey> jobs = hostJobs.get(entry.host);
+      jobs.remove(entry.jobKey);
+      if (jobs.isEmpty()) {
+        hostJobs.remove(entry.host);
+      }
+
+      Multiset<Pair<String, String>> aggregate = aggregates.get(entry.jobKey);
+      if (aggregate != null) {
+        for (Pair<String, String> pair : hostAttributes.get(entry.host)) {
+          aggregate.remove(pair);
+        }
+        if (aggregate.isEmpty()) {
+          aggregates.remove(entry.jobKey);
+        }
+      }
+    }
+
+    private synchronized boolean isKnownHost(String host) {
+      return hostAttributes.containsKey(host);
+    }
+
+    @Subscribe
+    public void taskChangedState(TaskStateChange stateChange) {
+      IScheduledTask task = stateChange.getTask();
+      String host = task.getAssignedTask().getSlaveHost();
+      // Storage must not be accessed while holding the monitor, since callers of
+      // getJobActiveState() hold the storage lock while waiting for it.
+      Optional<List<Pair<String, String>>> attributes = Optional.absent();
+      if (getStage(stateChange.getNewState()) == STAGE_ASSIGNED && !isKnownHost(host)) {
+        attributes = Optional.of(toPairs(storage.read(
+            storeProvider -> storeProvider.getAttributeStore().getHostAttributes(host))));
+      }
+
+      synchronized (this) {
+        if (attributes.isPresent()) {
+          hostAttributes.putIfAbsent(host, attributes.get());
+        }
+        update(task);
+      }
+    }
+
+    @Subscribe
+    public synchronized void tasksDeleted(TasksDeleted event) {
+      for (IScheduledTask task : event.getTasks()) {
+        TaskEntry entry = tasks.remove(Tasks.id(task));
+        if (entry != null && entry.stage == STAGE_ASSIGNED) {
+          removeActive(entry);
+        }
+      }
+    }
+
+    @Subscribe
+    public synchronized void hostAttributesChanged(HostAttributesChanged change) {
+      String host = change.getAttributes().getHost();
+      List<Pair<String, String>> attributes = toPairs(Optional.of(change.getAttributes()));
+      List<Pair<String, String>> previous = hostAttributes.put(host, attributes);
+      Multiset<IJobKey> jobs = hostJobs.get(host);
+      if (previous == null || jobs == null) {
+        return;
+      }
+
+      for (Multiset.Entry<IJobKey> job : jobs.entrySet()) {
+        Multiset<Pair<String, String>> aggregate =
+            aggregates.computeIfAbsent(job.getElement(), key -> HashMultiset.create());
+        for (Pair<String, String> pair : previous) {
+          aggregate.remove(pair, job.getCount());
+        }
+        for (Pair<String, String> pair : attributes) {
+          aggregate.add(pair, job.getCount());
+        }
+        if (aggregate.isEmpty()) {
+          aggregates.remove(job.getElement());
+        }
+      }
+    }
+  }
+}
@@ -336,4 +336,15 @@ public interface SchedulingFilter {
    *    scheduled, the set will be empty.
    */
   Set<Veto> filter(UnusedResource resource, ResourceRequest request);
+
+  /**
+   * Checks whether a task may be scheduled with the given resources, and on the host. Unlike
+   * {@link #filter(UnusedResource, ResourceRequest)}, this does not explain a mismatch, which
+   * makes it cheaper for callers that only act on whether the task fits.
+   *
+   * @param resource An available resource in the cluster.
+   * @param request A resource request to match against the {@code resource}.
+   * @return {@code true} if the task may be scheduled, {@code false} otherwise.
+   */
+  boolean isMatch(UnusedResource resource, ResourceRequest request);
 }
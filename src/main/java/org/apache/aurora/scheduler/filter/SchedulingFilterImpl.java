@@ -19,6 +19,10 @@ import java.util.Set;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Ordering;
@@ -26,6 +30,7 @@ import com.google.common.collect.Ordering;
 import org.apache.aurora.common.inject.TimedInterceptor.Timed;
 import org.apache.aurora.gen.MaintenanceMode;
 import org.apache.aurora.gen.TaskConstraint;
+import org.apache.aurora.scheduler.base.TaskGroupKey;
 import org.apache.aurora.scheduler.configuration.ConfigurationManager;
 import org.apache.aurora.scheduler.resources.ResourceBag;
 import org.apache.aurora.scheduler.resources.ResourceType;
@@ -44,6 +49,14 @@ import static org.apache.aurora.scheduler.configuration.ConfigurationManager.DED
 public class SchedulingFilterImpl implements SchedulingFilter {
   private static final Set<MaintenanceMode> VETO_MODES = EnumSet.of(DRAINING, DRAINED);
 
+  // Bounds the number of task groups with a compiled filter plan, evicting least recently used
+  // groups first.
+  private static final int MAX_CACHED_PLANS = 10000;
+
+  private final LoadingCache<TaskGroupKey, FilterPlan> plans = CacheBuilder.newBuilder()
+      .maximumSize(MAX_CACHED_PLANS)
+      .build(CacheLoader.from(FilterPlan::compile));
+
   @VisibleForTesting
   static int scale(double value, int range) {
     return Math.min(
@@ -66,6 +79,11 @@ public class SchedulingFilterImpl implements SchedulingFilter {
   }
 
   private static Set<Veto> getResourceVetoes(ResourceBag available, ResourceBag required) {
+    // Most offers fit, so avoid building vetoes unless something is missing.
+    if (required.fitsWithin(available)) {
+      return ImmutableSet.of();
+    }
+
     ImmutableSet.Builder<Veto> vetoes = ImmutableSet.builder();
     required.streamResourceVectors().forEach(
         e -> maybeAddVeto(vetoes, e.getKey(), available.valueOf(e.getKey()), e.getValue()));
@@ -87,12 +105,37 @@ public class SchedulingFilterImpl implements SchedulingFilter {
         }
       });
 
-  private Optional<Veto> getConstraintVeto(
-      Iterable<IConstraint> taskConstraints,
+  /**
+   * The parts of a filter run that only depend on the task, computed once per task group rather
+   * than on every call.
+   */
+  private static final class FilterPlan {
+    private final boolean dedicated;
+    // Value constraints are cheaper to evaluate than limit constraints, so they go first.
+    private final ImmutableList<IConstraint> constraints;
+
+    private FilterPlan(boolean dedicated, ImmutableList<IConstraint> constraints) {
+      this.dedicated = dedicated;
+      this.constraints = constraints;
+    }
+
+    static FilterPlan compile(TaskGroupKey groupKey) {
+      return new FilterPlan(
+          ConfigurationManager.isDedicated(groupKey.getTask().getConstraints()),
+          VALUES_FIRST.immutableSortedCopy(groupKey.getTask().getConstraints()));
+    }
+  }
+
+  private FilterPlan getPlan(ResourceRequest request) {
+    return plans.getUnchecked(TaskGroupKey.from(request.getTask()));
+  }
+
+  private static Optional<Veto> getConstraintVeto(
+      Iterable<IConstraint> sortedConstraints,
       AttributeAggregate jobState,
       Iterable<IAttribute> offerAttributes) {
 
-    for (IConstraint constraint : VALUES_FIRST.sortedCopy(taskConstraints)) {
+    for (IConstraint constraint : sortedConstraints) {
       Optional<Veto> veto = ConstraintMatcher.getVeto(jobState, offerAttributes, constraint);
       if (veto.isPresent()) {
         // Break early to avoid potentially-expensive operations to satisfy other constraints.
@@ -122,9 +165,10 @@ public class SchedulingFilterImpl implements SchedulingFilter {
     // early any time a veto from a score group is applied. This helps to more accurately report
     // a veto reason in the NearestFit.
 
+    FilterPlan plan = getPlan(request);
+
     // 1. Dedicated constraint check (highest score).
-    if (!ConfigurationManager.isDedicated(request.getConstraints())
-        && isDedicated(resource.getAttributes())) {
+    if (!plan.dedicated && isDedicated(resource.getAttributes())) {
 
       return ImmutableSet.of(Veto.dedicatedHostConstraintMismatch());
     }
@@ -137,7 +181,7 @@ public class SchedulingFilterImpl implements SchedulingFilter {
 
     // 3. Value and limit constraint check.
     Optional<Veto> constraintVeto = getConstraintVeto(
-        request.getConstraints(),
+        plan.constraints,
         request.getJobState(),
         resource.getAttributes().getAttributes());
 
@@ -148,4 +192,27 @@ public class SchedulingFilterImpl implements SchedulingFilter {
     // 4. Resource check (lowest score).
     return getResourceVetoes(resource.getResourceBag(), request.getResourceBag());
   }
+
+  @Timed("scheduling_filter_match")
+  @Override
+  public boolean isMatch(UnusedResource resource, ResourceRequest request) {
+    // There is no veto to rank here, so the cheapest checks that commonly reject go first.
+    if (VETO_MODES.contains(resource.getAttributes().getMode())) {
+      return false;
+    }
+
+    if (!request.getResourceBag().fitsWithin(resource.getResourceBag())) {
+      return false;
+    }
+
+    FilterPlan plan = getPlan(request);
+    if (!plan.dedicated && isDedicated(resource.getAttributes())) {
+      return false;
+    }
+
+    return !getConstraintVeto(
+        plan.constraints,
+        request.getJobState(),
+        resource.getAttributes().getAttributes()).isPresent();
+  }
 }
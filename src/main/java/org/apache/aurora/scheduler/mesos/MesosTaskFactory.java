@@ -13,6 +13,7 @@
  */
 package org.apache.aurora.scheduler.mesos;
 
+import java.io.ByteArrayOutputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -21,16 +22,19 @@ import javax.inject.Inject;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.protobuf.ByteString;
 
 import org.apache.aurora.Protobufs;
 import org.apache.aurora.codec.ThriftBinaryCodec;
+import org.apache.aurora.gen.AssignedTask;
+import org.apache.aurora.scheduler.TierInfo;
 import org.apache.aurora.scheduler.TierManager;
 import org.apache.aurora.scheduler.base.JobKeys;
 import org.apache.aurora.scheduler.base.SchedulerException;
-import org.apache.aurora.scheduler.base.Tasks;
 import org.apache.aurora.scheduler.configuration.executor.ExecutorSettings;
 import org.apache.aurora.scheduler.resources.AcceptedOffer;
 import org.apache.aurora.scheduler.resources.ResourceBag;
@@ -57,6 +61,11 @@ import org.apache.mesos.v1.Protos.Port;
 import org.apache.mesos.v1.Protos.Resource;
 import org.apache.mesos.v1.Protos.TaskID;
 import org.apache.mesos.v1.Protos.TaskInfo;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TField;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TType;
+import org.apache.thrift.transport.TIOStreamTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -70,7 +79,8 @@ import static org.apache.aurora.gen.apiConstants.TASK_FILESYSTEM_MOUNT_POINT;
 public interface MesosTaskFactory {
 
   /**
-   * Creates a mesos task object.
+   * Creates a mesos task object.  The parts of the task object that only depend on the task config
+   * may be cached, and shared by the tasks of a config.
    *
    * @param task Assigned task to translate into a task object.
    * @param offer Resource offer the task is being assigned to.
@@ -99,9 +109,22 @@ public interface MesosTaskFactory {
     @VisibleForTesting
     static final String TIER_LABEL = AURORA_LABEL_PREFIX + ".tier";
 
+    // Bounds the number of distinct task configs whose templates are kept.
+    private static final int TEMPLATE_CACHE_SIZE = 1000;
+
+    private static final TField TASK_FIELD = new TField(
+        "task",
+        TType.STRUCT,
+        AssignedTask._Fields.TASK.getThriftFieldId());
+
+    // The type and ID of a field, and the stop marker of the enclosing struct.
+    private static final int TASK_FIELD_OVERHEAD = 4;
+
     private final ExecutorSettings executorSettings;
     private final TierManager tierManager;
     private final IServerInfo serverInfo;
+    private final Cache<ITaskConfig, TaskTemplate> templates =
+        CacheBuilder.newBuilder().maximumSize(TEMPLATE_CACHE_SIZE).build();
 
     @Inject
     MesosTaskFactoryImpl(
@@ -127,8 +150,8 @@ public interface MesosTaskFactory {
       return getJobSourceName(task.getJob());
     }
 
-    private static String getExecutorName(IAssignedTask task) {
-      return task.getTask().getExecutorConfig().getName();
+    private static String getExecutorName(ITaskConfig config) {
+      return config.getExecutorConfig().getName();
     }
 
     @VisibleForTesting
@@ -141,77 +164,125 @@ public interface MesosTaskFactory {
       return String.join(".", job.getName(), job.getEnvironment(), job.getRole());
     }
 
-    private static byte[] serializeTask(IAssignedTask task) throws SchedulerException {
+    /**
+     * Encodes an assigned task, splicing in the already encoded config of the task.  The binary
+     * protocol does not require fields to be in order, so the config is appended as the last field
+     * of the struct.
+     */
+    private static byte[] serializeTask(IAssignedTask task, byte[] encodedConfig)
+        throws SchedulerException {
+
+      AssignedTask withoutConfig = new AssignedTask()
+          .setTaskId(task.getTaskId())
+          .setSlaveId(task.getSlaveId())
+          .setSlaveHost(task.getSlaveHost())
+          .setInstanceId(task.getInstanceId());
+      if (task.isSetAssignedPorts()) {
+        withoutConfig.setAssignedPorts(task.getAssignedPorts());
+      }
+
       try {
-        return ThriftBinaryCodec.encode(task.newBuilder());
+        byte[] fields = ThriftBinaryCodec.encode(withoutConfig);
+        ByteArrayOutputStream out =
+            new ByteArrayOutputStream(fields.length + encodedConfig.length + TASK_FIELD_OVERHEAD);
+        // Drop the stop marker that ends the struct, so that the config can follow as a field.
+        out.write(fields, 0, fields.length - 1);
+        TProtocol protocol =
+            ThriftBinaryCodec.PROTOCOL_FACTORY.getProtocol(new TIOStreamTransport(out));
+        protocol.writeFieldBegin(TASK_FIELD);
+        out.write(encodedConfig, 0, encodedConfig.length);
+        protocol.writeFieldEnd();
+        protocol.writeFieldStop();
+        return out.toByteArray();
+      } catch (ThriftBinaryCodec.CodingException | TException e) {
+        LOG.error("Unable to serialize task.", e);
+        throw new SchedulerException("Internal error.", e);
+      }
+    }
+
+    private static byte[] serializeConfig(ITaskConfig config) throws SchedulerException {
+      try {
+        return ThriftBinaryCodec.encode(config.newBuilder());
       } catch (ThriftBinaryCodec.CodingException e) {
         LOG.error("Unable to serialize task.", e);
         throw new SchedulerException("Internal error.", e);
       }
     }
 
-    @Override
-    public TaskInfo createFrom(IAssignedTask task, Offer offer) throws SchedulerException {
-      requireNonNull(task);
-      requireNonNull(offer);
+    /**
+     * The parts of a task object that are the same for all tasks of a config.
+     */
+    private static final class TaskTemplate {
+      // Lacks the fields of the task object that are specific to a task and the offer it is
+      // launched with.
+      private final TaskInfo partialTask;
+      private final ResourceBag executorOverhead;
+      private final TierInfo tier;
+      private final Optional<String> executorTaskPrefix;
+      private final Optional<byte[]> encodedConfig;
+
+      TaskTemplate(
+          TaskInfo partialTask,
+          ResourceBag executorOverhead,
+          TierInfo tier,
+          Optional<String> executorTaskPrefix,
+          Optional<byte[]> encodedConfig) {
+
+        this.partialTask = requireNonNull(partialTask);
+        this.executorOverhead = requireNonNull(executorOverhead);
+        this.tier = requireNonNull(tier);
+        this.executorTaskPrefix = requireNonNull(executorTaskPrefix);
+        this.encodedConfig = requireNonNull(encodedConfig);
+      }
+    }
 
-      ITaskConfig config = task.getTask();
+    private TaskTemplate getTemplate(ITaskConfig config) throws SchedulerException {
+      TaskTemplate template = templates.getIfPresent(config);
+      if (template == null) {
+        // Templates are built outside of the cache, so that building one may fail with a
+        // SchedulerException.  Concurrent launches of a new config may both build its template.
+        template = buildTemplate(config);
+        templates.put(config, template);
+      }
+      return template;
+    }
 
+    private TaskTemplate buildTemplate(ITaskConfig config) throws SchedulerException {
       // Docker-based tasks don't need executors
       ResourceBag executorOverhead = ResourceBag.EMPTY;
       if (config.isSetExecutorConfig()) {
-        executorOverhead =
-            executorSettings.getExecutorOverhead(getExecutorName(task)).orElse(ResourceBag.EMPTY);
+        executorOverhead = executorSettings.getExecutorOverhead(getExecutorName(config))
+            .orElse(ResourceBag.EMPTY);
       }
 
-      AcceptedOffer acceptedOffer;
-      // TODO(wfarner): Re-evaluate if/why we need to continue handling unset assignedPorts field.
-      try {
-        acceptedOffer = AcceptedOffer.create(
-            offer,
-            task,
-            executorOverhead,
-            tierManager.getTier(task.getTask()));
-      } catch (ResourceManager.InsufficientResourcesException e) {
-        throw new SchedulerException(e);
-      }
-      Iterable<Resource> resources = acceptedOffer.getTaskResources();
-
-      LOG.debug(
-          "Setting task resources to {}",
-          Iterables.transform(resources, Protobufs::toString));
-
       TaskInfo.Builder taskBuilder = TaskInfo.newBuilder()
-          .setName(JobKeys.canonicalString(Tasks.getJob(task)))
-          .setTaskId(TaskID.newBuilder().setValue(task.getTaskId()))
-          .setAgentId(offer.getAgentId())
-          .addAllResources(resources);
+          .setName(JobKeys.canonicalString(config.getJob()));
 
       configureTaskLabels(config, taskBuilder);
 
       if (executorSettings.shouldPopulateDiscoverInfo()) {
-        configureDiscoveryInfos(task, taskBuilder);
+        configureDiscoveryInfos(config, taskBuilder);
       }
 
       if (config.getContainer().isSetMesos()) {
-        ExecutorInfo.Builder executorInfoBuilder = configureTaskForExecutor(task, acceptedOffer);
+        ExecutorInfo.Builder executorInfoBuilder = configureTaskForExecutor(config);
 
         Optional<ContainerInfo.Builder> containerInfoBuilder = configureTaskForImage(
-            task.getTask().getContainer().getMesos(),
-            getExecutorName(task));
+            config.getContainer().getMesos(),
+            getExecutorName(config));
         if (containerInfoBuilder.isPresent()) {
           executorInfoBuilder.setContainer(containerInfoBuilder.get());
         }
 
-        taskBuilder.setExecutor(executorInfoBuilder.build());
+        taskBuilder.setExecutor(executorInfoBuilder.buildPartial());
       } else if (config.getContainer().isSetDocker()) {
         IDockerContainer dockerContainer = config.getContainer().getDocker();
         if (config.isSetExecutorConfig()) {
-          ExecutorInfo.Builder execBuilder = configureTaskForExecutor(task, acceptedOffer)
+          ExecutorInfo.Builder execBuilder = configureTaskForExecutor(config)
               .setContainer(getDockerContainerInfo(
                   dockerContainer,
-                  Optional.of(getExecutorName(task))));
-          taskBuilder.setExecutor(execBuilder.build());
+                  Optional.of(getExecutorName(config))));
+          taskBuilder.setExecutor(execBuilder.buildPartial());
         } else {
           LOG.warn("Running Docker-based task without an executor.");
           taskBuilder.setContainer(getDockerContainerInfo(dockerContainer, Optional.absent()))
@@ -221,8 +292,63 @@ public interface MesosTaskFactory {
         throw new SchedulerException("Task had no supported container set.");
       }
 
+      Optional<String> executorTaskPrefix = Optional.absent();
+      Optional<byte[]> encodedConfig = Optional.absent();
+      if (taskBuilder.hasExecutor()) {
+        executorTaskPrefix = Optional.of(
+            executorSettings.getExecutorConfig(getExecutorName(config)).get().getTaskPrefix());
+        encodedConfig = Optional.of(serializeConfig(config));
+      }
+
+      return new TaskTemplate(
+          taskBuilder.buildPartial(),
+          executorOverhead,
+          tierManager.getTier(config),
+          executorTaskPrefix,
+          encodedConfig);
+    }
+
+    @Override
+    public TaskInfo createFrom(IAssignedTask task, Offer offer) throws SchedulerException {
+      requireNonNull(task);
+      requireNonNull(offer);
+
+      TaskTemplate template = getTemplate(task.getTask());
+
+      AcceptedOffer acceptedOffer;
+      // TODO(wfarner): Re-evaluate if/why we need to continue handling unset assignedPorts field.
+      try {
+        acceptedOffer = AcceptedOffer.create(
+            offer,
+            task,
+            template.executorOverhead,
+            template.tier);
+      } catch (ResourceManager.InsufficientResourcesException e) {
+        throw new SchedulerException(e);
+      }
+      Iterable<Resource> resources = acceptedOffer.getTaskResources();
+
+      LOG.debug(
+          "Setting task resources to {}",
+          Iterables.transform(resources, Protobufs::toString));
+
+      TaskInfo.Builder taskBuilder = template.partialTask.toBuilder()
+          .setTaskId(TaskID.newBuilder().setValue(task.getTaskId()))
+          .setAgentId(offer.getAgentId())
+          .addAllResources(resources);
+
+      if (taskBuilder.hasDiscovery()) {
+        configureDiscoveryPorts(task, taskBuilder.getDiscoveryBuilder());
+      }
+
       if (taskBuilder.hasExecutor()) {
-        taskBuilder.setData(ByteString.copyFrom(serializeTask(task)));
+        configureExecutorForTask(
+            task,
+            template.executorTaskPrefix.get(),
+            acceptedOffer,
+            taskBuilder.getExecutorBuilder());
+        taskBuilder.setData(
+            ByteString.copyFrom(serializeTask(task, template.encodedConfig.get())));
       }
 
       return taskBuilder.build();
@@ -302,29 +428,14 @@ public interface MesosTaskFactory {
           .build();
     }
 
-    @SuppressWarnings("deprecation") // we set the source field for backwards compat.
-    private ExecutorInfo.Builder configureTaskForExecutor(
-        IAssignedTask task,
-        AcceptedOffer acceptedOffer) {
-
-      String sourceName = getInstanceSourceName(task.getTask(), task.getInstanceId());
-
+    private ExecutorInfo.Builder configureTaskForExecutor(ITaskConfig config) {
       ExecutorInfo.Builder builder =
-          executorSettings.getExecutorConfig(getExecutorName(task)).get()
+          executorSettings.getExecutorConfig(getExecutorName(config)).get()
           .getExecutor()
-          .toBuilder()
-          .setExecutorId(getExecutorId(
-              task.getTaskId(),
-              executorSettings.getExecutorConfig(getExecutorName(task)).get().getTaskPrefix()))
-          .setSource(sourceName)
-          .setLabels(
-              Labels.newBuilder().addLabels(
-                  Label.newBuilder()
-                      .setKey(SOURCE_LABEL)
-                      .setValue(sourceName)));
+          .toBuilder();
 
       //TODO: (rdelvalle) add output_file when Aurora's Mesos dep is updated (MESOS-4735)
-      List<CommandInfo.URI> mesosFetcherUris = task.getTask().getMesosFetcherUris().stream()
+      List<CommandInfo.URI> mesosFetcherUris = config.getMesosFetcherUris().stream()
           .map(u -> Protos.CommandInfo.URI.newBuilder().setValue(u.getValue())
               .setExecutable(false)
               .setExtract(u.isExtract())
@@ -332,13 +443,32 @@ public interface MesosTaskFactory {
           .collect(Collectors.toList());
 
       builder.setCommand(builder.getCommand().toBuilder().addAllUris(mesosFetcherUris));
+      return builder;
+    }
+
+    @SuppressWarnings("deprecation") // we set the source field for backwards compat.
+    private static void configureExecutorForTask(
+        IAssignedTask task,
+        String taskPrefix,
+        AcceptedOffer acceptedOffer,
+        ExecutorInfo.Builder builder) {
+
+      String sourceName = getInstanceSourceName(task.getTask(), task.getInstanceId());
+
+      builder
+          .setExecutorId(getExecutorId(task.getTaskId(), taskPrefix))
+          .setSource(sourceName)
+          .setLabels(
+              Labels.newBuilder().addLabels(
+                  Label.newBuilder()
+                      .setKey(SOURCE_LABEL)
+                      .setValue(sourceName)));
 
       Iterable<Resource> executorResources = acceptedOffer.getExecutorResources();
       LOG.debug(
           "Setting executor resources to {}",
           Iterables.transform(executorResources, Protobufs::toString));
       builder.clearResources().addAllResources(executorResources);
-      return builder;
     }
 
     private void configureTaskLabels(ITaskConfig config, TaskInfo.Builder taskBuilder) {
@@ -353,13 +483,16 @@ public interface MesosTaskFactory {
       taskBuilder.setLabels(labelsBuilder);
     }
 
-    private void configureDiscoveryInfos(IAssignedTask task, TaskInfo.Builder taskBuilder) {
+    private void configureDiscoveryInfos(ITaskConfig config, TaskInfo.Builder taskBuilder) {
       DiscoveryInfo.Builder builder = taskBuilder.getDiscoveryBuilder();
       builder.setVisibility(DiscoveryInfo.Visibility.CLUSTER);
-      builder.setName(getInverseJobSourceName(task.getTask().getJob()));
-      builder.setEnvironment(task.getTask().getJob().getEnvironment());
+      builder.setName(getInverseJobSourceName(config.getJob()));
+      builder.setEnvironment(config.getJob().getEnvironment());
       // A good sane choice for default location is current Aurora cluster name.
       builder.setLocation(serverInfo.getClusterName());
+    }
+
+    private static void configureDiscoveryPorts(IAssignedTask task, DiscoveryInfo.Builder builder) {
       for (Map.Entry<String, Integer> entry : task.getAssignedPorts().entrySet()) {
         builder.getPortsBuilder().addPorts(
             Port.newBuilder()
@@ -14,10 +14,12 @@
 package org.apache.aurora.scheduler.offers;
 
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
@@ -39,12 +41,14 @@ import org.apache.aurora.common.quantity.Time;
 import org.apache.aurora.common.stats.StatsProvider;
 import org.apache.aurora.gen.MaintenanceMode;
 import org.apache.aurora.scheduler.HostOffer;
+import org.apache.aurora.scheduler.TierInfo;
 import org.apache.aurora.scheduler.async.AsyncModule.AsyncExecutor;
 import org.apache.aurora.scheduler.async.DelayExecutor;
 import org.apache.aurora.scheduler.base.TaskGroupKey;
 import org.apache.aurora.scheduler.events.PubsubEvent.DriverDisconnected;
 import org.apache.aurora.scheduler.events.PubsubEvent.EventSubscriber;
 import org.apache.aurora.scheduler.mesos.Driver;
+import org.apache.aurora.scheduler.resources.ResourceBag;
 import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
 import org.apache.mesos.v1.Protos;
 import org.apache.mesos.v1.Protos.AgentID;
@@ -99,6 +103,15 @@ public interface OfferManager extends EventSubscriber {
    */
   void launchTask(OfferID offerId, Protos.TaskInfo task) throws LaunchException;
 
+  /**
+   * Launches several tasks matched against the same offer, with a single accept call.
+   *
+   * @param offerId Matched offer ID.
+   * @param tasks Matched task infos.
+   * @throws LaunchException If there was an error launching the tasks.
+   */
+  void launchTasks(OfferID offerId, List<Protos.TaskInfo> tasks) throws LaunchException;
+
   /**
    * Notifies the offer queue that a host's attributes have changed.
    *
@@ -121,6 +134,30 @@ public interface OfferManager extends EventSubscriber {
    */
   Iterable<HostOffer> getOffers(TaskGroupKey groupKey);
 
+  /**
+   * Gets all offers that are not statically banned for the given {@code groupKey} and have enough
+   * free resources in the given {@code tierInfo} to satisfy {@code request}.
+   *
+   * @param groupKey Task group key to check offers for.
+   * @param request Resources requested by the task group.
+   * @param tierInfo Tier of the task group.
+   * @return A snapshot of all offers eligible for the given {@code groupKey} and {@code request}.
+   */
+  Iterable<HostOffer> getOffers(TaskGroupKey groupKey, ResourceBag request, TierInfo tierInfo);
+
+  /**
+   * Gets the offer that comes closest to satisfying {@code request} in the given {@code tierInfo}
+   * without having enough free resources for it, among the offers that are not statically banned
+   * for the given {@code groupKey}.  This is an offer that
+   * {@link #getOffers(TaskGroupKey, ResourceBag, TierInfo)} skips.
+   *
+   * @param groupKey Task group key to check offers for.
+   * @param request Resources requested by the task group.
+   * @param tierInfo Tier of the task group.
+   * @return The nearest offer that is too small for {@code request}, if any.
+   */
+  Optional<HostOffer> getNearestMiss(TaskGroupKey groupKey, ResourceBag request, TierInfo tierInfo);
+
   /**
    * Gets an offer for the given slave ID.
    *
@@ -165,13 +202,14 @@ public interface OfferManager extends EventSubscriber {
     public OfferManagerImpl(
         Driver driver,
         OfferSettings offerSettings,
+        OfferOrder offerOrder,
         StatsProvider statsProvider,
         @AsyncExecutor DelayExecutor executor) {
 
       this.driver = requireNonNull(driver);
       this.offerSettings = requireNonNull(offerSettings);
       this.executor = requireNonNull(executor);
-      this.hostOffers = new HostOffers(statsProvider);
+      this.hostOffers = new HostOffers(requireNonNull(offerOrder), statsProvider);
       this.offerRaces = statsProvider.makeCounter(OFFER_ACCEPT_RACES);
     }
 
@@ -238,6 +276,24 @@ public interface OfferManager extends EventSubscriber {
       return hostOffers.getWeaklyConsistentOffers(groupKey);
     }
 
+    @Override
+    public Iterable<HostOffer> getOffers(
+        TaskGroupKey groupKey,
+        ResourceBag request,
+        TierInfo tierInfo) {
+
+      return hostOffers.getMatchingOffers(groupKey, request, tierInfo);
+    }
+
+    @Override
+    public Optional<HostOffer> getNearestMiss(
+        TaskGroupKey groupKey,
+        ResourceBag request,
+        TierInfo tierInfo) {
+
+      return hostOffers.getNearestMiss(groupKey, request, tierInfo);
+    }
+
     @Override
     public Optional<HostOffer> getOffer(AgentID slaveId) {
       return hostOffers.get(slaveId);
@@ -287,12 +343,17 @@ public interface OfferManager extends EventSubscriber {
       private final Map<OfferID, HostOffer> offersById = Maps.newHashMap();
       private final Map<AgentID, HostOffer> offersBySlave = Maps.newHashMap();
       private final Map<String, HostOffer> offersByHost = Maps.newHashMap();
+      // Resource indices are built lazily for each tier requested and kept up to date as offers
+      // are added and removed.
+      private final Map<TierInfo, OfferResourceIndex> resourceIndices = Maps.newHashMap();
+      private final OfferOrder offerOrder;
       // TODO(maxim): Expose via a debug endpoint. AURORA-1136.
       // Keep track of offer->groupKey mappings that will never be matched to avoid redundant
       // scheduling attempts. See VetoGroup for more details on static ban.
       private final Multimap<OfferID, TaskGroupKey> staticallyBannedOffers = HashMultimap.create();
 
-      HostOffers(StatsProvider statsProvider) {
+      HostOffers(OfferOrder offerOrder, StatsProvider statsProvider) {
+        this.offerOrder = offerOrder;
         // Potential gotcha - since this is a ConcurrentSkipListSet, size() is more expensive.
         // Could track this separately if it turns out to pose problems.
         statsProvider.exportSize(OUTSTANDING_OFFERS, offers);
@@ -308,6 +369,7 @@ public interface OfferManager extends EventSubscriber {
         offersById.put(offer.getOffer().getId(), offer);
         offersBySlave.put(offer.getOffer().getAgentId(), offer);
         offersByHost.put(offer.getOffer().getHostname(), offer);
+        resourceIndices.values().forEach(index -> index.add(offer));
       }
 
       synchronized boolean remove(OfferID id) {
@@ -317,6 +379,7 @@ public interface OfferManager extends EventSubscriber {
           offersBySlave.remove(removed.getOffer().getAgentId());
           offersByHost.remove(removed.getOffer().getHostname());
           staticallyBannedOffers.removeAll(id);
+          resourceIndices.values().forEach(index -> index.remove(removed));
         }
         return removed != null;
       }
@@ -339,6 +402,34 @@ public interface OfferManager extends EventSubscriber {
             e -> !staticallyBannedOffers.containsEntry(e.getOffer().getId(), groupKey)));
       }
 
+      synchronized Iterable<HostOffer> getMatchingOffers(
+          TaskGroupKey groupKey,
+          ResourceBag request,
+          TierInfo tierInfo) {
+
+        return FluentIterable.from(getResourceIndex(tierInfo).getCandidates(request))
+            .filter(e -> !staticallyBannedOffers.containsEntry(e.getOffer().getId(), groupKey))
+            .toList();
+      }
+
+      synchronized Optional<HostOffer> getNearestMiss(
+          TaskGroupKey groupKey,
+          ResourceBag request,
+          TierInfo tierInfo) {
+
+        return getResourceIndex(tierInfo).getNearestMiss(
+            request,
+            e -> !staticallyBannedOffers.containsEntry(e.getOffer().getId(), groupKey));
+      }
+
+      private OfferResourceIndex getResourceIndex(TierInfo tierInfo) {
+        return resourceIndices.computeIfAbsent(tierInfo, tier -> {
+          OfferResourceIndex newIndex = new OfferResourceIndex(tier, offerOrder);
+          offers.forEach(newIndex::add);
+          return newIndex;
+        });
+      }
+
       synchronized void addStaticGroupBan(OfferID offerId, TaskGroupKey groupKey) {
         if (offersById.containsKey(offerId)) {
           staticallyBannedOffers.put(offerId, groupKey);
@@ -351,6 +442,7 @@ public interface OfferManager extends EventSubscriber {
         offersBySlave.clear();
         offersByHost.clear();
         staticallyBannedOffers.clear();
+        resourceIndices.clear();
       }
     }
 
@@ -359,9 +451,14 @@ public interface OfferManager extends EventSubscriber {
       hostOffers.addStaticGroupBan(offerId, groupKey);
     }
 
-    @Timed("offer_manager_launch_task")
     @Override
     public void launchTask(OfferID offerId, Protos.TaskInfo task) throws LaunchException {
+      launchTasks(offerId, ImmutableList.of(task));
+    }
+
+    @Timed("offer_manager_launch_task")
+    @Override
+    public void launchTasks(OfferID offerId, List<Protos.TaskInfo> tasks) throws LaunchException {
       // Guard against an offer being removed after we grabbed it from the iterator.
       // If that happens, the offer will not exist in hostOffers, and we can immediately
       // send it back to LOST for quick reschedule.
@@ -369,16 +466,18 @@ public interface OfferManager extends EventSubscriber {
       // which is a feature of ConcurrentSkipListSet.
       if (hostOffers.remove(offerId)) {
         try {
-          Operation launch = Operation.newBuilder()
-              .setType(Operation.Type.LAUNCH)
-              .setLaunch(Operation.Launch.newBuilder().addTaskInfos(task))
-              .build();
-          driver.acceptOffers(offerId, ImmutableList.of(launch), getOfferFilter());
+          List<Operation> launches = tasks.stream()
+              .map(task -> Operation.newBuilder()
+                  .setType(Operation.Type.LAUNCH)
+                  .setLaunch(Operation.Launch.newBuilder().addTaskInfos(task))
+                  .build())
+              .collect(Collectors.toList());
+          driver.acceptOffers(offerId, launches, getOfferFilter());
         } catch (IllegalStateException e) {
           // TODO(William Farner): Catch only the checked exception produced by Driver
           // once it changes from throwing IllegalStateException when the driver is not yet
           // registered.
-          throw new LaunchException("Failed to launch task.", e);
+          throw new LaunchException("Failed to launch tasks.", e);
         }
       } else {
         offerRaces.incrementAndGet();
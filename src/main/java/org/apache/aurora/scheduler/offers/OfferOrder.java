@@ -0,0 +1,106 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.offers;
+
+import org.apache.aurora.scheduler.resources.ResourceBag;
+import org.apache.aurora.scheduler.resources.ResourceType;
+
+/**
+ * Determines the order in which offers of the same host maintenance preference are considered
+ * for task placement.
+ * <p>
+ * Offers are scored once when they are added to the offer pool, and the pool is kept sorted by
+ * score. Custom implementations may be provided with the {@code -offer_order_class} flag.
+ */
+public interface OfferOrder {
+  /**
+   * Imposes no order beyond the host maintenance preference, trying offers in the order they
+   * were added to the pool.
+   */
+  OfferOrder ARBITRARY = new OfferOrder() {
+    @Override
+    public double score(ResourceBag resources) {
+      return 0.0;
+    }
+
+    @Override
+    public boolean isDescending() {
+      return false;
+    }
+  };
+
+  /**
+   * Prefers the offers with the least free resources, packing tasks tightly onto hosts.
+   */
+  OfferOrder BEST_FIT = new OfferOrder() {
+    @Override
+    public double score(ResourceBag resources) {
+      return normalizedSum(resources);
+    }
+
+    @Override
+    public boolean isDescending() {
+      return false;
+    }
+  };
+
+  /**
+   * Prefers the offers with the most free resources, spreading tasks across hosts.
+   */
+  OfferOrder WORST_FIT = new OfferOrder() {
+    @Override
+    public double score(ResourceBag resources) {
+      return normalizedSum(resources);
+    }
+
+    @Override
+    public boolean isDescending() {
+      return true;
+    }
+  };
+
+  /**
+   * Scores the resources available in an offer.
+   * <p>
+   * Scores must never decrease when any resource value grows. This allows the offer pool to skip
+   * all offers scoring below the score of a resource request, since such offers cannot fit it.
+   *
+   * @param resources Resources available in an offer, or resources requested by a task.
+   * @return Offer score.
+   */
+  double score(ResourceBag resources);
+
+  /**
+   * Indicates whether offers with higher scores should be tried first.
+   *
+   * @return {@code true} to try high scores first, {@code false} to try low scores first.
+   */
+  boolean isDescending();
+
+  /**
+   * Sums all resource values, each normalized by the {@link ResourceType#getScalingRange()} of
+   * its type. Resource types are always summed in the same order, which keeps the result
+   * monotonic despite floating point rounding.
+   *
+   * @param resources Resources to sum.
+   * @return Normalized sum of resources.
+   */
+  static double normalizedSum(ResourceBag resources) {
+    double sum = 0.0;
+    for (ResourceType type : ResourceType.values()) {
+      sum += resources.valueOf(type) / type.getScalingRange();
+    }
+    return sum;
+  }
+}
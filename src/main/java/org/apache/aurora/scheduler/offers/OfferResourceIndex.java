@@ -0,0 +1,173 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.offers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import org.apache.aurora.gen.MaintenanceMode;
+import org.apache.aurora.scheduler.HostOffer;
+import org.apache.aurora.scheduler.TierInfo;
+import org.apache.aurora.scheduler.resources.ResourceBag;
+import org.apache.mesos.v1.Protos.OfferID;
+
+import static java.util.Objects.requireNonNull;
+
+import static org.apache.aurora.gen.MaintenanceMode.DRAINED;
+import static org.apache.aurora.gen.MaintenanceMode.DRAINING;
+import static org.apache.aurora.gen.MaintenanceMode.NONE;
+import static org.apache.aurora.gen.MaintenanceMode.SCHEDULED;
+
+/**
+ * An index of offers by the resources they make available to a single tier.
+ * <p>
+ * Offers are bucketed by host maintenance mode to preserve the scheduling preference, and are
+ * sorted by their {@link OfferOrder} score within each bucket. Since scores never decrease as
+ * resources grow, a lookup only visits offers scoring at least as high as the request and checks
+ * the individual resource vectors of each, so offers that could never fit are skipped without
+ * running the scheduling filter.
+ * <p>
+ * This class is not thread-safe, callers are expected to synchronize access.
+ */
+class OfferResourceIndex {
+  private static final List<MaintenanceMode> PREFERENCE_ORDER =
+      ImmutableList.of(NONE, SCHEDULED, DRAINING, DRAINED);
+
+  private final TierInfo tierInfo;
+  private final OfferOrder order;
+  private final Map<MaintenanceMode, NavigableMap<Double, Map<OfferID, HostOffer>>> buckets =
+      Maps.newEnumMap(MaintenanceMode.class);
+  private final Map<OfferID, Double> scores = Maps.newHashMap();
+
+  OfferResourceIndex(TierInfo tierInfo, OfferOrder order) {
+    this.tierInfo = requireNonNull(tierInfo);
+    this.order = requireNonNull(order);
+    for (MaintenanceMode mode : PREFERENCE_ORDER) {
+      buckets.put(mode, Maps.newTreeMap());
+    }
+  }
+
+  private NavigableMap<Double, Map<OfferID, HostOffer>> bucket(HostOffer offer) {
+    return buckets.get(offer.getAttributes().getMode());
+  }
+
+  void add(HostOffer offer) {
+    double score = order.score(offer.getResourceBag(tierInfo));
+    scores.put(offer.getOffer().getId(), score);
+    bucket(offer)
+        .computeIfAbsent(score, s -> Maps.newLinkedHashMap())
+        .put(offer.getOffer().getId(), offer);
+  }
+
+  void remove(HostOffer offer) {
+    Double score = scores.remove(offer.getOffer().getId());
+    if (score != null) {
+      NavigableMap<Double, Map<OfferID, HostOffer>> bucket = bucket(offer);
+      Map<OfferID, HostOffer> sameScore = bucket.get(score);
+      if (sameScore != null) {
+        sameScore.remove(offer.getOffer().getId());
+        if (sameScore.isEmpty()) {
+          bucket.remove(score);
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the offers that have enough resources to satisfy {@code request}, in the order of host
+   * maintenance preference and then {@link OfferOrder}.
+   *
+   * @param request Resources requested.
+   * @return A snapshot of the offers that can fit the request.
+   */
+  List<HostOffer> getCandidates(ResourceBag request) {
+    ImmutableList.Builder<HostOffer> candidates = ImmutableList.builder();
+    double minScore = order.score(request);
+    for (MaintenanceMode mode : PREFERENCE_ORDER) {
+      NavigableMap<Double, Map<OfferID, HostOffer>> eligible =
+          buckets.get(mode).tailMap(minScore, true);
+      if (order.isDescending()) {
+        eligible = eligible.descendingMap();
+      }
+      for (Map<OfferID, HostOffer> sameScore : eligible.values()) {
+        for (HostOffer offer : sameScore.values()) {
+          if (fits(offer.getResourceBag(tierInfo), request)) {
+            candidates.add(offer);
+          }
+        }
+      }
+    }
+    return candidates.build();
+  }
+
+  /**
+   * Gets the offer that comes closest to {@code request} without being able to fit it, which is
+   * the highest scoring offer that the index excludes from the candidates of the request. Offers
+   * of a preferred host maintenance mode win ties.
+   *
+   * @param request Resources requested.
+   * @param eligible Offers to consider.
+   * @return The nearest offer that cannot fit the request, or absent if every eligible offer fits.
+   */
+  Optional<HostOffer> getNearestMiss(ResourceBag request, Predicate<HostOffer> eligible) {
+    Optional<Map.Entry<Double, HostOffer>> nearest = Optional.absent();
+    for (MaintenanceMode mode : PREFERENCE_ORDER) {
+      Optional<Map.Entry<Double, HostOffer>> candidate =
+          getNearestMiss(buckets.get(mode), request, eligible);
+      if (candidate.isPresent()
+          && (!nearest.isPresent() || candidate.get().getKey() > nearest.get().getKey())) {
+
+        nearest = candidate;
+      }
+    }
+    return nearest.transform(Map.Entry::getValue);
+  }
+
+  private Optional<Map.Entry<Double, HostOffer>> getNearestMiss(
+      NavigableMap<Double, Map<OfferID, HostOffer>> bucket,
+      ResourceBag request,
+      Predicate<HostOffer> eligible) {
+
+    for (Map.Entry<Double, Map<OfferID, HostOffer>> sameScore
+        : bucket.descendingMap().entrySet()) {
+
+      for (HostOffer offer : sameScore.getValue().values()) {
+        if (!fits(offer.getResourceBag(tierInfo), request) && eligible.apply(offer)) {
+          return Optional.of(Maps.immutableEntry(sameScore.getKey(), offer));
+        }
+      }
+    }
+    return Optional.absent();
+  }
+
+  /**
+   * Checks if every resource vector of {@code request} is available in {@code available}. This
+   * mirrors the resource veto applied by the scheduling filter.
+   *
+   * @param available Available resources.
+   * @param request Requested resources.
+   * @return {@code true} if the request fits, {@code false} otherwise.
+   */
+  @VisibleForTesting
+  static boolean fits(ResourceBag available, ResourceBag request) {
+    return request.fitsWithin(available);
+  }
+}
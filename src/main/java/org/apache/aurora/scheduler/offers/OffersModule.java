@@ -50,6 +50,47 @@ public class OffersModule extends AbstractModule {
   private static final Arg<Amount<Long, Time>> OFFER_FILTER_DURATION =
       Arg.create(Amount.of(5L, Time.SECONDS));
 
+  /**
+   * Built-in policies for ordering offers of the same host maintenance preference.
+   */
+  public enum OfferOrderPolicy {
+    /**
+     * Try offers in no particular order, beyond the host maintenance preference.
+     */
+    ARBITRARY(OfferOrder.ARBITRARY),
+
+    /**
+     * Try offers with the least free resources first, packing tasks onto fewer hosts.
+     */
+    BEST_FIT(OfferOrder.BEST_FIT),
+
+    /**
+     * Try offers with the most free resources first, spreading tasks across hosts.
+     */
+    WORST_FIT(OfferOrder.WORST_FIT);
+
+    private final OfferOrder order;
+
+    OfferOrderPolicy(OfferOrder order) {
+      this.order = order;
+    }
+
+    public OfferOrder getOrder() {
+      return order;
+    }
+  }
+
+  @CmdLine(name = "offer_order",
+      help = "Policy used to order offers for task placement, within the same host maintenance "
+          + "mode. ARBITRARY imposes no order, BEST_FIT packs tasks tightly, WORST_FIT spreads "
+          + "them across hosts.")
+  private static final Arg<OfferOrderPolicy> OFFER_ORDER = Arg.create(OfferOrderPolicy.ARBITRARY);
+
+  @CmdLine(name = "offer_order_class",
+      help = "Fully qualified class name of a custom OfferOrder implementation. Overrides "
+          + "-offer_order when set.")
+  private static final Arg<Class<? extends OfferOrder>> OFFER_ORDER_CLASS = Arg.create();
+
   @Override
   protected void configure() {
     install(new PrivateModule() {
@@ -62,6 +103,11 @@ public class OffersModule extends AbstractModule {
                     MIN_OFFER_HOLD_TIME.get().as(Time.MILLISECONDS),
                     OFFER_HOLD_JITTER_WINDOW.get().as(Time.MILLISECONDS),
                     Random.Util.newDefaultRandom())));
+        if (OFFER_ORDER_CLASS.hasAppliedValue()) {
+          bind(OfferOrder.class).to(OFFER_ORDER_CLASS.get());
+        } else {
+          bind(OfferOrder.class).toInstance(OFFER_ORDER.get().getOrder());
+        }
         bind(OfferManager.class).to(OfferManager.OfferManagerImpl.class);
         bind(OfferManager.OfferManagerImpl.class).in(Singleton.class);
         expose(OfferManager.class);
@@ -0,0 +1,294 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.preemptor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+
+import org.apache.aurora.scheduler.TierInfo;
+import org.apache.aurora.scheduler.TierManager;
+import org.apache.aurora.scheduler.configuration.executor.ExecutorSettings;
+import org.apache.aurora.scheduler.resources.ResourceBag;
+import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
+
+import static org.apache.aurora.scheduler.resources.ResourceBag.EMPTY;
+import static org.apache.aurora.scheduler.resources.ResourceBag.IS_MESOS_REVOCABLE;
+
+/**
+ * An immutable index of the active tasks (victims) on a single agent, grouped by tier and role and
+ * sorted by priority.
+ * <p>
+ * The index holds prefix sums of the resources that can be reclaimed from each group, which
+ * answers "how much could a pending task of priority P get from this agent" with a binary search
+ * instead of a scan over all active tasks.
+ */
+public final class AgentVictims {
+  public static final AgentVictims EMPTY_AGENT = new AgentVictims(
+      ImmutableMap.of(),
+      ImmutableList.of(),
+      EMPTY,
+      ImmutableMap.of(),
+      ImmutableMap.of());
+
+  // Resources reclaimable from each victim.
+  private final ImmutableMap<PreemptionVictim, ResourceBag> victims;
+  private final ImmutableList<PreemptionVictim> preemptible;
+  private final ResourceBag preemptibleTotal;
+  private final ImmutableMap<String, PriorityGroup> preemptibleByRole;
+  private final ImmutableMap<String, PriorityGroup> nonPreemptibleByRole;
+
+  private AgentVictims(
+      ImmutableMap<PreemptionVictim, ResourceBag> victims,
+      ImmutableList<PreemptionVictim> preemptible,
+      ResourceBag preemptibleTotal,
+      ImmutableMap<String, PriorityGroup> preemptibleByRole,
+      ImmutableMap<String, PriorityGroup> nonPreemptibleByRole) {
+
+    this.victims = victims;
+    this.preemptible = preemptible;
+    this.preemptibleTotal = preemptibleTotal;
+    this.preemptibleByRole = preemptibleByRole;
+    this.nonPreemptibleByRole = nonPreemptibleByRole;
+  }
+
+  /**
+   * Indexes the active tasks of an agent.
+   *
+   * @param victims Active tasks on the agent.
+   * @param tierManager Tier manager to tell preemptible and revocable victims apart.
+   * @param executorSettings Executor settings to account for executor overhead.
+   * @return An index of the victims.
+   */
+  public static AgentVictims create(
+      Iterable<PreemptionVictim> victims,
+      TierManager tierManager,
+      ExecutorSettings executorSettings) {
+
+    if (Iterables.isEmpty(victims)) {
+      return EMPTY_AGENT;
+    }
+
+    ImmutableMap.Builder<PreemptionVictim, ResourceBag> resources = ImmutableMap.builder();
+    ImmutableList.Builder<PreemptionVictim> preemptible = ImmutableList.builder();
+    ResourceBag.Accumulator preemptibleTotal = ResourceBag.accumulator();
+    Map<String, List<PreemptionVictim>> preemptibleByRole = Maps.newHashMap();
+    Map<String, List<PreemptionVictim>> nonPreemptibleByRole = Maps.newHashMap();
+    for (PreemptionVictim victim : ImmutableSet.copyOf(victims)) {
+      TierInfo tier = tierManager.getTier(victim.getConfig());
+      ResourceBag reclaimable = reclaimableResources(victim, tier, executorSettings);
+      resources.put(victim, reclaimable);
+      if (tier.isPreemptible()) {
+        preemptible.add(victim);
+        preemptibleTotal.add(reclaimable);
+        preemptibleByRole.computeIfAbsent(victim.getRole(), role -> Lists.newArrayList())
+            .add(victim);
+      } else {
+        nonPreemptibleByRole.computeIfAbsent(victim.getRole(), role -> Lists.newArrayList())
+            .add(victim);
+      }
+    }
+
+    ImmutableMap<PreemptionVictim, ResourceBag> resourcesByVictim = resources.build();
+    return new AgentVictims(
+        resourcesByVictim,
+        preemptible.build(),
+        preemptibleTotal.build(),
+        groupByRole(preemptibleByRole, resourcesByVictim),
+        groupByRole(nonPreemptibleByRole, resourcesByVictim));
+  }
+
+  private static ResourceBag reclaimableResources(
+      PreemptionVictim victim,
+      TierInfo tier,
+      ExecutorSettings executorSettings) {
+
+    ResourceBag bag = victim.getResourceBag();
+
+    if (victim.getConfig().isSetExecutorConfig()) {
+      // Be pessimistic about revocable resource available if config is not available
+      bag.add(executorSettings.getExecutorOverhead(
+          victim.getConfig().getExecutorConfig().getName()).orElse(EMPTY));
+    }
+
+    if (tier.isRevocable()) {
+      // Revocable task CPU cannot be used for preemption purposes as it's a compressible
+      // resource. We can still use RAM, DISK and PORTS as they are not compressible.
+      bag = bag.filter(IS_MESOS_REVOCABLE.negate());
+    }
+
+    return bag;
+  }
+
+  private static ImmutableMap<String, PriorityGroup> groupByRole(
+      Map<String, List<PreemptionVictim>> byRole,
+      Map<PreemptionVictim, ResourceBag> resources) {
+
+    ImmutableMap.Builder<String, PriorityGroup> groups = ImmutableMap.builder();
+    for (Map.Entry<String, List<PreemptionVictim>> entry : byRole.entrySet()) {
+      groups.put(entry.getKey(), new PriorityGroup(entry.getValue(), resources));
+    }
+    return groups.build();
+  }
+
+  /**
+   * Gets all indexed victims.
+   *
+   * @return Active tasks on the agent.
+   */
+  public ImmutableSet<PreemptionVictim> getVictims() {
+    return victims.keySet();
+  }
+
+  /**
+   * Gets the resources that preempting a victim would free up.
+   *
+   * @param victim An indexed victim.
+   * @return Reclaimable resources of the victim.
+   */
+  public ResourceBag getReclaimable(PreemptionVictim victim) {
+    return victims.get(victim);
+  }
+
+  /**
+   * Gets the victims a pending task may preempt: victims of the same role and preemptibility with a
+   * lower priority, as well as any preemptible victim if the pending task is not preemptible.
+   *
+   * @param pendingTask Task to search preemption slot for.
+   * @param pendingIsPreemptible Whether the pending task belongs to a preemptible tier.
+   * @return Victims eligible for preemption.
+   */
+  public List<PreemptionVictim> getEligibleVictims(
+      ITaskConfig pendingTask,
+      boolean pendingIsPreemptible) {
+
+    String role = pendingTask.getJob().getRole();
+    int priority = pendingTask.getPriority();
+    if (pendingIsPreemptible) {
+      return getGroup(preemptibleByRole, role).getVictimsBelow(priority);
+    }
+
+    List<PreemptionVictim> sameRole =
+        getGroup(nonPreemptibleByRole, role).getVictimsBelow(priority);
+    return sameRole.isEmpty()
+        ? preemptible
+        : ImmutableList.copyOf(Iterables.concat(preemptible, sameRole));
+  }
+
+  /**
+   * Gets the total resources that preempting all eligible victims would free up.
+   *
+   * @param pendingTask Task to search preemption slot for.
+   * @param pendingIsPreemptible Whether the pending task belongs to a preemptible tier.
+   * @return Sum of the reclaimable resources of {@link #getEligibleVictims}.
+   */
+  public ResourceBag getEligibleReclaimable(
+      ITaskConfig pendingTask,
+      boolean pendingIsPreemptible) {
+
+    String role = pendingTask.getJob().getRole();
+    int priority = pendingTask.getPriority();
+    if (pendingIsPreemptible) {
+      return getGroup(preemptibleByRole, role).getReclaimableBelow(priority);
+    }
+
+    return preemptibleTotal.add(getGroup(nonPreemptibleByRole, role).getReclaimableBelow(priority));
+  }
+
+  private static PriorityGroup getGroup(Map<String, PriorityGroup> groups, String role) {
+    PriorityGroup group = groups.get(role);
+    return group == null ? PriorityGroup.EMPTY_GROUP : group;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof AgentVictims)) {
+      return false;
+    }
+
+    AgentVictims other = (AgentVictims) o;
+    return Objects.equals(victims, other.victims);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(victims);
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("victims", victims.keySet())
+        .toString();
+  }
+
+  /**
+   * Victims sorted by ascending priority, with prefix sums of their reclaimable resources.
+   */
+  private static final class PriorityGroup {
+    private static final Ordering<PreemptionVictim> PRIORITY_ORDER =
+        Ordering.natural().onResultOf(PreemptionVictim::getPriority);
+
+    static final PriorityGroup EMPTY_GROUP =
+        new PriorityGroup(ImmutableList.of(), ImmutableMap.of());
+
+    private final ImmutableList<PreemptionVictim> victims;
+    private final int[] priorities;
+    // prefixSums[i] holds the reclaimable resources of the first i victims.
+    private final ResourceBag[] prefixSums;
+
+    PriorityGroup(List<PreemptionVictim> unsorted, Map<PreemptionVictim, ResourceBag> resources) {
+      this.victims = PRIORITY_ORDER.immutableSortedCopy(unsorted);
+      this.priorities = new int[victims.size()];
+      this.prefixSums = new ResourceBag[victims.size() + 1];
+      prefixSums[0] = EMPTY;
+      for (int i = 0; i < victims.size(); i++) {
+        priorities[i] = victims.get(i).getPriority();
+        prefixSums[i + 1] = prefixSums[i].add(resources.get(victims.get(i)));
+      }
+    }
+
+    // Finds the number of victims with a priority lower than the given one.
+    private int countBelow(int priority) {
+      int low = 0;
+      int high = priorities.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (priorities[mid] < priority) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    List<PreemptionVictim> getVictimsBelow(int priority) {
+      return victims.subList(0, countBelow(priority));
+    }
+
+    ResourceBag getReclaimableBelow(int priority) {
+      return prefixSums[countBelow(priority)];
+    }
+  }
+}
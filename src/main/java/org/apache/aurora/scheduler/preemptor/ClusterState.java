@@ -13,8 +13,9 @@
  */
 package org.apache.aurora.scheduler.preemptor;
 
+import java.util.Map;
+
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.Multimap;
 
 /**
  * A facade for the preemptor to gain access to the state of scheduled tasks in the cluster.
@@ -24,11 +25,9 @@ public interface ClusterState {
 
   /**
    * Gets a snapshot of the active tasks in the cluster, indexed by the slave IDs they are
-   * assigned to.
-   * <p>
-   * TODO(wfarner): Return a more minimal type than IAssignedTask here.
+   * assigned to. Slaves without active tasks are omitted.
    *
-   * @return Active tasks and their associated slave IDs.
+   * @return Active tasks of each slave, keyed by slave ID.
    */
-  Multimap<String, PreemptionVictim> getSlavesToActiveTasks();
+  Map<String, AgentVictims> getSlavesToVictims();
 }
@@ -13,26 +13,46 @@
  */
 package org.apache.aurora.scheduler.preemptor;
 
+import java.util.Map;
+
+import javax.inject.Inject;
+
 import com.google.common.collect.HashMultimap;
-import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.eventbus.Subscribe;
 
+import org.apache.aurora.scheduler.TierManager;
 import org.apache.aurora.scheduler.base.Tasks;
+import org.apache.aurora.scheduler.configuration.executor.ExecutorSettings;
 import org.apache.aurora.scheduler.events.PubsubEvent;
 import org.apache.aurora.scheduler.events.PubsubEvent.TaskStateChange;
 
+import static java.util.Objects.requireNonNull;
+
 /**
  * A cached view of cluster state, kept up to date by pubsub notifications.
  */
 public class ClusterStateImpl implements ClusterState, PubsubEvent.EventSubscriber {
 
+  private final TierManager tierManager;
+  private final ExecutorSettings executorSettings;
   private final Multimap<String, PreemptionVictim> victims = HashMultimap.create();
+  // Victim indices are rebuilt for a slave whenever its active tasks change, so that preemption
+  // slot searches can share them rather than re-sorting the victims of every slave.
+  private final Map<String, AgentVictims> index = Maps.newHashMap();
+
+  @Inject
+  public ClusterStateImpl(TierManager tierManager, ExecutorSettings executorSettings) {
+    this.tierManager = requireNonNull(tierManager);
+    this.executorSettings = requireNonNull(executorSettings);
+  }
 
   @Override
-  public Multimap<String, PreemptionVictim> getSlavesToActiveTasks() {
+  public Map<String, AgentVictims> getSlavesToVictims() {
     synchronized (victims) {
-      return ImmutableSetMultimap.copyOf(victims);
+      return ImmutableMap.copyOf(index);
     }
   }
 
@@ -41,10 +61,21 @@ public class ClusterStateImpl implements ClusterState, PubsubEvent.EventSubscrib
     synchronized (victims) {
       String slaveId = stateChange.getTask().getAssignedTask().getSlaveId();
       PreemptionVictim victim = PreemptionVictim.fromTask(stateChange.getTask().getAssignedTask());
+      boolean changed;
       if (Tasks.SLAVE_ASSIGNED_STATES.contains(stateChange.getNewState())) {
-        victims.put(slaveId, victim);
+        changed = victims.put(slaveId, victim);
       } else {
-        victims.remove(slaveId, victim);
+        changed = victims.remove(slaveId, victim);
+      }
+
+      if (changed) {
+        if (victims.containsKey(slaveId)) {
+          index.put(
+              slaveId,
+              AgentVictims.create(victims.get(slaveId), tierManager, executorSettings));
+        } else {
+          index.remove(slaveId);
+        }
       }
     }
   }
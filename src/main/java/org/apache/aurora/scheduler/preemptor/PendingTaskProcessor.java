@@ -20,6 +20,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Qualifier;
@@ -31,17 +35,19 @@ import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.base.Throwables;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
 
@@ -54,13 +60,18 @@ import org.apache.aurora.scheduler.base.Query;
 import org.apache.aurora.scheduler.base.TaskGroupKey;
 import org.apache.aurora.scheduler.base.Tasks;
 import org.apache.aurora.scheduler.filter.AttributeAggregate;
+import org.apache.aurora.scheduler.filter.AttributeAggregateIndex;
 import org.apache.aurora.scheduler.offers.OfferManager;
+import org.apache.aurora.scheduler.preemptor.PreemptionVictimFilter.PreemptionVictimFilterImpl;
 import org.apache.aurora.scheduler.storage.Storage;
 import org.apache.aurora.scheduler.storage.Storage.StoreProvider;
 import org.apache.aurora.scheduler.storage.entities.IAssignedTask;
+import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
 import org.apache.aurora.scheduler.storage.entities.IJobKey;
 import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
 import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import static java.lang.annotation.ElementType.FIELD;
 import static java.lang.annotation.ElementType.METHOD;
@@ -75,15 +86,20 @@ import static org.apache.aurora.gen.ScheduleStatus.PENDING;
  */
 @VisibleForTesting
 public class PendingTaskProcessor implements Runnable {
+  private static final Logger LOG = LoggerFactory.getLogger(PendingTaskProcessor.class);
+
   private final Storage storage;
   private final OfferManager offerManager;
   private final PreemptionVictimFilter preemptionVictimFilter;
+  private final AttributeAggregateIndex attributeAggregates;
   private final PreemptorMetrics metrics;
   private final Amount<Long, Time> preemptionCandidacyDelay;
   private final BiCache<PreemptionProposal, TaskGroupKey> slotCache;
   private final ClusterState clusterState;
   private final Clock clock;
   private final Integer reservationBatchSize;
+  private final SlotSearchSettings settings;
+  private final Executor executor;
 
   /**
    * Binding annotation for the time interval after which a pending task becomes eligible to
@@ -105,27 +121,69 @@ public class PendingTaskProcessor implements Runnable {
   @Target({ FIELD, PARAMETER, METHOD }) @Retention(RUNTIME)
   @interface ReservationBatchSize { }
 
+  /**
+   * Binding annotation for the executor that evaluates preemption slots on slaves.
+   */
+  @Qualifier
+  @Target({ FIELD, PARAMETER, METHOD }) @Retention(RUNTIME)
+  @interface SlotSearchExecutor { }
+
+  /**
+   * Settings for a single preemption slot search run.
+   */
+  @VisibleForTesting
+  public static class SlotSearchSettings {
+    private final int parallelism;
+    private final Amount<Long, Time> timeBudget;
+
+    /**
+     * Creates slot search settings.
+     *
+     * @param parallelism Maximum number of slaves to evaluate concurrently for a task group.
+     * @param timeBudget Time after which a run stops evaluating further task groups.
+     */
+    public SlotSearchSettings(int parallelism, Amount<Long, Time> timeBudget) {
+      Preconditions.checkArgument(parallelism > 0, "parallelism should be positive.");
+      this.parallelism = parallelism;
+      this.timeBudget = requireNonNull(timeBudget);
+    }
+
+    int getParallelism() {
+      return parallelism;
+    }
+
+    Amount<Long, Time> getTimeBudget() {
+      return timeBudget;
+    }
+  }
+
   @Inject
   PendingTaskProcessor(
       Storage storage,
       OfferManager offerManager,
       PreemptionVictimFilter preemptionVictimFilter,
+      AttributeAggregateIndex attributeAggregates,
       PreemptorMetrics metrics,
       @PreemptionDelay Amount<Long, Time> preemptionCandidacyDelay,
       BiCache<PreemptionProposal, TaskGroupKey> slotCache,
       ClusterState clusterState,
       Clock clock,
-      @ReservationBatchSize Integer reservationBatchSize) {
+      @ReservationBatchSize Integer reservationBatchSize,
+      SlotSearchSettings settings,
+      @SlotSearchExecutor Executor executor) {
 
     this.storage = requireNonNull(storage);
     this.offerManager = requireNonNull(offerManager);
     this.preemptionVictimFilter = requireNonNull(preemptionVictimFilter);
+    this.attributeAggregates = requireNonNull(attributeAggregates);
     this.metrics = requireNonNull(metrics);
     this.preemptionCandidacyDelay = requireNonNull(preemptionCandidacyDelay);
     this.slotCache = requireNonNull(slotCache);
     this.clusterState = requireNonNull(clusterState);
     this.clock = requireNonNull(clock);
     this.reservationBatchSize = requireNonNull(reservationBatchSize);
+    this.settings = requireNonNull(settings);
+    this.executor = requireNonNull(executor);
   }
 
   @Timed("pending_task_processor_run")
@@ -133,8 +191,7 @@ public class PendingTaskProcessor implements Runnable {
   public void run() {
     metrics.recordTaskProcessorRun();
     storage.read(store -> {
-      Multimap<String, PreemptionVictim> slavesToActiveTasks =
-          clusterState.getSlavesToActiveTasks();
+      Map<String, AgentVictims> slavesToActiveTasks = clusterState.getSlavesToVictims();
 
       if (slavesToActiveTasks.isEmpty()) {
         // No preemption victims to consider.
@@ -145,9 +202,9 @@ public class PendingTaskProcessor implements Runnable {
       Map<String, HostOffer> slavesToOffers =
           Maps.uniqueIndex(offerManager.getOffers(), OFFER_TO_SLAVE_ID);
 
-      Set<String> allSlaves = Sets.newHashSet(Iterables.concat(
+      List<String> allSlaves = ImmutableList.copyOf(Sets.newHashSet(Iterables.concat(
           slavesToOffers.keySet(),
-          slavesToActiveTasks.keySet()));
+          slavesToActiveTasks.keySet())));
 
       // The algorithm below attempts to find a reservation for every task group by matching
       // it against all available slaves until a preemption slot is found. Groups are evaluated
@@ -156,13 +213,25 @@ public class PendingTaskProcessor implements Runnable {
       // identical task group instances are removed from further iteration if none of the
       // available slaves could yield a preemption proposal. A consuming iterator is used for
       // task groups to ensure iteration order is preserved after a task group is removed.
+      // Slaves are evaluated in parallel batches, but a batch is always resolved in slave order,
+      // so reservations are the same as those of a sequential search.
+      long deadline = clock.nowMillis() + settings.getTimeBudget().as(Time.MILLISECONDS);
       LoadingCache<IJobKey, AttributeAggregate> jobStates = attributeCache(store);
       List<TaskGroupKey> pendingGroups = fetchIdlePendingGroups(store);
       Iterator<TaskGroupKey> groups = Iterators.consumingIterator(pendingGroups.iterator());
       TaskGroupKey lastGroup = null;
-      Iterator<String> slaveIterator = allSlaves.iterator();
+      Set<String> reservedSlaves = Sets.newHashSet();
+      Map<String, Optional<IHostAttributes>> hostAttributes = Maps.newHashMap();
+      int nextSlave = 0;
 
       while (!pendingGroups.isEmpty()) {
+        if (clock.nowMillis() >= deadline) {
+          LOG.info("Preemption slot search ran out of time with {} task groups remaining.",
+              pendingGroups.size());
+          metrics.recordSlotSearchTimeout();
+          break;
+        }
+
         boolean matched = false;
         TaskGroupKey group = groups.next();
         ITaskConfig task = group.getTask();
@@ -170,27 +239,45 @@ public class PendingTaskProcessor implements Runnable {
         metrics.recordPreemptionAttemptFor(task);
         // start over only if a different task group is being processed
         if (!group.equals(lastGroup)) {
-          slaveIterator = allSlaves.iterator();
+          nextSlave = 0;
         }
-        while (slaveIterator.hasNext()) {
-          String slaveId = slaveIterator.next();
-          Optional<ImmutableSet<PreemptionVictim>> candidates =
-              preemptionVictimFilter.filterPreemptionVictims(
-                  task,
-                  slavesToActiveTasks.get(slaveId),
-                  jobStates.getUnchecked(task.getJob()),
-                  Optional.fromNullable(slavesToOffers.get(slaveId)),
-                  store);
-
-          metrics.recordSlotSearchResult(candidates, task);
-          if (candidates.isPresent()) {
-            // Slot found -> remove slave to avoid multiple task reservations.
-            slaveIterator.remove();
-            slotCache.put(new PreemptionProposal(candidates.get(), slaveId), group);
-            matched = true;
-            break;
+        while (nextSlave < allSlaves.size() && !matched && clock.nowMillis() < deadline) {
+          List<Integer> batch = Lists.newArrayList();
+          while (nextSlave < allSlaves.size() && batch.size() < settings.getParallelism()) {
+            if (!reservedSlaves.contains(allSlaves.get(nextSlave))) {
+              batch.add(nextSlave);
+            }
+            nextSlave++;
+          }
+
+          List<Optional<ImmutableSet<PreemptionVictim>>> results = searchSlots(
+              task,
+              Lists.transform(batch, allSlaves::get),
+              slavesToActiveTasks,
+              slavesToOffers,
+              jobStates.getUnchecked(task.getJob()),
+              hostAttributes,
+              store);
+          for (int i = 0; i < batch.size(); i++) {
+            Optional<ImmutableSet<PreemptionVictim>> candidates = results.get(i);
+            metrics.recordSlotSearchResult(candidates, task);
+            if (candidates.isPresent()) {
+              // Slot found -> remove slave to avoid multiple task reservations. Slaves after it
+              // in this batch are evaluated again if the same group is processed next.
+              String slaveId = allSlaves.get(batch.get(i));
+              reservedSlaves.add(slaveId);
+              nextSlave = batch.get(i) + 1;
+              slotCache.put(new PreemptionProposal(candidates.get(), slaveId), group);
+              matched = true;
+              break;
+            }
           }
         }
+        if (!matched && nextSlave < allSlaves.size()) {
+          // Ran out of time before all slaves were evaluated, the group may still be matched in
+          // the next run.
+          continue;
+        }
         if (!matched) {
           // No slot found for the group -> remove group and reset group iterator.
           pendingGroups.removeAll(ImmutableSet.of(group));
@@ -203,6 +290,51 @@ public class PendingTaskProcessor implements Runnable {
     });
   }
 
+  private List<Optional<ImmutableSet<PreemptionVictim>>> searchSlots(
+      ITaskConfig task,
+      List<String> slaveIds,
+      Map<String, AgentVictims> slavesToActiveTasks,
+      Map<String, HostOffer> slavesToOffers,
+      AttributeAggregate jobState,
+      Map<String, Optional<IHostAttributes>> hostAttributes,
+      StoreProvider store) {
+
+    // The store provider is only usable on this thread, so the host attributes of the slaves are
+    // fetched here and handed to the searches.
+    Map<String, Optional<IHostAttributes>> batchAttributes = Maps.newHashMap();
+    for (String slaveId : slaveIds) {
+      Optional<String> host = PreemptionVictimFilterImpl.getHost(
+          slavesToActiveTasks.getOrDefault(slaveId, AgentVictims.EMPTY_AGENT),
+          Optional.fromNullable(slavesToOffers.get(slaveId)));
+      if (host.isPresent()) {
+        batchAttributes.put(host.get(), hostAttributes.computeIfAbsent(
+            host.get(),
+            h -> store.getAttributeStore().getHostAttributes(h)));
+      }
+    }
+    Map<String, Optional<IHostAttributes>> attributesByHost = ImmutableMap.copyOf(batchAttributes);
+
+    List<CompletableFuture<Optional<ImmutableSet<PreemptionVictim>>>> searches =
+        Lists.newArrayListWithCapacity(slaveIds.size());
+    for (String slaveId : slaveIds) {
+      searches.add(CompletableFuture.supplyAsync(
+          () -> preemptionVictimFilter.filterPreemptionVictims(
+              task,
+              slavesToActiveTasks.getOrDefault(slaveId, AgentVictims.EMPTY_AGENT),
+              jobState,
+              Optional.fromNullable(slavesToOffers.get(slaveId)),
+              host -> attributesByHost.getOrDefault(host, Optional.absent())),
+          executor));
+    }
+
+    try {
+      return searches.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    } catch (CompletionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw e;
+    }
+  }
+
   private List<TaskGroupKey> fetchIdlePendingGroups(StoreProvider store) {
     Multiset<TaskGroupKey> taskGroupCounts = HashMultiset.create(
         FluentIterable.from(store.getTaskStore().fetchTasks(Query.statusScoped(PENDING)))
@@ -249,7 +381,7 @@ public class PendingTaskProcessor implements Runnable {
         new Function<IJobKey, AttributeAggregate>() {
           @Override
           public AttributeAggregate apply(IJobKey job) {
-            return AttributeAggregate.getJobActiveState(store, job);
+            return attributeAggregates.getJobActiveState(store, job);
           }
         }));
   }
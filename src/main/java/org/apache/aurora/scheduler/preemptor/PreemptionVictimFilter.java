@@ -15,14 +15,12 @@ package org.apache.aurora.scheduler.preemptor;
 
 import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
 
 import javax.inject.Inject;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Function;
 import com.google.common.base.Optional;
-import com.google.common.base.Predicate;
-import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -36,7 +34,6 @@ import org.apache.aurora.scheduler.filter.AttributeAggregate;
 import org.apache.aurora.scheduler.filter.SchedulingFilter;
 import org.apache.aurora.scheduler.filter.SchedulingFilter.ResourceRequest;
 import org.apache.aurora.scheduler.filter.SchedulingFilter.UnusedResource;
-import org.apache.aurora.scheduler.filter.SchedulingFilter.Veto;
 import org.apache.aurora.scheduler.resources.ResourceBag;
 import org.apache.aurora.scheduler.resources.ResourceManager;
 import org.apache.aurora.scheduler.storage.Storage.StoreProvider;
@@ -46,7 +43,6 @@ import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
 import static java.util.Objects.requireNonNull;
 
 import static org.apache.aurora.scheduler.resources.ResourceBag.EMPTY;
-import static org.apache.aurora.scheduler.resources.ResourceBag.IS_MESOS_REVOCABLE;
 import static org.apache.aurora.scheduler.resources.ResourceManager.bagFromMesosResources;
 import static org.apache.aurora.scheduler.resources.ResourceManager.getNonRevocableOfferResources;
 
@@ -83,6 +79,26 @@ public interface PreemptionVictimFilter {
       Optional<HostOffer> offer,
       StoreProvider storeProvider);
 
+  /**
+   * Returns a set of {@link PreemptionVictim} that can accommodate a given task if preempted.
+   * <p>
+   * Unlike a store provider, the host attributes lookup may be called from any thread, which
+   * allows evaluating several slaves in parallel within a single storage operation.
+   *
+   * @param pendingTask Task to search preemption slot for.
+   * @param victims Index of the active tasks on a slave.
+   * @param attributeAggregate An {@link AttributeAggregate} instance for the task's job.
+   * @param offer A resource offer for a slave.
+   * @param hostAttributes Looks up the attributes of a host.
+   * @return A set of {@code PreemptionVictim} instances to preempt for a given task.
+   */
+  Optional<ImmutableSet<PreemptionVictim>> filterPreemptionVictims(
+      ITaskConfig pendingTask,
+      AgentVictims victims,
+      AttributeAggregate attributeAggregate,
+      Optional<HostOffer> offer,
+      Function<String, Optional<IHostAttributes>> hostAttributes);
+
   class PreemptionVictimFilterImpl implements PreemptionVictimFilter {
     private final SchedulingFilter schedulingFilter;
     private final ExecutorSettings executorSettings;
@@ -108,28 +124,6 @@ public interface PreemptionVictimFilter {
     private static final Function<PreemptionVictim, String> VICTIM_TO_HOST =
         PreemptionVictim::getSlaveHost;
 
-    private final Function<PreemptionVictim, ResourceBag> victimToResources =
-        new Function<PreemptionVictim, ResourceBag>() {
-          @Override
-          public ResourceBag apply(PreemptionVictim victim) {
-            ResourceBag bag = victim.getResourceBag();
-
-            if (victim.getConfig().isSetExecutorConfig()) {
-              // Be pessimistic about revocable resource available if config is not available
-              bag.add(executorSettings.getExecutorOverhead(
-                  victim.getConfig().getExecutorConfig().getName()).orElse(EMPTY));
-            }
-
-            if (tierManager.getTier(victim.getConfig()).isRevocable()) {
-              // Revocable task CPU cannot be used for preemption purposes as it's a compressible
-              // resource. We can still use RAM, DISK and PORTS as they are not compressible.
-              bag = bag.filter(IS_MESOS_REVOCABLE.negate());
-            }
-
-            return bag;
-          }
-        };
-
     private static final java.util.function.Predicate<Integer> IS_ZERO = e -> e == 0;
 
     /**
@@ -163,11 +157,6 @@ public interface PreemptionVictimFilter {
       }
     };
 
-    // TODO(zmanji) Consider using Dominant Resource Fairness for ordering instead of the vector
-    // ordering
-    private final Ordering<PreemptionVictim> resourceOrder =
-        ORDER.onResultOf(victimToResources).reverse();
-
     @Override
     public Optional<ImmutableSet<PreemptionVictim>> filterPreemptionVictims(
         ITaskConfig pendingTask,
@@ -176,29 +165,60 @@ public interface PreemptionVictimFilter {
         Optional<HostOffer> offer,
         StoreProvider storeProvider) {
 
+      return filterPreemptionVictims(
+          pendingTask,
+          AgentVictims.create(possibleVictims, tierManager, executorSettings),
+          jobState,
+          offer,
+          host -> storeProvider.getAttributeStore().getHostAttributes(host));
+    }
+
+    /**
+     * Gets the host of the victims on a slave and of its offer.
+     *
+     * @param victims Index of the active tasks on a slave.
+     * @param offer A resource offer for the slave.
+     * @return The host, or absent if there are no victims on the slave.
+     */
+    static Optional<String> getHost(AgentVictims victims, Optional<HostOffer> offer) {
       // This enforces the precondition that all of the resources are from the same host. We need to
       // get the host for the schedulingFilter.
       Set<String> hosts = ImmutableSet.<String>builder()
-          .addAll(Iterables.transform(possibleVictims, VICTIM_TO_HOST))
-          .addAll(Iterables.transform(offer.asSet(), OFFER_TO_HOST)).build();
+          .addAll(Iterables.transform(victims.getVictims(), VICTIM_TO_HOST::apply))
+          .addAll(Iterables.transform(offer.asSet(), OFFER_TO_HOST::apply)).build();
+
+      if (victims.getVictims().isEmpty()) {
+        return Optional.absent();
+      }
+      return Optional.of(Iterables.getOnlyElement(hosts));
+    }
+
+    @Override
+    public Optional<ImmutableSet<PreemptionVictim>> filterPreemptionVictims(
+        ITaskConfig pendingTask,
+        AgentVictims possibleVictims,
+        AttributeAggregate jobState,
+        Optional<HostOffer> offer,
+        Function<String, Optional<IHostAttributes>> hostAttributes) {
+
+      Optional<String> host = getHost(possibleVictims, offer);
+      if (!host.isPresent()) {
+        return Optional.absent();
+      }
 
       ResourceBag slackResources = offer.asSet().stream()
           .map(o -> bagFromMesosResources(getNonRevocableOfferResources(o.getOffer())))
           .reduce((l, r) -> l.add(r))
           .orElse(EMPTY);
 
-      FluentIterable<PreemptionVictim> preemptableTasks = FluentIterable.from(possibleVictims)
-          .filter(preemptionFilter(pendingTask));
-
-      List<PreemptionVictim> sortedVictims = resourceOrder.immutableSortedCopy(preemptableTasks);
-      if (sortedVictims.isEmpty()) {
+      boolean pendingIsPreemptible = tierManager.getTier(pendingTask).isPreemptible();
+      List<PreemptionVictim> preemptableTasks =
+          possibleVictims.getEligibleVictims(pendingTask, pendingIsPreemptible);
+      if (preemptableTasks.isEmpty()) {
         return Optional.absent();
       }
 
-      Set<PreemptionVictim> toPreemptTasks = Sets.newHashSet();
-
-      Optional<IHostAttributes> attributes =
-          storeProvider.getAttributeStore().getHostAttributes(Iterables.getOnlyElement(hosts));
+      Optional<IHostAttributes> attributes = hostAttributes.apply(host.get());
 
       if (!attributes.isPresent()) {
         metrics.recordMissingAttributes();
@@ -210,50 +230,38 @@ public interface PreemptionVictimFilter {
               pendingTask.getExecutorConfig().getName()).orElse(EMPTY)
           : EMPTY;
 
-      ResourceBag totalResource = slackResources;
+      ResourceRequest request = new ResourceRequest(
+          pendingTask,
+          ResourceManager.bagFromResources(pendingTask.getResources()).add(overhead),
+          jobState);
+
+      // Resources only grow as victims are added, so there is no point in evaluating individual
+      // victims when even preempting all of them would not free up enough resources.
+      ResourceBag reclaimable =
+          possibleVictims.getEligibleReclaimable(pendingTask, pendingIsPreemptible);
+      if (!request.getResourceBag().fitsWithin(slackResources.add(reclaimable))) {
+        return Optional.absent();
+      }
+
+      // TODO(zmanji) Consider using Dominant Resource Fairness for ordering instead of the vector
+      // ordering
+      List<PreemptionVictim> sortedVictims = ORDER
+          .<PreemptionVictim>onResultOf(possibleVictims::getReclaimable)
+          .reverse()
+          .immutableSortedCopy(preemptableTasks);
+      Set<PreemptionVictim> toPreemptTasks = Sets.newHashSet();
+      ResourceBag.Accumulator totalResource = ResourceBag.accumulator().add(slackResources);
       for (PreemptionVictim victim : sortedVictims) {
         toPreemptTasks.add(victim);
-        totalResource = totalResource.add(victimToResources.apply(victim));
-        Set<Veto> vetoes = schedulingFilter.filter(
-            new UnusedResource(totalResource, attributes.get()),
-            new ResourceRequest(
-                pendingTask,
-                ResourceManager.bagFromResources(pendingTask.getResources()).add(overhead),
-                jobState));
-
-        if (vetoes.isEmpty()) {
+        totalResource.add(possibleVictims.getReclaimable(victim));
+        if (schedulingFilter.isMatch(
+            new UnusedResource(totalResource.build(), attributes.get()),
+            request)) {
+
           return Optional.of(ImmutableSet.copyOf(toPreemptTasks));
         }
       }
       return Optional.absent();
     }
-
-    /**
-     * Creates a filter that will find tasks that the provided {@code pendingTask} may preempt.
-     *
-     * @param pendingTask A task that is not scheduled to possibly preempt other tasks for.
-     * @return A filter that will compare the priorities and resources required by other tasks
-     *     with {@code preemptableTask}.
-     */
-    private Predicate<PreemptionVictim> preemptionFilter(final ITaskConfig pendingTask) {
-      return possibleVictim -> {
-        boolean pendingIsPreemptible = tierManager.getTier(pendingTask).isPreemptible();
-        boolean victimIsPreemptible =
-            tierManager.getTier(possibleVictim.getConfig()).isPreemptible();
-
-        if (!pendingIsPreemptible && victimIsPreemptible) {
-          return true;
-        } else if (pendingIsPreemptible == victimIsPreemptible) {
-          // If preemptible flags are equal, preemption is based on priority within the same role.
-          if (pendingTask.getJob().getRole().equals(possibleVictim.getRole())) {
-            return pendingTask.getPriority() > possibleVictim.getPriority();
-          } else {
-            return false;
-          }
-        } else {
-          return false;
-        }
-      };
-    }
   }
 }
@@ -40,6 +40,9 @@ public class PreemptorMetrics {
   @VisibleForTesting
   static final String UNMATCHED_TASKS = "preemptor_unmatched_tasks";
 
+  @VisibleForTesting
+  static final String SLOT_SEARCH_TIMEOUTS = "preemptor_slot_search_timeouts";
+
   private volatile boolean exported = false;
   private final CachedCounters counters;
 
@@ -76,7 +79,8 @@ public class PreemptorMetrics {
         slotValidationStatName(false),
         MISSING_ATTRIBUTES_NAME,
         TASK_PROCESSOR_RUN_NAME,
-        UNMATCHED_TASKS);
+        UNMATCHED_TASKS,
+        SLOT_SEARCH_TIMEOUTS);
     for (String stat : allStats) {
       counters.get(stat);
     }
@@ -136,4 +140,8 @@ public class PreemptorMetrics {
   void recordTaskProcessorRun() {
     increment(TASK_PROCESSOR_RUN_NAME);
   }
+
+  void recordSlotSearchTimeout() {
+    increment(SLOT_SEARCH_TIMEOUTS);
+  }
 }
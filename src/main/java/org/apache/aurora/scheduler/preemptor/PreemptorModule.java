@@ -13,12 +13,16 @@
  */
 package org.apache.aurora.scheduler.preemptor;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
 import com.google.common.util.concurrent.AbstractScheduledService;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.inject.AbstractModule;
 import com.google.inject.PrivateModule;
 import com.google.inject.TypeLiteral;
@@ -29,9 +33,11 @@ import org.apache.aurora.common.args.constraints.Positive;
 import org.apache.aurora.common.quantity.Amount;
 import org.apache.aurora.common.quantity.Time;
 import org.apache.aurora.scheduler.SchedulerServicesModule;
+import org.apache.aurora.scheduler.base.AsyncUtil;
 import org.apache.aurora.scheduler.base.TaskGroupKey;
 import org.apache.aurora.scheduler.events.PubsubEventModule;
 import org.apache.aurora.scheduler.preemptor.BiCache.BiCacheSettings;
+import org.apache.aurora.scheduler.preemptor.PendingTaskProcessor.SlotSearchSettings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -65,6 +71,17 @@ public class PreemptorModule extends AbstractModule {
       help = "The maximum number of reservations for a task group to be made in a batch.")
   private static final Arg<Integer> RESERVATION_MAX_BATCH_SIZE = Arg.create(5);
 
+  @Positive
+  @CmdLine(name = "preemption_slot_search_threads",
+      help = "The number of threads used to evaluate preemption slots on agents in parallel.")
+  private static final Arg<Integer> SLOT_SEARCH_THREADS = Arg.create(1);
+
+  @CmdLine(name = "preemption_slot_search_budget",
+      help = "Maximum time a single preemption slot search may take. Task groups not evaluated "
+          + "in time are searched for in the next run.")
+  private static final Arg<Amount<Long, Time>> SLOT_SEARCH_BUDGET =
+      Arg.create(Amount.of(1L, Time.MINUTES));
+
   private final boolean enablePreemptor;
   private final Amount<Long, Time> preemptionDelay;
   private final Amount<Long, Time> slotSearchInterval;
@@ -114,6 +131,10 @@ public class PreemptorModule extends AbstractModule {
           bind(new TypeLiteral<Integer>() { })
               .annotatedWith(PendingTaskProcessor.ReservationBatchSize.class)
               .toInstance(reservationBatchSize);
+          bind(SlotSearchSettings.class).toInstance(
+              new SlotSearchSettings(SLOT_SEARCH_THREADS.get(), SLOT_SEARCH_BUDGET.get()));
+          bind(Executor.class).annotatedWith(PendingTaskProcessor.SlotSearchExecutor.class)
+              .toInstance(slotSearchExecutor(SLOT_SEARCH_THREADS.get()));
           bind(PendingTaskProcessor.class).in(Singleton.class);
           bind(ClusterState.class).to(ClusterStateImpl.class);
           bind(ClusterStateImpl.class).in(Singleton.class);
@@ -146,6 +167,20 @@ public class PreemptorModule extends AbstractModule {
     }
   }
 
+  private static Executor slotSearchExecutor(int threads) {
+    if (threads == 1) {
+      // Avoid a thread hand-off when the search is not parallelized.
+      return MoreExecutors.directExecutor();
+    }
+
+    return AsyncUtil.loggingExecutor(
+        threads,
+        threads,
+        new LinkedBlockingQueue<>(),
+        "PreemptorSlotSearch-%d",
+        LOG);
+  }
+
   static class PreemptorService extends AbstractScheduledService {
     private final PendingTaskProcessor slotFinder;
     private final Scheduler schedule;
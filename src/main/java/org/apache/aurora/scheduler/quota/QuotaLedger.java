@@ -0,0 +1,167 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.quota;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import javax.inject.Inject;
+import javax.inject.Qualifier;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Maps;
+
+import org.apache.aurora.common.stats.StatsProvider;
+import org.apache.aurora.scheduler.base.Tasks;
+import org.apache.aurora.scheduler.storage.MutationObserver;
+import org.apache.aurora.scheduler.storage.Storage.StoreProvider;
+import org.apache.aurora.scheduler.storage.entities.IJobConfiguration;
+import org.apache.aurora.scheduler.storage.entities.IJobKey;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A ledger of the {@link RoleUsage} of each role, kept up to date from storage writes so that
+ * quota checks do not load all active tasks of a role from storage.
+ * <p>
+ * A role is loaded from storage the first time its usage is requested, and then maintained as a
+ * {@link MutationObserver}, within the storage transactions that change its tasks.  A quota check
+ * therefore sees the tasks added by an earlier transaction, even if that transaction's events were
+ * not delivered yet.  A cron template change drops the role, so that it is loaded again on next
+ * use.
+ * <p>
+ * When reconciliation is enabled, every request also loads the role from storage, and replaces the
+ * ledger entry if the two differ.
+ */
+class QuotaLedger implements MutationObserver {
+  private static final Logger LOG = LoggerFactory.getLogger(QuotaLedger.class);
+
+  /**
+   * Binding annotation for whether the ledger is maintained.
+   */
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target({ElementType.METHOD, ElementType.PARAMETER})
+  @Qualifier
+  public @interface Enabled { }
+
+  /**
+   * Binding annotation for whether the ledger is checked against storage on every request.
+   */
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target({ElementType.METHOD, ElementType.PARAMETER})
+  @Qualifier
+  public @interface Reconcile { }
+
+  @VisibleForTesting
+  static final String MISMATCHES = "quota_ledger_mismatches";
+
+  private final boolean enabled;
+  private final boolean reconcile;
+  private final AtomicLong mismatches;
+
+  private final Map<String, RoleUsage> roles = Maps.newHashMap();
+
+  @Inject
+  QuotaLedger(
+      @Enabled Boolean enabled,
+      @Reconcile Boolean reconcile,
+      StatsProvider statsProvider) {
+
+    this.enabled = requireNonNull(enabled);
+    this.reconcile = requireNonNull(reconcile);
+    this.mismatches = statsProvider.makeCounter(MISMATCHES);
+    statsProvider.makeGauge("quota_ledger_roles", this::size);
+  }
+
+  private synchronized int size() {
+    return roles.size();
+  }
+
+  /**
+   * Computes a result from the usage of a role.
+   *
+   * @param role Role to compute the result for.
+   * @param storeProvider Store provider, used to load the role if it is not in the ledger.
+   * @param compute Computes the result.  The usage must not be retained past this call.
+   * @param <T> Result type.
+   * @return The computed result.
+   */
+  <T> T withUsage(String role, StoreProvider storeProvider, Function<RoleUsage, T> compute) {
+    if (!enabled) {
+      return compute.apply(RoleUsage.load(role, storeProvider));
+    }
+
+    // The role is loaded while holding the lock, so that a write observed while loading is
+    // applied to the loaded usage rather than skipped.
+    synchronized (this) {
+      RoleUsage usage = roles.get(role);
+      if (usage == null) {
+        usage = RoleUsage.load(role, storeProvider);
+        roles.put(role, usage);
+      } else if (reconcile) {
+        RoleUsage loaded = RoleUsage.load(role, storeProvider);
+        if (!usage.matches(loaded)) {
+          mismatches.incrementAndGet();
+          LOG.warn("Quota ledger of role {} does not match storage, reloading.", role);
+          usage = loaded;
+          roles.put(role, usage);
+        }
+      }
+      return compute.apply(usage);
+    }
+  }
+
+  @Override
+  public synchronized void tasksSaved(Set<IScheduledTask> tasks) {
+    for (IScheduledTask task : tasks) {
+      RoleUsage usage = roles.get(Tasks.getJob(task).getRole());
+      if (usage != null) {
+        if (Tasks.isActive(task.getStatus())) {
+          usage.saveTask(task.getAssignedTask());
+        } else {
+          usage.removeTask(Tasks.getJob(task), Tasks.id(task));
+        }
+      }
+    }
+  }
+
+  @Override
+  public synchronized void tasksDeleted(Set<IScheduledTask> tasks) {
+    for (IScheduledTask task : tasks) {
+      RoleUsage usage = roles.get(Tasks.getJob(task).getRole());
+      if (usage != null) {
+        usage.removeTask(Tasks.getJob(task), Tasks.id(task));
+      }
+    }
+  }
+
+  @Override
+  public synchronized void cronJobSaved(IJobConfiguration job) {
+    roles.remove(job.getKey().getRole());
+  }
+
+  @Override
+  public synchronized void cronJobRemoved(IJobKey jobKey) {
+    roles.remove(jobKey.getRole());
+  }
+}
@@ -14,9 +14,11 @@
 package org.apache.aurora.scheduler.quota;
 
 import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.StreamSupport;
+
+import javax.inject.Inject;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
@@ -27,13 +29,10 @@ import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
 import com.google.common.collect.RangeSet;
+import com.google.common.collect.Sets;
 
 import org.apache.aurora.gen.JobUpdateQuery;
-import org.apache.aurora.scheduler.base.JobKeys;
-import org.apache.aurora.scheduler.base.Query;
-import org.apache.aurora.scheduler.base.Tasks;
 import org.apache.aurora.scheduler.configuration.ConfigurationManager;
 import org.apache.aurora.scheduler.resources.ResourceBag;
 import org.apache.aurora.scheduler.resources.ResourceManager;
@@ -51,7 +50,6 @@ import org.apache.aurora.scheduler.storage.entities.IJobUpdateQuery;
 import org.apache.aurora.scheduler.storage.entities.IJobUpdateSummary;
 import org.apache.aurora.scheduler.storage.entities.IRange;
 import org.apache.aurora.scheduler.storage.entities.IResourceAggregate;
-import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
 import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
 import org.apache.aurora.scheduler.updater.Updates;
 
@@ -59,8 +57,6 @@ import static java.util.Objects.requireNonNull;
 
 import static com.google.common.base.Predicates.and;
 import static com.google.common.base.Predicates.compose;
-import static com.google.common.base.Predicates.equalTo;
-import static com.google.common.base.Predicates.in;
 import static com.google.common.base.Predicates.not;
 import static com.google.common.base.Predicates.or;
 
@@ -164,6 +160,13 @@ public interface QuotaManager {
   class QuotaManagerImpl implements QuotaManager {
     private static final Predicate<ITaskConfig> NO_QUOTA_CHECK = or(PROD_DEDICATED, not(PROD));
 
+    private final QuotaLedger ledger;
+
+    @Inject
+    QuotaManagerImpl(QuotaLedger ledger) {
+      this.ledger = requireNonNull(ledger);
+    }
+
     @Override
     public void saveQuota(
         final String ownerRole,
@@ -270,10 +273,6 @@ public interface QuotaManager {
         Optional<IJobUpdate> requestedUpdate,
         StoreProvider storeProvider) {
 
-      FluentIterable<IAssignedTask> tasks = FluentIterable
-          .from(storeProvider.getTaskStore().fetchTasks(Query.roleScoped(role).active()))
-          .transform(IScheduledTask::getAssignedTask);
-
       Map<IJobKey, IJobUpdateInstructions> updates = Maps.newHashMap(
           fetchActiveJobUpdates(storeProvider.getJobUpdateStore(), role));
 
@@ -286,51 +285,45 @@ public interface QuotaManager {
             requestedUpdate.get().getInstructions());
       }
 
-      Map<IJobKey, IJobConfiguration> cronTemplates =
-          FluentIterable.from(storeProvider.getCronJobStore().fetchJobs())
-              .filter(compose(equalTo(role), JobKeys::getRole))
-              .uniqueIndex(IJobConfiguration::getKey);
-
-      return new QuotaInfo(
-          storeProvider.getQuotaStore().fetchQuota(role)
-              .transform(ResourceManager::bagFromAggregate)
-              .or(EMPTY),
-          getConsumption(tasks, updates, cronTemplates, PROD_SHARED),
-          getConsumption(tasks, updates, cronTemplates, PROD_DEDICATED),
-          getConsumption(tasks, updates, cronTemplates, NON_PROD_SHARED),
-          getConsumption(tasks, updates, cronTemplates, NON_PROD_DEDICATED));
+      ResourceBag quota = storeProvider.getQuotaStore().fetchQuota(role)
+          .transform(ResourceManager::bagFromAggregate)
+          .or(EMPTY);
+
+      return ledger.withUsage(role, storeProvider, usage -> new QuotaInfo(
+          quota,
+          getConsumption(usage, updates, PROD_SHARED),
+          getConsumption(usage, updates, PROD_DEDICATED),
+          getConsumption(usage, updates, NON_PROD_SHARED),
+          getConsumption(usage, updates, NON_PROD_DEDICATED)));
     }
 
-    private ResourceBag getConsumption(
-        FluentIterable<IAssignedTask> tasks,
+    private static ResourceBag getConsumption(
+        RoleUsage usage,
         Map<IJobKey, IJobUpdateInstructions> updatesByKey,
-        Map<IJobKey, IJobConfiguration> cronTemplatesByKey,
         Predicate<ITaskConfig> filter) {
 
-      FluentIterable<IAssignedTask> filteredTasks =
-          tasks.filter(compose(filter, IAssignedTask::getTask));
-
-      Predicate<IAssignedTask> excludeCron = compose(
-          not(in(cronTemplatesByKey.keySet())),
-          Tasks::getJob);
+      Map<IJobKey, IJobConfiguration> cronTemplatesByKey = usage.getCronTemplates();
 
       ResourceBag nonCronConsumption = getNonCronConsumption(
           updatesByKey,
-          filteredTasks.filter(excludeCron),
+          usage,
+          Sets.difference(usage.getJobs(), cronTemplatesByKey.keySet()),
           filter);
 
       ResourceBag cronConsumption = getCronConsumption(
           Iterables.filter(
               cronTemplatesByKey.values(),
               compose(filter, IJobConfiguration::getTaskConfig)),
-          filteredTasks.transform(IAssignedTask::getTask));
+          usage,
+          filter);
 
       return nonCronConsumption.add(cronConsumption);
     }
 
     private static ResourceBag getNonCronConsumption(
         Map<IJobKey, IJobUpdateInstructions> updatesByKey,
-        FluentIterable<IAssignedTask> tasks,
+        RoleUsage usage,
+        Set<IJobKey> jobs,
         final Predicate<ITaskConfig> configFilter) {
 
       // 1. Get all active tasks that belong to jobs without active updates OR unaffected by an
@@ -344,9 +337,18 @@ public interface QuotaManager {
       //
       // 3. Add up the two to yield total consumption.
 
-      ResourceBag nonUpdateConsumption = fromTasks(tasks
-          .filter(buildNonUpdatingTasksFilter(updatesByKey))
-          .transform(IAssignedTask::getTask));
+      // The consumption of jobs without active updates is summed by the usage, and only the
+      // tasks of updated jobs are filtered.
+      Predicate<IAssignedTask> nonUpdatingTask = and(
+          compose(configFilter, IAssignedTask::getTask),
+          buildNonUpdatingTasksFilter(updatesByKey));
+      ResourceBag nonUpdateConsumption = addAll(Iterables.transform(
+          jobs,
+          job -> updatesByKey.containsKey(job)
+              ? fromTasks(FluentIterable.from(usage.getTasks(job))
+                  .filter(nonUpdatingTask)
+                  .transform(IAssignedTask::getTask))
+              : usage.getConsumption(job, configFilter)));
 
       final Predicate<IInstanceTaskConfig> instanceFilter =
           compose(configFilter, IInstanceTaskConfig::getTask);
@@ -359,7 +361,8 @@ public interface QuotaManager {
 
     private static ResourceBag getCronConsumption(
         Iterable<IJobConfiguration> cronTemplates,
-        FluentIterable<ITaskConfig> tasks) {
+        RoleUsage usage,
+        Predicate<ITaskConfig> configFilter) {
 
       // Calculate the overall cron consumption as MAX between cron template resources and active
       // cron tasks. This is required to account for a case when a running cron task has higher
@@ -369,12 +372,11 @@ public interface QuotaManager {
       // cron scheduling, it's the simplest approach possible given the system constraints (e.g.:
       // lack of enforcement on a cron job run duration).
 
-      final Multimap<IJobKey, ITaskConfig> taskConfigsByKey = tasks.index(ITaskConfig::getJob);
       return addAll(Iterables.transform(
           cronTemplates,
           config ->
               scale(config.getTaskConfig(), config.getInstanceCount())
-                  .max(fromTasks(taskConfigsByKey.get(config.getKey())))));
+                  .max(usage.getConsumption(config.getKey(), configFilter))));
     }
 
     private static Predicate<IAssignedTask> buildNonUpdatingTasksFilter(
@@ -457,9 +459,15 @@ public interface QuotaManager {
     }
 
     private static ResourceBag addAll(Iterable<ResourceBag> aggregates) {
-      return StreamSupport.stream(aggregates.spliterator(), false)
-          .reduce((l, r) -> l.add(r))
-          .orElse(EMPTY);
+      Iterator<ResourceBag> bags = aggregates.iterator();
+      if (!bags.hasNext()) {
+        return EMPTY;
+      }
+
+      // Sum in place, this runs over every task of a role on each quota check.
+      ResourceBag.Accumulator sum = ResourceBag.accumulator();
+      bags.forEachRemaining(sum::add);
+      return sum.build();
     }
 
     private static ResourceBag scale(ITaskConfig taskConfig, int instanceCount) {
@@ -16,8 +16,12 @@ package org.apache.aurora.scheduler.quota;
 import javax.inject.Singleton;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.TypeLiteral;
 
+import org.apache.aurora.common.args.Arg;
+import org.apache.aurora.common.args.CmdLine;
 import org.apache.aurora.scheduler.quota.QuotaManager.QuotaManagerImpl;
+import org.apache.aurora.scheduler.storage.MutationObserver;
 import org.apache.aurora.scheduler.storage.Storage;
 
 /**
@@ -25,10 +29,30 @@ import org.apache.aurora.scheduler.storage.Storage;
  */
 public class QuotaModule extends AbstractModule {
 
+  @CmdLine(name = "enable_quota_ledger",
+      help = "Maintain the quota consumption of each role from storage writes, rather than loading "
+          + "all active tasks of a role from storage on every quota check.")
+  private static final Arg<Boolean> ENABLE_QUOTA_LEDGER = Arg.create(false);
+
+  @CmdLine(name = "reconcile_quota_ledger",
+      help = "Debug option to check the quota ledger against storage on every quota check, and "
+          + "reload the role when they differ.")
+  private static final Arg<Boolean> RECONCILE_QUOTA_LEDGER = Arg.create(false);
+
   @Override
   protected void configure() {
     requireBinding(Storage.class);
 
+    bind(new TypeLiteral<Boolean>() { }).annotatedWith(QuotaLedger.Enabled.class)
+        .toInstance(ENABLE_QUOTA_LEDGER.get());
+    bind(new TypeLiteral<Boolean>() { }).annotatedWith(QuotaLedger.Reconcile.class)
+        .toInstance(RECONCILE_QUOTA_LEDGER.get());
+    bind(QuotaLedger.class).in(Singleton.class);
+    MutationObserver.getBinder(binder());
+    if (ENABLE_QUOTA_LEDGER.get()) {
+      MutationObserver.bindObserver(binder(), QuotaLedger.class);
+    }
+
     bind(QuotaManager.class).to(QuotaManagerImpl.class);
     bind(QuotaManagerImpl.class).in(Singleton.class);
   }
@@ -0,0 +1,195 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.quota;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import org.apache.aurora.scheduler.base.JobKeys;
+import org.apache.aurora.scheduler.base.Query;
+import org.apache.aurora.scheduler.base.Tasks;
+import org.apache.aurora.scheduler.resources.ResourceBag;
+import org.apache.aurora.scheduler.storage.Storage.StoreProvider;
+import org.apache.aurora.scheduler.storage.entities.IAssignedTask;
+import org.apache.aurora.scheduler.storage.entities.IJobConfiguration;
+import org.apache.aurora.scheduler.storage.entities.IJobKey;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
+
+import static java.util.Objects.requireNonNull;
+
+import static com.google.common.base.Predicates.compose;
+import static com.google.common.base.Predicates.equalTo;
+
+import static org.apache.aurora.scheduler.quota.QuotaManager.QUOTA_RESOURCES;
+
+/**
+ * The active tasks and cron templates of a role, indexed by job, that quota consumption is
+ * computed from.  The resources consumed by the tasks of a job are summed once per task filter,
+ * and summed again only after the tasks of the job change.
+ * <p>
+ * Instances are not thread-safe.
+ */
+final class RoleUsage {
+  private final Map<IJobKey, JobTasks> jobs = Maps.newHashMap();
+  private final Map<IJobKey, IJobConfiguration> cronTemplates;
+
+  private RoleUsage(Map<IJobKey, IJobConfiguration> cronTemplates) {
+    this.cronTemplates = requireNonNull(cronTemplates);
+  }
+
+  /**
+   * Loads the active tasks and cron templates of a role from storage.
+   *
+   * @param role Role to load.
+   * @param storeProvider Store provider to read from.
+   * @return The usage of the role.
+   */
+  static RoleUsage load(String role, StoreProvider storeProvider) {
+    RoleUsage usage = new RoleUsage(
+        FluentIterable.from(storeProvider.getCronJobStore().fetchJobs())
+            .filter(compose(equalTo(role), JobKeys::getRole))
+            .uniqueIndex(IJobConfiguration::getKey));
+
+    for (IScheduledTask task
+        : storeProvider.getTaskStore().fetchTasks(Query.roleScoped(role).active())) {
+
+      usage.saveTask(task.getAssignedTask());
+    }
+    return usage;
+  }
+
+  /**
+   * Adds an active task, or replaces the previous version of a task.
+   *
+   * @param task Active task.
+   */
+  void saveTask(IAssignedTask task) {
+    jobs.computeIfAbsent(Tasks.getJob(task), key -> new JobTasks()).save(task);
+  }
+
+  /**
+   * Removes a task, if present.
+   *
+   * @param jobKey Job of the task.
+   * @param taskId ID of the task.
+   */
+  void removeTask(IJobKey jobKey, String taskId) {
+    JobTasks job = jobs.get(jobKey);
+    if (job != null) {
+      job.remove(taskId);
+      if (job.tasks.isEmpty()) {
+        jobs.remove(jobKey);
+      }
+    }
+  }
+
+  /**
+   * Gets the jobs that have active tasks.
+   *
+   * @return Job keys.
+   */
+  Set<IJobKey> getJobs() {
+    return jobs.keySet();
+  }
+
+  /**
+   * Gets the active tasks of a job.
+   *
+   * @param jobKey Job key.
+   * @return Active tasks of the job.
+   */
+  Collection<IAssignedTask> getTasks(IJobKey jobKey) {
+    JobTasks job = jobs.get(jobKey);
+    return job == null ? ImmutableList.of() : job.tasks.values();
+  }
+
+  /**
+   * Gets the resources consumed by the active tasks of a job that match a filter.
+   *
+   * @param jobKey Job key.
+   * @param filter Filter on the task configurations.  Filters are compared by equality to find a
+   *     previously computed sum, so they should be constants.
+   * @return Consumed quota resources.
+   */
+  ResourceBag getConsumption(IJobKey jobKey, Predicate<ITaskConfig> filter) {
+    JobTasks job = jobs.get(jobKey);
+    return job == null ? ResourceBag.EMPTY : job.getConsumption(filter);
+  }
+
+  /**
+   * Gets the cron templates of the role.
+   *
+   * @return Cron templates by job key.
+   */
+  Map<IJobKey, IJobConfiguration> getCronTemplates() {
+    return cronTemplates;
+  }
+
+  /**
+   * Checks whether this holds the same tasks, task configurations and cron templates as another
+   * instance.
+   *
+   * @param other Usage to compare with.
+   * @return {@code true} if the consumption of both is the same.
+   */
+  boolean matches(RoleUsage other) {
+    return cronTemplates.equals(other.cronTemplates)
+        && Maps.transformValues(jobs, JobTasks::getConfigs)
+            .equals(Maps.transformValues(other.jobs, JobTasks::getConfigs));
+  }
+
+  private static final class JobTasks {
+    private final Map<String, IAssignedTask> tasks = Maps.newHashMap();
+    private final Map<Predicate<ITaskConfig>, ResourceBag> consumption = Maps.newHashMap();
+
+    void save(IAssignedTask task) {
+      IAssignedTask previous = tasks.put(task.getTaskId(), task);
+      // State changes do not change the resources of a task, so the sums remain valid.
+      if (previous == null || !previous.getTask().equals(task.getTask())) {
+        consumption.clear();
+      }
+    }
+
+    void remove(String taskId) {
+      if (tasks.remove(taskId) != null) {
+        consumption.clear();
+      }
+    }
+
+    ResourceBag getConsumption(Predicate<ITaskConfig> filter) {
+      return consumption.computeIfAbsent(filter, key -> {
+        ResourceBag.Accumulator sum = ResourceBag.accumulator();
+        boolean matched = false;
+        for (IAssignedTask task : tasks.values()) {
+          if (key.apply(task.getTask())) {
+            sum.add(QUOTA_RESOURCES.apply(task.getTask()));
+            matched = true;
+          }
+        }
+        return matched ? sum.build() : ResourceBag.EMPTY;
+      });
+    }
+
+    Map<String, ITaskConfig> getConfigs() {
+      return Maps.transformValues(tasks, IAssignedTask::getTask);
+    }
+  }
+}
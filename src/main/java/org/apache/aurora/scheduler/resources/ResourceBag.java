@@ -13,17 +13,16 @@
  */
 package org.apache.aurora.scheduler.resources;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
-import java.util.function.BinaryOperator;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Sets;
 
+import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toMap;
 
 import static org.apache.aurora.scheduler.resources.ResourceType.CPUS;
@@ -32,6 +31,9 @@ import static org.apache.aurora.scheduler.resources.ResourceType.RAM_MB;
 
 /**
  * A bag of unique resource values aggregated by {@link ResourceType}.
+ * <p>
+ * Values are kept in a primitive array indexed by {@link ResourceType#ordinal()}, so arithmetic
+ * on bags does not box values or build intermediate maps.
  */
 public class ResourceBag {
   public static final ResourceBag EMPTY = new ResourceBag(ImmutableMap.of(
@@ -73,7 +75,15 @@ public class ResourceBag {
   public static final Predicate<Map.Entry<ResourceType, Double>> IS_MESOS_REVOCABLE =
       entry -> entry.getKey().isMesosRevocable();
 
-  private final Map<ResourceType, Double> resourceVectors;
+  private static final ResourceType[] TYPES = ResourceType.values();
+
+  // Resource values and the set of resource types present in the bag, both indexed by
+  // ResourceType.ordinal(). Values of absent types are always 0.0.
+  private final double[] values;
+  private final int present;
+
+  // Lazily built map view of the resource vectors.
+  private Map<ResourceType, Double> resourceVectors;
 
   /**
    * Creates an instance of ResourceBag with given resource vectors (type -> value).
@@ -81,7 +91,23 @@ public class ResourceBag {
    * @param resourceVectors Map of resource vectors.
    */
   ResourceBag(Map<ResourceType, Double> resourceVectors) {
-    this.resourceVectors = ImmutableMap.copyOf(resourceVectors);
+    this.values = new double[TYPES.length];
+    int mask = 0;
+    for (Map.Entry<ResourceType, Double> entry : resourceVectors.entrySet()) {
+      int ordinal = entry.getKey().ordinal();
+      values[ordinal] = requireNonNull(entry.getValue());
+      mask |= 1 << ordinal;
+    }
+    this.present = mask;
+  }
+
+  private ResourceBag(double[] values, int present) {
+    this.values = values;
+    this.present = present;
+  }
+
+  private boolean isPresent(int ordinal) {
+    return (present & (1 << ordinal)) != 0;
   }
 
   /**
@@ -90,7 +116,18 @@ public class ResourceBag {
    * @return Map of resource vectors.
    */
   public Map<ResourceType, Double> getResourceVectors() {
-    return resourceVectors;
+    Map<ResourceType, Double> vectors = resourceVectors;
+    if (vectors == null) {
+      ImmutableMap.Builder<ResourceType, Double> builder = ImmutableMap.builder();
+      for (ResourceType type : TYPES) {
+        if (isPresent(type.ordinal())) {
+          builder.put(type, values[type.ordinal()]);
+        }
+      }
+      vectors = builder.build();
+      resourceVectors = vectors;
+    }
+    return vectors;
   }
 
   /**
@@ -99,7 +136,7 @@ public class ResourceBag {
    * @return A stream of resource vectors.
    */
   public Stream<Map.Entry<ResourceType, Double>> streamResourceVectors() {
-    return resourceVectors.entrySet().stream();
+    return getResourceVectors().entrySet().stream();
   }
 
   /**
@@ -109,7 +146,24 @@ public class ResourceBag {
    * @return Resource value or 0.0 if no mapping for {@code type} is found.
    */
   public Double valueOf(ResourceType type) {
-    return resourceVectors.getOrDefault(type, 0.0);
+    return values[type.ordinal()];
+  }
+
+  /**
+   * Checks if every resource vector in this bag is covered by the matching vector in
+   * {@code available}, treating missing vectors in {@code available} as 0.0. This does not
+   * allocate, which makes it suitable for matching a request against many offers.
+   *
+   * @param available Bag to check against.
+   * @return {@code true} if all resources in this bag fit in {@code available}.
+   */
+  public boolean fitsWithin(ResourceBag available) {
+    for (int i = 0; i < values.length; i++) {
+      if (isPresent(i) && values[i] > available.values[i]) {
+        return false;
+      }
+    }
+    return true;
   }
 
   /**
@@ -119,7 +173,11 @@ public class ResourceBag {
    * @return Result of addition.
    */
   public ResourceBag add(ResourceBag other) {
-    return binaryOp(other, (l, r) -> l + r);
+    double[] result = new double[values.length];
+    for (int i = 0; i < values.length; i++) {
+      result[i] = values[i] + other.values[i];
+    }
+    return new ResourceBag(result, present | other.present);
   }
 
   /**
@@ -129,7 +187,11 @@ public class ResourceBag {
    * @return Result of subtraction.
    */
   public ResourceBag subtract(ResourceBag other) {
-    return binaryOp(other, (l, r) -> l - r);
+    double[] result = new double[values.length];
+    for (int i = 0; i < values.length; i++) {
+      result[i] = values[i] - other.values[i];
+    }
+    return new ResourceBag(result, present | other.present);
   }
 
   /**
@@ -141,7 +203,15 @@ public class ResourceBag {
    * @return Result of division.
    */
   public ResourceBag divide(ResourceBag other) {
-    return binaryOp(other, (l, r) -> l / r);
+    int union = present | other.present;
+    double[] result = new double[values.length];
+    for (int i = 0; i < values.length; i++) {
+      // Absent types must stay at 0.0 rather than become 0.0 / 0.0.
+      if ((union & (1 << i)) != 0) {
+        result[i] = values[i] / other.values[i];
+      }
+    }
+    return new ResourceBag(result, union);
   }
 
   /**
@@ -151,7 +221,11 @@ public class ResourceBag {
    * @return A new bag with max resource vectors.
    */
   public ResourceBag max(ResourceBag other) {
-    return binaryOp(other, (l, r) -> Math.max(l, r));
+    double[] result = new double[values.length];
+    for (int i = 0; i < values.length; i++) {
+      result[i] = Math.max(values[i], other.values[i]);
+    }
+    return new ResourceBag(result, present | other.present);
   }
 
   /**
@@ -161,8 +235,11 @@ public class ResourceBag {
    * @return Result of scale operation.
    */
   public ResourceBag scale(int m) {
-    return new ResourceBag(resourceVectors.entrySet().stream()
-        .collect(toMap(Map.Entry::getKey, v -> v.getValue() * m)));
+    double[] result = new double[values.length];
+    for (int i = 0; i < values.length; i++) {
+      result[i] = values[i] * m;
+    }
+    return new ResourceBag(result, present);
   }
 
   /**
@@ -172,30 +249,69 @@ public class ResourceBag {
    * @return A new bag with resources filtered by {@code predicate}.
    */
   public ResourceBag filter(Predicate<Map.Entry<ResourceType, Double>> predicate) {
-    return new ResourceBag(resourceVectors.entrySet().stream()
+    return new ResourceBag(streamResourceVectors()
         .filter(predicate)
         .collect(toMap(Map.Entry::getKey, Map.Entry::getValue)));
   }
 
   /**
-   * Applies {@code operator} to this and {@code other} resource values. Any missing resource type
-   * values on either side will get substituted with 0.0 before applying the operator.
+   * Creates a new, empty {@link Accumulator}.
    *
-   * @param other Other ResourceBag.
-   * @param operator Operator to apply.
-   * @return Operation result.
+   * @return A new accumulator.
    */
-  private ResourceBag binaryOp(ResourceBag other, BinaryOperator<Double> operator) {
-    ImmutableMap.Builder<ResourceType, Double> builder = ImmutableMap.builder();
-    Set<ResourceType> resourceTypes =
-        Sets.union(resourceVectors.keySet(), other.getResourceVectors().keySet());
-    for (ResourceType type : resourceTypes) {
-      Double left = resourceVectors.getOrDefault(type, 0.0);
-      Double right = other.getResourceVectors().getOrDefault(type, 0.0);
-      builder.put(type, operator.apply(left, right));
+  public static Accumulator accumulator() {
+    return new Accumulator();
+  }
+
+  /**
+   * A mutable bag of resources, used to sum many bags without allocating intermediate results.
+   * <p>
+   * This class is not thread-safe.
+   */
+  public static final class Accumulator {
+    private final double[] values = new double[TYPES.length];
+    private int present;
+
+    private Accumulator() {
+      // Use ResourceBag.accumulator().
+    }
+
+    /**
+     * Adds the contents of {@code bag} to this accumulator.
+     *
+     * @param bag Bag to add.
+     * @return This accumulator, for chaining.
+     */
+    public Accumulator add(ResourceBag bag) {
+      for (int i = 0; i < values.length; i++) {
+        values[i] += bag.values[i];
+      }
+      present |= bag.present;
+      return this;
     }
 
-    return new ResourceBag(builder.build());
+    /**
+     * Subtracts the contents of {@code bag} from this accumulator.
+     *
+     * @param bag Bag to subtract.
+     * @return This accumulator, for chaining.
+     */
+    public Accumulator subtract(ResourceBag bag) {
+      for (int i = 0; i < values.length; i++) {
+        values[i] -= bag.values[i];
+      }
+      present |= bag.present;
+      return this;
+    }
+
+    /**
+     * Creates an immutable {@link ResourceBag} with the accumulated resources.
+     *
+     * @return Accumulated resources.
+     */
+    public ResourceBag build() {
+      return new ResourceBag(values.clone(), present);
+    }
   }
 
   @Override
@@ -205,16 +321,18 @@ public class ResourceBag {
     }
 
     ResourceBag other = (ResourceBag) o;
-    return Objects.equals(resourceVectors, other.resourceVectors);
+    return present == other.present && Arrays.equals(values, other.values);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(resourceVectors);
+    return Objects.hash(present, Arrays.hashCode(values));
   }
 
   @Override
   public String toString() {
-    return MoreObjects.toStringHelper(this).add("resourceVectors", resourceVectors).toString();
+    return MoreObjects.toStringHelper(this)
+        .add("resourceVectors", getResourceVectors())
+        .toString();
   }
 }
@@ -14,6 +14,7 @@
 package org.apache.aurora.scheduler.resources;
 
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.BinaryOperator;
@@ -23,10 +24,13 @@ import java.util.stream.StreamSupport;
 
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
 
 import org.apache.aurora.gen.ResourceAggregate;
 import org.apache.aurora.scheduler.TierInfo;
+import org.apache.aurora.scheduler.base.Numbers;
 import org.apache.aurora.scheduler.storage.entities.IAssignedTask;
 import org.apache.aurora.scheduler.storage.entities.IResource;
 import org.apache.aurora.scheduler.storage.entities.IResourceAggregate;
@@ -34,6 +38,7 @@ import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
 import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
 import org.apache.aurora.scheduler.storage.log.ThriftBackfill;
 import org.apache.mesos.v1.Protos.Resource;
+import org.apache.mesos.v1.Protos.Value.Ranges;
 
 import static org.apache.aurora.scheduler.resources.ResourceType.BY_MESOS_NAME;
 import static org.apache.aurora.scheduler.resources.ResourceType.fromResource;
@@ -299,6 +304,70 @@ public final class ResourceManager {
                 .orElse(0.0))));
   }
 
+  /**
+   * Creates a copy of {@code offer} with the {@code used} Mesos resources taken out. This allows
+   * further tasks to be matched against what is left of an offer.
+   *
+   * @param offer Offer to subtract resources from.
+   * @param used Mesos resources allocated from the offer, as produced by {@link AcceptedOffer}.
+   * @return Offer with the remaining resources.
+   * @throws InsufficientResourcesException If a used resource is not available in the offer.
+   */
+  public static Offer subtractResources(Offer offer, Iterable<Resource> used)
+      throws InsufficientResourcesException {
+
+    List<Resource.Builder> remaining = offer.getResourcesList().stream()
+        .map(Resource::toBuilder)
+        .collect(Collectors.toList());
+
+    for (Resource resource : used) {
+      Resource identity = withoutValue(resource);
+      Resource.Builder match = remaining.stream()
+          .filter(r -> withoutValue(r.build()).equals(identity) && covers(r, resource))
+          .findFirst()
+          .orElseThrow(() -> new InsufficientResourcesException(
+              "Resource " + resource.getName() + " is not available in offer "
+                  + offer.getId().getValue()));
+
+      if (resource.hasScalar()) {
+        match.getScalarBuilder()
+            .setValue(match.getScalar().getValue() - resource.getScalar().getValue());
+      } else if (resource.hasRanges()) {
+        Set<Integer> left = Sets.difference(rangeMembers(match), rangeMembers(resource));
+        match.setRanges(Ranges.newBuilder()
+            .addAllRange(Iterables.transform(Numbers.toRanges(left), Numbers.RANGE_TRANSFORM)));
+      }
+    }
+
+    return offer.toBuilder()
+        .clearResources()
+        .addAllResources(Iterables.transform(remaining, Resource.Builder::build))
+        .build();
+  }
+
+  private static Resource withoutValue(Resource resource) {
+    return resource.toBuilder().clearScalar().clearRanges().clearSet().build();
+  }
+
+  private static Set<Integer> rangeMembers(Resource.Builder resource) {
+    return rangeMembers(resource.build());
+  }
+
+  private static Set<Integer> rangeMembers(Resource resource) {
+    return ImmutableSet.copyOf(Iterables.concat(
+        Iterables.transform(resource.getRanges().getRangeList(), Numbers.RANGE_TO_MEMBERS)));
+  }
+
+  private static boolean covers(Resource.Builder available, Resource requested) {
+    if (requested.hasScalar()) {
+      // Allow for the same rounding slack as the scalar allocation in MesosResourceConverter.
+      return available.getScalar().getValue() - requested.getScalar().getValue() > -1e-6;
+    } else if (requested.hasRanges()) {
+      return rangeMembers(available).containsAll(rangeMembers(requested));
+    }
+    return true;
+  }
+
   /**
    * Thrown when there are insufficient resources to satisfy a request.
    */
@@ -40,6 +40,7 @@ import org.apache.aurora.scheduler.configuration.executor.ExecutorSettings;
 import org.apache.aurora.scheduler.events.PubsubEvent.EventSubscriber;
 import org.apache.aurora.scheduler.events.PubsubEvent.TaskStateChange;
 import org.apache.aurora.scheduler.filter.AttributeAggregate;
+import org.apache.aurora.scheduler.filter.AttributeAggregateIndex;
 import org.apache.aurora.scheduler.filter.SchedulingFilter.ResourceRequest;
 import org.apache.aurora.scheduler.preemptor.BiCache;
 import org.apache.aurora.scheduler.preemptor.Preemptor;
@@ -97,6 +98,7 @@ public interface TaskScheduler extends EventSubscriber {
 
     private final TaskAssigner assigner;
     private final Preemptor preemptor;
+    private final AttributeAggregateIndex attributeAggregates;
     private final ExecutorSettings executorSettings;
     private final BiCache<String, TaskGroupKey> reservations;
 
@@ -108,11 +110,13 @@ public interface TaskScheduler extends EventSubscriber {
     TaskSchedulerImpl(
         TaskAssigner assigner,
         Preemptor preemptor,
+        AttributeAggregateIndex attributeAggregates,
         ExecutorSettings executorSettings,
         BiCache<String, TaskGroupKey> reservations) {
 
       this.assigner = requireNonNull(assigner);
       this.preemptor = requireNonNull(preemptor);
+      this.attributeAggregates = requireNonNull(attributeAggregates);
       this.executorSettings = requireNonNull(executorSettings);
       this.reservations = requireNonNull(reservations);
     }
@@ -164,7 +168,7 @@ public interface TaskScheduler extends EventSubscriber {
 
       // This is safe after all checks above.
       ITaskConfig task = assignedTasks.stream().findFirst().get().getTask();
-      AttributeAggregate aggregate = AttributeAggregate.getJobActiveState(store, task.getJob());
+      AttributeAggregate aggregate = attributeAggregates.getJobActiveState(store, task.getJob());
 
       // Valid Docker tasks can have a container but no executor config
       ResourceBag overhead = ResourceBag.EMPTY;
@@ -182,6 +186,9 @@ public interface TaskScheduler extends EventSubscriber {
           TaskGroupKey.from(task),
           assignableTaskMap.keySet(),
           reservations.asMap());
+      if (!launched.isEmpty()) {
+        attributeAggregates.tasksAssigned(store, launched);
+      }
 
       attemptsFired.addAndGet(assignableTaskMap.size());
       Set<String> failedToLaunch = Sets.difference(assignableTaskMap.keySet(), launched);
@@ -0,0 +1,117 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.sla;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.apache.aurora.scheduler.base.Tasks;
+import org.apache.aurora.scheduler.sla.SlaAlgorithm.AggregatePlatformUptime;
+import org.apache.aurora.scheduler.sla.SlaAlgorithm.AggregatePlatformUptime.Interval;
+import org.apache.aurora.scheduler.sla.SlaAlgorithm.AggregatePlatformUptime.SlaState;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+import org.apache.aurora.scheduler.storage.entities.ITaskEvent;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The platform SLA state timeline of a task instance, built up from the events of its tasks as
+ * they are reported rather than from the full history of the tasks.  Only the intervals that may
+ * still overlap a sampling interval are retained.
+ * <p>
+ * Instances are not thread-safe.
+ */
+final class InstanceTimeline {
+
+  private static final Comparator<ITaskEvent> BY_TIMESTAMP =
+      Comparator.comparingLong(ITaskEvent::getTimestamp);
+
+  private final Set<String> taskIds = Sets.newHashSet();
+  private final List<ITaskEvent> pendingEvents = Lists.newArrayList();
+  private final Deque<Interval> intervals = new ArrayDeque<>();
+  private SlaState state = SlaState.REMOVED;
+  private long since = 0L;
+  private IScheduledTask latestTask;
+
+  /**
+   * Records events of a task of this instance.
+   *
+   * @param task Task, as of the events.
+   * @param events Events of the task that were not recorded yet.
+   */
+  void addEvents(IScheduledTask task, Iterable<ITaskEvent> events) {
+    taskIds.add(Tasks.id(task));
+    latestTask = requireNonNull(task);
+    Iterables.addAll(pendingEvents, events);
+  }
+
+  /**
+   * Removes a task from this instance.
+   *
+   * @param taskId ID of the removed task.
+   * @return {@code true} if no tasks of the instance remain.
+   */
+  boolean removeTask(String taskId) {
+    taskIds.remove(taskId);
+    return taskIds.isEmpty();
+  }
+
+  /**
+   * Gets the task of this instance that was reported last.
+   *
+   * @return The latest task.
+   */
+  IScheduledTask getLatestTask() {
+    return latestTask;
+  }
+
+  /**
+   * Applies the events recorded since the last call, in time order, and discards the intervals
+   * that ended before a point in time.
+   *
+   * @param discardBefore Intervals ending at or before this timestamp are discarded.
+   * @return The intervals of this instance in time order, up to the current open interval.
+   */
+  List<Interval> advance(long discardBefore) {
+    pendingEvents.sort(BY_TIMESTAMP);
+    for (ITaskEvent event : pendingEvents) {
+      SlaState next = AggregatePlatformUptime.nextState(state, event.getStatus());
+      if (next != state) {
+        // An event reported after a later one was applied is treated as simultaneous with it.
+        long timestamp = Math.max(since, event.getTimestamp());
+        intervals.addLast(new Interval(state, since, timestamp));
+        state = next;
+        since = timestamp;
+      }
+    }
+    pendingEvents.clear();
+
+    while (!intervals.isEmpty() && intervals.peekFirst().getEnd() <= discardBefore) {
+      intervals.removeFirst();
+    }
+
+    return ImmutableList.<Interval>builder()
+        .addAll(intervals)
+        .add(new Interval(state, since, Long.MAX_VALUE))
+        .build();
+  }
+}
@@ -15,7 +15,9 @@ package org.apache.aurora.scheduler.sla;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -23,24 +25,31 @@ import javax.inject.Inject;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Predicate;
-import com.google.common.base.Predicates;
 import com.google.common.base.Supplier;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
-import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Range;
+import com.google.common.eventbus.Subscribe;
 
 import org.apache.aurora.common.inject.TimedInterceptor.Timed;
 import org.apache.aurora.common.stats.StatsProvider;
 import org.apache.aurora.common.util.Clock;
-import org.apache.aurora.scheduler.base.Query;
 import org.apache.aurora.scheduler.base.Tasks;
+import org.apache.aurora.scheduler.events.PubsubEvent.EventSubscriber;
+import org.apache.aurora.scheduler.events.PubsubEvent.TaskStateChange;
+import org.apache.aurora.scheduler.events.PubsubEvent.TasksDeleted;
+import org.apache.aurora.scheduler.sla.SlaAlgorithm.AggregatePlatformUptime;
+import org.apache.aurora.scheduler.sla.SlaAlgorithm.AggregatePlatformUptime.Interval;
 import org.apache.aurora.scheduler.sla.SlaAlgorithm.AlgorithmType;
 import org.apache.aurora.scheduler.sla.SlaGroup.GroupType;
-import org.apache.aurora.scheduler.storage.Storage;
+import org.apache.aurora.scheduler.storage.entities.IJobKey;
 import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
 import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
 
@@ -63,8 +72,13 @@ import static org.apache.aurora.scheduler.sla.SlaGroup.GroupType.RESOURCE_RAM;
 
 /**
  * Responsible for calculating and exporting SLA metrics.
+ * <p>
+ * The tasks metrics are calculated from are maintained from task state change events, rather
+ * than fetched from storage for every calculation.  Only active tasks are retained, along with
+ * the platform uptime timeline and latest task of every task instance, since terminated tasks do
+ * not contribute to the other metrics.
  */
-class MetricCalculator implements Runnable {
+class MetricCalculator implements Runnable, EventSubscriber {
 
   @VisibleForTesting
   static final String NAME_QUALIFIER_PROD = "";
@@ -108,10 +122,13 @@ class MetricCalculator implements Runnable {
       ITaskConfig::isIsService;
 
   private final LoadingCache<String, Counter> metricCache;
-  private final Storage storage;
   private final Clock clock;
   private final MetricCalculatorSettings settings;
 
+  // Guarded by this.
+  private final Map<String, IScheduledTask> activeTasks = Maps.newHashMap();
+  private final Map<InstanceKey, InstanceTimeline> timelines = Maps.newHashMap();
+
   static class MetricCalculatorSettings {
     private final long refreshRateMs;
     private final Set<MetricCategory> prodMetrics;
@@ -156,14 +173,45 @@ class MetricCalculator implements Runnable {
     }
   }
 
+  /**
+   * Identifies a task instance.  Production and non-production tasks of an instance are kept
+   * apart, since their metrics are calculated separately.
+   */
+  private static final class InstanceKey {
+    private final IJobKey job;
+    private final int instanceId;
+    private final boolean production;
+
+    InstanceKey(IScheduledTask task) {
+      this.job = Tasks.getJob(task);
+      this.instanceId = Tasks.getInstanceId(task);
+      this.production = Tasks.getConfig(task).isProduction();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof InstanceKey)) {
+        return false;
+      }
+
+      InstanceKey other = (InstanceKey) o;
+      return Objects.equals(job, other.job)
+          && instanceId == other.instanceId
+          && production == other.production;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(job, instanceId, production);
+    }
+  }
+
   @Inject
   MetricCalculator(
-      Storage storage,
       Clock clock,
       MetricCalculatorSettings settings,
       final StatsProvider statsProvider) {
 
-    this.storage = requireNonNull(storage);
     this.clock = requireNonNull(clock);
     this.settings = requireNonNull(settings);
 
@@ -176,42 +224,110 @@ class MetricCalculator implements Runnable {
         });
   }
 
-  @Timed("sla_stats_computation")
-  @Override
-  public void run() {
-    FluentIterable<IScheduledTask> tasks =
-        FluentIterable.from(Storage.Util.fetchTasks(storage, Query.unscoped()));
+  @Subscribe
+  public synchronized void taskChangedState(TaskStateChange stateChange) {
+    IScheduledTask task = stateChange.getTask();
+    if (!IS_SERVICE.apply(Tasks.getConfig(task))) {
+      return;
+    }
 
-    List<IScheduledTask> prodTasks = tasks.filter(Predicates.compose(
-        Predicates.and(ITaskConfig::isProduction, IS_SERVICE),
-        Tasks::getConfig)).toList();
+    if (Tasks.isActive(stateChange.getNewState())) {
+      activeTasks.put(stateChange.getTaskId(), task);
+    } else {
+      activeTasks.remove(stateChange.getTaskId());
+    }
+
+    // A transition adds a single event, whereas the whole history of a task is new when it is
+    // loaded from storage.
+    timelines.computeIfAbsent(new InstanceKey(task), key -> new InstanceTimeline()).addEvents(
+        task,
+        stateChange.isTransition()
+            ? ImmutableList.of(Tasks.getLatestEvent(task))
+            : task.getTaskEvents());
+  }
+
+  @Subscribe
+  public synchronized void tasksDeleted(TasksDeleted event) {
+    for (IScheduledTask task : event.getTasks()) {
+      String taskId = Tasks.id(task);
+      activeTasks.remove(taskId);
 
-    List<IScheduledTask> nonProdTasks = tasks.filter(Predicates.compose(
-        Predicates.and(Predicates.not(ITaskConfig::isProduction), IS_SERVICE),
-        Tasks::getConfig)).toList();
+      InstanceKey key = new InstanceKey(task);
+      InstanceTimeline timeline = timelines.get(key);
+      if (timeline != null && timeline.removeTask(taskId)) {
+        timelines.remove(key);
+      }
+    }
+  }
 
+  @Timed("sla_stats_computation")
+  @Override
+  public synchronized void run() {
     long nowMs = clock.nowMillis();
     Range<Long> timeRange = Range.closedOpen(nowMs - settings.refreshRateMs, nowMs);
 
-    runAlgorithms(prodTasks, settings.prodMetrics, timeRange, NAME_QUALIFIER_PROD);
-    runAlgorithms(nonProdTasks, settings.nonProdMetrics, timeRange, NAME_QUALIFIER_NON_PROD);
+    Map<IScheduledTask, List<Interval>> prodInstances = Maps.newHashMap();
+    Map<IScheduledTask, List<Interval>> nonProdInstances = Maps.newHashMap();
+    for (Entry<InstanceKey, InstanceTimeline> entry : timelines.entrySet()) {
+      InstanceTimeline timeline = entry.getValue();
+      List<Interval> intervals = timeline.advance(timeRange.lowerEndpoint());
+      if (entry.getKey().production) {
+        prodInstances.put(timeline.getLatestTask(), intervals);
+      } else {
+        nonProdInstances.put(timeline.getLatestTask(), intervals);
+      }
+    }
+
+    ImmutableSet.Builder<IScheduledTask> prodTasks = ImmutableSet.builder();
+    ImmutableSet.Builder<IScheduledTask> nonProdTasks = ImmutableSet.builder();
+    for (IScheduledTask task : activeTasks.values()) {
+      if (Tasks.getConfig(task).isProduction()) {
+        prodTasks.add(task);
+      } else {
+        nonProdTasks.add(task);
+      }
+    }
+
+    // The latest task of every instance is included, so that the metric groups are the same as
+    // if all tasks were considered.  Terminated tasks do not contribute to the metric values.
+    runAlgorithms(
+        prodTasks.addAll(prodInstances.keySet()).build(),
+        prodInstances,
+        settings.prodMetrics,
+        timeRange,
+        NAME_QUALIFIER_PROD);
+    runAlgorithms(
+        nonProdTasks.addAll(nonProdInstances.keySet()).build(),
+        nonProdInstances,
+        settings.nonProdMetrics,
+        timeRange,
+        NAME_QUALIFIER_NON_PROD);
   }
 
   private void runAlgorithms(
-      List<IScheduledTask> tasks,
+      Set<IScheduledTask> tasks,
+      Map<IScheduledTask, List<Interval>> instances,
       Set<MetricCategory> categories,
       Range<Long> timeRange,
       String nameQualifier) {
 
     for (MetricCategory category : categories) {
       for (Entry<AlgorithmType, GroupType> slaMetric : category.getMetrics().entries()) {
+        AlgorithmType algoType = slaMetric.getKey();
+        boolean platformUptime = algoType == AGGREGATE_PLATFORM_UPTIME;
+        Multimap<String, IScheduledTask> namedGroups = slaMetric.getValue().getSlaGroup()
+            .createNamedGroups(platformUptime ? instances.keySet() : tasks);
+
         for (Entry<String, Collection<IScheduledTask>> namedGroup
-            : slaMetric.getValue().getSlaGroup().createNamedGroups(tasks).asMap().entrySet()) {
+            : namedGroups.asMap().entrySet()) {
 
-          AlgorithmType algoType = slaMetric.getKey();
           String metricName = namedGroup.getKey() + algoType.getAlgorithmName() + nameQualifier;
-          metricCache.getUnchecked(metricName)
-              .set(metricName, algoType.getAlgorithm().calculate(namedGroup.getValue(), timeRange));
+          Number value = platformUptime
+              ? AggregatePlatformUptime.calculateFromIntervals(
+                  Iterables.transform(namedGroup.getValue(), instances::get),
+                  timeRange)
+              : algoType.getAlgorithm().calculate(namedGroup.getValue(), timeRange);
+          metricCache.getUnchecked(metricName).set(metricName, value);
         }
       }
     }
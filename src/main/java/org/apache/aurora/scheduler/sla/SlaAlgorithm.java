@@ -233,7 +233,10 @@ interface SlaAlgorithm {
       UP
     }
 
-    private static class Interval {
+    /**
+     * A period of time an instance spent in a {@link SlaState}.
+     */
+    static class Interval {
       private final SlaState state;
       private final Range<Long> range;
 
@@ -241,6 +244,10 @@ interface SlaAlgorithm {
         this.state = state;
         range = Range.closedOpen(start, end);
       }
+
+      long getEnd() {
+        return range.upperEndpoint();
+      }
     }
 
     private static class InstanceId {
@@ -301,57 +308,61 @@ interface SlaAlgorithm {
           Pair<SlaState, Long> current = Pair.of(SlaState.REMOVED, 0L);
 
           for (ITaskEvent event : events) {
-            long timestamp = event.getTimestamp();
-
-            // Event status in the instance timeline signifies either of the following:
-            // - termination of the existing SlaState interval AND start of a new one;
-            // - continuation of the existing matching SlaState interval.
-            switch (event.getStatus()) {
-              case LOST:
-              case DRAINING:
-              case PREEMPTING:
-                current = updateIntervals(timestamp, SlaState.DOWN, current, intervals);
-                break;
-
-              case PENDING:
-              case ASSIGNED:
-              case STARTING:
-                if (current.getFirst() != SlaState.DOWN) {
-                  current = updateIntervals(timestamp, SlaState.REMOVED, current, intervals);
-                }
-                break;
-
-              case THROTTLED:
-              case FINISHED:
-              case RESTARTING:
-              case FAILED:
-              case KILLING:
-                current = updateIntervals(timestamp, SlaState.REMOVED, current, intervals);
-                break;
-
-              case RUNNING:
-                current = updateIntervals(timestamp, SlaState.UP, current, intervals);
-                break;
-
-              case KILLED:
-                if (current.getFirst() == SlaState.UP) {
-                  current = updateIntervals(timestamp, SlaState.DOWN, current, intervals);
-                }
-                break;
-
-              case INIT:
-                // Ignore.
-                break;
-
-              default:
-                throw new IllegalArgumentException("Unsupported status:" + event.getStatus());
-            }
+            current = updateIntervals(
+                event.getTimestamp(),
+                nextState(current.getFirst(), event.getStatus()),
+                current,
+                intervals);
           }
           // Add the last event interval.
           intervals.add(new Interval(current.getFirst(), current.getSecond(), Long.MAX_VALUE));
           return intervals.build();
         };
 
+    /**
+     * Gets the state of an instance after a task event.
+     *
+     * @param current State of the instance before the event.
+     * @param status Status of the task event.
+     * @return State of the instance after the event, which may be {@code current}.
+     */
+    static SlaState nextState(SlaState current, ScheduleStatus status) {
+      // Event status in the instance timeline signifies either of the following:
+      // - termination of the existing SlaState interval AND start of a new one;
+      // - continuation of the existing matching SlaState interval.
+      switch (status) {
+        case LOST:
+        case DRAINING:
+        case PREEMPTING:
+          return SlaState.DOWN;
+
+        case PENDING:
+        case ASSIGNED:
+        case STARTING:
+          return current == SlaState.DOWN ? SlaState.DOWN : SlaState.REMOVED;
+
+        case THROTTLED:
+        case FINISHED:
+        case RESTARTING:
+        case FAILED:
+        case KILLING:
+          return SlaState.REMOVED;
+
+        case RUNNING:
+          return SlaState.UP;
+
+        case KILLED:
+          return current == SlaState.UP ? SlaState.DOWN : current;
+
+        case INIT:
+          // Ignore.
+          return current;
+
+        default:
+          throw new IllegalArgumentException("Unsupported status:" + status);
+      }
+    }
+
     private static Pair<SlaState, Long> updateIntervals(
         long timestamp,
         SlaState state,
@@ -384,11 +395,26 @@ interface SlaAlgorithm {
               Multimaps.index(tasks, TO_ID).asMap(),
               Functions.compose(TASK_EVENTS_TO_INTERVALS, TO_SORTED_EVENTS));
 
+      return calculateFromIntervals(instanceSlaTimeline.values(), timeFrame);
+    }
+
+    /**
+     * Aggregates the platform uptime of instances from their SlaState-based time intervals.
+     *
+     * @param instanceSlaTimeline Time intervals of each instance, in time order.  Intervals that
+     *     end before the time frame may be omitted.
+     * @param timeFrame Relevant time frame.
+     * @return Platform uptime percentage.
+     */
+    static Number calculateFromIntervals(
+        Iterable<? extends Iterable<Interval>> instanceSlaTimeline,
+        Range<Long> timeFrame) {
+
       // Given the instance timeline converted to SlaState-based time intervals, aggregate the
       // platform uptime per given timeFrame.
       long aggregateUptime = 0;
       long aggregateTotal = 0;
-      for (List<Interval> intervals : instanceSlaTimeline.values()) {
+      for (Iterable<Interval> intervals : instanceSlaTimeline) {
         long instanceUptime = elapsedFromRange(timeFrame);
         long instanceTotal = instanceUptime;
         for (Interval interval : intervals) {
@@ -35,6 +35,7 @@ import org.apache.aurora.common.quantity.Amount;
 import org.apache.aurora.common.quantity.Time;
 import org.apache.aurora.scheduler.SchedulerServicesModule;
 import org.apache.aurora.scheduler.base.AsyncUtil;
+import org.apache.aurora.scheduler.events.PubsubEventModule;
 import org.apache.aurora.scheduler.sla.MetricCalculator.MetricCalculatorSettings;
 import org.apache.aurora.scheduler.sla.MetricCalculator.MetricCategory;
 import org.slf4j.Logger;
@@ -105,6 +106,7 @@ public class SlaModule extends AbstractModule {
             nonProdMetrics));
 
     bind(MetricCalculator.class).in(Singleton.class);
+    PubsubEventModule.bindSubscriber(binder(), MetricCalculator.class);
     bind(ScheduledExecutorService.class)
         .annotatedWith(SlaExecutor.class)
         .toInstance(AsyncUtil.singleThreadLoggingScheduledExecutor("SlaStat-%d", LOG));
@@ -19,6 +19,9 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.inject.AbstractModule;
 import com.google.inject.Binder;
 
+import org.apache.aurora.common.args.Arg;
+import org.apache.aurora.common.args.CmdLine;
+import org.apache.aurora.common.args.constraints.Positive;
 import org.apache.aurora.scheduler.events.PubsubEventModule;
 import org.apache.aurora.scheduler.mesos.MesosTaskFactory;
 import org.apache.aurora.scheduler.mesos.MesosTaskFactory.MesosTaskFactoryImpl;
@@ -31,8 +34,17 @@ import org.apache.aurora.scheduler.state.UUIDGenerator.UUIDGeneratorImpl;
  */
 public class StateModule extends AbstractModule {
 
+  @Positive
+  @CmdLine(name = "max_tasks_per_offer",
+      help = "The maximum number of tasks of the same group to launch against a single offer in "
+          + "one scheduling attempt.")
+  private static final Arg<Integer> MAX_TASKS_PER_OFFER = Arg.create(1);
+
   @Override
   protected void configure() {
+    bind(Integer.class)
+        .annotatedWith(TaskAssignerImpl.MaxTasksPerOffer.class)
+        .toInstance(MAX_TASKS_PER_OFFER.get());
     bind(TaskAssigner.class).to(TaskAssignerImpl.class);
     bind(TaskAssignerImpl.class).in(Singleton.class);
     bind(MesosTaskFactory.class).to(MesosTaskFactoryImpl.class);
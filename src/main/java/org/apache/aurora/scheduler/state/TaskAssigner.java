@@ -13,17 +13,22 @@
  */
 package org.apache.aurora.scheduler.state;
 
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
+import javax.inject.Qualifier;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 
 import org.apache.aurora.common.inject.TimedInterceptor.Timed;
 import org.apache.aurora.common.stats.StatsProvider;
@@ -39,16 +44,24 @@ import org.apache.aurora.scheduler.filter.SchedulingFilter.VetoGroup;
 import org.apache.aurora.scheduler.mesos.MesosTaskFactory;
 import org.apache.aurora.scheduler.offers.OfferManager;
 import org.apache.aurora.scheduler.resources.ResourceManager;
+import org.apache.aurora.scheduler.resources.ResourceManager.InsufficientResourcesException;
 import org.apache.aurora.scheduler.resources.ResourceType;
 import org.apache.aurora.scheduler.storage.entities.IAssignedTask;
 import org.apache.mesos.v1.Protos.TaskInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
 import static java.util.Objects.requireNonNull;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import static org.apache.aurora.gen.ScheduleStatus.LOST;
 import static org.apache.aurora.gen.ScheduleStatus.PENDING;
+import static org.apache.aurora.scheduler.resources.ResourceManager.subtractResources;
 import static org.apache.aurora.scheduler.storage.Storage.MutableStoreProvider;
 import static org.apache.mesos.v1.Protos.Offer;
 
@@ -84,15 +97,27 @@ public interface TaskAssigner {
     static final String ASSIGNER_LAUNCH_FAILURES = "assigner_launch_failures";
     @VisibleForTesting
     static final String ASSIGNER_EVALUATED_OFFERS = "assigner_evaluated_offers";
+    @VisibleForTesting
+    static final String ASSIGNER_SHARED_OFFER_LAUNCHES = "assigner_shared_offer_launches";
+
+    /**
+     * Binding annotation for the maximum number of tasks to launch against a single offer.
+     */
+    @VisibleForTesting
+    @Qualifier
+    @Target({ FIELD, PARAMETER, METHOD }) @Retention(RUNTIME)
+    public @interface MaxTasksPerOffer { }
 
     private final AtomicLong launchFailures;
     private final AtomicLong evaluatedOffers;
+    private final AtomicLong sharedOfferLaunches;
 
     private final StateManager stateManager;
     private final SchedulingFilter filter;
     private final MesosTaskFactory taskFactory;
     private final OfferManager offerManager;
     private final TierManager tierManager;
+    private final int maxTasksPerOffer;
 
     @Inject
     public TaskAssignerImpl(
@@ -101,7 +126,8 @@ public interface TaskAssigner {
         MesosTaskFactory taskFactory,
         OfferManager offerManager,
         TierManager tierManager,
-        StatsProvider statsProvider) {
+        StatsProvider statsProvider,
+        @MaxTasksPerOffer int maxTasksPerOffer) {
 
       this.stateManager = requireNonNull(stateManager);
       this.filter = requireNonNull(filter);
@@ -110,6 +136,9 @@ public interface TaskAssigner {
       this.tierManager = requireNonNull(tierManager);
       this.launchFailures = statsProvider.makeCounter(ASSIGNER_LAUNCH_FAILURES);
       this.evaluatedOffers = statsProvider.makeCounter(ASSIGNER_EVALUATED_OFFERS);
+      this.sharedOfferLaunches = statsProvider.makeCounter(ASSIGNER_SHARED_OFFER_LAUNCHES);
+      checkArgument(maxTasksPerOffer > 0, "maxTasksPerOffer must be positive.");
+      this.maxTasksPerOffer = maxTasksPerOffer;
     }
 
     @VisibleForTesting
@@ -158,14 +187,14 @@ public interface TaskAssigner {
       ImmutableSet.Builder<String> assignmentResult = ImmutableSet.builder();
       Iterator<String> remainingTasks = taskIds.iterator();
       String taskId = remainingTasks.next();
+      boolean launchFailed = false;
 
-      for (HostOffer offer : offerManager.getOffers(groupKey)) {
-        evaluatedOffers.incrementAndGet();
+      for (HostOffer offer
+          : offerManager.getOffers(groupKey, resourceRequest.getResourceBag(), tierInfo)) {
 
-        Optional<TaskGroupKey> reservedGroup = Optional.fromNullable(
-            slaveReservations.get(offer.getOffer().getAgentId().getValue()));
+        evaluatedOffers.incrementAndGet();
 
-        if (reservedGroup.isPresent() && !reservedGroup.get().equals(groupKey)) {
+        if (isReservedForOtherGroup(offer, groupKey, slaveReservations)) {
           // This slave is reserved for a different task group -> skip.
           continue;
         }
@@ -175,49 +204,132 @@ public interface TaskAssigner {
             resourceRequest);
 
         if (vetoes.isEmpty()) {
-          TaskInfo taskInfo = assign(
-              storeProvider,
-              offer.getOffer(),
-              taskId);
+          // Keep assigning tasks against what is left of the offer until it no longer fits,
+          // and launch all of them with a single accept call.
+          Map<String, TaskInfo> launches = Maps.newLinkedHashMap();
+          Offer remaining = offer.getOffer();
+          while (true) {
+            TaskInfo taskInfo = assign(storeProvider, remaining, taskId);
+            resourceRequest.getJobState().updateAttributeAggregate(offer.getAttributes());
+            launches.put(taskId, taskInfo);
 
-          resourceRequest.getJobState().updateAttributeAggregate(offer.getAttributes());
+            taskId = remainingTasks.hasNext() ? remainingTasks.next() : null;
+            if (taskId == null || launches.size() >= maxTasksPerOffer) {
+              break;
+            }
+
+            Optional<HostOffer> leftover = getLeftover(offer, remaining, taskInfo);
+            if (!leftover.isPresent()
+                || !filter.isMatch(
+                    new UnusedResource(
+                        leftover.get().getResourceBag(tierInfo),
+                        offer.getAttributes()),
+                    resourceRequest)) {
+              break;
+            }
+            remaining = leftover.get().getOffer();
+          }
 
           try {
-            offerManager.launchTask(offer.getOffer().getId(), taskInfo);
-            assignmentResult.add(taskId);
+            offerManager.launchTasks(
+                offer.getOffer().getId(),
+                ImmutableList.copyOf(launches.values()));
+            assignmentResult.addAll(launches.keySet());
+            if (launches.size() > 1) {
+              sharedOfferLaunches.addAndGet(launches.size() - 1);
+            }
 
-            if (remainingTasks.hasNext()) {
-              taskId = remainingTasks.next();
-            } else {
+            if (taskId == null) {
               break;
             }
           } catch (OfferManager.LaunchException e) {
             LOG.warn("Failed to launch task.", e);
             launchFailures.incrementAndGet();
+            launchFailed = true;
 
-            // The attempt to schedule the task failed, so we need to backpedal on the
-            // assignment.
-            // It is in the LOST state and a new task will move to PENDING to replace it.
-            // Should the state change fail due to storage issues, that's okay.  The task will
+            // The attempt to schedule the tasks failed, so we need to backpedal on the
+            // assignments.
+            // They are in the LOST state and new tasks will move to PENDING to replace them.
+            // Should the state change fail due to storage issues, that's okay.  The tasks will
             // time out in the ASSIGNED state and be moved to LOST.
-            stateManager.changeState(
-                storeProvider,
-                taskId,
-                Optional.of(PENDING),
-                LOST,
-                LAUNCH_FAILED_MSG);
+            for (String failedTaskId : launches.keySet()) {
+              stateManager.changeState(
+                  storeProvider,
+                  failedTaskId,
+                  Optional.of(PENDING),
+                  LOST,
+                  LAUNCH_FAILED_MSG);
+            }
             break;
           }
         } else {
-          if (Veto.identifyGroup(vetoes) == VetoGroup.STATIC) {
-            // Never attempt to match this offer/groupKey pair again.
-            offerManager.banOffer(offer.getOffer().getId(), groupKey);
-          }
-          LOG.debug("Agent {} vetoed task {}: {}", offer.getOffer().getHostname(), taskId, vetoes);
+          handleVetoes(offer, groupKey, taskId, vetoes);
+        }
+      }
+
+      if (taskId != null && !launchFailed) {
+        // Tasks are left pending. The offers skipped by the resource index are too small for
+        // them by construction, so only the nearest of them is filtered to report its
+        // insufficient resources vetoes for the pending reason. Those vetoes are static, so the
+        // offer is banned for the group and each skipped offer is filtered at most once.
+        Optional<HostOffer> nearestMiss =
+            offerManager.getNearestMiss(groupKey, resourceRequest.getResourceBag(), tierInfo);
+        if (nearestMiss.isPresent()
+            && !isReservedForOtherGroup(nearestMiss.get(), groupKey, slaveReservations)) {
+
+          HostOffer offer = nearestMiss.get();
+          handleVetoes(
+              offer,
+              groupKey,
+              taskId,
+              filter.filter(
+                  new UnusedResource(offer.getResourceBag(tierInfo), offer.getAttributes()),
+                  resourceRequest));
         }
       }
 
       return assignmentResult.build();
     }
+
+    private static boolean isReservedForOtherGroup(
+        HostOffer offer,
+        TaskGroupKey groupKey,
+        Map<String, TaskGroupKey> slaveReservations) {
+
+      TaskGroupKey reservedGroup = slaveReservations.get(offer.getOffer().getAgentId().getValue());
+      return reservedGroup != null && !reservedGroup.equals(groupKey);
+    }
+
+    private void handleVetoes(
+        HostOffer offer,
+        TaskGroupKey groupKey,
+        String taskId,
+        Set<Veto> vetoes) {
+
+      if (Veto.identifyGroup(vetoes) == VetoGroup.STATIC) {
+        // Never attempt to match this offer/groupKey pair again.
+        offerManager.banOffer(offer.getOffer().getId(), groupKey);
+      }
+      LOG.debug("Agent {} vetoed task {}: {}", offer.getOffer().getHostname(), taskId, vetoes);
+    }
+
+    private static Optional<HostOffer> getLeftover(
+        HostOffer offer,
+        Offer remaining,
+        TaskInfo taskInfo) {
+
+      try {
+        return Optional.of(new HostOffer(
+            subtractResources(
+                remaining,
+                Iterables.concat(
+                    taskInfo.getResourcesList(),
+                    taskInfo.getExecutor().getResourcesList())),
+            offer.getAttributes()));
+      } catch (InsufficientResourcesException e) {
+        LOG.warn("Failed to compute resources left in offer " + remaining.getId().getValue(), e);
+        return Optional.absent();
+      }
+    }
   }
 }
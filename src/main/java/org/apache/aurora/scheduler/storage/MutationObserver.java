@@ -0,0 +1,92 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.storage;
+
+import java.util.Set;
+
+import com.google.inject.Binder;
+import com.google.inject.multibindings.Multibinder;
+
+import org.apache.aurora.scheduler.storage.entities.IJobConfiguration;
+import org.apache.aurora.scheduler.storage.entities.IJobKey;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+
+/**
+ * Observes changes to the tasks and cron jobs in storage.  Observers are called on the storage
+ * write path, within the transaction that makes a change and after the change is applied to the
+ * stores.  Unlike pubsub events, which are delivered asynchronously, observers therefore see every
+ * change in order and before the writing transaction completes.
+ * <p>
+ * Observers are called while the storage write lock is held, so they must be fast and must not
+ * access storage.  Changes seen by an observer are not committed until
+ * {@link #transactionEnded()} is called, and may still be rolled back.
+ */
+public interface MutationObserver {
+
+  /**
+   * Called after tasks are saved, either as new tasks or as new versions of existing tasks.
+   *
+   * @param tasks Saved tasks.
+   */
+  void tasksSaved(Set<IScheduledTask> tasks);
+
+  /**
+   * Called after tasks are deleted.
+   *
+   * @param tasks Deleted tasks, as they were before they were deleted.
+   */
+  void tasksDeleted(Set<IScheduledTask> tasks);
+
+  /**
+   * Called after a cron job is saved.
+   *
+   * @param job Saved cron job.
+   */
+  void cronJobSaved(IJobConfiguration job);
+
+  /**
+   * Called after a cron job is removed.
+   *
+   * @param jobKey Key of the removed cron job.
+   */
+  void cronJobRemoved(IJobKey jobKey);
+
+  /**
+   * Called after the outermost transaction that may have made changes ends, whether it was
+   * committed or rolled back.  This is still called with the storage write lock held.
+   */
+  default void transactionEnded() {
+    // No-op.
+  }
+
+  /**
+   * Gets a binder for the set of observers, which ensures at least an empty set is bound.
+   *
+   * @param binder Binder to create the set binding with.
+   * @return A binder to add observers with.
+   */
+  static Multibinder<MutationObserver> getBinder(Binder binder) {
+    return Multibinder.newSetBinder(binder, MutationObserver.class);
+  }
+
+  /**
+   * Binds an observer to be called on the storage write path.
+   *
+   * @param binder Binder to bind the observer with.
+   * @param observer Observer implementation class.
+   */
+  static void bindObserver(Binder binder, Class<? extends MutationObserver> observer) {
+    getBinder(binder).addBinding().to(observer);
+  }
+}
@@ -59,6 +59,11 @@ public class BackupModule extends PrivateModule {
       help = "Maximum number of backups to retain before deleting the oldest backups.")
   private static final Arg<Integer> MAX_SAVED_BACKUPS = Arg.create(48);
 
+  @CmdLine(name = "compress_backups",
+      help = "Whether to gzip storage backups as they are written. Compressed backups are named "
+          + "with a .gz suffix, and can be staged for recovery like uncompressed ones.")
+  private static final Arg<Boolean> COMPRESS_BACKUPS = Arg.create(false);
+
   @NotNull
   @CmdLine(name = "backup_dir",
       help = "Directory to store backups under. Will be created if it does not exist.")
@@ -145,6 +150,10 @@ public class BackupModule extends PrivateModule {
 
   @Provides
   BackupConfig provideBackupConfig(File backupDir) {
-    return new BackupConfig(backupDir, MAX_SAVED_BACKUPS.get(), BACKUP_INTERVAL.get());
+    return new BackupConfig(
+        backupDir,
+        MAX_SAVED_BACKUPS.get(),
+        BACKUP_INTERVAL.get(),
+        COMPRESS_BACKUPS.get());
   }
 }
@@ -13,28 +13,35 @@
  */
 package org.apache.aurora.scheduler.storage.backup;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.io.Files;
 import com.google.common.util.concurrent.Atomics;
 
-import org.apache.aurora.codec.ThriftBinaryCodec;
 import org.apache.aurora.codec.ThriftBinaryCodec.CodingException;
 import org.apache.aurora.common.base.Command;
+import org.apache.aurora.common.quantity.Amount;
+import org.apache.aurora.common.quantity.Data;
 import org.apache.aurora.gen.storage.Snapshot;
 import org.apache.aurora.scheduler.base.Query;
 import org.apache.aurora.scheduler.storage.DistributedSnapshotStore;
 import org.apache.aurora.scheduler.storage.Storage;
 import org.apache.aurora.scheduler.storage.Storage.MutateWork.NoResult;
 import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.transport.TIOStreamTransport;
 
 import static java.util.Objects.requireNonNull;
 
@@ -103,6 +110,8 @@ public interface Recovery {
   }
 
   class RecoveryImpl implements Recovery {
+    private static final int BUFFER_SIZE = Amount.of(256, Data.KB).as(Data.BYTES);
+
     private final File backupDir;
     private final Function<Snapshot, TemporaryStorage> tempStorageFactory;
     private final AtomicReference<PendingRecovery> recovery;
@@ -138,10 +147,10 @@ public interface Recovery {
         throw new RecoveryException("Backup " + backupName + " does not exist.");
       }
 
-      Snapshot snapshot;
-      try {
-        snapshot = ThriftBinaryCodec.decode(Snapshot.class, Files.toByteArray(backupFile));
-      } catch (CodingException e) {
+      Snapshot snapshot = new Snapshot();
+      try (InputStream in = openBackup(backupFile)) {
+        snapshot.read(new TBinaryProtocol(new TIOStreamTransport(in)));
+      } catch (TException e) {
         throw new RecoveryException("Failed to decode backup " + e, e);
       } catch (IOException e) {
         throw new RecoveryException("Failed to read backup " + e, e);
@@ -153,6 +162,24 @@ public interface Recovery {
       }
     }
 
+    /**
+     * Opens a backup for streaming, decompressing it if it was written compressed.
+     */
+    private static InputStream openBackup(File backupFile) throws IOException {
+      InputStream in = new BufferedInputStream(new FileInputStream(backupFile), BUFFER_SIZE);
+      try {
+        in.mark(2);
+        int magic = in.read() | (in.read() << 8);
+        in.reset();
+        return magic == GZIPInputStream.GZIP_MAGIC
+            ? new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE)
+            : in;
+      } catch (IOException e) {
+        in.close();
+        throw e;
+      }
+    }
+
     private PendingRecovery getLoadedRecovery() throws RecoveryException {
       @Nullable PendingRecovery loaded = this.recovery.get();
       if (loaded == null) {
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
 
 import javax.inject.Inject;
 import javax.inject.Qualifier;
@@ -39,6 +40,7 @@ import com.google.common.collect.Ordering;
 import com.google.common.io.Files;
 
 import org.apache.aurora.common.quantity.Amount;
+import org.apache.aurora.common.quantity.Data;
 import org.apache.aurora.common.quantity.Time;
 import org.apache.aurora.common.stats.Stats;
 import org.apache.aurora.common.util.Clock;
@@ -73,17 +75,22 @@ public interface StorageBackup {
     private static final Logger LOG = LoggerFactory.getLogger(StorageBackupImpl.class);
 
     private static final String FILE_PREFIX = "scheduler-backup-";
+    @VisibleForTesting
+    static final String COMPRESSED_SUFFIX = ".gz";
+    private static final int BUFFER_SIZE = Amount.of(256, Data.KB).as(Data.BYTES);
     private final BackupConfig config;
 
     static class BackupConfig {
       private final File dir;
       private final int maxBackups;
       private final Amount<Long, Time> interval;
+      private final boolean compress;
 
-      BackupConfig(File dir, int maxBackups, Amount<Long, Time> interval) {
+      BackupConfig(File dir, int maxBackups, Amount<Long, Time> interval, boolean compress) {
         this.dir = requireNonNull(dir);
         this.maxBackups = maxBackups;
         this.interval = requireNonNull(interval);
+        this.compress = compress;
       }
 
       @VisibleForTesting
@@ -153,19 +160,31 @@ public interface StorageBackup {
       return FILE_PREFIX + backupDateFormat.format(new Date(clock.nowMillis()));
     }
 
+    private OutputStream openBackup(File file) throws IOException {
+      OutputStream out = new FileOutputStream(file);
+      if (config.compress) {
+        out = new GZIPOutputStream(out, BUFFER_SIZE);
+      }
+      return new BufferedOutputStream(out, BUFFER_SIZE);
+    }
+
     private void save(Snapshot snapshot) {
       lastBackupMs = clock.nowMillis();
 
       String backupName = createBackupName();
+      if (config.compress) {
+        backupName += COMPRESSED_SUFFIX;
+      }
       String tempBackupName = "temp_" + backupName;
       File tempFile = new File(config.dir, tempBackupName);
       LOG.info("Saving backup to " + tempFile);
-      try (
-          OutputStream tempFileStream = new BufferedOutputStream(new FileOutputStream(tempFile))) {
-
-        TTransport transport = new TIOStreamTransport(tempFileStream);
-        TProtocol protocol = new TBinaryProtocol(transport);
-        snapshot.write(protocol);
+      try {
+        // The snapshot is encoded straight to the file, without buffering its encoding first.
+        try (OutputStream tempFileStream = openBackup(tempFile)) {
+          TTransport transport = new TIOStreamTransport(tempFileStream);
+          TProtocol protocol = new TBinaryProtocol(transport);
+          snapshot.write(protocol);
+        }
         Files.move(tempFile, new File(config.dir, backupName));
         successes.incrementAndGet();
       } catch (IOException e) {
@@ -96,7 +96,9 @@ interface TemporaryStorage {
           // We can just pass an empty lambda for the MigrationManager as migration is a no-op
           // when restoring from backup.
           () -> { } /** migrationManager */,
-          thriftBackfill);
+          thriftBackfill,
+          // Restoring a backup is not on the failover path, so it is done on the calling thread.
+          1 /** recoveryThreads */);
       snapshotStore.applySnapshot(snapshot);
 
       return new TemporaryStorage() {
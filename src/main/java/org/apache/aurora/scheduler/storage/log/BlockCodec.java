@@ -0,0 +1,119 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.storage.log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
+
+import com.google.common.io.ByteStreams;
+
+import org.apache.aurora.codec.ThriftBinaryCodec;
+import org.apache.aurora.codec.ThriftBinaryCodec.CodingException;
+import org.apache.aurora.common.quantity.Amount;
+import org.apache.aurora.common.quantity.Data;
+import org.apache.aurora.gen.storage.Codec;
+
+/**
+ * Compresses and decompresses the blocks of a
+ * {@link org.apache.aurora.gen.storage.BlockCompressedEntry}.  Implementations must be thread-safe,
+ * since blocks are compressed and decompressed concurrently.
+ */
+interface BlockCodec {
+
+  /**
+   * Compresses a block.
+   *
+   * @param data Buffer holding the block.
+   * @param offset Offset of the block in the buffer.
+   * @param length Length of the block.
+   * @return The compressed block.
+   */
+  byte[] compress(byte[] data, int offset, int length);
+
+  /**
+   * Decompresses a block.
+   *
+   * @param block The compressed block.
+   * @return The decompressed block.
+   * @throws CodingException If the block could not be decompressed.
+   */
+  byte[] decompress(byte[] block) throws CodingException;
+
+  /**
+   * Gets the implementation of a codec.
+   *
+   * @param codec Codec recorded in an entry.
+   * @return The codec implementation.
+   * @throws CodingException If the codec is not known, for example because the entry was written
+   *     by a newer scheduler.
+   */
+  static BlockCodec forCodec(Codec codec) throws CodingException {
+    if (codec == null) {
+      throw new CodingException("Unknown block codec.");
+    }
+    switch (codec) {
+      case DEFLATE:
+        return new DeflateCodec(ThriftBinaryCodec.DEFLATE_LEVEL);
+      case DEFLATE_FAST:
+        return new DeflateCodec(Deflater.BEST_SPEED);
+      case DEFLATE_BEST:
+        return new DeflateCodec(Deflater.BEST_COMPRESSION);
+      default:
+        throw new CodingException("Unknown block codec " + codec);
+    }
+  }
+
+  /**
+   * Compresses blocks in the "deflate" format, at a given compression level.
+   */
+  class DeflateCodec implements BlockCodec {
+    private static final int BUFFER_SIZE = Amount.of(64, Data.KB).as(Data.BYTES);
+
+    private final int level;
+
+    DeflateCodec(int level) {
+      this.level = level;
+    }
+
+    @Override
+    public byte[] compress(byte[] data, int offset, int length) {
+      Deflater deflater = new Deflater(level);
+      try {
+        deflater.setInput(data, offset, length);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (!deflater.finished()) {
+          out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return out.toByteArray();
+      } finally {
+        deflater.end();
+      }
+    }
+
+    @Override
+    public byte[] decompress(byte[] block) throws CodingException {
+      try (InflaterInputStream in =
+               new InflaterInputStream(new ByteArrayInputStream(block), BUFFER_SIZE)) {
+        return ByteStreams.toByteArray(in);
+      } catch (IOException e) {
+        throw new CodingException("Failed to inflate block: " + e, e);
+      }
+    }
+  }
+}
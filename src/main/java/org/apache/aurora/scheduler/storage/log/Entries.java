@@ -13,12 +13,28 @@
  */
 package org.apache.aurora.scheduler.storage.log;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Bytes;
 
 import org.apache.aurora.codec.ThriftBinaryCodec;
 import org.apache.aurora.codec.ThriftBinaryCodec.CodingException;
+import org.apache.aurora.common.quantity.Amount;
+import org.apache.aurora.common.quantity.Data;
+import org.apache.aurora.gen.storage.BlockCompressedEntry;
+import org.apache.aurora.gen.storage.Codec;
 import org.apache.aurora.gen.storage.LogEntry;
 import org.apache.aurora.gen.storage.LogEntry._Fields;
+import org.apache.thrift.TBaseHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,6 +45,10 @@ public final class Entries {
 
   private static final Logger LOG = LoggerFactory.getLogger(Entries.class);
 
+  // Large enough for the compression ratio to be unaffected by splitting an entry into blocks,
+  // since the DEFLATE window is 32 KB.
+  private static final int BLOCK_SIZE = Amount.of(1, Data.MB).as(Data.BYTES);
+
   private Entries() {
     // Utility class.
   }
@@ -64,8 +84,87 @@ public final class Entries {
     Preconditions.checkArgument(entry.isSet(_Fields.DEFLATED_ENTRY));
 
     byte[] data = entry.getDeflatedEntry();
-    LOG.info("Inflating deflated log entry of size " + data.length);
-    return ThriftBinaryCodec.inflateNonNull(LogEntry.class, entry.getDeflatedEntry());
+    LOG.debug("Inflating deflated log entry of size " + data.length);
+    return ThriftBinaryCodec.inflateNonNull(LogEntry.class, data);
+  }
+
+  /**
+   * Compresses a log entry as independent blocks, and wraps it in a block compressed entry.
+   * <p>
+   * This will encode the entry using the thrift binary codec, and will compress blocks of the
+   * resulting encoded data in parallel.
+   * <p>
+   * This operation is symmetric with {@link #decompress(LogEntry, Executor)}.
+   *
+   * @param entry Entry to compress.
+   * @param codec Codec to compress the blocks with.
+   * @param executor Executor to compress the blocks on.
+   * @return An entry with the {@code blockCompressedEntry} field set with the compressed blocks
+   *         of the original entry.
+   * @throws CodingException If the value could not be encoded.
+   */
+  public static LogEntry compress(LogEntry entry, Codec codec, Executor executor)
+      throws CodingException {
+
+    BlockCodec blockCodec = BlockCodec.forCodec(codec);
+    byte[] encoded = ThriftBinaryCodec.encodeNonNull(entry);
+
+    List<CompletableFuture<byte[]>> blocks = Lists.newArrayList();
+    for (int offset = 0; offset < encoded.length; offset += BLOCK_SIZE) {
+      int blockOffset = offset;
+      int blockLength = Math.min(BLOCK_SIZE, encoded.length - offset);
+      blocks.add(CompletableFuture.supplyAsync(
+          () -> blockCodec.compress(encoded, blockOffset, blockLength),
+          executor));
+    }
+    List<ByteBuffer> compressed = Arrays.stream(join(blocks))
+        .map(ByteBuffer::wrap)
+        .collect(Collectors.toList());
+    return LogEntry.blockCompressedEntry(new BlockCompressedEntry(codec, compressed));
+  }
+
+  /**
+   * Decompresses and deserializes a block compressed log entry, decompressing its blocks in
+   * parallel.
+   * <p>
+   * This requires that the {@code blockCompressedEntry} field is set on the provided
+   * {@code entry}.
+   *
+   * @param entry Entry to decompress, which must be a block compressed entry.
+   * @param executor Executor to decompress the blocks on.
+   * @return The decompressed entry.
+   * @throws CodingException If the value could not be decompressed or decoded.
+   */
+  static LogEntry decompress(LogEntry entry, Executor executor) throws CodingException {
+    Preconditions.checkArgument(entry.isSet(_Fields.BLOCK_COMPRESSED_ENTRY));
+
+    BlockCompressedEntry compressed = entry.getBlockCompressedEntry();
+    BlockCodec blockCodec = BlockCodec.forCodec(compressed.getCodec());
+    List<CompletableFuture<byte[]>> blocks = compressed.getBlocks().stream()
+        .map(TBaseHelper::byteBufferToByteArray)
+        .map(block -> CompletableFuture.supplyAsync(() -> {
+          try {
+            return blockCodec.decompress(block);
+          } catch (CodingException e) {
+            throw new CompletionException(e);
+          }
+        }, executor))
+        .collect(Collectors.toList());
+    return ThriftBinaryCodec.decodeNonNull(LogEntry.class, Bytes.concat(join(blocks)));
+  }
+
+  private static byte[][] join(List<CompletableFuture<byte[]>> blocks) throws CodingException {
+    byte[][] joined = new byte[blocks.size()][];
+    try {
+      for (int i = 0; i < joined.length; i++) {
+        joined[i] = blocks.get(i).join();
+      }
+    } catch (CompletionException e) {
+      Throwables.throwIfInstanceOf(e.getCause(), CodingException.class);
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new CodingException("Failed to process block.", e.getCause());
+    }
+    return joined;
   }
 
   /**
@@ -13,8 +13,11 @@
  */
 package org.apache.aurora.scheduler.storage.log;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.util.Iterator;
+import java.util.function.Consumer;
 
 import javax.inject.Inject;
 
@@ -22,13 +25,17 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
 
+import org.apache.aurora.codec.ThriftBinaryCodec;
+import org.apache.aurora.codec.ThriftBinaryCodec.ProtocolWriter;
 import org.apache.aurora.common.inject.TimedInterceptor.Timed;
 import org.apache.aurora.common.quantity.Amount;
 import org.apache.aurora.common.quantity.Data;
 import org.apache.aurora.gen.storage.Frame;
 import org.apache.aurora.gen.storage.FrameChunk;
 import org.apache.aurora.gen.storage.FrameHeader;
+import org.apache.aurora.gen.storage.FrameTrailer;
 import org.apache.aurora.gen.storage.LogEntry;
 
 import static java.util.Objects.requireNonNull;
@@ -51,6 +58,27 @@ public interface EntrySerializer {
    */
   Iterable<byte[]> serialize(LogEntry logEntry) throws CodingException;
 
+  /**
+   * Serializes the header that opens a streamed frame.
+   *
+   * @return Serialized frame header.
+   * @throws CodingException If the header could not be serialized.
+   */
+  byte[] serializeStreamedHeader() throws CodingException;
+
+  /**
+   * Serializes a log entry as it is being encoded, into the remainder of a streamed frame opened
+   * by a {@link #serializeStreamedHeader() header}: chunks of the deflated entry no larger than
+   * {@code maxEntrySizeBytes} and a trailer.  Serialized frames are handed off as soon as they are
+   * complete, so the serialized entry is never held in memory as a whole.  The log entry object
+   * that {@code logEntry} writes from is not affected.
+   *
+   * @param logEntry Writes the log entry to serialize.
+   * @param sink Receives serialized frames, in order.
+   * @throws CodingException If the entry could not be serialized.
+   */
+  void serializeStreamed(ProtocolWriter logEntry, Consumer<byte[]> sink) throws CodingException;
+
   @VisibleForTesting
   class EntrySerializerImpl implements EntrySerializer {
     private final HashFunction hashFunction;
@@ -82,6 +110,81 @@ public interface EntrySerializer {
       return () -> streamFrames(header, chunks, entry);
     }
 
+    @Override
+    public byte[] serializeStreamedHeader() throws CodingException {
+      return encode(Frame.header(new FrameHeader()
+          .setChunkCount(0)
+          .setChecksum(new byte[0])
+          .setStreamed(true)));
+    }
+
+    @Override
+    @Timed("log_entry_serialize_streamed")
+    public void serializeStreamed(ProtocolWriter logEntry, Consumer<byte[]> sink)
+        throws CodingException {
+
+      ChunkStream chunks = new ChunkStream(sink);
+      ThriftBinaryCodec.deflateTo(chunks, logEntry);
+
+      sink.accept(encode(Frame.trailer(
+          new FrameTrailer(chunks.count, ByteBuffer.wrap(chunks.hasher.hash().asBytes())))));
+    }
+
+    /**
+     * Buffers up to a chunk of data at a time, handing off each full chunk as a frame.
+     */
+    private final class ChunkStream extends OutputStream {
+      private final Consumer<byte[]> sink;
+      private final byte[] buffer = new byte[maxEntrySizeBytes];
+      private final Hasher hasher = hashFunction.newHasher();
+      private int size = 0;
+      private int count = 0;
+
+      ChunkStream(Consumer<byte[]> sink) {
+        this.sink = sink;
+      }
+
+      @Override
+      public void write(int b) throws IOException {
+        buffer[size++] = (byte) b;
+        if (size == buffer.length) {
+          flushChunk();
+        }
+      }
+
+      @Override
+      public void write(byte[] bytes, int offset, int length) throws IOException {
+        int written = 0;
+        while (written < length) {
+          int toCopy = Math.min(length - written, buffer.length - size);
+          System.arraycopy(bytes, offset + written, buffer, size, toCopy);
+          size += toCopy;
+          written += toCopy;
+          if (size == buffer.length) {
+            flushChunk();
+          }
+        }
+      }
+
+      @Override
+      public void close() throws IOException {
+        if (size > 0) {
+          flushChunk();
+        }
+      }
+
+      private void flushChunk() throws IOException {
+        hasher.putBytes(buffer, 0, size);
+        try {
+          sink.accept(encode(Frame.chunk(new FrameChunk(ByteBuffer.wrap(buffer, 0, size)))));
+        } catch (CodingException e) {
+          throw new IOException(e);
+        }
+        count++;
+        size = 0;
+      }
+    }
+
     Iterator<byte[]> streamFrames(final byte[] header, final int chunks, final byte[] entry) {
       return new AbstractIterator<byte[]>() {
         private int i = -1;
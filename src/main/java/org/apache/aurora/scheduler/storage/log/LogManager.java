@@ -46,6 +46,39 @@ public class LogManager {
   @Qualifier
   public @interface LogEntryHashFunction { }
 
+  /**
+   * Whether concurrently committed transactions should be grouped into a single log entry.
+   */
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target({ElementType.METHOD, ElementType.PARAMETER})
+  @Qualifier
+  public @interface GroupCommit { }
+
+  /**
+   * Whether snapshots should be encoded incrementally as they are written to the log, rather than
+   * serialized to a byte array first.
+   */
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target({ElementType.METHOD, ElementType.PARAMETER})
+  @Qualifier
+  public @interface StreamSnapshots { }
+
+  /**
+   * Number of threads to decode log entries with when recovering from the log.
+   */
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target({ElementType.METHOD, ElementType.PARAMETER})
+  @Qualifier
+  public @interface RecoveryThreads { }
+
+  /**
+   * Codec to compress snapshots with when they are written to the log.
+   */
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target({ElementType.METHOD, ElementType.PARAMETER})
+  @Qualifier
+  public @interface SnapshotCodec { }
+
   private final Log log;
   private final StreamManagerFactory streamManagerFactory;
 
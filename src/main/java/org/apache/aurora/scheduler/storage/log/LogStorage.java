@@ -16,8 +16,11 @@ package org.apache.aurora.scheduler.storage.log;
 import java.io.IOException;
 import java.util.Date;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
@@ -34,6 +37,7 @@ import org.apache.aurora.common.inject.TimedInterceptor.Timed;
 import org.apache.aurora.common.quantity.Amount;
 import org.apache.aurora.common.quantity.Time;
 import org.apache.aurora.common.stats.SlidingStats;
+import org.apache.aurora.common.stats.Stats;
 import org.apache.aurora.gen.HostAttributes;
 import org.apache.aurora.gen.storage.LogEntry;
 import org.apache.aurora.gen.storage.Op;
@@ -53,6 +57,7 @@ import org.apache.aurora.scheduler.storage.CronJobStore;
 import org.apache.aurora.scheduler.storage.DistributedSnapshotStore;
 import org.apache.aurora.scheduler.storage.JobUpdateStore;
 import org.apache.aurora.scheduler.storage.LockStore;
+import org.apache.aurora.scheduler.storage.MutationObserver;
 import org.apache.aurora.scheduler.storage.QuotaStore;
 import org.apache.aurora.scheduler.storage.SchedulerStore;
 import org.apache.aurora.scheduler.storage.SnapshotStore;
@@ -68,6 +73,8 @@ import org.apache.aurora.scheduler.storage.entities.IJobUpdateKey;
 import org.apache.aurora.scheduler.storage.entities.ILock;
 import org.apache.aurora.scheduler.storage.entities.ILockKey;
 import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
+import org.apache.aurora.scheduler.storage.log.StreamManager.PendingSnapshot;
+import org.apache.aurora.scheduler.storage.log.StreamTransaction.PendingCommit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -108,6 +115,16 @@ import static java.util.Objects.requireNonNull;
  *
  * <p>If the op fails to apply to local storage we will never write the op to the log and if the op
  * fails to apply to the log, it'll throw and abort the local storage transaction as well.
+ *
+ * <p>When the stream manager groups commits, writing the op to the log only queues it up and the
+ * local transaction commits right away.  The writer then waits for the op to be appended after
+ * releasing the write lock, so that the ops of concurrent writers are appended together.  A
+ * failed append leaves local storage ahead of the log, so no further writes are accepted.
+ *
+ * <p>Snapshots normally hold the write lock until they are in the log.  With concurrent snapshots,
+ * only capturing the snapshot and reserving its place in the log happens under the write lock.  The
+ * snapshot is then written while further transactions are committed, see
+ * {@link StreamManager#startSnapshot()}.
  */
 public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore {
 
@@ -176,6 +193,9 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
   private final SchedulingService schedulingService;
   private final SnapshotStore<Snapshot> snapshotStore;
   private final Amount<Long, Time> snapshotInterval;
+  private final boolean concurrentSnapshots;
+  private final double snapshotGrowthThreshold;
+  private final int maxSkippedSnapshots;
   private final Storage writeBehindStorage;
   private final SchedulerStore.Mutable writeBehindSchedulerStore;
   private final CronJobStore.Mutable writeBehindJobStore;
@@ -184,9 +204,17 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
   private final QuotaStore.Mutable writeBehindQuotaStore;
   private final AttributeStore.Mutable writeBehindAttributeStore;
   private final JobUpdateStore.Mutable writeBehindJobUpdateStore;
+  private final Set<MutationObserver> mutationObservers;
   private final ReentrantLock writeLock;
   private final ThriftBackfill thriftBackfill;
 
+  // Snapshots written outside of the write lock must not overlap in the log.
+  private final Object snapshotMutex = new Object();
+
+  // Consecutive scheduled snapshots skipped, only accessed by the snapshot scheduling thread.
+  private int skippedSnapshots = 0;
+  private final AtomicLong snapshotsSkipped = Stats.exportLong("scheduler_log_snapshots_skipped");
+
   private StreamManager streamManager;
   private final WriteAheadStorage writeAheadStorage;
 
@@ -218,6 +246,7 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
       @Volatile AttributeStore.Mutable attributeStore,
       @Volatile JobUpdateStore.Mutable jobUpdateStore,
       EventSink eventSink,
+      Set<MutationObserver> mutationObservers,
       ReentrantLock writeLock,
       ThriftBackfill thriftBackfill) {
 
@@ -225,6 +254,9 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
         new ScheduledExecutorSchedulingService(shutdownRegistry, settings.getShutdownGracePeriod()),
         snapshotStore,
         settings.getSnapshotInterval(),
+        settings.isConcurrentSnapshots(),
+        settings.getSnapshotGrowthThreshold(),
+        settings.getMaxSkippedSnapshots(),
         storage,
         schedulerStore,
         jobStore,
@@ -234,6 +266,7 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
         attributeStore,
         jobUpdateStore,
         eventSink,
+        mutationObservers,
         writeLock,
         thriftBackfill);
   }
@@ -244,6 +277,9 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
       SchedulingService schedulingService,
       SnapshotStore<Snapshot> snapshotStore,
       Amount<Long, Time> snapshotInterval,
+      boolean concurrentSnapshots,
+      double snapshotGrowthThreshold,
+      int maxSkippedSnapshots,
       Storage delegateStorage,
       SchedulerStore.Mutable schedulerStore,
       CronJobStore.Mutable jobStore,
@@ -253,6 +289,7 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
       AttributeStore.Mutable attributeStore,
       JobUpdateStore.Mutable jobUpdateStore,
       EventSink eventSink,
+      Set<MutationObserver> mutationObservers,
       ReentrantLock writeLock,
       ThriftBackfill thriftBackfill) {
 
@@ -260,6 +297,9 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
     this.schedulingService = requireNonNull(schedulingService);
     this.snapshotStore = requireNonNull(snapshotStore);
     this.snapshotInterval = requireNonNull(snapshotInterval);
+    this.concurrentSnapshots = concurrentSnapshots;
+    this.snapshotGrowthThreshold = snapshotGrowthThreshold;
+    this.maxSkippedSnapshots = maxSkippedSnapshots;
 
     // Log storage has two distinct operating modes: pre- and post-recovery.  When recovering,
     // we write directly to the writeBehind stores since we are replaying what's already persisted.
@@ -273,6 +313,7 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
     this.writeBehindQuotaStore = requireNonNull(quotaStore);
     this.writeBehindAttributeStore = requireNonNull(attributeStore);
     this.writeBehindJobUpdateStore = requireNonNull(jobUpdateStore);
+    this.mutationObservers = requireNonNull(mutationObservers);
     this.writeLock = requireNonNull(writeLock);
     this.thriftBackfill = requireNonNull(thriftBackfill);
     TransactionManager transactionManager = new TransactionManager() {
@@ -296,7 +337,8 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
         attributeStore,
         jobUpdateStore,
         LoggerFactory.getLogger(WriteAheadStorage.class),
-        eventSink);
+        eventSink,
+        mutationObservers);
 
     this.logEntryReplayActions = buildLogEntryReplayActions();
     this.transactionReplayActions = buildTransactionReplayActions();
@@ -466,6 +508,9 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
   private void scheduleSnapshots() {
     if (snapshotInterval.getValue() > 0) {
       schedulingService.doEvery(snapshotInterval, () -> {
+        if (skipSnapshot()) {
+          return;
+        }
         try {
           snapshot();
         } catch (StorageException e) {
@@ -479,6 +524,25 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
     }
   }
 
+  private boolean skipSnapshot() {
+    // The log can only be truncated before a full snapshot, so the entries appended since the last
+    // snapshot are the cheapest record of what changed.  While they are small compared to the
+    // snapshot, replaying them on recovery costs less than writing out the full state again.
+    Optional<Double> growth = streamManager.getGrowthSinceSnapshot();
+    if (skippedSnapshots < maxSkippedSnapshots
+        && growth.isPresent()
+        && growth.get() < snapshotGrowthThreshold) {
+
+      skippedSnapshots++;
+      snapshotsSkipped.incrementAndGet();
+      LOG.info(String.format(
+          "Skipping snapshot, log grew by %.1f%% of the last snapshot.", growth.get() * 100));
+      return true;
+    }
+    skippedSnapshots = 0;
+    return false;
+  }
+
   /**
    * Forces a snapshot of the storage state.
    *
@@ -488,18 +552,36 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
    */
   @Timed("scheduler_log_snapshot")
   void doSnapshot() throws CodingException, InvalidPositionException, StreamAccessException {
-    write((NoResult<CodingException>) (MutableStoreProvider unused) -> {
-      LOG.info("Creating snapshot.");
-      Snapshot snapshot = snapshotStore.createSnapshot();
-      persist(snapshot);
-      LOG.info("Snapshot complete."
-          + " host attrs: " + snapshot.getHostAttributesSize()
-          + ", cron jobs: " + snapshot.getCronJobsSize()
-          + ", locks: " + snapshot.getLocksSize()
-          + ", quota confs: " + snapshot.getQuotaConfigurationsSize()
-          + ", tasks: " + snapshot.getTasksSize()
-          + ", updates: " + snapshot.getJobUpdateDetailsSize());
-    });
+    synchronized (snapshotMutex) {
+      if (concurrentSnapshots) {
+        AtomicReference<PendingSnapshot> pendingSnapshot = new AtomicReference<>();
+        Snapshot snapshot = write((MutateWork<Snapshot, CodingException>) unused -> {
+          LOG.info("Creating snapshot.");
+          Snapshot created = snapshotStore.createSnapshot();
+          pendingSnapshot.set(streamManager.startSnapshot());
+          return created;
+        });
+        pendingSnapshot.get().write(snapshot);
+        logSnapshotComplete(snapshot);
+      } else {
+        write((NoResult<CodingException>) (MutableStoreProvider unused) -> {
+          LOG.info("Creating snapshot.");
+          Snapshot snapshot = snapshotStore.createSnapshot();
+          persist(snapshot);
+          logSnapshotComplete(snapshot);
+        });
+      }
+    }
+  }
+
+  private static void logSnapshotComplete(Snapshot snapshot) {
+    LOG.info("Snapshot complete."
+        + " host attrs: " + snapshot.getHostAttributesSize()
+        + ", cron jobs: " + snapshot.getCronJobsSize()
+        + ", locks: " + snapshot.getLocksSize()
+        + ", quota confs: " + snapshot.getQuotaConfigurationsSize()
+        + ", tasks: " + snapshot.getTasksSize()
+        + ", updates: " + snapshot.getJobUpdateDetailsSize());
   }
 
   @Timed("scheduler_log_snapshot_persist")
@@ -510,8 +592,9 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
     streamManager.snapshot(snapshot);
   }
 
-  private <T, E extends Exception> T doInTransaction(final MutateWork<T, E> work)
-      throws StorageException, E {
+  private <T, E extends Exception> T doInTransaction(
+      final MutateWork<T, E> work,
+      AtomicReference<PendingCommit> pendingCommit) throws StorageException, E {
 
     // The log stream transaction has already been set up so we just need to delegate with our
     // store provider so any mutations performed by work get logged.
@@ -524,7 +607,7 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
       return writeBehindStorage.write(unused -> {
         T result = work.apply(writeAheadStorage);
         try {
-          transaction.commit();
+          pendingCommit.set(transaction.submit());
         } catch (CodingException e) {
           throw new IllegalStateException(
               "Problem encoding transaction operations to the log stream", e);
@@ -536,12 +619,18 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
       });
     } finally {
       transaction = null;
+      // The write behind storage has committed or rolled back the changes seen by observers.
+      for (MutationObserver observer : mutationObservers) {
+        observer.transactionEnded();
+      }
     }
   }
 
   @Override
   public <T, E extends Exception> T write(final MutateWork<T, E> work) throws StorageException, E {
     long waitStart = System.nanoTime();
+    AtomicReference<PendingCommit> pendingCommit = new AtomicReference<>();
+    T result;
     writeLock.lock();
     try {
       writerWaitStats.accumulate(System.nanoTime() - waitStart);
@@ -551,10 +640,27 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
         return writeBehindStorage.write(work);
       }
 
-      return doInTransaction(work);
+      result = doInTransaction(work, pendingCommit);
     } finally {
       writeLock.unlock();
     }
+
+    // With group commits the transaction may not be in the log yet.  Wait for it outside of the
+    // write lock so that other writers can queue their transactions up behind it.  Its changes are
+    // visible to readers from here on, before they are durable.  Should the append fail, the
+    // scheduler shuts down rather than serve storage that is ahead of the log.
+    if (pendingCommit.get() != null) {
+      try {
+        pendingCommit.get().await();
+      } catch (CodingException e) {
+        throw new IllegalStateException(
+            "Problem encoding transaction operations to the log stream", e);
+      } catch (StreamAccessException e) {
+        throw new StorageException(
+            "There was a problem committing the transaction to the log.", e);
+      }
+    }
+    return result;
   }
 
   @Override
@@ -581,10 +687,22 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
   public static class Settings {
     private final Amount<Long, Time> shutdownGracePeriod;
     private final Amount<Long, Time> snapshotInterval;
+    private final boolean concurrentSnapshots;
+    private final double snapshotGrowthThreshold;
+    private final int maxSkippedSnapshots;
+
+    public Settings(
+        Amount<Long, Time> shutdownGracePeriod,
+        Amount<Long, Time> snapshotInterval,
+        boolean concurrentSnapshots,
+        double snapshotGrowthThreshold,
+        int maxSkippedSnapshots) {
 
-    public Settings(Amount<Long, Time> shutdownGracePeriod, Amount<Long, Time> snapshotInterval) {
       this.shutdownGracePeriod = requireNonNull(shutdownGracePeriod);
       this.snapshotInterval = requireNonNull(snapshotInterval);
+      this.concurrentSnapshots = concurrentSnapshots;
+      this.snapshotGrowthThreshold = snapshotGrowthThreshold;
+      this.maxSkippedSnapshots = maxSkippedSnapshots;
     }
 
     public Amount<Long, Time> getShutdownGracePeriod() {
@@ -594,5 +712,17 @@ public class LogStorage implements NonVolatileStorage, DistributedSnapshotStore
     public Amount<Long, Time> getSnapshotInterval() {
       return snapshotInterval;
     }
+
+    public boolean isConcurrentSnapshots() {
+      return concurrentSnapshots;
+    }
+
+    public double getSnapshotGrowthThreshold() {
+      return snapshotGrowthThreshold;
+    }
+
+    public int getMaxSkippedSnapshots() {
+      return maxSkippedSnapshots;
+    }
   }
 }
@@ -25,15 +25,22 @@ import com.google.inject.assistedinject.FactoryModuleBuilder;
 
 import org.apache.aurora.common.args.Arg;
 import org.apache.aurora.common.args.CmdLine;
+import org.apache.aurora.common.args.constraints.NotNegative;
+import org.apache.aurora.common.args.constraints.Positive;
 import org.apache.aurora.common.quantity.Amount;
 import org.apache.aurora.common.quantity.Data;
 import org.apache.aurora.common.quantity.Time;
+import org.apache.aurora.gen.storage.Codec;
 import org.apache.aurora.scheduler.storage.CallOrderEnforcingStorage;
 import org.apache.aurora.scheduler.storage.DistributedSnapshotStore;
 import org.apache.aurora.scheduler.storage.Storage;
 import org.apache.aurora.scheduler.storage.Storage.NonVolatileStorage;
 import org.apache.aurora.scheduler.storage.db.DbModule;
+import org.apache.aurora.scheduler.storage.log.LogManager.GroupCommit;
 import org.apache.aurora.scheduler.storage.log.LogManager.MaxEntrySize;
+import org.apache.aurora.scheduler.storage.log.LogManager.RecoveryThreads;
+import org.apache.aurora.scheduler.storage.log.LogManager.SnapshotCodec;
+import org.apache.aurora.scheduler.storage.log.LogManager.StreamSnapshots;
 import org.apache.aurora.scheduler.storage.log.LogStorage.Settings;
 import org.apache.aurora.scheduler.storage.log.SnapshotStoreImpl.ExperimentalTaskStore;
 import org.apache.aurora.scheduler.storage.log.SnapshotStoreImpl.HydrateSnapshotFields;
@@ -47,6 +54,14 @@ import static org.apache.aurora.scheduler.storage.log.SnapshotDeduplicator.Snaps
  */
 public class LogStorageModule extends PrivateModule {
 
+  @Positive
+  @CmdLine(name = "dlog_recovery_threads",
+      help = "Number of threads to decode log entries with when recovering from the log. With "
+          + "more than one thread, entries are also read ahead of replaying them to storage, and "
+          + "snapshot fields are prepared for restore concurrently. Also bounds the threads that "
+          + "compress and decompress the blocks of block compressed entries.")
+  private static final Arg<Integer> RECOVERY_THREADS = Arg.create(1);
+
   @CmdLine(name = "dlog_shutdown_grace_period",
            help = "Specifies the maximum time to wait for scheduled checkpoint and snapshot "
                   + "actions to complete before forcibly shutting down.")
@@ -59,6 +74,19 @@ public class LogStorageModule extends PrivateModule {
   private static final Arg<Amount<Long, Time>> SNAPSHOT_INTERVAL =
       Arg.create(Amount.of(1L, Time.HOURS));
 
+  @NotNegative
+  @CmdLine(name = "dlog_snapshot_growth_threshold",
+      help = "Skip a scheduled snapshot while the entries appended to the log since the last "
+          + "snapshot are smaller than this fraction of the size of that snapshot. Recovery then "
+          + "replays those entries on top of the last snapshot instead. 0 never skips snapshots.")
+  private static final Arg<Double> SNAPSHOT_GROWTH_THRESHOLD = Arg.create(0.0);
+
+  @NotNegative
+  @CmdLine(name = "dlog_max_skipped_snapshots",
+      help = "Maximum number of consecutive scheduled snapshots that may be skipped, see "
+          + "-dlog_snapshot_growth_threshold.")
+  private static final Arg<Integer> MAX_SKIPPED_SNAPSHOTS = Arg.create(5);
+
   @CmdLine(name = "dlog_max_entry_size",
            help = "Specifies the maximum entry size to append to the log. Larger entries will be "
                   + "split across entry Frames.")
@@ -66,6 +94,32 @@ public class LogStorageModule extends PrivateModule {
   public static final Arg<Amount<Integer, Data>> MAX_LOG_ENTRY_SIZE =
       Arg.create(Amount.of(512, Data.KB));
 
+  @CmdLine(name = "dlog_concurrent_snapshots",
+      help = "Whether to write snapshots to the log without holding the storage write lock. Only "
+          + "capturing a snapshot blocks storage writes, and snapshots written this way can only "
+          + "be read by schedulers that support streamed log frames.")
+  private static final Arg<Boolean> CONCURRENT_SNAPSHOTS = Arg.create(false);
+
+  @CmdLine(name = "dlog_group_commit",
+      help = "Whether to coalesce transactions committed by concurrent storage writers into a "
+          + "single log entry. Writers release the storage write lock before their transaction "
+          + "is appended, so writes are visible before they are durable. The scheduler shuts "
+          + "down if an append fails.")
+  private static final Arg<Boolean> GROUP_COMMIT = Arg.create(false);
+
+  @CmdLine(name = "dlog_stream_snapshots",
+      help = "Whether to encode snapshots incrementally as they are written to the log, rather "
+          + "than serializing them to a byte array first. The snapshot itself is still built in "
+          + "memory. Snapshots written this way can only be read by schedulers that support "
+          + "streamed log frames.")
+  private static final Arg<Boolean> STREAM_SNAPSHOTS = Arg.create(false);
+
+  @CmdLine(name = "dlog_snapshot_codec",
+      help = "Codec to compress snapshots with when they are not streamed to the log. Codecs other "
+          + "than DEFLATE compress large snapshots as independent blocks in parallel, and can only "
+          + "be read by schedulers that support block compressed entries.")
+  private static final Arg<Codec> SNAPSHOT_CODEC = Arg.create(Codec.DEFLATE);
+
   @CmdLine(name = "snapshot_hydrate_stores",
       help = "Which H2-backed stores to fully hydrate on the Snapshot.")
   private static final Arg<Set<String>> HYDRATE_SNAPSHOT_FIELDS =
@@ -74,13 +128,25 @@ public class LogStorageModule extends PrivateModule {
   @Override
   protected void configure() {
     bind(Settings.class)
-        .toInstance(new Settings(SHUTDOWN_GRACE_PERIOD.get(), SNAPSHOT_INTERVAL.get()));
+        .toInstance(new Settings(
+            SHUTDOWN_GRACE_PERIOD.get(),
+            SNAPSHOT_INTERVAL.get(),
+            CONCURRENT_SNAPSHOTS.get(),
+            SNAPSHOT_GROWTH_THRESHOLD.get(),
+            MAX_SKIPPED_SNAPSHOTS.get()));
 
     bind(new TypeLiteral<Boolean>() { }).annotatedWith(ExperimentalTaskStore.class)
         .toInstance(DbModule.USE_DB_TASK_STORE.get());
 
     bind(new TypeLiteral<Amount<Integer, Data>>() { }).annotatedWith(MaxEntrySize.class)
         .toInstance(MAX_LOG_ENTRY_SIZE.get());
+    bind(new TypeLiteral<Boolean>() { }).annotatedWith(GroupCommit.class)
+        .toInstance(GROUP_COMMIT.get());
+    bind(new TypeLiteral<Boolean>() { }).annotatedWith(StreamSnapshots.class)
+        .toInstance(STREAM_SNAPSHOTS.get());
+    bind(new TypeLiteral<Integer>() { }).annotatedWith(RecoveryThreads.class)
+        .toInstance(RECOVERY_THREADS.get());
+    bind(Codec.class).annotatedWith(SnapshotCodec.class).toInstance(SNAPSHOT_CODEC.get());
     bind(LogManager.class).in(Singleton.class);
     bind(LogStorage.class).in(Singleton.class);
 
@@ -94,6 +160,7 @@ public class LogStorageModule extends PrivateModule {
     expose(DistributedSnapshotStore.class);
     expose(new TypeLiteral<Boolean>() { }).annotatedWith(ExperimentalTaskStore.class);
     expose(new TypeLiteral<Set<String>>() { }).annotatedWith(HydrateSnapshotFields.class);
+    expose(new TypeLiteral<Integer>() { }).annotatedWith(RecoveryThreads.class);
 
     bind(EntrySerializer.class).to(EntrySerializerImpl.class);
     // TODO(ksweeney): We don't need a cryptographic checksum here - assess performance of MD5
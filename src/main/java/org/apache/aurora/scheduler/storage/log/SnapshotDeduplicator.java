@@ -14,10 +14,12 @@
 package org.apache.aurora.scheduler.storage.log;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import com.google.common.base.Function;
 import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimaps;
 
 import org.apache.aurora.codec.ThriftBinaryCodec.CodingException;
@@ -28,11 +30,20 @@ import org.apache.aurora.gen.TaskConfig;
 import org.apache.aurora.gen.storage.DeduplicatedScheduledTask;
 import org.apache.aurora.gen.storage.DeduplicatedSnapshot;
 import org.apache.aurora.gen.storage.Snapshot;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TField;
+import org.apache.thrift.protocol.TList;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TStruct;
+import org.apache.thrift.protocol.TType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static org.apache.aurora.gen.AssignedTask._Fields.TASK;
 import static org.apache.aurora.gen.ScheduledTask._Fields.ASSIGNED_TASK;
+import static org.apache.aurora.gen.storage.DeduplicatedSnapshot._Fields.PARTIAL_SNAPSHOT;
+import static org.apache.aurora.gen.storage.DeduplicatedSnapshot._Fields.PARTIAL_TASKS;
+import static org.apache.aurora.gen.storage.DeduplicatedSnapshot._Fields.TASK_CONFIGS;
 import static org.apache.aurora.gen.storage.Snapshot._Fields.TASKS;
 
 /**
@@ -50,6 +61,17 @@ public interface SnapshotDeduplicator {
    */
   DeduplicatedSnapshot deduplicate(Snapshot snapshot);
 
+  /**
+   * Writes a Snapshot in the deduplicated format, equivalent to writing the result of
+   * {@link #deduplicate(Snapshot)}.  Tasks are converted one at a time as they are written, so no
+   * deduplicated copy of the snapshot is made.
+   *
+   * @param snapshot Snapshot to write.
+   * @param protocol Protocol to write a {@link DeduplicatedSnapshot} to.
+   * @throws TException If the snapshot could not be written.
+   */
+  void writeDeduplicated(Snapshot snapshot, TProtocol protocol) throws TException;
+
   /**
    * Restore a deduplicated snapshot to its original denormalized form.
    *
@@ -65,7 +87,13 @@ public interface SnapshotDeduplicator {
     private static final Function<ScheduledTask, TaskConfig> SCHEDULED_TO_CONFIG =
         task -> task.getAssignedTask().getTask();
 
-    private static ScheduledTask deepCopyWithoutTaskConfig(ScheduledTask scheduledTask) {
+    private static final TStruct DEDUPLICATED_SNAPSHOT_STRUCT = new TStruct("DeduplicatedSnapshot");
+
+    private static TField field(DeduplicatedSnapshot._Fields field, byte type) {
+      return new TField(field.getFieldName(), type, field.getThriftFieldId());
+    }
+
+    private static ScheduledTask copyWithoutTaskConfig(ScheduledTask scheduledTask) {
       ScheduledTask scheduledTaskCopy = new ScheduledTask();
       for (ScheduledTask._Fields scheduledTaskField : ScheduledTask._Fields.values()) {
         if (scheduledTaskField == ASSIGNED_TASK) {
@@ -84,20 +112,28 @@ public interface SnapshotDeduplicator {
               scheduledTaskField, scheduledTask.getFieldValue(scheduledTaskField));
         }
       }
-      return scheduledTaskCopy.deepCopy();
+      return scheduledTaskCopy;
+    }
+
+    private static ScheduledTask deepCopyWithoutTaskConfig(ScheduledTask scheduledTask) {
+      return copyWithoutTaskConfig(scheduledTask).deepCopy();
     }
 
     // NOTE: We intentionally try to minimize the number of copies of the Snapshot#tasks field
     // we make. The simpler implementation of deepCopy followed by unsetTasks creates a
     // lot of GC pressure.
-    private static Snapshot deepCopyWithoutTasks(Snapshot snapshot) {
+    private static Snapshot copyWithoutTasks(Snapshot snapshot) {
       Snapshot snapshotCopy = new Snapshot();
       for (Snapshot._Fields field : Snapshot._Fields.values()) {
         if (field != TASKS && snapshot.isSet(field)) {
           snapshotCopy.setFieldValue(field, snapshot.getFieldValue(field));
         }
       }
-      return snapshotCopy.deepCopy();
+      return snapshotCopy;
+    }
+
+    private static Snapshot deepCopyWithoutTasks(Snapshot snapshot) {
+      return copyWithoutTasks(snapshot).deepCopy();
     }
 
     @Override
@@ -140,6 +176,47 @@ public interface SnapshotDeduplicator {
       return deduplicatedSnapshot;
     }
 
+    @Override
+    @Timed("snapshot_write_deduplicated")
+    public void writeDeduplicated(Snapshot snapshot, TProtocol protocol) throws TException {
+      LOG.info("Writing deduplicated snapshot with {} tasks.", snapshot.getTasksSize());
+
+      // Only the shallow copies below are written, the snapshot is never modified.
+      protocol.writeStructBegin(DEDUPLICATED_SNAPSHOT_STRUCT);
+      protocol.writeFieldBegin(field(PARTIAL_SNAPSHOT, TType.STRUCT));
+      copyWithoutTasks(snapshot).write(protocol);
+      protocol.writeFieldEnd();
+
+      if (snapshot.getTasksSize() > 0) {
+        Map<TaskConfig, Integer> configIds = Maps.newLinkedHashMap();
+        for (ScheduledTask task : snapshot.getTasks()) {
+          configIds.putIfAbsent(SCHEDULED_TO_CONFIG.apply(task), configIds.size());
+        }
+
+        protocol.writeFieldBegin(field(TASK_CONFIGS, TType.LIST));
+        protocol.writeListBegin(new TList(TType.STRUCT, configIds.size()));
+        for (TaskConfig config : configIds.keySet()) {
+          config.write(protocol);
+        }
+        protocol.writeListEnd();
+        protocol.writeFieldEnd();
+
+        protocol.writeFieldBegin(field(PARTIAL_TASKS, TType.LIST));
+        protocol.writeListBegin(new TList(TType.STRUCT, snapshot.getTasksSize()));
+        for (ScheduledTask task : snapshot.getTasks()) {
+          new DeduplicatedScheduledTask()
+              .setPartialScheduledTask(copyWithoutTaskConfig(task))
+              .setTaskConfigId(configIds.get(SCHEDULED_TO_CONFIG.apply(task)))
+              .write(protocol);
+        }
+        protocol.writeListEnd();
+        protocol.writeFieldEnd();
+      }
+
+      protocol.writeFieldStop();
+      protocol.writeStructEnd();
+    }
+
     @Override
     @Timed("snapshot_reduplicate")
     public Snapshot reduplicate(DeduplicatedSnapshot deduplicatedSnapshot) throws CodingException {
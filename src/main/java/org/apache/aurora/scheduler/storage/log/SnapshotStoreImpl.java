@@ -21,29 +21,38 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 import javax.inject.Inject;
 import javax.inject.Qualifier;
 import javax.sql.DataSource;
 
-import com.google.common.base.Joiner;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import org.apache.aurora.common.inject.TimedInterceptor.Timed;
+import org.apache.aurora.common.quantity.Amount;
+import org.apache.aurora.common.quantity.Data;
+import org.apache.aurora.common.stats.SlidingStats;
 import org.apache.aurora.common.util.BuildInfo;
 import org.apache.aurora.common.util.Clock;
-import org.apache.aurora.gen.HostAttributes;
-import org.apache.aurora.gen.JobInstanceUpdateEvent;
 import org.apache.aurora.gen.JobUpdateDetails;
-import org.apache.aurora.gen.JobUpdateEvent;
-import org.apache.aurora.gen.Lock;
 import org.apache.aurora.gen.storage.QuotaConfiguration;
 import org.apache.aurora.gen.storage.SchedulerMetadata;
 import org.apache.aurora.gen.storage.Snapshot;
@@ -60,11 +69,14 @@ import org.apache.aurora.scheduler.storage.db.MigrationManager;
 import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
 import org.apache.aurora.scheduler.storage.entities.IJobConfiguration;
 import org.apache.aurora.scheduler.storage.entities.IJobInstanceUpdateEvent;
+import org.apache.aurora.scheduler.storage.entities.IJobUpdate;
 import org.apache.aurora.scheduler.storage.entities.IJobUpdateEvent;
 import org.apache.aurora.scheduler.storage.entities.IJobUpdateKey;
 import org.apache.aurora.scheduler.storage.entities.ILock;
 import org.apache.aurora.scheduler.storage.entities.IResourceAggregate;
 import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+import org.apache.aurora.scheduler.storage.log.LogManager.RecoveryThreads;
+import org.apache.aurora.scheduler.storage.mem.InMemStoresModule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -79,9 +91,9 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
   private static final Logger LOG = LoggerFactory.getLogger(SnapshotStoreImpl.class);
 
   /**
-   * Number of rows to run in a single batch during dbsnapshot restore.
+   * Approximate size of the statements to run in a single batch during dbsnapshot restore.
    */
-  private static final int DB_BATCH_SIZE = 20;
+  private static final int DB_BATCH_BYTES = Amount.of(1, Data.MB).as(Data.BYTES);
 
   private static boolean hasDbSnapshot(Snapshot snapshot) {
     return snapshot.isSetDbScript();
@@ -112,7 +124,9 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
       QUOTA_FIELD,
       JOB_UPDATE_FIELD);
 
-  private final Iterable<SnapshotField> snapshotFields = Arrays.asList(
+  private static final NoResult.Quiet NO_RESTORE = storeProvider -> { };
+
+  private final List<SnapshotField> snapshotFields = Arrays.asList(
       // Order is critical here. The DB snapshot should always be tried first to ensure
       // graceful migration to DBTaskStore. Otherwise, there is a direct risk of losing the cluster.
       // The following scenario illustrates how that can happen:
@@ -151,8 +165,12 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
         }
 
         @Override
-        public void restoreFromSnapshot(MutableStoreProvider store, Snapshot snapshot) {
-          if (snapshot.isSetDbScript()) {
+        public NoResult.Quiet prepareRestore(Snapshot snapshot) {
+          if (!snapshot.isSetDbScript()) {
+            return NO_RESTORE;
+          }
+
+          return store -> {
             try (Connection c = ((DataSource) store.getUnsafeStoreAccess()).getConnection()) {
               LOG.info("Dropping all tables");
               try (PreparedStatement drop = c.prepareStatement("DROP ALL OBJECTS")) {
@@ -160,13 +178,8 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
               }
 
               LOG.info("Restoring dbsnapshot. Row count: " + snapshot.getDbScript().size());
-              // Partition the restore script into manageable size batches to avoid possible OOM
-              // due to large size DML statement.
-              List<List<String>> batches = Lists.partition(snapshot.getDbScript(), DB_BATCH_SIZE);
-              for (List<String> batch : batches) {
-                try (PreparedStatement restore = c.prepareStatement(Joiner.on("").join(batch))) {
-                  restore.executeUpdate();
-                }
+              try (Statement restore = c.createStatement()) {
+                executeBatched(restore, snapshot.getDbScript(), DB_BATCH_BYTES);
               }
             } catch (SQLException e) {
               throw new RuntimeException(e);
@@ -177,7 +190,7 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
             } catch (SQLException e) {
               throw new RuntimeException(e);
             }
-          }
+          };
         }
       },
       new SnapshotField() {
@@ -196,19 +209,20 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
         }
 
         @Override
-        public void restoreFromSnapshot(MutableStoreProvider store, Snapshot snapshot) {
+        public NoResult.Quiet prepareRestore(Snapshot snapshot) {
           if (hasDbSnapshot(snapshot)) {
-            LOG.info("Deferring lock restore to dbsnapshot");
-            return;
+            return deferred("lock");
           }
 
-          store.getLockStore().deleteLocks();
-
-          if (snapshot.isSetLocks()) {
-            for (Lock lock : snapshot.getLocks()) {
-              store.getLockStore().saveLock(ILock.build(lock));
+          Set<ILock> locks = snapshot.isSetLocks()
+              ? ILock.setFromBuilders(snapshot.getLocks())
+              : ImmutableSet.of();
+          return store -> {
+            store.getLockStore().deleteLocks();
+            for (ILock lock : locks) {
+              store.getLockStore().saveLock(lock);
             }
-          }
+          };
         }
       },
       new SnapshotField() {
@@ -226,19 +240,20 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
         }
 
         @Override
-        public void restoreFromSnapshot(MutableStoreProvider store, Snapshot snapshot) {
+        public NoResult.Quiet prepareRestore(Snapshot snapshot) {
           if (hasDbSnapshot(snapshot)) {
-            LOG.info("Deferring attribute restore to dbsnapshot");
-            return;
+            return deferred("attribute");
           }
 
-          store.getAttributeStore().deleteHostAttributes();
-
-          if (snapshot.isSetHostAttributes()) {
-            for (HostAttributes attributes : snapshot.getHostAttributes()) {
-              store.getAttributeStore().saveHostAttributes(IHostAttributes.build(attributes));
+          Set<IHostAttributes> hostAttributes = snapshot.isSetHostAttributes()
+              ? IHostAttributes.setFromBuilders(snapshot.getHostAttributes())
+              : ImmutableSet.of();
+          return store -> {
+            store.getAttributeStore().deleteHostAttributes();
+            for (IHostAttributes attributes : hostAttributes) {
+              store.getAttributeStore().saveHostAttributes(attributes);
             }
-          }
+          };
         }
       },
       new SnapshotField() {
@@ -255,18 +270,25 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
         }
 
         @Override
-        public void restoreFromSnapshot(MutableStoreProvider store, Snapshot snapshot) {
+        public boolean isRestoredInMemory(MutableStoreProvider store) {
+          return InMemStoresModule.isInMemory(store.getUnsafeTaskStore());
+        }
+
+        @Override
+        public NoResult.Quiet prepareRestore(Snapshot snapshot) {
           if (hasDbTaskStore(snapshot)) {
-            LOG.info("Deferring task restore to dbsnapshot");
-            return;
+            return deferred("task");
           }
 
-          store.getUnsafeTaskStore().deleteAllTasks();
-
-          if (snapshot.isSetTasks()) {
-            store.getUnsafeTaskStore()
-                .saveTasks(thriftBackfill.backfillTasks(snapshot.getTasks()));
-          }
+          Set<IScheduledTask> tasks = snapshot.isSetTasks()
+              ? thriftBackfill.backfillTasks(snapshot.getTasks())
+              : null;
+          return store -> {
+            store.getUnsafeTaskStore().deleteAllTasks();
+            if (tasks != null) {
+              store.getUnsafeTaskStore().saveTasks(tasks);
+            }
+          };
         }
       },
       new SnapshotField() {
@@ -287,20 +309,28 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
         }
 
         @Override
-        public void restoreFromSnapshot(MutableStoreProvider store, Snapshot snapshot) {
+        public boolean isRestoredInMemory(MutableStoreProvider store) {
+          return InMemStoresModule.isInMemory(store.getCronJobStore());
+        }
+
+        @Override
+        public NoResult.Quiet prepareRestore(Snapshot snapshot) {
           if (hasDbTaskStore(snapshot)) {
-            LOG.info("Deferring cron job restore to dbsnapshot");
-            return;
+            return deferred("cron job");
           }
 
-          store.getCronJobStore().deleteJobs();
-
+          List<IJobConfiguration> jobs = Lists.newArrayList();
           if (snapshot.isSetCronJobs()) {
             for (StoredCronJob job : snapshot.getCronJobs()) {
-              store.getCronJobStore().saveAcceptedJob(
-                  thriftBackfill.backfillJobConfiguration(job.getJobConfiguration()));
+              jobs.add(thriftBackfill.backfillJobConfiguration(job.getJobConfiguration()));
             }
           }
+          return store -> {
+            store.getCronJobStore().deleteJobs();
+            for (IJobConfiguration job : jobs) {
+              store.getCronJobStore().saveAcceptedJob(job);
+            }
+          };
         }
       },
       new SnapshotField() {
@@ -315,19 +345,19 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
         }
 
         @Override
-        public void restoreFromSnapshot(MutableStoreProvider store, Snapshot snapshot) {
+        public NoResult.Quiet prepareRestore(Snapshot snapshot) {
           if (hasDbSnapshot(snapshot)) {
-            LOG.info("Deferring metadata restore to dbsnapshot");
-            return;
+            return deferred("metadata");
           }
 
           if (snapshot.isSetSchedulerMetadata()
               && snapshot.getSchedulerMetadata().isSetFrameworkId()) {
             // No delete necessary here since this is a single value.
 
-            store.getSchedulerStore()
+            return store -> store.getSchedulerStore()
                 .saveFrameworkId(snapshot.getSchedulerMetadata().getFrameworkId());
           }
+          return NO_RESTORE;
         }
       },
       new SnapshotField() {
@@ -351,20 +381,23 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
         }
 
         @Override
-        public void restoreFromSnapshot(MutableStoreProvider store, Snapshot snapshot) {
+        public NoResult.Quiet prepareRestore(Snapshot snapshot) {
           if (hasDbSnapshot(snapshot)) {
-            LOG.info("Deferring quota restore to dbsnapshot");
-            return;
+            return deferred("quota");
           }
 
-          store.getQuotaStore().deleteQuotas();
-
+          Map<String, IResourceAggregate> quotas = Maps.newHashMap();
           if (snapshot.isSetQuotaConfigurations()) {
             for (QuotaConfiguration quota : snapshot.getQuotaConfigurations()) {
-              store.getQuotaStore()
-                  .saveQuota(quota.getRole(), IResourceAggregate.build(quota.getQuota()));
+              quotas.put(quota.getRole(), IResourceAggregate.build(quota.getQuota()));
             }
           }
+          return store -> {
+            store.getQuotaStore().deleteQuotas();
+            for (Map.Entry<String, IResourceAggregate> quota : quotas.entrySet()) {
+              store.getQuotaStore().saveQuota(quota.getKey(), quota.getValue());
+            }
+          };
         }
       },
       new SnapshotField() {
@@ -381,39 +414,43 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
         }
 
         @Override
-        public void restoreFromSnapshot(MutableStoreProvider store, Snapshot snapshot) {
+        public NoResult.Quiet prepareRestore(Snapshot snapshot) {
           if (hasDbSnapshot(snapshot)) {
-            LOG.info("Deferring job update restore to dbsnapshot");
-            return;
+            return deferred("job update");
           }
 
-          JobUpdateStore.Mutable updateStore = store.getJobUpdateStore();
-          updateStore.deleteAllUpdatesAndEvents();
-
+          List<Consumer<JobUpdateStore.Mutable>> saves = Lists.newArrayList();
           if (snapshot.isSetJobUpdateDetails()) {
             for (StoredJobUpdateDetails storedDetails : snapshot.getJobUpdateDetails()) {
               JobUpdateDetails details = storedDetails.getDetails();
-              updateStore.saveJobUpdate(
-                  thriftBackfill.backFillJobUpdate(details.getUpdate()),
-                  Optional.fromNullable(storedDetails.getLockToken()));
-
-              if (details.getUpdateEventsSize() > 0) {
-                for (JobUpdateEvent updateEvent : details.getUpdateEvents()) {
-                  updateStore.saveJobUpdateEvent(
-                      IJobUpdateKey.build(details.getUpdate().getSummary().getKey()),
-                      IJobUpdateEvent.build(updateEvent));
+              IJobUpdate update = thriftBackfill.backFillJobUpdate(details.getUpdate());
+              Optional<String> lockToken = Optional.fromNullable(storedDetails.getLockToken());
+              IJobUpdateKey key = IJobUpdateKey.build(details.getUpdate().getSummary().getKey());
+              List<IJobUpdateEvent> updateEvents = details.getUpdateEventsSize() > 0
+                  ? IJobUpdateEvent.listFromBuilders(details.getUpdateEvents())
+                  : ImmutableList.of();
+              List<IJobInstanceUpdateEvent> instanceEvents = details.getInstanceEventsSize() > 0
+                  ? IJobInstanceUpdateEvent.listFromBuilders(details.getInstanceEvents())
+                  : ImmutableList.of();
+
+              saves.add(updateStore -> {
+                updateStore.saveJobUpdate(update, lockToken);
+                for (IJobUpdateEvent updateEvent : updateEvents) {
+                  updateStore.saveJobUpdateEvent(key, updateEvent);
                 }
-              }
-
-              if (details.getInstanceEventsSize() > 0) {
-                for (JobInstanceUpdateEvent instanceEvent : details.getInstanceEvents()) {
-                  updateStore.saveJobInstanceUpdateEvent(
-                      IJobUpdateKey.build(details.getUpdate().getSummary().getKey()),
-                      IJobInstanceUpdateEvent.build(instanceEvent));
+                for (IJobInstanceUpdateEvent instanceEvent : instanceEvents) {
+                  updateStore.saveJobInstanceUpdateEvent(key, instanceEvent);
                 }
-              }
+              });
             }
           }
+          return store -> {
+            JobUpdateStore.Mutable updateStore = store.getJobUpdateStore();
+            updateStore.deleteAllUpdatesAndEvents();
+            for (Consumer<JobUpdateStore.Mutable> save : saves) {
+              save.accept(updateStore);
+            }
+          };
         }
       }
   );
@@ -425,6 +462,8 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
   private final Set<String> hydrateSnapshotFields;
   private final MigrationManager migrationManager;
   private final ThriftBackfill thriftBackfill;
+  private final int recoveryThreads;
+  private final Map<String, SlidingStats> restoreStats = Maps.newHashMap();
 
   /**
    * Identifies if experimental task store is in use.
@@ -450,7 +489,8 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
       @ExperimentalTaskStore boolean useDbSnapshotForTaskStore,
       @HydrateSnapshotFields Set<String> hydrateSnapshotFields,
       MigrationManager migrationManager,
-      ThriftBackfill thriftBackfill) {
+      ThriftBackfill thriftBackfill,
+      @RecoveryThreads Integer recoveryThreads) {
 
     this.buildInfo = requireNonNull(buildInfo);
     this.clock = requireNonNull(clock);
@@ -459,6 +499,12 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
     this.hydrateSnapshotFields = requireNonNull(hydrateSnapshotFields);
     this.migrationManager = requireNonNull(migrationManager);
     this.thriftBackfill = requireNonNull(thriftBackfill);
+    this.recoveryThreads = requireNonNull(recoveryThreads);
+    for (SnapshotField field : snapshotFields) {
+      restoreStats.put(
+          field.getName(),
+          new SlidingStats("snapshot_apply_" + field.getName(), "nanos"));
+    }
   }
 
   @Timed("snapshot_create")
@@ -491,13 +537,98 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
   public void applySnapshot(final Snapshot snapshot) {
     requireNonNull(snapshot);
 
-    storage.write((NoResult.Quiet) storeProvider -> {
-      LOG.info("Restoring snapshot.");
-
+    // Converting the snapshot into store entities does not need storage, so fields are prepared
+    // concurrently on the recovery threads.  Fields restored into the database are restored in
+    // order on the transaction thread, since the dbsnapshot must be restored first.  Fields
+    // restored into in-memory stores do not depend on the database, and are restored concurrently
+    // with it.
+    ExecutorService executor = recoveryThreads > 1
+        ? Executors.newFixedThreadPool(
+            recoveryThreads,
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("SnapshotRestore-%d").build())
+        : MoreExecutors.newDirectExecutorService();
+    try {
+      Map<SnapshotField, CompletableFuture<NoResult.Quiet>> restores = Maps.newHashMap();
       for (SnapshotField field : snapshotFields) {
-        field.restoreFromSnapshot(storeProvider, snapshot);
+        restores.put(
+            field,
+            CompletableFuture.supplyAsync(() -> timed(field, snapshot), executor));
       }
-    });
+
+      storage.write((NoResult.Quiet) storeProvider -> {
+        LOG.info("Restoring snapshot.");
+
+        List<CompletableFuture<Void>> inMemoryRestores = Lists.newArrayList();
+        for (SnapshotField field : snapshotFields) {
+          if (field.isRestoredInMemory(storeProvider)) {
+            inMemoryRestores.add(restores.get(field)
+                .thenAcceptAsync(restore -> restore.execute(storeProvider), executor));
+          }
+        }
+        for (SnapshotField field : snapshotFields) {
+          if (!field.isRestoredInMemory(storeProvider)) {
+            join(restores.get(field)).execute(storeProvider);
+          }
+        }
+        join(CompletableFuture.allOf(inMemoryRestores.toArray(new CompletableFuture<?>[0])));
+      });
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Executes SQL statements in batches.  Statements are batched by size rather than count, since
+   * a single statement may insert many rows.  This bounds the memory used by a batch while keeping
+   * the number of round trips low for scripts of many small statements.
+   *
+   * @param statement Statement to execute the batches with.
+   * @param sql SQL statements to execute, in order.
+   * @param maxBatchBytes Approximate size at which a batch is executed.
+   * @throws SQLException If a batch fails.
+   */
+  @VisibleForTesting
+  static void executeBatched(Statement statement, Iterable<String> sql, int maxBatchBytes)
+      throws SQLException {
+
+    int batchBytes = 0;
+    boolean pending = false;
+    for (String line : sql) {
+      statement.addBatch(line);
+      pending = true;
+      batchBytes += line.length();
+      if (batchBytes >= maxBatchBytes) {
+        statement.executeBatch();
+        batchBytes = 0;
+        pending = false;
+      }
+    }
+    if (pending) {
+      statement.executeBatch();
+    }
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  private NoResult.Quiet timed(SnapshotField field, Snapshot snapshot) {
+    NoResult.Quiet restore = field.prepareRestore(snapshot);
+    SlidingStats stats = restoreStats.get(field.getName());
+    return storeProvider -> {
+      long start = System.nanoTime();
+      restore.execute(storeProvider);
+      stats.accumulate(System.nanoTime() - start);
+    };
+  }
+
+  private static NoResult.Quiet deferred(String fieldDescription) {
+    return storeProvider -> LOG.info("Deferring " + fieldDescription + " restore to dbsnapshot");
   }
 
   private interface SnapshotField {
@@ -505,6 +636,26 @@ public class SnapshotStoreImpl implements SnapshotStore<Snapshot> {
 
     void saveToSnapshot(MutableStoreProvider storeProvider, Snapshot snapshot);
 
-    void restoreFromSnapshot(MutableStoreProvider storeProvider, Snapshot snapshot);
+    /**
+     * Whether the field is restored into an in-memory store, rather than the database.  Such
+     * fields do not take part in the storage transaction, and are restored concurrently with
+     * the other fields.  This is decided from the stores that are bound rather than from flags,
+     * since a store may be backed by the database regardless of the snapshot format.
+     *
+     * @param storeProvider Store provider the field is restored into.
+     * @return {@code true} if the field is not restored into the database.
+     */
+    default boolean isRestoredInMemory(MutableStoreProvider storeProvider) {
+      return false;
+    }
+
+    /**
+     * Prepares to restore the field from a snapshot.  Fields are prepared concurrently, so this
+     * must not access storage.
+     *
+     * @param snapshot Snapshot to restore.
+     * @return Work that restores the field into storage.
+     */
+    NoResult.Quiet prepareRestore(Snapshot snapshot);
   }
 }
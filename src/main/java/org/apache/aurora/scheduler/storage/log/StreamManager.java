@@ -15,6 +15,8 @@ package org.apache.aurora.scheduler.storage.log;
 
 import java.util.function.Consumer;
 
+import com.google.common.base.Optional;
+
 import org.apache.aurora.gen.storage.LogEntry;
 import org.apache.aurora.gen.storage.Snapshot;
 import org.apache.aurora.scheduler.log.Log;
@@ -73,4 +75,42 @@ public interface StreamManager {
    */
   void snapshot(Snapshot snapshot)
       throws CodingException, InvalidPositionException, StreamAccessException;
+
+  /**
+   * Starts adding a snapshot to the log, so that transactions need not be held off while the
+   * snapshot is written.  Must be called once the snapshot has been captured, and before any
+   * further transaction is committed.  Transactions committed afterwards may be interleaved with
+   * the snapshot in the log, and are applied on top of it when reading the log.
+   *
+   * @return The pending snapshot, which completes once {@link PendingSnapshot#write written}.
+   * @throws CodingException if the was a problem encoding the start of the snapshot.
+   * @throws StreamAccessException if there was a problem appending to the log.
+   */
+  PendingSnapshot startSnapshot() throws CodingException, StreamAccessException;
+
+  /**
+   * Gets the size of the entries appended to the log stream since the last snapshot, as a
+   * fraction of the size of that snapshot.
+   *
+   * @return Log growth since the last snapshot, or absent if no snapshot was added since the
+   *     stream was opened.
+   */
+  Optional<Double> getGrowthSinceSnapshot();
+
+  /**
+   * A snapshot whose place in the log has been reserved, but that has not been written yet.
+   */
+  interface PendingSnapshot {
+    /**
+     * Adds the snapshot to the log and if successful, truncates the log entries preceding the
+     * snapshot.  May be called concurrently with transactions being committed.
+     *
+     * @param snapshot The snapshot to add, as captured before the snapshot was started.
+     * @throws CodingException if the was a problem encoding the snapshot into a log entry.
+     * @throws InvalidPositionException if there was a problem truncating before the snapshot.
+     * @throws StreamAccessException if there was a problem appending the snapshot to the log.
+     */
+    void write(Snapshot snapshot)
+        throws CodingException, InvalidPositionException, StreamAccessException;
+  }
 }
@@ -14,29 +14,57 @@
 package org.apache.aurora.scheduler.storage.log;
 
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hasher;
 import com.google.common.primitives.Bytes;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.inject.assistedinject.Assisted;
 
+import org.apache.aurora.codec.ThriftBinaryCodec;
+import org.apache.aurora.common.application.Lifecycle;
 import org.apache.aurora.common.stats.Stats;
 import org.apache.aurora.gen.ScheduledTask;
+import org.apache.aurora.gen.storage.Codec;
 import org.apache.aurora.gen.storage.Frame;
 import org.apache.aurora.gen.storage.FrameHeader;
+import org.apache.aurora.gen.storage.FrameTrailer;
 import org.apache.aurora.gen.storage.LogEntry;
 import org.apache.aurora.gen.storage.Op;
 import org.apache.aurora.gen.storage.RemoveTasks;
@@ -47,6 +75,11 @@ import org.apache.aurora.gen.storage.Transaction;
 import org.apache.aurora.gen.storage.storageConstants;
 import org.apache.aurora.scheduler.log.Log;
 import org.apache.aurora.scheduler.log.Log.Stream;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TField;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TStruct;
+import org.apache.thrift.protocol.TType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,11 +89,25 @@ import static org.apache.aurora.codec.ThriftBinaryCodec.CodingException;
 import static org.apache.aurora.common.inject.TimedInterceptor.Timed;
 import static org.apache.aurora.scheduler.log.Log.Stream.InvalidPositionException;
 import static org.apache.aurora.scheduler.log.Log.Stream.StreamAccessException;
+import static org.apache.aurora.scheduler.storage.log.LogManager.GroupCommit;
 import static org.apache.aurora.scheduler.storage.log.LogManager.LogEntryHashFunction;
+import static org.apache.aurora.scheduler.storage.log.LogManager.RecoveryThreads;
+import static org.apache.aurora.scheduler.storage.log.LogManager.SnapshotCodec;
+import static org.apache.aurora.scheduler.storage.log.LogManager.StreamSnapshots;
 
 class StreamManagerImpl implements StreamManager {
   private static final Logger LOG = LoggerFactory.getLogger(StreamManagerImpl.class);
 
+  // Maximum number of entries to read ahead of the reader when recovering in parallel.
+  private static final int RECOVERY_READ_AHEAD = 128;
+  private static final Future<LogEntry> END_OF_STREAM = Futures.immediateFuture(null);
+
+  private static final TStruct LOG_ENTRY_STRUCT = new TStruct("LogEntry");
+  private static final TField DEDUPLICATED_SNAPSHOT_FIELD = new TField(
+      LogEntry._Fields.DEDUPLICATED_SNAPSHOT.getFieldName(),
+      TType.STRUCT,
+      LogEntry._Fields.DEDUPLICATED_SNAPSHOT.getThriftFieldId());
+
   private static class Vars {
     private final AtomicInteger unSnapshottedTransactions =
         Stats.exportInt("scheduler_log_un_snapshotted_transactions");
@@ -72,6 +119,11 @@ class StreamManagerImpl implements StreamManager {
     private final AtomicLong deflatedEntriesRead =
         Stats.exportLong("scheduler_log_deflated_entries_read");
     private final AtomicLong snapshots = Stats.exportLong("scheduler_log_snapshots");
+    private final AtomicLong streamedEntriesRead =
+        Stats.exportLong("scheduler_log_streamed_entries_read");
+    private final AtomicLong groupCommits = Stats.exportLong("scheduler_log_group_commits");
+    private final AtomicLong groupCommittedTransactions =
+        Stats.exportLong("scheduler_log_group_committed_transactions");
   }
   private final Vars vars = new Vars();
 
@@ -80,18 +132,69 @@ class StreamManagerImpl implements StreamManager {
   private final EntrySerializer entrySerializer;
   private final HashFunction hashFunction;
   private final SnapshotDeduplicator snapshotDeduplicator;
+  private final boolean groupCommit;
+  private final boolean streamSnapshots;
+  private final int recoveryThreads;
+  private final Codec snapshotCodec;
+  private final Executor blockCoders;
+  private final Lifecycle lifecycle;
+
+  // Size of the last snapshot, and of the log when it was added, guarded by this.
+  private long lastSnapshotBytes = -1;
+  private long bytesWrittenAtSnapshot = 0;
+
+  // Group commit state.  Transactions submitted in group commit mode queue up in pendingCommits
+  // until the next append, which writes all of them as a single log entry.  Their changes are
+  // already applied to local storage and visible to readers by then, before they are durable.
+  // Local storage is therefore ahead of the log once an append fails, so the failure is sticky
+  // and the scheduler lifecycle is shut down to give up leadership.  The fields below are
+  // guarded by groupLock.
+  private final ReentrantLock groupLock = new ReentrantLock();
+  private final Condition appendCompleted = groupLock.newCondition();
+  private final List<GroupedCommit> pendingCommits = Lists.newArrayList();
+  private boolean appending = false;
+  private Exception groupCommitFailure = null;
 
   @Inject
   StreamManagerImpl(
       @Assisted Stream stream,
       EntrySerializer entrySerializer,
       @LogEntryHashFunction HashFunction hashFunction,
-      SnapshotDeduplicator snapshotDeduplicator) {
+      SnapshotDeduplicator snapshotDeduplicator,
+      @GroupCommit Boolean groupCommit,
+      @StreamSnapshots Boolean streamSnapshots,
+      @RecoveryThreads Integer recoveryThreads,
+      @SnapshotCodec Codec snapshotCodec,
+      Lifecycle lifecycle) {
 
     this.stream = requireNonNull(stream);
     this.entrySerializer = requireNonNull(entrySerializer);
     this.hashFunction = requireNonNull(hashFunction);
     this.snapshotDeduplicator = requireNonNull(snapshotDeduplicator);
+    this.groupCommit = requireNonNull(groupCommit);
+    this.streamSnapshots = requireNonNull(streamSnapshots);
+    this.recoveryThreads = requireNonNull(recoveryThreads);
+    this.snapshotCodec = requireNonNull(snapshotCodec);
+    this.blockCoders = recoveryThreads > 1
+        ? newBlockCoders(recoveryThreads)
+        : MoreExecutors.directExecutor();
+    this.lifecycle = requireNonNull(lifecycle);
+  }
+
+  /**
+   * Creates the pool that compresses and decompresses the blocks of block compressed entries.
+   * Idle threads exit, so that the pool holds no threads between snapshots.
+   */
+  private static Executor newBlockCoders(int threads) {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        threads,
+        threads,
+        1,
+        TimeUnit.MINUTES,
+        new LinkedBlockingQueue<>(),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("LogBlockCodec-%d").build());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
   }
 
   @Override
@@ -99,36 +202,97 @@ class StreamManagerImpl implements StreamManager {
       throws CodingException, InvalidPositionException, StreamAccessException {
 
     Iterator<Log.Entry> entries = stream.readAll();
+    if (recoveryThreads > 1) {
+      readPipelined(entries, reader);
+      return;
+    }
+
+    readEntries(
+        new EntrySource() {
+          @Override
+          public boolean hasNext() {
+            return entries.hasNext();
+          }
+
+          @Override
+          public LogEntry next() throws CodingException {
+            return decodeLogEntry(entries.next());
+          }
+        },
+        decoder -> {
+          reader.accept(decoder.decode());
+          vars.entriesRead.incrementAndGet();
+        });
+  }
+
+  /**
+   * Reads ahead from the stream on a dedicated thread and decodes entries on a pool of
+   * {@code recoveryThreads} threads, while handing entries to the reader in log order on the
+   * calling thread.
+   */
+  private void readPipelined(Iterator<Log.Entry> entries, Consumer<LogEntry> reader)
+      throws CodingException {
+
+    // Failures are handed to the reading thread rather than logged by the executors.
+    ExecutorService decoders = Executors.newFixedThreadPool(
+        recoveryThreads,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("LogRecovery-%d").build());
+    ExecutorService prefetcher = Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("LogRecoveryPrefetch-%d").build());
+    try {
+      PrefetchedEntries source = new PrefetchedEntries(decoders);
+      prefetcher.execute(() -> source.prefetch(entries));
+      OrderedSink sink = new OrderedSink(decoders, reader);
+      readEntries(source, sink);
+      sink.drain();
+    } finally {
+      prefetcher.shutdownNow();
+      decoders.shutdownNow();
+    }
+  }
 
+  private void readEntries(EntrySource entries, EntrySink sink) throws CodingException {
     while (entries.hasNext()) {
-      LogEntry logEntry = decodeLogEntry(entries.next());
+      LogEntry logEntry = entries.next();
       while (logEntry != null && isFrame(logEntry)) {
-        logEntry = tryDecodeFrame(logEntry.getFrame(), entries);
+        logEntry = tryDecodeFrame(logEntry.getFrame(), entries, sink);
       }
       if (logEntry != null) {
-        if (logEntry.isSet(LogEntry._Fields.DEFLATED_ENTRY)) {
-          logEntry = Entries.inflate(logEntry);
-          vars.deflatedEntriesRead.incrementAndGet();
-        }
+        LogEntry complete = logEntry;
+        sink.accept(() -> expand(complete));
+      }
+    }
+  }
 
-        if (logEntry.isSetDeduplicatedSnapshot()) {
-          logEntry = LogEntry.snapshot(
-              snapshotDeduplicator.reduplicate(logEntry.getDeduplicatedSnapshot()));
-        }
+  private LogEntry expand(LogEntry logEntry) throws CodingException {
+    if (logEntry.isSet(LogEntry._Fields.DEFLATED_ENTRY)) {
+      logEntry = Entries.inflate(logEntry);
+      vars.deflatedEntriesRead.incrementAndGet();
+    } else if (logEntry.isSet(LogEntry._Fields.BLOCK_COMPRESSED_ENTRY)) {
+      logEntry = Entries.decompress(logEntry, blockCoders);
+      vars.deflatedEntriesRead.incrementAndGet();
+    }
 
-        reader.accept(logEntry);
-        vars.entriesRead.incrementAndGet();
-      }
+    if (logEntry.isSetDeduplicatedSnapshot()) {
+      logEntry = LogEntry.snapshot(
+          snapshotDeduplicator.reduplicate(logEntry.getDeduplicatedSnapshot()));
     }
+    return logEntry;
   }
 
   @Nullable
-  private LogEntry tryDecodeFrame(Frame frame, Iterator<Log.Entry> entries) throws CodingException {
+  private LogEntry tryDecodeFrame(Frame frame, EntrySource entries, EntrySink sink)
+      throws CodingException {
+
     if (!isHeader(frame)) {
       LOG.warn("Found a frame with no preceding header, skipping.");
       return null;
     }
     FrameHeader header = frame.getHeader();
+    if (header.isStreamed()) {
+      return tryDecodeStreamedFrame(entries, sink);
+    }
+
     byte[][] chunks = new byte[header.getChunkCount()][];
 
     Hasher hasher = hashFunction.newHasher();
@@ -137,7 +301,7 @@ class StreamManagerImpl implements StreamManager {
         logBadFrame(header, i);
         return null;
       }
-      LogEntry logEntry = decodeLogEntry(entries.next());
+      LogEntry logEntry = entries.next();
       if (!isFrame(logEntry)) {
         logBadFrame(header, i);
         return logEntry;
@@ -154,7 +318,198 @@ class StreamManagerImpl implements StreamManager {
     if (!Arrays.equals(header.getChecksum(), hasher.hash().asBytes())) {
       throw new CodingException("Read back a framed log entry that failed its checksum");
     }
-    return Entries.thriftBinaryDecode(Bytes.concat(chunks));
+    sink.accept(() -> expand(Entries.thriftBinaryDecode(Bytes.concat(chunks))));
+    return null;
+  }
+
+  /**
+   * Reads the remainder of a streamed frame and hands the streamed entry to the sink.  Entries
+   * interleaved with the chunks of the frame were committed after the point in the log the streamed
+   * entry is consistent with, so they are handed to the sink after it.
+   *
+   * @return The entry that aborted the streamed frame, if any.
+   */
+  @Nullable
+  private LogEntry tryDecodeStreamedFrame(EntrySource entries, EntrySink sink)
+      throws CodingException {
+
+    List<byte[]> chunks = Lists.newArrayList();
+    List<EntryDecoder> interleaved = Lists.newArrayList();
+    Hasher hasher = hashFunction.newHasher();
+    LogEntry logEntry = null;
+    while (logEntry != null || entries.hasNext()) {
+      if (logEntry == null) {
+        logEntry = entries.next();
+      }
+      if (!isFrame(logEntry)) {
+        LogEntry complete = logEntry;
+        interleaved.add(() -> expand(complete));
+        logEntry = null;
+        continue;
+      }
+
+      Frame frame = logEntry.getFrame();
+      if (isChunk(frame)) {
+        byte[] chunkData = frame.getChunk().getData();
+        hasher.putBytes(chunkData);
+        chunks.add(chunkData);
+        logEntry = null;
+      } else if (isTrailer(frame)) {
+        FrameTrailer trailer = frame.getTrailer();
+        if (trailer.getChunkCount() != chunks.size()
+            || !Arrays.equals(trailer.getChecksum(), hasher.hash().asBytes())) {
+          throw new CodingException("Read back a streamed log entry that failed its checksum");
+        }
+        vars.streamedEntriesRead.incrementAndGet();
+        byte[][] deflated = chunks.toArray(new byte[chunks.size()][]);
+        sink.accept(() -> expand(
+            ThriftBinaryCodec.inflateNonNull(LogEntry.class, Bytes.concat(deflated))));
+        acceptAll(interleaved, sink);
+        return null;
+      } else if (isHeader(frame) && !frame.getHeader().isStreamed()) {
+        // A framed entry committed while the streamed entry was being written.
+        logEntry = tryDecodeFrame(frame, entries, interleaved::add);
+      } else {
+        logBadStreamedFrame(chunks.size());
+        acceptAll(interleaved, sink);
+        return logEntry;
+      }
+    }
+    logBadStreamedFrame(chunks.size());
+    acceptAll(interleaved, sink);
+    return null;
+  }
+
+  private static void acceptAll(List<EntryDecoder> decoders, EntrySink sink)
+      throws CodingException {
+
+    for (EntryDecoder decoder : decoders) {
+      sink.accept(decoder);
+    }
+  }
+
+  /**
+   * Log entries in the order they were appended to the stream, decoded but not yet assembled from
+   * their frames.
+   */
+  private interface EntrySource {
+    boolean hasNext();
+
+    LogEntry next() throws CodingException;
+  }
+
+  /**
+   * Completes decoding an assembled log entry.
+   */
+  private interface EntryDecoder {
+    LogEntry decode() throws CodingException;
+  }
+
+  /**
+   * Receives assembled log entries in log order.
+   */
+  private interface EntrySink {
+    void accept(EntryDecoder decoder) throws CodingException;
+  }
+
+  private static LogEntry getDecoded(Future<LogEntry> entry) throws CodingException {
+    try {
+      return Uninterruptibles.getUninterruptibly(entry);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause(), CodingException.class);
+      throw new IllegalStateException("Failed to decode a log entry", e.getCause());
+    }
+  }
+
+  /**
+   * Entries read ahead from the stream, at most {@link #RECOVERY_READ_AHEAD} at a time, each
+   * decoded on a pool of threads.
+   */
+  private final class PrefetchedEntries implements EntrySource {
+    private final BlockingQueue<Future<LogEntry>> prefetched =
+        new ArrayBlockingQueue<>(RECOVERY_READ_AHEAD);
+    private final ExecutorService decoders;
+    private Future<LogEntry> head = null;
+
+    PrefetchedEntries(ExecutorService decoders) {
+      this.decoders = decoders;
+    }
+
+    void prefetch(Iterator<Log.Entry> entries) {
+      try {
+        Future<LogEntry> last;
+        try {
+          while (entries.hasNext()) {
+            Log.Entry entry = entries.next();
+            prefetched.put(decoders.submit(() -> decodeLogEntry(entry)));
+          }
+          last = END_OF_STREAM;
+        } catch (RuntimeException e) {
+          last = Futures.immediateFailedFuture(e);
+        }
+        prefetched.put(last);
+      } catch (InterruptedException e) {
+        // Reading was abandoned.
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (head == null) {
+        head = Uninterruptibles.takeUninterruptibly(prefetched);
+      }
+      return head != END_OF_STREAM;
+    }
+
+    @Override
+    public LogEntry next() throws CodingException {
+      Preconditions.checkState(hasNext());
+      Future<LogEntry> entry = head;
+      head = null;
+      return getDecoded(entry);
+    }
+  }
+
+  /**
+   * Completes decoding entries on a pool of threads, and hands them to the reader in log order on
+   * the calling thread.
+   */
+  private final class OrderedSink implements EntrySink {
+    private final Deque<Future<LogEntry>> pending = Queues.newArrayDeque();
+    private final ExecutorService decoders;
+    private final Consumer<LogEntry> reader;
+
+    OrderedSink(ExecutorService decoders, Consumer<LogEntry> reader) {
+      this.decoders = decoders;
+      this.reader = reader;
+    }
+
+    @Override
+    public void accept(EntryDecoder decoder) throws CodingException {
+      pending.add(decoders.submit(decoder::decode));
+      while (!pending.isEmpty()
+          && (pending.size() > RECOVERY_READ_AHEAD || pending.peek().isDone())) {
+
+        apply(pending.remove());
+      }
+    }
+
+    void drain() throws CodingException {
+      while (!pending.isEmpty()) {
+        apply(pending.remove());
+      }
+    }
+
+    private void apply(Future<LogEntry> entry) throws CodingException {
+      reader.accept(getDecoded(entry));
+      vars.entriesRead.incrementAndGet();
+    }
+  }
+
+  private void logBadStreamedFrame(int chunkCount) {
+    LOG.info("Found an aborted streamed transaction after " + chunkCount + " frames");
+    vars.badFramesRead.incrementAndGet();
   }
 
   private static boolean isFrame(LogEntry logEntry) {
@@ -169,6 +524,10 @@ class StreamManagerImpl implements StreamManager {
     return frame.getSetField() == Frame._Fields.HEADER;
   }
 
+  private static boolean isTrailer(Frame frame) {
+    return frame.getSetField() == Frame._Fields.TRAILER;
+  }
+
   private void logBadFrame(FrameHeader header, int chunkIndex) {
     LOG.info(String.format("Found an aborted transaction, required %d frames and found %d",
         header.getChunkCount(), chunkIndex));
@@ -196,19 +555,100 @@ class StreamManagerImpl implements StreamManager {
   public void snapshot(Snapshot snapshot)
       throws CodingException, InvalidPositionException, StreamAccessException {
 
-    LogEntry entry =
-        deflate(LogEntry.deduplicatedSnapshot(snapshotDeduplicator.deduplicate(snapshot)));
-    Log.Position position = appendAndGetPosition(entry);
+    if (groupCommit) {
+      // Transactions submitted before the snapshot must precede it in the log, otherwise they
+      // would be replayed on top of a snapshot that already contains them.  Callers must not
+      // submit transactions concurrently with a snapshot.
+      flushPendingCommits();
+    }
+    int snapshottedTransactions = vars.unSnapshottedTransactions.get();
+    long bytesWrittenBefore = vars.bytesWritten.get();
+    Log.Position position;
+    if (streamSnapshots) {
+      position = appendStreamed(protocol -> writeSnapshotEntry(snapshot, protocol));
+    } else {
+      position = appendAndGetPosition(
+          deflate(LogEntry.deduplicatedSnapshot(snapshotDeduplicator.deduplicate(snapshot))));
+    }
+    completeSnapshot(
+        position,
+        vars.bytesWritten.get() - bytesWrittenBefore,
+        snapshottedTransactions);
+  }
+
+  @Override
+  @Timed("log_manager_start_snapshot")
+  public PendingSnapshot startSnapshot() throws CodingException {
+    if (groupCommit) {
+      // As above, transactions submitted before the snapshot must precede it.
+      flushPendingCommits();
+    }
+    // Transactions appended while the snapshot is written are not part of it, and remain counted.
+    int snapshottedTransactions = vars.unSnapshottedTransactions.get();
+    byte[] header = entrySerializer.serializeStreamedHeader();
+    Log.Position position;
+    synchronized (writeMutex) {
+      position = appendFrame(header);
+    }
+    return snapshot -> {
+      // Transactions may be appended in between the frames of the snapshot, and are read back
+      // after it.
+      AtomicLong snapshotBytes = new AtomicLong(header.length);
+      entrySerializer.serializeStreamed(
+          protocol -> writeSnapshotEntry(snapshot, protocol),
+          entry -> {
+            synchronized (writeMutex) {
+              appendFrame(entry);
+            }
+            snapshotBytes.addAndGet(entry.length);
+          });
+      vars.entriesWritten.incrementAndGet();
+      completeSnapshot(position, snapshotBytes.get(), snapshottedTransactions);
+    };
+  }
+
+  private void completeSnapshot(
+      Log.Position position,
+      long snapshotBytes,
+      int snapshottedTransactions) {
+
     vars.snapshots.incrementAndGet();
-    vars.unSnapshottedTransactions.set(0);
+    vars.unSnapshottedTransactions.addAndGet(-snapshottedTransactions);
     stream.truncateBefore(position);
+    synchronized (this) {
+      lastSnapshotBytes = snapshotBytes;
+      bytesWrittenAtSnapshot = vars.bytesWritten.get();
+    }
+  }
+
+  @VisibleForTesting
+  int getUnSnapshottedTransactions() {
+    return vars.unSnapshottedTransactions.get();
+  }
+
+  @Override
+  public synchronized Optional<Double> getGrowthSinceSnapshot() {
+    if (lastSnapshotBytes <= 0) {
+      return Optional.absent();
+    }
+    long bytesSinceSnapshot = vars.bytesWritten.get() - bytesWrittenAtSnapshot;
+    return Optional.of((double) bytesSinceSnapshot / lastSnapshotBytes);
+  }
+
+  private Log.Position appendFrame(byte[] entry) {
+    Log.Position position = stream.append(entry);
+    vars.bytesWritten.addAndGet(entry.length);
+    return position;
   }
 
   // Not meant to be subclassed, but timed methods must be non-private.
   // See https://github.com/google/guice/wiki/AOP#limitations
   @Timed("log_manager_deflate")
   protected LogEntry deflate(LogEntry entry) throws CodingException {
-    return Entries.deflate(entry);
+    // Plain DEFLATE is written as a single deflated entry, which all schedulers can read.
+    return snapshotCodec == Codec.DEFLATE
+        ? Entries.deflate(entry)
+        : Entries.compress(entry, snapshotCodec, blockCoders);
   }
 
   // Not meant to be subclassed, but timed methods must be non-private.
@@ -230,6 +670,156 @@ class StreamManagerImpl implements StreamManager {
     return firstPosition;
   }
 
+  private GroupedCommit enqueue(Transaction transaction) {
+    groupLock.lock();
+    try {
+      if (groupCommitFailure != null) {
+        // The local storage of prior transactions is ahead of the log, refuse to go any further.
+        throw new StreamAccessException(
+            "Refusing to commit after a failed group append.", groupCommitFailure);
+      }
+      GroupedCommit commit = new GroupedCommit(transaction);
+      pendingCommits.add(commit);
+      return commit;
+    } finally {
+      groupLock.unlock();
+    }
+  }
+
+  private void flushPendingCommits() {
+    groupLock.lock();
+    try {
+      while (appending) {
+        appendCompleted.awaitUninterruptibly();
+      }
+      appendPendingCommits();
+      if (groupCommitFailure != null) {
+        throw new StreamAccessException(
+            "Failed to append pending transactions.", groupCommitFailure);
+      }
+    } finally {
+      groupLock.unlock();
+    }
+  }
+
+  /**
+   * Appends all pending transactions as a single log entry.  Must be called while holding
+   * {@code groupLock} and with no append in flight.  The lock is released during the append so that
+   * further transactions may queue up for the next one.
+   */
+  private void appendPendingCommits() {
+    if (pendingCommits.isEmpty()) {
+      return;
+    }
+
+    List<GroupedCommit> batch = ImmutableList.copyOf(pendingCommits);
+    pendingCommits.clear();
+    appending = true;
+    Log.Position position = null;
+    Exception failure = null;
+    groupLock.unlock();
+    try {
+      Transaction merged =
+          new Transaction().setSchemaVersion(storageConstants.CURRENT_SCHEMA_VERSION);
+      for (GroupedCommit commit : batch) {
+        for (Op op : commit.transaction.getOps()) {
+          addOp(merged, op);
+        }
+      }
+      position = appendAndGetPosition(LogEntry.transaction(merged));
+      vars.unSnapshottedTransactions.addAndGet(batch.size());
+      vars.groupCommits.incrementAndGet();
+      vars.groupCommittedTransactions.addAndGet(batch.size());
+    } catch (CodingException | RuntimeException e) {
+      failure = e;
+      LOG.error("Failed to append " + batch.size() + " transactions to the log, shutting down.", e);
+      // The transactions are already visible in local storage, which can not be rolled back.
+      // Shut down rather than keep leading with storage the log does not hold.
+      lifecycle.shutdown();
+    } finally {
+      groupLock.lock();
+      if (position == null && failure == null) {
+        failure = new StreamAccessException("Group append was aborted.", null);
+      }
+      if (failure != null) {
+        groupCommitFailure = failure;
+      }
+      for (GroupedCommit commit : batch) {
+        commit.complete(position, failure);
+      }
+      appending = false;
+      appendCompleted.signalAll();
+    }
+  }
+
+  /**
+   * A transaction submitted in group commit mode.  Whichever waiter finds no append in flight leads
+   * the next one, appending its own transaction along with everything that queued up before it.
+   */
+  private final class GroupedCommit implements StreamTransaction.PendingCommit {
+    private final Transaction transaction;
+    private boolean done = false;
+    private Log.Position position;
+    private Exception failure;
+
+    GroupedCommit(Transaction transaction) {
+      this.transaction = transaction;
+    }
+
+    void complete(Log.Position appendedPosition, Exception appendFailure) {
+      this.position = appendedPosition;
+      this.failure = appendFailure;
+      this.done = true;
+    }
+
+    @Override
+    public Log.Position await() throws CodingException {
+      groupLock.lock();
+      try {
+        while (appending && !done) {
+          appendCompleted.awaitUninterruptibly();
+        }
+        if (!done) {
+          appendPendingCommits();
+        }
+
+        if (failure instanceof CodingException) {
+          throw new CodingException("Failed to encode grouped transactions", failure);
+        } else if (failure != null) {
+          throw new StreamAccessException("Failed to append grouped transactions", failure);
+        }
+        return position;
+      } finally {
+        groupLock.unlock();
+      }
+    }
+  }
+
+  private void writeSnapshotEntry(Snapshot snapshot, TProtocol protocol) throws TException {
+    protocol.writeStructBegin(LOG_ENTRY_STRUCT);
+    protocol.writeFieldBegin(DEDUPLICATED_SNAPSHOT_FIELD);
+    snapshotDeduplicator.writeDeduplicated(snapshot, protocol);
+    protocol.writeFieldEnd();
+    protocol.writeFieldStop();
+    protocol.writeStructEnd();
+  }
+
+  // Not meant to be subclassed, but timed methods must be non-private.
+  // See https://github.com/google/guice/wiki/AOP#limitations
+  @Timed("log_manager_append_streamed")
+  protected Log.Position appendStreamed(ThriftBinaryCodec.ProtocolWriter logEntry)
+      throws CodingException {
+
+    byte[] header = entrySerializer.serializeStreamedHeader();
+    Log.Position position;
+    synchronized (writeMutex) { // ensure all sub-entries are written as a unit
+      position = appendFrame(header);
+      entrySerializer.serializeStreamed(logEntry, this::appendFrame);
+    }
+    vars.entriesWritten.incrementAndGet();
+    return position;
+  }
+
   final class StreamTransactionImpl implements StreamTransaction {
     private final Transaction transaction =
         new Transaction().setSchemaVersion(storageConstants.CURRENT_SCHEMA_VERSION);
@@ -240,103 +830,111 @@ class StreamManagerImpl implements StreamManager {
     }
 
     @Override
-    public Log.Position commit() throws CodingException {
+    public PendingCommit submit() throws CodingException {
       Preconditions.checkState(!committed.getAndSet(true),
           "Can only call commit once per transaction.");
 
       if (!transaction.isSetOps()) {
-        return null;
+        return () -> null;
+      }
+
+      if (groupCommit) {
+        return enqueue(transaction);
       }
 
       Log.Position position = appendAndGetPosition(LogEntry.transaction(transaction));
       vars.unSnapshottedTransactions.incrementAndGet();
-      return position;
+      return () -> position;
     }
 
     @Override
     public void add(Op op) {
       Preconditions.checkState(!committed.get());
 
-      Op prior = transaction.isSetOps() ? Iterables.getLast(transaction.getOps(), null) : null;
-      if (prior == null || !coalesce(prior, op)) {
-        transaction.addToOps(op);
-      }
+      addOp(transaction, op);
     }
+  }
 
-    /**
-     * Tries to coalesce a new op into the prior to compact the binary representation and increase
-     * batching.
-     *
-     * @param prior The previous op.
-     * @param next The next op to be added.
-     * @return {@code true} if the next op was coalesced into the prior, {@code false} otherwise.
-     */
-    private boolean coalesce(Op prior, Op next) {
-      if (!prior.isSet() && !next.isSet()) {
-        return false;
-      }
+  private static void addOp(Transaction transaction, Op op) {
+    Op prior = transaction.isSetOps() ? Iterables.getLast(transaction.getOps(), null) : null;
+    if (prior == null || !coalesce(prior, op)) {
+      transaction.addToOps(op);
+    }
+  }
 
-      Op._Fields priorType = prior.getSetField();
-      if (!priorType.equals(next.getSetField())) {
-        return false;
-      }
+  /**
+   * Tries to coalesce a new op into the prior to compact the binary representation and increase
+   * batching.
+   *
+   * @param prior The previous op.
+   * @param next The next op to be added.
+   * @return {@code true} if the next op was coalesced into the prior, {@code false} otherwise.
+   */
+  private static boolean coalesce(Op prior, Op next) {
+    if (!prior.isSet() && !next.isSet()) {
+      return false;
+    }
 
-      switch (priorType) {
-        case SAVE_FRAMEWORK_ID:
-          prior.setSaveFrameworkId(next.getSaveFrameworkId());
-          return true;
-        case SAVE_TASKS:
-          coalesce(prior.getSaveTasks(), next.getSaveTasks());
-          return true;
-        case REMOVE_TASKS:
-          coalesce(prior.getRemoveTasks(), next.getRemoveTasks());
-          return true;
-        case SAVE_HOST_ATTRIBUTES:
-          return coalesce(prior.getSaveHostAttributes(), next.getSaveHostAttributes());
-        default:
-          return false;
-      }
+    Op._Fields priorType = prior.getSetField();
+    if (!priorType.equals(next.getSetField())) {
+      return false;
     }
 
-    private void coalesce(SaveTasks prior, SaveTasks next) {
-      if (next.isSetTasks()) {
-        if (prior.isSetTasks()) {
-          // It is an expected invariant that an operation may reference a task (identified by
-          // task ID) no more than one time.  Therefore, to coalesce two SaveTasks operations,
-          // the most recent task definition overrides the prior operation.
-          Map<String, ScheduledTask> coalesced = Maps.newHashMap();
-          for (ScheduledTask task : prior.getTasks()) {
-            coalesced.put(task.getAssignedTask().getTaskId(), task);
-          }
-          for (ScheduledTask task : next.getTasks()) {
-            coalesced.put(task.getAssignedTask().getTaskId(), task);
-          }
-          prior.setTasks(ImmutableSet.copyOf(coalesced.values()));
-        } else {
-          prior.setTasks(next.getTasks());
-        }
-      }
+    switch (priorType) {
+      case SAVE_FRAMEWORK_ID:
+        prior.setSaveFrameworkId(next.getSaveFrameworkId());
+        return true;
+      case SAVE_TASKS:
+        coalesce(prior.getSaveTasks(), next.getSaveTasks());
+        return true;
+      case REMOVE_TASKS:
+        coalesce(prior.getRemoveTasks(), next.getRemoveTasks());
+        return true;
+      case SAVE_HOST_ATTRIBUTES:
+        return coalesce(prior.getSaveHostAttributes(), next.getSaveHostAttributes());
+      default:
+        return false;
     }
+  }
 
-    private void coalesce(RemoveTasks prior, RemoveTasks next) {
-      if (next.isSetTaskIds()) {
-        if (prior.isSetTaskIds()) {
-          prior.setTaskIds(ImmutableSet.<String>builder()
-              .addAll(prior.getTaskIds())
-              .addAll(next.getTaskIds())
-              .build());
-        } else {
-          prior.setTaskIds(next.getTaskIds());
+  private static void coalesce(SaveTasks prior, SaveTasks next) {
+    if (next.isSetTasks()) {
+      if (prior.isSetTasks()) {
+        // It is an expected invariant that an operation may reference a task (identified by
+        // task ID) no more than one time.  Therefore, to coalesce two SaveTasks operations,
+        // the most recent task definition overrides the prior operation.
+        Map<String, ScheduledTask> coalesced = Maps.newHashMap();
+        for (ScheduledTask task : prior.getTasks()) {
+          coalesced.put(task.getAssignedTask().getTaskId(), task);
+        }
+        for (ScheduledTask task : next.getTasks()) {
+          coalesced.put(task.getAssignedTask().getTaskId(), task);
         }
+        prior.setTasks(ImmutableSet.copyOf(coalesced.values()));
+      } else {
+        prior.setTasks(next.getTasks());
       }
     }
+  }
 
-    private boolean coalesce(SaveHostAttributes prior, SaveHostAttributes next) {
-      if (prior.getHostAttributes().getHost().equals(next.getHostAttributes().getHost())) {
-        prior.getHostAttributes().setAttributes(next.getHostAttributes().getAttributes());
-        return true;
+  private static void coalesce(RemoveTasks prior, RemoveTasks next) {
+    if (next.isSetTaskIds()) {
+      if (prior.isSetTaskIds()) {
+        prior.setTaskIds(ImmutableSet.<String>builder()
+            .addAll(prior.getTaskIds())
+            .addAll(next.getTaskIds())
+            .build());
+      } else {
+        prior.setTaskIds(next.getTaskIds());
       }
-      return false;
     }
   }
+
+  private static boolean coalesce(SaveHostAttributes prior, SaveHostAttributes next) {
+    if (prior.getHostAttributes().getHost().equals(next.getHostAttributes().getHost())) {
+      prior.getHostAttributes().setAttributes(next.getHostAttributes().getAttributes());
+      return true;
+    }
+    return false;
+  }
 }
@@ -29,7 +29,20 @@ interface StreamTransaction {
    * @return The position of the log entry committed in this transaction, if any.
    * @throws CodingException If there was a problem encoding a log entry for commit.
    */
-  Log.Position commit() throws ThriftBinaryCodec.CodingException;
+  default Log.Position commit() throws ThriftBinaryCodec.CodingException {
+    return submit().await();
+  }
+
+  /**
+   * Submits the ops that have been added to this transaction for appending to the log stream.
+   * Depending on the stream manager, the ops may be appended immediately or together with the ops
+   * of other concurrently submitted transactions.  Transactions are appended in the order they
+   * were submitted.
+   *
+   * @return A handle to wait for the transaction to be durably appended.
+   * @throws CodingException If there was a problem encoding a log entry for commit.
+   */
+  PendingCommit submit() throws ThriftBinaryCodec.CodingException;
 
   /**
    * Adds a local storage operation to this transaction.
@@ -37,4 +50,17 @@ interface StreamTransaction {
    * @param op The local storage op to add.
    */
   void add(Op op);
+
+  /**
+   * A transaction that has been submitted to the log stream.
+   */
+  interface PendingCommit {
+    /**
+     * Waits for the submitted transaction to be appended to the log stream.
+     *
+     * @return The position of the log entry holding the transaction, if any.
+     * @throws CodingException If there was a problem encoding a log entry for commit.
+     */
+    Log.Position await() throws ThriftBinaryCodec.CodingException;
+  }
 }
@@ -36,12 +36,14 @@ import org.apache.aurora.gen.storage.SaveJobUpdateEvent;
 import org.apache.aurora.gen.storage.SaveLock;
 import org.apache.aurora.gen.storage.SaveQuota;
 import org.apache.aurora.gen.storage.SaveTasks;
+import org.apache.aurora.scheduler.base.Query;
 import org.apache.aurora.scheduler.events.EventSink;
 import org.apache.aurora.scheduler.events.PubsubEvent;
 import org.apache.aurora.scheduler.storage.AttributeStore;
 import org.apache.aurora.scheduler.storage.CronJobStore;
 import org.apache.aurora.scheduler.storage.JobUpdateStore;
 import org.apache.aurora.scheduler.storage.LockStore;
+import org.apache.aurora.scheduler.storage.MutationObserver;
 import org.apache.aurora.scheduler.storage.QuotaStore;
 import org.apache.aurora.scheduler.storage.SchedulerStore;
 import org.apache.aurora.scheduler.storage.Storage.MutableStoreProvider;
@@ -99,6 +101,7 @@ class WriteAheadStorage extends WriteAheadStorageForwarder implements
   private final JobUpdateStore.Mutable jobUpdateStore;
   private final Logger log;
   private final EventSink eventSink;
+  private final Set<MutationObserver> observers;
 
   /**
    * Creates a new write-ahead storage that delegates to the providing default stores.
@@ -111,6 +114,9 @@ class WriteAheadStorage extends WriteAheadStorageForwarder implements
    * @param quotaStore     Delegate.
    * @param attributeStore Delegate.
    * @param jobUpdateStore Delegate.
+   * @param log Logger.
+   * @param eventSink Sink for events of changes to the stores.
+   * @param observers Observers to call with changes to tasks and cron jobs.
    */
   WriteAheadStorage(
       TransactionManager transactionManager,
@@ -122,7 +128,8 @@ class WriteAheadStorage extends WriteAheadStorageForwarder implements
       AttributeStore.Mutable attributeStore,
       JobUpdateStore.Mutable jobUpdateStore,
       Logger log,
-      EventSink eventSink) {
+      EventSink eventSink,
+      Set<MutationObserver> observers) {
 
     super(
         schedulerStore,
@@ -143,6 +150,7 @@ class WriteAheadStorage extends WriteAheadStorageForwarder implements
     this.jobUpdateStore = requireNonNull(jobUpdateStore);
     this.log = requireNonNull(log);
     this.eventSink = requireNonNull(eventSink);
+    this.observers = requireNonNull(observers);
   }
 
   private void write(Op op) {
@@ -168,16 +176,38 @@ class WriteAheadStorage extends WriteAheadStorageForwarder implements
     boolean mutated = taskStore.unsafeModifyInPlace(taskId, taskConfiguration);
     if (mutated) {
       write(Op.rewriteTask(new RewriteTask(taskId, taskConfiguration.newBuilder())));
+      if (!observers.isEmpty()) {
+        Optional<IScheduledTask> task = taskStore.fetchTask(taskId);
+        if (task.isPresent()) {
+          notifyTasksSaved(ImmutableSet.of(task.get()));
+        }
+      }
+      eventSink.post(new PubsubEvent.JobConfigurationChanged(taskConfiguration.getJob()));
     }
     return mutated;
   }
 
+  private void notifyTasksSaved(Set<IScheduledTask> tasks) {
+    for (MutationObserver observer : observers) {
+      observer.tasksSaved(tasks);
+    }
+  }
+
   @Override
   public void deleteTasks(final Set<String> taskIds) {
     requireNonNull(taskIds);
 
     write(Op.removeTasks(new RemoveTasks(taskIds)));
+    // Observers are given the deleted tasks, which must be fetched before they are deleted.
+    Set<IScheduledTask> deleted = observers.isEmpty()
+        ? ImmutableSet.of()
+        : ImmutableSet.copyOf(taskStore.fetchTasks(Query.taskScoped(taskIds)));
     taskStore.deleteTasks(taskIds);
+    if (!deleted.isEmpty()) {
+      for (MutationObserver observer : observers) {
+        observer.tasksDeleted(deleted);
+      }
+    }
   }
 
   @Override
@@ -186,6 +216,7 @@ class WriteAheadStorage extends WriteAheadStorageForwarder implements
 
     write(Op.saveTasks(new SaveTasks(IScheduledTask.toBuildersSet(newTasks))));
     taskStore.saveTasks(newTasks);
+    notifyTasksSaved(newTasks);
   }
 
   @Override
@@ -196,6 +227,7 @@ class WriteAheadStorage extends WriteAheadStorageForwarder implements
     Optional<IScheduledTask> mutated = taskStore.mutateTask(taskId, mutator);
     log.debug("Storing updated task to log: {}={}", taskId, mutated.get().getStatus());
     write(Op.saveTasks(new SaveTasks(ImmutableSet.of(mutated.get().newBuilder()))));
+    notifyTasksSaved(ImmutableSet.of(mutated.get()));
 
     return mutated;
   }
@@ -227,6 +259,10 @@ class WriteAheadStorage extends WriteAheadStorageForwarder implements
 
     write(Op.removeJob(new RemoveJob().setJobKey(jobKey.newBuilder())));
     jobStore.removeJob(jobKey);
+    for (MutationObserver observer : observers) {
+      observer.cronJobRemoved(jobKey);
+    }
+    eventSink.post(new PubsubEvent.JobConfigurationChanged(jobKey));
   }
 
   @Override
@@ -235,6 +271,10 @@ class WriteAheadStorage extends WriteAheadStorageForwarder implements
 
     write(Op.saveCronJob(new SaveCronJob(jobConfig.newBuilder())));
     jobStore.saveAcceptedJob(jobConfig);
+    for (MutationObserver observer : observers) {
+      observer.cronJobSaved(jobConfig);
+    }
+    eventSink.post(new PubsubEvent.JobConfigurationChanged(jobConfig.getKey()));
   }
 
   @Override
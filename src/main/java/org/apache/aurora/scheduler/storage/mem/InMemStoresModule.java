@@ -47,6 +47,16 @@ public final class InMemStoresModule extends PrivateModule {
     this.keyFactory = requireNonNull(keyFactory);
   }
 
+  /**
+   * Checks whether a store is one of the in-memory stores bound by this module.
+   *
+   * @param store Store to check.
+   * @return {@code true} if the store holds its contents in memory rather than in the database.
+   */
+  public static boolean isInMemory(Object store) {
+    return store instanceof MemTaskStore || store instanceof MemCronJobStore;
+  }
+
   private <T> void bindStore(Class<T> binding, Class<? extends T> impl) {
     bind(binding).to(impl);
     bind(impl).in(Singleton.class);
@@ -17,6 +17,7 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -38,6 +39,7 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
@@ -47,6 +49,7 @@ import org.apache.aurora.common.inject.TimedInterceptor.Timed;
 import org.apache.aurora.common.quantity.Amount;
 import org.apache.aurora.common.quantity.Time;
 import org.apache.aurora.common.stats.StatsProvider;
+import org.apache.aurora.gen.ScheduleStatus;
 import org.apache.aurora.gen.ScheduledTask;
 import org.apache.aurora.gen.TaskConfig;
 import org.apache.aurora.scheduler.base.JobKeys;
@@ -84,6 +87,14 @@ class MemTaskStore implements TaskStore.Mutable {
       query -> query.get().getSlaveHosts().isEmpty()
           ? Optional.absent()
           : Optional.of(query.get().getSlaveHosts());
+  private static final Function<Query.Builder, Optional<Set<ScheduleStatus>>> QUERY_TO_STATUS =
+      query -> query.get().getStatuses().isEmpty()
+          ? Optional.absent()
+          : Optional.of(query.get().getStatuses());
+  private static final Function<Query.Builder, Optional<Set<String>>> QUERY_TO_ROLE =
+      query -> query.get().isSetRole()
+          ? Optional.of(ImmutableSet.of(query.get().getRole()))
+          : Optional.absent();
 
   // Since this class operates under the API and umbrella of {@link Storage}, it is expected to be
   // thread-safe but not necessarily strongly-consistent unless the externally-controlled storage
@@ -117,7 +128,13 @@ class MemTaskStore implements TaskStore.Mutable {
             Tasks::scheduledToSlaveHost,
             QUERY_TO_SLAVE_HOST,
             statsProvider,
-            "host"));
+            "host"),
+        new SecondaryIndex<>(IScheduledTask::getStatus, QUERY_TO_STATUS, statsProvider, "status"),
+        new SecondaryIndex<>(
+            task -> Tasks.getJob(task).getRole(),
+            QUERY_TO_ROLE,
+            statsProvider,
+            "role"));
     slowQueryThresholdNanos = slowQueryThreshold.as(Time.NANOSECONDS);
     taskQueriesById = statsProvider.makeCounter("task_queries_by_id");
     taskQueriesAll = statsProvider.makeCounter("task_queries_all");
@@ -213,9 +230,14 @@ class MemTaskStore implements TaskStore.Mutable {
         Preconditions.checkState(
             Tasks.id(original).equals(Tasks.id(maybeMutated)),
             "A task's ID may not be mutated.");
+        // Index the mutated task before storing it and only then drop the stale index entries, so
+        // that concurrent index queries do not miss the task while its status changes.
+        for (SecondaryIndex<?> index : secondaryIndices) {
+          index.insert(maybeMutated);
+        }
         tasks.put(Tasks.id(maybeMutated), toTask.apply(maybeMutated));
         for (SecondaryIndex<?> index : secondaryIndices) {
-          index.replace(original, maybeMutated);
+          index.removeReplaced(original, maybeMutated);
         }
       }
       return maybeMutated;
@@ -257,19 +279,34 @@ class MemTaskStore implements TaskStore.Mutable {
         .toList();
   }
 
+  private Optional<Set<String>> indexMatches(Query.Builder query) {
+    List<IndexMatch> matches = Lists.newArrayList();
+    for (SecondaryIndex<?> index : secondaryIndices) {
+      matches.addAll(index.getMatches(query).asSet());
+    }
+    if (matches.isEmpty()) {
+      return Optional.absent();
+    }
+
+    // Start from the most selective index and narrow its matches down with the other indices.
+    matches.sort(Comparator.comparingInt(IndexMatch::getEstimatedSize));
+    Set<String> taskIds = matches.get(0).getTaskIds();
+    for (IndexMatch match : matches.subList(1, matches.size())) {
+      if (taskIds.isEmpty()) {
+        break;
+      }
+      taskIds = match.retainTaskIds(taskIds);
+    }
+    return Optional.of(taskIds);
+  }
+
   private FluentIterable<IScheduledTask> matches(Query.Builder query) {
     // Apply the query against the working set.
     Optional<? extends Iterable<Task>> from = Optional.absent();
     if (query.get().getTaskIds().isEmpty()) {
-      for (SecondaryIndex<?> index : secondaryIndices) {
-        Optional<Iterable<String>> indexMatch = index.getMatches(query);
-        if (indexMatch.isPresent()) {
-          // Note: we could leverage multiple indexes here if the query applies to them, by
-          // choosing to intersect the results.  Given current indexes and query profile, this is
-          // unlikely to offer much improvement, though.
-          from = Optional.of(fromIdIndex(indexMatch.get()));
-          break;
-        }
+      Optional<Set<String>> indexMatch = indexMatches(query);
+      if (indexMatch.isPresent()) {
+        from = Optional.of(fromIdIndex(indexMatch.get()));
       }
 
       // No indices match, fall back to a full scan.
@@ -328,6 +365,33 @@ class MemTaskStore implements TaskStore.Mutable {
     return "task_store_index_" + name + "_items";
   }
 
+  /**
+   * Tasks matching a query in a secondary index.
+   */
+  private interface IndexMatch {
+    /**
+     * Gets the number of tasks the match covers, without looking the tasks up.
+     *
+     * @return Estimated number of matching tasks.
+     */
+    int getEstimatedSize();
+
+    /**
+     * Looks up the matching tasks.
+     *
+     * @return IDs of the matching tasks.
+     */
+    Set<String> getTaskIds();
+
+    /**
+     * Narrows down tasks matched by another index to those also matched by this one.
+     *
+     * @param taskIds IDs of tasks to narrow down.
+     * @return IDs of the given tasks that this index matches.
+     */
+    Set<String> retainTaskIds(Set<String> taskIds);
+  }
+
   /**
    * A non-unique secondary index on the task store.  Maps a custom key type to a set of task IDs.
    *
@@ -395,30 +459,74 @@ class MemTaskStore implements TaskStore.Mutable {
       }
     }
 
-    void replace(IScheduledTask old, IScheduledTask replacement) {
-      synchronized (index) {
-        remove(old);
-        insert(replacement);
+    /**
+     * Removes the entry of a task that was replaced, unless the replacement shares it.  The
+     * replacement must have been {@link #insert(IScheduledTask) inserted} already.
+     *
+     * @param old Replaced task.
+     * @param replacement Task that replaced it.
+     */
+    void removeReplaced(IScheduledTask old, IScheduledTask replacement) {
+      K key = indexer.apply(old);
+      if (key != null && !key.equals(indexer.apply(replacement))) {
+        index.remove(key, Tasks.id(old));
       }
     }
 
-    private final Function<Set<K>, Iterable<String>> lookup =
-        new Function<Set<K>, Iterable<String>>() {
-          @Override
-          public Iterable<String> apply(Set<K> keys) {
-            hitCount.incrementAndGet();
-            ImmutableSet.Builder<String> builder = ImmutableSet.builder();
-            synchronized (index) {
-              for (K key : keys) {
-                builder.addAll(index.get(key));
+    Optional<IndexMatch> getMatches(Query.Builder query) {
+      return queryExtractor.apply(query).transform(keys -> {
+        int estimatedSize = 0;
+        synchronized (index) {
+          for (K key : keys) {
+            estimatedSize += index.get(key).size();
+          }
+        }
+        return new KeyMatch(keys, estimatedSize);
+      });
+    }
+
+    private final class KeyMatch implements IndexMatch {
+      private final Set<K> keys;
+      private final int estimatedSize;
+
+      KeyMatch(Set<K> keys, int estimatedSize) {
+        this.keys = keys;
+        this.estimatedSize = estimatedSize;
+      }
+
+      @Override
+      public int getEstimatedSize() {
+        return estimatedSize;
+      }
+
+      @Override
+      public Set<String> getTaskIds() {
+        hitCount.incrementAndGet();
+        ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+        synchronized (index) {
+          for (K key : keys) {
+            builder.addAll(index.get(key));
+          }
+        }
+        return builder.build();
+      }
+
+      @Override
+      public Set<String> retainTaskIds(Set<String> taskIds) {
+        hitCount.incrementAndGet();
+        ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+        synchronized (index) {
+          for (String taskId : taskIds) {
+            for (K key : keys) {
+              if (index.containsEntry(key, taskId)) {
+                builder.add(taskId);
+                break;
               }
             }
-            return builder.build();
           }
-    };
-
-    Optional<Iterable<String>> getMatches(Query.Builder query) {
-      return queryExtractor.apply(query).transform(lookup);
+        }
+        return builder.build();
+      }
     }
   }
 }
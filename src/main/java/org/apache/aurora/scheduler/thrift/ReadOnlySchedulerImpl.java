@@ -13,6 +13,10 @@
  */
 package org.apache.aurora.scheduler.thrift;
 
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
@@ -22,6 +26,7 @@ import java.util.Set;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
+import javax.inject.Qualifier;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
@@ -34,10 +39,10 @@ import com.google.common.collect.FluentIterable;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
+import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
 
 import org.apache.aurora.GuavaUtils;
@@ -91,12 +96,14 @@ import org.apache.aurora.scheduler.storage.Storage;
 import org.apache.aurora.scheduler.storage.entities.IAssignedTask;
 import org.apache.aurora.scheduler.storage.entities.IJobConfiguration;
 import org.apache.aurora.scheduler.storage.entities.IJobKey;
+import org.apache.aurora.scheduler.storage.entities.IJobSummary;
 import org.apache.aurora.scheduler.storage.entities.IJobUpdateDetails;
 import org.apache.aurora.scheduler.storage.entities.IJobUpdateKey;
 import org.apache.aurora.scheduler.storage.entities.IJobUpdateQuery;
 import org.apache.aurora.scheduler.storage.entities.IJobUpdateRequest;
 import org.apache.aurora.scheduler.storage.entities.IJobUpdateSummary;
 import org.apache.aurora.scheduler.storage.entities.IRange;
+import org.apache.aurora.scheduler.storage.entities.IRoleSummary;
 import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
 import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
 import org.apache.aurora.scheduler.updater.JobDiff;
@@ -114,6 +121,18 @@ import static org.apache.aurora.scheduler.thrift.Responses.invalidRequest;
 import static org.apache.aurora.scheduler.thrift.Responses.ok;
 
 class ReadOnlySchedulerImpl implements ReadOnlyScheduler.Iface {
+  /**
+   * Binding annotation for the maximum number of tasks returned in a page of a paginated task
+   * query.
+   */
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target({ElementType.METHOD, ElementType.PARAMETER})
+  @Qualifier
+  public @interface MaxTasksPerPage { }
+
+  private static final Ordering<IScheduledTask> BY_TASK_ID =
+      Ordering.natural().onResultOf(Tasks::id);
+
   private static final Function<Entry<ITaskConfig, Collection<Integer>>, ConfigGroup> TO_GROUP =
       input -> new ConfigGroup()
           .setConfig(input.getKey().newBuilder())
@@ -125,6 +144,8 @@ class ReadOnlySchedulerImpl implements ReadOnlyScheduler.Iface {
   private final CronPredictor cronPredictor;
   private final QuotaManager quotaManager;
   private final TierManager tierManager;
+  private final int maxTasksPerPage;
+  private final SummaryCache summaryCache;
 
   @Inject
   ReadOnlySchedulerImpl(
@@ -133,7 +154,9 @@ class ReadOnlySchedulerImpl implements ReadOnlyScheduler.Iface {
       NearestFit nearestFit,
       CronPredictor cronPredictor,
       QuotaManager quotaManager,
-      TierManager tierManager) {
+      TierManager tierManager,
+      @MaxTasksPerPage Integer maxTasksPerPage,
+      SummaryCache summaryCache) {
 
     this.configurationManager = requireNonNull(configurationManager);
     this.storage = requireNonNull(storage);
@@ -141,6 +164,8 @@ class ReadOnlySchedulerImpl implements ReadOnlyScheduler.Iface {
     this.cronPredictor = requireNonNull(cronPredictor);
     this.quotaManager = requireNonNull(quotaManager);
     this.tierManager = requireNonNull(tierManager);
+    this.maxTasksPerPage = requireNonNull(maxTasksPerPage);
+    this.summaryCache = requireNonNull(summaryCache);
   }
 
   @Override
@@ -161,20 +186,29 @@ class ReadOnlySchedulerImpl implements ReadOnlyScheduler.Iface {
   // TODO(William Farner): Provide status information about cron jobs here.
   @Override
   public Response getTasksStatus(TaskQuery query) {
-    return ok(Result.scheduleStatusResult(
-        new ScheduleStatusResult().setTasks(getTasks(query))));
+    requireNonNull(query);
+
+    if (query.isSetCursor() && query.getOffset() > 0) {
+      return invalidRequest(OFFSET_WITH_CURSOR);
+    }
+
+    return ok(Result.scheduleStatusResult(getTasks(query)));
   }
 
   @Override
   public Response getTasksWithoutConfigs(TaskQuery query) {
-    List<ScheduledTask> tasks = Lists.transform(
-        getTasks(query),
-        task -> {
-          task.getAssignedTask().getTask().unsetExecutorConfig();
-          return task;
-        });
-
-    return ok(Result.scheduleStatusResult(new ScheduleStatusResult().setTasks(tasks)));
+    requireNonNull(query);
+
+    if (query.isSetCursor() && query.getOffset() > 0) {
+      return invalidRequest(OFFSET_WITH_CURSOR);
+    }
+
+    ScheduleStatusResult result = getTasks(query);
+    for (ScheduledTask task : result.getTasks()) {
+      task.getAssignedTask().getTask().unsetExecutorConfig();
+    }
+
+    return ok(Result.scheduleStatusResult(result));
   }
 
   @Override
@@ -193,7 +227,7 @@ class ReadOnlySchedulerImpl implements ReadOnlyScheduler.Iface {
     // Only PENDING tasks should be considered.
     query.setStatuses(ImmutableSet.of(ScheduleStatus.PENDING));
 
-    Set<PendingReason> reasons = FluentIterable.from(getTasks(query))
+    Set<PendingReason> reasons = FluentIterable.from(getTasks(query).getTasks())
         .transform(scheduledTask -> {
           TaskGroupKey groupKey = TaskGroupKey.from(
               ITaskConfig.build(scheduledTask.getAssignedTask().getTask()));
@@ -228,40 +262,47 @@ class ReadOnlySchedulerImpl implements ReadOnlyScheduler.Iface {
 
   @Override
   public Response getRoleSummary() {
-    Multimap<String, IJobKey> jobsByRole = storage.read(
-        storeProvider ->
-            Multimaps.index(storeProvider.getTaskStore().getJobKeys(), IJobKey::getRole));
-
-    Multimap<String, IJobKey> cronJobsByRole = Multimaps.index(
-        Iterables.transform(Storage.Util.fetchCronJobs(storage), IJobConfiguration::getKey),
-        IJobKey::getRole);
-
-    Set<RoleSummary> summaries = FluentIterable.from(
-        Sets.union(jobsByRole.keySet(), cronJobsByRole.keySet()))
-        .transform(role -> new RoleSummary(
-            role,
-            jobsByRole.get(role).size(),
-            cronJobsByRole.get(role).size()))
-        .toSet();
-
-    return ok(Result.roleSummaryResult(new RoleSummaryResult(summaries)));
+    Set<IRoleSummary> summaries = summaryCache.getRoleSummaries(() -> {
+      Multimap<String, IJobKey> jobsByRole = storage.read(
+          storeProvider ->
+              Multimaps.index(storeProvider.getTaskStore().getJobKeys(), IJobKey::getRole));
+
+      Multimap<String, IJobKey> cronJobsByRole = Multimaps.index(
+          Iterables.transform(Storage.Util.fetchCronJobs(storage), IJobConfiguration::getKey),
+          IJobKey::getRole);
+
+      return FluentIterable.from(Sets.union(jobsByRole.keySet(), cronJobsByRole.keySet()))
+          .transform(role -> IRoleSummary.build(new RoleSummary(
+              role,
+              jobsByRole.get(role).size(),
+              cronJobsByRole.get(role).size())))
+          .toSet();
+    });
+
+    return ok(Result.roleSummaryResult(
+        new RoleSummaryResult(IRoleSummary.toBuildersSet(summaries))));
   }
 
   @Override
   public Response getJobSummary(@Nullable String maybeNullRole) {
     Optional<String> ownerRole = Optional.fromNullable(maybeNullRole);
 
-    Multimap<IJobKey, IScheduledTask> tasks = getTasks(maybeRoleScoped(ownerRole));
-    Map<IJobKey, IJobConfiguration> jobs = getJobs(ownerRole, tasks);
+    Set<IJobSummary> summaries = summaryCache.getJobSummaries(ownerRole, () -> {
+      Multimap<IJobKey, IScheduledTask> tasks = getTasks(maybeRoleScoped(ownerRole));
+      Map<IJobKey, IJobConfiguration> jobs = getJobs(ownerRole, tasks);
 
-    Function<IJobKey, JobSummary> makeJobSummary = jobKey -> {
-      IJobConfiguration job = jobs.get(jobKey);
-      JobSummary summary = new JobSummary()
-          .setJob(job.newBuilder())
-          .setStats(Jobs.getJobStats(tasks.get(jobKey)).newBuilder());
+      return FluentIterable.from(jobs.keySet())
+          .transform(jobKey -> IJobSummary.build(new JobSummary()
+              .setJob(jobs.get(jobKey).newBuilder())
+              .setStats(Jobs.getJobStats(tasks.get(jobKey)).newBuilder())))
+          .toSet();
+    });
 
-      if (job.isSetCronSchedule()) {
-        CrontabEntry crontabEntry = CrontabEntry.parse(job.getCronSchedule());
+    // The next cron run depends on the time of the request, so it is not cached.
+    Function<IJobSummary, JobSummary> addNextCronRun = jobSummary -> {
+      JobSummary summary = jobSummary.newBuilder();
+      if (jobSummary.getJob().isSetCronSchedule()) {
+        CrontabEntry crontabEntry = CrontabEntry.parse(jobSummary.getJob().getCronSchedule());
         Optional<Date> nextRun = cronPredictor.predictNextRun(crontabEntry);
         return nextRun.transform(date -> summary.setNextCronRunMs(date.getTime())).or(summary);
       } else {
@@ -270,7 +311,7 @@ class ReadOnlySchedulerImpl implements ReadOnlyScheduler.Iface {
     };
 
     ImmutableSet<JobSummary> jobSummaries =
-        FluentIterable.from(jobs.keySet()).transform(makeJobSummary).toSet();
+        FluentIterable.from(summaries).transform(addNextCronRun).toSet();
 
     return ok(Result.jobSummaryResult(new JobSummaryResult().setSummaries(jobSummaries)));
   }
@@ -279,10 +320,13 @@ class ReadOnlySchedulerImpl implements ReadOnlyScheduler.Iface {
   public Response getJobs(@Nullable String maybeNullRole) {
     Optional<String> ownerRole = Optional.fromNullable(maybeNullRole);
 
+    Set<IJobConfiguration> jobs = summaryCache.getJobs(
+        ownerRole,
+        () -> ImmutableSet.copyOf(
+            getJobs(ownerRole, getTasks(maybeRoleScoped(ownerRole).active())).values()));
+
     return ok(Result.getJobsResult(
-        new GetJobsResult()
-            .setConfigs(IJobConfiguration.toBuildersSet(
-                getJobs(ownerRole, getTasks(maybeRoleScoped(ownerRole).active())).values()))));
+        new GetJobsResult().setConfigs(IJobConfiguration.toBuildersSet(jobs))));
   }
 
   @Override
@@ -412,18 +456,37 @@ class ReadOnlySchedulerImpl implements ReadOnlyScheduler.Iface {
         Iterables.transform(instancesByDetails.asMap().entrySet(), TO_GROUP));
   }
 
-  private List<ScheduledTask> getTasks(TaskQuery query) {
+  private ScheduleStatusResult getTasks(TaskQuery query) {
     requireNonNull(query);
 
     Iterable<IScheduledTask> tasks = Storage.Util.fetchTasks(storage, Query.arbitrary(query));
-    if (query.getOffset() > 0) {
-      tasks = Iterables.skip(tasks, query.getOffset());
-    }
-    if (query.getLimit() > 0) {
-      tasks = Iterables.limit(tasks, query.getLimit());
+    ScheduleStatusResult result = new ScheduleStatusResult();
+    if (query.isSetCursor()) {
+      // Pages are ordered by task ID so that the cursor remains valid while tasks are added or
+      // removed between pages.  The task stores have no access path ordered by task ID, so the
+      // page is selected from all matching tasks, and only the page is kept and copied.
+      String cursor = query.getCursor();
+      int pageSize = query.getLimit() > 0
+          ? Math.min(query.getLimit(), maxTasksPerPage)
+          : maxTasksPerPage;
+      List<IScheduledTask> page = BY_TASK_ID.leastOf(
+          Iterables.filter(tasks, task -> Tasks.id(task).compareTo(cursor) > 0),
+          pageSize + 1);
+      if (page.size() > pageSize) {
+        page = page.subList(0, pageSize);
+        result.setNextCursor(Tasks.id(Iterables.getLast(page)));
+      }
+      tasks = page;
+    } else {
+      if (query.getOffset() > 0) {
+        tasks = Iterables.skip(tasks, query.getOffset());
+      }
+      if (query.getLimit() > 0) {
+        tasks = Iterables.limit(tasks, query.getLimit());
+      }
     }
 
-    return IScheduledTask.toBuildersList(tasks);
+    return result.setTasks(IScheduledTask.toBuildersList(tasks));
   }
 
   private Query.Builder maybeRoleScoped(Optional<String> ownerRole) {
@@ -475,4 +538,7 @@ class ReadOnlySchedulerImpl implements ReadOnlyScheduler.Iface {
 
   @VisibleForTesting
   static final String NO_CRON = "Cron jobs are not supported.";
+
+  @VisibleForTesting
+  static final String OFFSET_WITH_CURSOR = "An offset may not be combined with a cursor.";
 }
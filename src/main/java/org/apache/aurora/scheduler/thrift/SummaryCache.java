@@ -0,0 +1,223 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.thrift;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Qualifier;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.eventbus.Subscribe;
+
+import org.apache.aurora.common.stats.StatsProvider;
+import org.apache.aurora.scheduler.base.Tasks;
+import org.apache.aurora.scheduler.events.PubsubEvent.EventSubscriber;
+import org.apache.aurora.scheduler.events.PubsubEvent.JobConfigurationChanged;
+import org.apache.aurora.scheduler.events.PubsubEvent.TaskStateChange;
+import org.apache.aurora.scheduler.events.PubsubEvent.TasksDeleted;
+import org.apache.aurora.scheduler.storage.MutationObserver;
+import org.apache.aurora.scheduler.storage.entities.IJobConfiguration;
+import org.apache.aurora.scheduler.storage.entities.IJobKey;
+import org.apache.aurora.scheduler.storage.entities.IJobSummary;
+import org.apache.aurora.scheduler.storage.entities.IRoleSummary;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A read-through cache of the role summaries, job summaries and jobs served by the read-only API.
+ * Results are cached per role, and dropped as soon as the tasks or cron jobs of that role change.
+ * Results covering all roles are dropped on any such change.
+ * <p>
+ * As a {@link MutationObserver}, the cache collects the roles changed by a storage transaction and
+ * drops their entries once the transaction is committed or rolled back, so that a result loaded
+ * from uncommitted changes is not kept.  Task and job configuration events drop them again, as a
+ * backstop for storage that does not call observers.
+ */
+class SummaryCache implements MutationObserver, EventSubscriber {
+
+  /**
+   * Binding annotation for whether results are cached.
+   */
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target({ElementType.METHOD, ElementType.PARAMETER})
+  @Qualifier
+  public @interface Enabled { }
+
+  @VisibleForTesting
+  static final String HITS = "summary_cache_hits";
+  @VisibleForTesting
+  static final String MISSES = "summary_cache_misses";
+  @VisibleForTesting
+  static final String INVALIDATIONS = "summary_cache_invalidations";
+
+  private final boolean enabled;
+  private final AtomicLong hits;
+  private final AtomicLong misses;
+  private final AtomicLong invalidations;
+
+  private final View<Set<IRoleSummary>> roleSummaries = new View<>();
+  private final View<Set<IJobSummary>> jobSummaries = new View<>();
+  private final View<Set<IJobConfiguration>> jobs = new View<>();
+  private final List<View<?>> views = ImmutableList.of(roleSummaries, jobSummaries, jobs);
+
+  // Roles changed by the current storage transaction, only accessed with the storage write lock
+  // held.
+  private final Set<String> changedRoles = Sets.newHashSet();
+
+  @Inject
+  SummaryCache(@Enabled Boolean enabled, StatsProvider statsProvider) {
+    this.enabled = requireNonNull(enabled);
+    this.hits = statsProvider.makeCounter(HITS);
+    this.misses = statsProvider.makeCounter(MISSES);
+    this.invalidations = statsProvider.makeCounter(INVALIDATIONS);
+  }
+
+  /**
+   * Gets the summaries of all roles.
+   *
+   * @param loader Computes the summaries if they are not cached.
+   * @return Role summaries.
+   */
+  Set<IRoleSummary> getRoleSummaries(Supplier<Set<IRoleSummary>> loader) {
+    return get(roleSummaries, Optional.absent(), loader);
+  }
+
+  /**
+   * Gets the summaries of the jobs of a role, without their next cron run, which depends on the
+   * time of the request.
+   *
+   * @param role Role to summarize the jobs of, or all roles if absent.
+   * @param loader Computes the summaries if they are not cached.
+   * @return Job summaries.
+   */
+  Set<IJobSummary> getJobSummaries(Optional<String> role, Supplier<Set<IJobSummary>> loader) {
+    return get(jobSummaries, role, loader);
+  }
+
+  /**
+   * Gets the configurations of the active jobs of a role.
+   *
+   * @param role Role to get the jobs of, or all roles if absent.
+   * @param loader Computes the job configurations if they are not cached.
+   * @return Job configurations.
+   */
+  Set<IJobConfiguration> getJobs(Optional<String> role, Supplier<Set<IJobConfiguration>> loader) {
+    return get(jobs, role, loader);
+  }
+
+  private <V> V get(View<V> view, Optional<String> role, Supplier<V> loader) {
+    if (!enabled) {
+      return loader.get();
+    }
+
+    Entry<V> cached = view.entries.get(role);
+    if (cached != null && cached.value != null) {
+      hits.incrementAndGet();
+      return cached.value;
+    }
+
+    misses.incrementAndGet();
+    // Reserve the entry before loading, so that the loaded value is only cached if the entry was
+    // not invalidated while loading.
+    Entry<V> loading = new Entry<>(null);
+    view.entries.put(role, loading);
+    V value = loader.get();
+    view.entries.replace(role, loading, new Entry<>(value));
+    return value;
+  }
+
+  private void invalidate(String role) {
+    invalidations.incrementAndGet();
+    for (View<?> view : views) {
+      view.entries.remove(Optional.of(role));
+      view.entries.remove(Optional.absent());
+    }
+  }
+
+  @Override
+  public void tasksSaved(Set<IScheduledTask> tasks) {
+    tasks.forEach(task -> changedRoles.add(Tasks.getJob(task).getRole()));
+  }
+
+  @Override
+  public void tasksDeleted(Set<IScheduledTask> tasks) {
+    tasks.forEach(task -> changedRoles.add(Tasks.getJob(task).getRole()));
+  }
+
+  @Override
+  public void cronJobSaved(IJobConfiguration job) {
+    changedRoles.add(job.getKey().getRole());
+  }
+
+  @Override
+  public void cronJobRemoved(IJobKey jobKey) {
+    changedRoles.add(jobKey.getRole());
+  }
+
+  @Override
+  public void transactionEnded() {
+    changedRoles.forEach(this::invalidate);
+    changedRoles.clear();
+  }
+
+  @Subscribe
+  public void taskChangedState(TaskStateChange change) {
+    invalidate(Tasks.getJob(change.getTask()).getRole());
+  }
+
+  @Subscribe
+  public void tasksDeleted(TasksDeleted deleted) {
+    deleted.getTasks().stream()
+        .map(task -> Tasks.getJob(task).getRole())
+        .distinct()
+        .forEach(this::invalidate);
+  }
+
+  @Subscribe
+  public void jobConfigurationChanged(JobConfigurationChanged change) {
+    invalidate(change.getJobKey().getRole());
+  }
+
+  private static final class View<V> {
+    private final ConcurrentMap<Optional<String>, Entry<V>> entries = Maps.newConcurrentMap();
+  }
+
+  /**
+   * A cached value, or a reservation for a value being loaded.  Entries are compared by identity,
+   * so that a load only replaces its own reservation.
+   */
+  private static final class Entry<V> {
+    @Nullable
+    private final V value;
+
+    Entry(@Nullable V value) {
+      this.value = value;
+    }
+  }
+}
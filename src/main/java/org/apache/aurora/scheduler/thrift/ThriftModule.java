@@ -13,10 +13,19 @@
  */
 package org.apache.aurora.scheduler.thrift;
 
+import javax.inject.Singleton;
+
 import com.google.inject.AbstractModule;
+import com.google.inject.TypeLiteral;
 
+import org.apache.aurora.common.args.Arg;
+import org.apache.aurora.common.args.CmdLine;
+import org.apache.aurora.common.args.constraints.Positive;
 import org.apache.aurora.gen.AuroraAdmin;
 import org.apache.aurora.gen.ReadOnlyScheduler;
+import org.apache.aurora.scheduler.events.PubsubEventModule;
+import org.apache.aurora.scheduler.storage.MutationObserver;
+import org.apache.aurora.scheduler.thrift.ReadOnlySchedulerImpl.MaxTasksPerPage;
 import org.apache.aurora.scheduler.thrift.aop.AnnotatedAuroraAdmin;
 import org.apache.aurora.scheduler.thrift.aop.AopModule;
 
@@ -24,6 +33,15 @@ import org.apache.aurora.scheduler.thrift.aop.AopModule;
  * Binding module to configure a thrift server.
  */
 public class ThriftModule extends AbstractModule {
+  @Positive
+  @CmdLine(name = "max_tasks_per_page",
+      help = "Maximum number of tasks returned in a single page of a paginated task query.")
+  private static final Arg<Integer> MAX_TASKS_PER_PAGE = Arg.create(1000);
+
+  @CmdLine(name = "enable_summary_cache",
+      help = "Cache the role summaries, job summaries and jobs served by the API until the tasks "
+          + "or cron jobs of a role change.")
+  private static final Arg<Boolean> ENABLE_SUMMARY_CACHE = Arg.create(false);
 
   @Override
   protected void configure() {
@@ -43,7 +61,29 @@ public class ThriftModule extends AbstractModule {
   public static class ReadOnly extends AbstractModule {
     @Override
     protected void configure() {
+      bind(new TypeLiteral<Integer>() { }).annotatedWith(MaxTasksPerPage.class)
+          .toInstance(MAX_TASKS_PER_PAGE.get());
       bind(ReadOnlyScheduler.Iface.class).to(ReadOnlySchedulerImpl.class);
     }
   }
+
+  /**
+   * Binding module for the cache of the read-only interface.  The cache is invalidated from the
+   * storage write path and by pubsub events, so this must be installed in the injector that
+   * creates the storage, rather than in the servlet container child injector.
+   */
+  public static class Cache extends AbstractModule {
+    @Override
+    protected void configure() {
+      bind(new TypeLiteral<Boolean>() { }).annotatedWith(SummaryCache.Enabled.class)
+          .toInstance(ENABLE_SUMMARY_CACHE.get());
+      bind(SummaryCache.class).in(Singleton.class);
+      // Observers cost every storage write, so the cache is only invalidated while it is enabled.
+      MutationObserver.getBinder(binder());
+      if (ENABLE_SUMMARY_CACHE.get()) {
+        PubsubEventModule.bindSubscriber(binder(), SummaryCache.class);
+        MutationObserver.bindObserver(binder(), SummaryCache.class);
+      }
+    }
+  }
 }
@@ -13,11 +13,14 @@
  */
 package org.apache.aurora.codec;
 
+import java.io.ByteArrayOutputStream;
+
 import org.apache.aurora.codec.ThriftBinaryCodec.CodingException;
 import org.apache.aurora.gen.ScheduledTask;
 import org.apache.aurora.scheduler.base.TaskTestUtil;
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
@@ -64,4 +67,17 @@ public class ThriftBinaryCodecTest {
 
     assertEquals(original, inflated);
   }
+
+  @Test
+  public void testDeflateToRoundTrip() throws CodingException {
+    ScheduledTask original = TaskTestUtil.makeTask("id", TaskTestUtil.JOB).newBuilder();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ThriftBinaryCodec.deflateTo(out, original::write);
+
+    assertArrayEquals(ThriftBinaryCodec.deflateNonNull(original), out.toByteArray());
+    assertEquals(
+        original,
+        ThriftBinaryCodec.inflateNonNull(ScheduledTask.class, out.toByteArray()));
+  }
 }
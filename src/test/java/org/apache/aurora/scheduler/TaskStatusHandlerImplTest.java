@@ -39,6 +39,7 @@ import org.junit.Test;
 import static org.apache.aurora.gen.ScheduleStatus.FAILED;
 import static org.apache.aurora.gen.ScheduleStatus.KILLED;
 import static org.apache.aurora.gen.ScheduleStatus.RUNNING;
+import static org.apache.aurora.scheduler.TaskStatusHandlerImpl.batchSizeStatName;
 import static org.apache.aurora.scheduler.TaskStatusHandlerImpl.statName;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
@@ -48,6 +49,7 @@ import static org.junit.Assert.assertTrue;
 public class TaskStatusHandlerImplTest extends EasyMockTest {
 
   private static final String TASK_ID_A = "task_id_a";
+  private static final String TASK_ID_B = "task_id_b";
 
   private StateManager stateManager;
   private StorageTestUtil storageUtil;
@@ -72,6 +74,7 @@ public class TaskStatusHandlerImplTest extends EasyMockTest {
         driver,
         queue,
         1000,
+        1,
         new CachedCounters(stats));
 
     statusHandler.startAsync();
@@ -111,6 +114,7 @@ public class TaskStatusHandlerImplTest extends EasyMockTest {
     statusHandler.statusUpdate(status);
     assertTrue(latch.await(5L, TimeUnit.SECONDS));
     assertEquals(1L, stats.getValue(statName(status, StateChangeResult.SUCCESS)));
+    assertEquals(1d, stats.getValue(batchSizeStatName(50)).doubleValue(), 0d);
   }
 
   @Test
@@ -143,6 +147,108 @@ public class TaskStatusHandlerImplTest extends EasyMockTest {
     assertTrue(latch.await(5L, TimeUnit.SECONDS));
   }
 
+  @Test
+  public void testFailedAcknowledgement() throws Exception {
+    TaskStatus statusA = TaskStatus.newBuilder()
+        .setState(TaskState.TASK_RUNNING)
+        .setTaskId(TaskID.newBuilder().setValue(TASK_ID_A))
+        .build();
+    TaskStatus statusB = TaskStatus.newBuilder()
+        .setState(TaskState.TASK_KILLED)
+        .setTaskId(TaskID.newBuilder().setValue(TASK_ID_B))
+        .build();
+
+    // The updates may be applied in one or two batches.
+    storageUtil.expectWrite().anyTimes();
+
+    expect(stateManager.changeState(
+        storageUtil.mutableStoreProvider,
+        TASK_ID_A,
+        Optional.absent(),
+        RUNNING,
+        Optional.absent()))
+        .andReturn(StateChangeResult.SUCCESS);
+    expect(stateManager.changeState(
+        storageUtil.mutableStoreProvider,
+        TASK_ID_B,
+        Optional.absent(),
+        KILLED,
+        Optional.absent()))
+        .andReturn(StateChangeResult.SUCCESS);
+
+    CountDownLatch latch = new CountDownLatch(1);
+
+    driver.acknowledgeStatusUpdate(statusA);
+    expectLastCall().andThrow(new IllegalStateException("Injected error"));
+    driver.acknowledgeStatusUpdate(statusB);
+    waitAndAnswer(latch);
+
+    control.replay();
+
+    statusHandler.statusUpdate(statusA);
+    statusHandler.statusUpdate(statusB);
+
+    assertTrue(latch.await(5L, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testMultipleLanes() throws Exception {
+    // Re-create the handler from @Before with a lane for each task.
+    statusHandler.stopAsync();
+    statusHandler.awaitTerminated();
+
+    statusHandler = new TaskStatusHandlerImpl(
+        storageUtil.storage,
+        stateManager,
+        stats,
+        driver,
+        queue,
+        1000,
+        2,
+        new CachedCounters(stats));
+
+    TaskStatus statusA = TaskStatus.newBuilder()
+        .setState(TaskState.TASK_RUNNING)
+        .setTaskId(TaskID.newBuilder().setValue(TASK_ID_A))
+        .build();
+    TaskStatus statusB = TaskStatus.newBuilder()
+        .setState(TaskState.TASK_KILLED)
+        .setTaskId(TaskID.newBuilder().setValue(TASK_ID_B))
+        .build();
+
+    storageUtil.expectWrite().times(2);
+
+    expect(stateManager.changeState(
+        storageUtil.mutableStoreProvider,
+        TASK_ID_A,
+        Optional.absent(),
+        RUNNING,
+        Optional.absent()))
+        .andReturn(StateChangeResult.SUCCESS);
+    expect(stateManager.changeState(
+        storageUtil.mutableStoreProvider,
+        TASK_ID_B,
+        Optional.absent(),
+        KILLED,
+        Optional.absent()))
+        .andReturn(StateChangeResult.SUCCESS);
+
+    CountDownLatch latch = new CountDownLatch(2);
+
+    driver.acknowledgeStatusUpdate(statusA);
+    waitAndAnswer(latch);
+    driver.acknowledgeStatusUpdate(statusB);
+    waitAndAnswer(latch);
+
+    control.replay();
+
+    statusHandler.startAsync();
+    statusHandler.statusUpdate(statusA);
+    statusHandler.statusUpdate(statusB);
+
+    assertTrue(latch.await(5L, TimeUnit.SECONDS));
+  }
+
   private void assertResourceLimitBehavior(
       TaskStatus.Reason reason,
       Optional<String> mesosMessage,
@@ -266,6 +372,7 @@ public class TaskStatusHandlerImplTest extends EasyMockTest {
         driver,
         queue,
         1000,
+        1,
         new CachedCounters(stats));
 
     expect(queue.add(EasyMock.anyObject())).andReturn(true);
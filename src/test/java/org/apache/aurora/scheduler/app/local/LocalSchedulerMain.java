@@ -35,6 +35,7 @@ import org.apache.aurora.scheduler.mesos.DriverSettings;
 import org.apache.aurora.scheduler.storage.DistributedSnapshotStore;
 import org.apache.aurora.scheduler.storage.Storage;
 import org.apache.aurora.scheduler.storage.Storage.NonVolatileStorage;
+import org.apache.aurora.scheduler.storage.log.LogManager;
 import org.apache.aurora.scheduler.storage.log.SnapshotStoreImpl;
 import org.apache.mesos.SchedulerDriver;
 import org.apache.mesos.v1.Protos;
@@ -83,6 +84,9 @@ public final class LocalSchedulerMain {
         bind(new TypeLiteral<Boolean>() { })
             .annotatedWith(SnapshotStoreImpl.ExperimentalTaskStore.class)
             .toInstance(false);
+        bind(new TypeLiteral<Integer>() { })
+            .annotatedWith(LogManager.RecoveryThreads.class)
+            .toInstance(1);
         bind(Storage.class).to(Key.get(Storage.class, Storage.Volatile.class));
         bind(NonVolatileStorage.class).to(FakeNonVolatileStorage.class);
         bind(DistributedSnapshotStore.class).toInstance(snapshot -> { });
@@ -37,6 +37,7 @@ import org.junit.Test;
 
 import static org.easymock.EasyMock.expect;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 public class NotifyingSchedulingFilterTest extends EasyMockTest {
 
@@ -85,4 +86,13 @@ public class NotifyingSchedulingFilterTest extends EasyMockTest {
 
     assertEquals(vetoes, filter.filter(RESOURCE, REQUEST));
   }
+
+  @Test
+  public void testMatchNotReported() {
+    expect(delegate.isMatch(RESOURCE, REQUEST)).andReturn(false);
+
+    control.replay();
+
+    assertFalse(filter.isMatch(RESOURCE, REQUEST));
+  }
 }
@@ -0,0 +1,167 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.filter;
+
+import com.google.common.collect.ImmutableSet;
+
+import org.apache.aurora.gen.Attribute;
+import org.apache.aurora.gen.HostAttributes;
+import org.apache.aurora.gen.ScheduleStatus;
+import org.apache.aurora.gen.ScheduledTask;
+import org.apache.aurora.scheduler.base.JobKeys;
+import org.apache.aurora.scheduler.base.TaskTestUtil;
+import org.apache.aurora.scheduler.events.PubsubEvent.HostAttributesChanged;
+import org.apache.aurora.scheduler.events.PubsubEvent.TaskStateChange;
+import org.apache.aurora.scheduler.events.PubsubEvent.TasksDeleted;
+import org.apache.aurora.scheduler.filter.AttributeAggregateIndex.AttributeAggregateIndexImpl;
+import org.apache.aurora.scheduler.storage.Storage;
+import org.apache.aurora.scheduler.storage.Storage.MutateWork.NoResult;
+import org.apache.aurora.scheduler.storage.db.DbUtil;
+import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
+import org.apache.aurora.scheduler.storage.entities.IJobKey;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.apache.aurora.gen.MaintenanceMode.NONE;
+import static org.apache.aurora.gen.ScheduleStatus.ASSIGNED;
+import static org.apache.aurora.gen.ScheduleStatus.KILLED;
+import static org.apache.aurora.gen.ScheduleStatus.PENDING;
+import static org.apache.aurora.gen.ScheduleStatus.RUNNING;
+import static org.junit.Assert.assertEquals;
+
+public class AttributeAggregateIndexTest {
+  private static final IJobKey JOB_A = JobKeys.from("role", "env", "a");
+  private static final IJobKey JOB_B = JobKeys.from("role", "env", "b");
+  private static final IHostAttributes HOST_A = host("a", "rack1");
+  private static final IHostAttributes HOST_B = host("b", "rack1");
+
+  private Storage storage;
+  private AttributeAggregateIndexImpl index;
+
+  @Before
+  public void setUp() {
+    storage = DbUtil.createStorage();
+    index = new AttributeAggregateIndexImpl(storage);
+    storage.write((NoResult.Quiet) store -> {
+      store.getAttributeStore().saveHostAttributes(HOST_A);
+      store.getAttributeStore().saveHostAttributes(HOST_B);
+    });
+  }
+
+  private static IHostAttributes host(String host, String rack) {
+    return IHostAttributes.build(new HostAttributes()
+        .setHost(host)
+        .setSlaveId(host + "-id")
+        .setMode(NONE)
+        .setAttributes(ImmutableSet.of(
+            new Attribute("host", ImmutableSet.of(host)),
+            new Attribute("rack", ImmutableSet.of(rack)))));
+  }
+
+  private static IScheduledTask task(String id, IJobKey job, String host, ScheduleStatus status) {
+    ScheduledTask builder = TaskTestUtil.makeTask(id, job).newBuilder().setStatus(status);
+    builder.getAssignedTask().setSlaveHost(host);
+    return IScheduledTask.build(builder);
+  }
+
+  private void saveTasks(IScheduledTask... tasks) {
+    storage.write((NoResult.Quiet)
+        store -> store.getUnsafeTaskStore().saveTasks(ImmutableSet.copyOf(tasks)));
+  }
+
+  private void assertCount(IJobKey job, String name, String value, long expected) {
+    long actual = storage.read(store -> index.getJobActiveState(store, job))
+        .getNumTasksWithAttribute(name, value);
+    assertEquals(expected, actual);
+  }
+
+  private void transition(IScheduledTask task, ScheduleStatus oldState) {
+    index.taskChangedState(TaskStateChange.transition(task, oldState));
+  }
+
+  @Test
+  public void testPopulatedFromStorage() {
+    saveTasks(
+        task("1", JOB_A, "a", RUNNING),
+        task("2", JOB_A, "b", ASSIGNED),
+        task("3", JOB_A, null, PENDING),
+        task("4", JOB_A, "a", KILLED),
+        task("5", JOB_B, "a", RUNNING));
+
+    assertCount(JOB_A, "host", "a", 1);
+    assertCount(JOB_A, "host", "b", 1);
+    assertCount(JOB_A, "rack", "rack1", 2);
+    assertCount(JOB_B, "rack", "rack1", 1);
+  }
+
+  @Test
+  public void testTaskStateChanges() {
+    assertCount(JOB_A, "rack", "rack1", 0);
+
+    transition(task("1", JOB_A, "a", ASSIGNED), PENDING);
+    transition(task("2", JOB_A, "b", ASSIGNED), PENDING);
+    assertCount(JOB_A, "rack", "rack1", 2);
+
+    transition(task("1", JOB_A, "a", RUNNING), ASSIGNED);
+    assertCount(JOB_A, "host", "a", 1);
+
+    transition(task("1", JOB_A, "a", KILLED), RUNNING);
+    assertCount(JOB_A, "host", "a", 0);
+    assertCount(JOB_A, "rack", "rack1", 1);
+
+    index.tasksDeleted(new TasksDeleted(ImmutableSet.of(task("2", JOB_A, "b", RUNNING))));
+    assertCount(JOB_A, "rack", "rack1", 0);
+  }
+
+  @Test
+  public void testLateNotificationsIgnored() {
+    assertCount(JOB_A, "rack", "rack1", 0);
+
+    transition(task("1", JOB_A, "a", KILLED), RUNNING);
+    transition(task("1", JOB_A, "a", RUNNING), ASSIGNED);
+    transition(task("2", JOB_A, "a", RUNNING), ASSIGNED);
+    index.taskChangedState(TaskStateChange.initialized(task("2", JOB_A, null, PENDING)));
+    assertCount(JOB_A, "host", "a", 1);
+  }
+
+  @Test
+  public void testTasksAssigned() {
+    assertCount(JOB_A, "rack", "rack1", 0);
+
+    saveTasks(task("1", JOB_A, "a", ASSIGNED), task("2", JOB_A, null, PENDING));
+    storage.read(store -> {
+      index.tasksAssigned(store, ImmutableSet.of("1", "2"));
+      return null;
+    });
+    assertCount(JOB_A, "host", "a", 1);
+
+    // The notification for the same assignment must not be counted again.
+    transition(task("1", JOB_A, "a", ASSIGNED), PENDING);
+    assertCount(JOB_A, "host", "a", 1);
+  }
+
+  @Test
+  public void testHostAttributesChanged() {
+    transition(task("1", JOB_A, "a", RUNNING), ASSIGNED);
+    transition(task("2", JOB_B, "a", RUNNING), ASSIGNED);
+    assertCount(JOB_A, "rack", "rack1", 1);
+
+    index.hostAttributesChanged(new HostAttributesChanged(host("a", "rack2")));
+    assertCount(JOB_A, "rack", "rack1", 0);
+    assertCount(JOB_A, "rack", "rack2", 1);
+    assertCount(JOB_B, "rack", "rack2", 1);
+    assertCount(JOB_A, "host", "a", 1);
+  }
+}
@@ -558,11 +558,10 @@ public class SchedulingFilterImplTest extends EasyMockTest {
       AttributeAggregate jobState,
       Veto... vetoes) {
 
-    assertEquals(
-        ImmutableSet.copyOf(vetoes),
-        defaultFilter.filter(
-            new UnusedResource(DEFAULT_OFFER, hostAttributes),
-            new ResourceRequest(task, bag(task), jobState)));
+    UnusedResource resource = new UnusedResource(DEFAULT_OFFER, hostAttributes);
+    ResourceRequest request = new ResourceRequest(task, bag(task), jobState);
+    assertEquals(ImmutableSet.copyOf(vetoes), defaultFilter.filter(resource, request));
+    assertEquals(vetoes.length == 0, defaultFilter.isMatch(resource, request));
   }
 
   private static IHostAttributes hostAttributes(
@@ -22,6 +22,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 
 import org.apache.aurora.GuavaUtils;
+import org.apache.aurora.codec.ThriftBinaryCodec;
 import org.apache.aurora.common.testing.easymock.EasyMockTest;
 import org.apache.aurora.gen.AppcImage;
 import org.apache.aurora.gen.AssignedTask;
@@ -243,6 +244,31 @@ public class MesosTaskFactoryImplTest extends EasyMockTest {
     checkDiscoveryInfoUnset(task);
   }
 
+  @Test
+  public void testTemplateSharedByInstances() throws Exception {
+    IAssignedTask otherInstance = IAssignedTask.build(TASK.newBuilder()
+        .setInstanceId(3)
+        .setTaskId("other-task-id"));
+    expect(tierManager.getTier(TASK_CONFIG)).andReturn(DEV_TIER);
+    taskFactory = new MesosTaskFactoryImpl(config, tierManager, SERVER_INFO);
+
+    control.replay();
+
+    TaskInfo task = taskFactory.createFrom(TASK, OFFER_THERMOS_EXECUTOR);
+    TaskInfo otherTask = taskFactory.createFrom(otherInstance, OFFER_THERMOS_EXECUTOR);
+
+    assertEquals(populateDynamicFields(DEFAULT_EXECUTOR, TASK), makeComparable(task.getExecutor()));
+    assertEquals(
+        populateDynamicFields(DEFAULT_EXECUTOR, otherInstance),
+        makeComparable(otherTask.getExecutor()));
+    assertEquals(
+        TASK.newBuilder(),
+        ThriftBinaryCodec.decode(AssignedTask.class, task.getData().toByteArray()));
+    assertEquals(
+        otherInstance.newBuilder(),
+        ThriftBinaryCodec.decode(AssignedTask.class, otherTask.getData().toByteArray()));
+  }
+
   @Test
   public void testCreateFromPortsUnset() {
     AssignedTask builder = TASK.newBuilder();
@@ -33,6 +33,7 @@ import org.apache.aurora.scheduler.events.PubsubEvent.DriverDisconnected;
 import org.apache.aurora.scheduler.events.PubsubEvent.HostAttributesChanged;
 import org.apache.aurora.scheduler.mesos.Driver;
 import org.apache.aurora.scheduler.offers.OfferManager.OfferManagerImpl;
+import org.apache.aurora.scheduler.resources.ResourceBag;
 import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
 import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
 import org.apache.aurora.scheduler.testing.FakeScheduledExecutor;
@@ -46,12 +47,15 @@ import org.junit.Test;
 
 import static org.apache.aurora.gen.MaintenanceMode.DRAINING;
 import static org.apache.aurora.gen.MaintenanceMode.NONE;
+import static org.apache.aurora.scheduler.base.TaskTestUtil.DEV_TIER;
 import static org.apache.aurora.scheduler.base.TaskTestUtil.JOB;
 import static org.apache.aurora.scheduler.base.TaskTestUtil.makeTask;
 import static org.apache.aurora.scheduler.offers.OfferManager.OfferManagerImpl.OFFER_ACCEPT_RACES;
 import static org.apache.aurora.scheduler.offers.OfferManager.OfferManagerImpl.OUTSTANDING_OFFERS;
 import static org.apache.aurora.scheduler.offers.OfferManager.OfferManagerImpl.STATICALLY_BANNED_OFFERS;
+import static org.apache.aurora.scheduler.resources.ResourceTestUtil.bag;
 import static org.apache.aurora.scheduler.resources.ResourceTestUtil.mesosRange;
+import static org.apache.aurora.scheduler.resources.ResourceTestUtil.mesosScalarFromBag;
 import static org.apache.aurora.scheduler.resources.ResourceTestUtil.offer;
 import static org.apache.aurora.scheduler.resources.ResourceType.PORTS;
 import static org.easymock.EasyMock.expectLastCall;
@@ -111,7 +115,12 @@ public class OfferManagerImplTest extends EasyMockTest {
         Amount.of(OFFER_FILTER_SECONDS, Time.SECONDS),
         () -> RETURN_DELAY);
     statsProvider = new FakeStatsProvider();
-    offerManager = new OfferManagerImpl(driver, offerSettings, statsProvider, executorMock);
+    offerManager = new OfferManagerImpl(
+        driver,
+        offerSettings,
+        OfferOrder.BEST_FIT,
+        statsProvider,
+        executorMock);
   }
 
   @Test
@@ -285,6 +294,26 @@ public class OfferManagerImplTest extends EasyMockTest {
     clock.advance(RETURN_DELAY);
   }
 
+  @Test
+  public void testLaunchMultipleTasks() throws Exception {
+    TaskInfo taskInfo2 = TASK_INFO.toBuilder()
+        .setTaskId(Protos.TaskID.newBuilder().setValue("id2"))
+        .build();
+    Operation launch2 = Operation.newBuilder()
+        .setType(Operation.Type.LAUNCH)
+        .setLaunch(Operation.Launch.newBuilder().addTaskInfos(taskInfo2))
+        .build();
+    driver.acceptOffers(OFFER_A_ID, ImmutableList.of(launch, launch2), OFFER_FILTER);
+    expectLastCall();
+
+    control.replay();
+
+    offerManager.addOffer(OFFER_A);
+    offerManager.launchTasks(OFFER_A_ID, ImmutableList.of(TASK_INFO, taskInfo2));
+    assertEquals(0L, statsProvider.getLongValue(OUTSTANDING_OFFERS));
+    clock.advance(RETURN_DELAY);
+  }
+
   @Test(expected = OfferManager.LaunchException.class)
   public void testAcceptOffersDriverThrows() throws OfferManager.LaunchException {
     driver.acceptOffers(OFFER_A_ID, OPERATIONS, OFFER_FILTER);
@@ -337,6 +366,102 @@ public class OfferManagerImplTest extends EasyMockTest {
     assertEquals(0L, statsProvider.getLongValue(OUTSTANDING_OFFERS));
   }
 
+  @Test
+  public void testGetMatchingOffers() throws Exception {
+    HostOffer small = withResources(OFFER_A, bag(1.0, 1024, 1024));
+    HostOffer large = setMode(withResources(OFFER_B, bag(4.0, 8192, 8192)), DRAINING);
+
+    driver.declineOffer(small.getOffer().getId(), OFFER_FILTER);
+    expectLastCall();
+
+    control.replay();
+
+    offerManager.addOffer(small);
+    assertEquals(
+        ImmutableList.of(small),
+        ImmutableList.copyOf(offerManager.getOffers(GROUP_KEY, bag(1.0, 512, 512), DEV_TIER)));
+
+    // Offers added after the index is built are indexed and sorted by maintenance mode.
+    offerManager.addOffer(large);
+    assertEquals(
+        ImmutableList.of(small, large),
+        ImmutableList.copyOf(offerManager.getOffers(GROUP_KEY, bag(1.0, 512, 512), DEV_TIER)));
+    assertEquals(
+        ImmutableList.of(large),
+        ImmutableList.copyOf(offerManager.getOffers(GROUP_KEY, bag(2.0, 512, 512), DEV_TIER)));
+    assertEquals(
+        ImmutableList.of(large),
+        ImmutableList.copyOf(offerManager.getOffers(GROUP_KEY, bag(1.0, 4096, 512), DEV_TIER)));
+
+    // Static bans still apply.
+    offerManager.banOffer(large.getOffer().getId(), GROUP_KEY);
+    assertTrue(Iterables.isEmpty(offerManager.getOffers(GROUP_KEY, bag(2.0, 512, 512), DEV_TIER)));
+
+    offerManager.cancelOffer(large.getOffer().getId());
+    assertTrue(Iterables.isEmpty(offerManager.getOffers(GROUP_KEY, bag(2.0, 512, 512), DEV_TIER)));
+    assertEquals(
+        ImmutableList.of(small),
+        ImmutableList.copyOf(offerManager.getOffers(GROUP_KEY, bag(1.0, 512, 512), DEV_TIER)));
+
+    clock.advance(RETURN_DELAY);
+  }
+
+  @Test
+  public void testGetNearestMiss() throws Exception {
+    HostOffer small = withResources(OFFER_A, bag(1.0, 1024, 1024));
+
+    driver.declineOffer(small.getOffer().getId(), OFFER_FILTER);
+    expectLastCall();
+
+    control.replay();
+
+    offerManager.addOffer(small);
+    assertEquals(
+        Optional.absent(),
+        offerManager.getNearestMiss(GROUP_KEY, bag(1.0, 512, 512), DEV_TIER));
+    assertEquals(
+        Optional.of(small),
+        offerManager.getNearestMiss(GROUP_KEY, bag(2.0, 512, 512), DEV_TIER));
+
+    // Statically banned offers are not returned.
+    offerManager.banOffer(small.getOffer().getId(), GROUP_KEY);
+    assertEquals(
+        Optional.absent(),
+        offerManager.getNearestMiss(GROUP_KEY, bag(2.0, 512, 512), DEV_TIER));
+
+    clock.advance(RETURN_DELAY);
+  }
+
+  @Test
+  public void testMatchingOffersFollowHostAttributes() throws Exception {
+    HostOffer offer = withResources(OFFER_A, bag(1.0, 1024, 1024));
+
+    driver.declineOffer(offer.getOffer().getId(), OFFER_FILTER);
+    expectLastCall();
+
+    control.replay();
+
+    offerManager.addOffer(offer);
+    assertEquals(
+        ImmutableList.of(offer),
+        ImmutableList.copyOf(offerManager.getOffers(GROUP_KEY, bag(1.0, 512, 512), DEV_TIER)));
+
+    offerManager.hostAttributesChanged(new HostAttributesChanged(
+        IHostAttributes.build(HOST_ATTRIBUTES_A.newBuilder().setMode(DRAINING))));
+    HostOffer drainingOffer = setMode(offer, DRAINING);
+    assertEquals(
+        ImmutableList.of(drainingOffer),
+        ImmutableList.copyOf(offerManager.getOffers(GROUP_KEY, bag(1.0, 512, 512), DEV_TIER)));
+
+    clock.advance(RETURN_DELAY);
+  }
+
+  private static HostOffer withResources(HostOffer offer, ResourceBag resources) {
+    return new HostOffer(
+        offer.getOffer().toBuilder().addAllResources(mesosScalarFromBag(resources)).build(),
+        offer.getAttributes());
+  }
+
   private static HostOffer setMode(HostOffer offer, MaintenanceMode mode) {
     return new HostOffer(
         offer.getOffer(),
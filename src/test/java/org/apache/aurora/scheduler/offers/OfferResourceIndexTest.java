@@ -0,0 +1,137 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.offers;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+
+import org.apache.aurora.gen.HostAttributes;
+import org.apache.aurora.gen.MaintenanceMode;
+import org.apache.aurora.scheduler.HostOffer;
+import org.apache.aurora.scheduler.resources.ResourceBag;
+import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
+import org.junit.Test;
+
+import static org.apache.aurora.gen.MaintenanceMode.DRAINING;
+import static org.apache.aurora.gen.MaintenanceMode.NONE;
+import static org.apache.aurora.scheduler.base.TaskTestUtil.DEV_TIER;
+import static org.apache.aurora.scheduler.resources.ResourceTestUtil.bag;
+import static org.apache.aurora.scheduler.resources.ResourceTestUtil.mesosScalarFromBag;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OfferResourceIndexTest {
+
+  private static final HostOffer SMALL = offer("small", bag(1.0, 1024, 1024), NONE);
+  private static final HostOffer MEDIUM = offer("medium", bag(2.0, 2048, 2048), NONE);
+  private static final HostOffer LARGE = offer("large", bag(4.0, 8192, 8192), NONE);
+  private static final HostOffer LARGE_DRAINING =
+      offer("large_draining", bag(4.0, 8192, 8192), DRAINING);
+
+  private static HostOffer offer(String id, ResourceBag resources, MaintenanceMode mode) {
+    return new HostOffer(
+        Offers.makeOffer(id).toBuilder().addAllResources(mesosScalarFromBag(resources)).build(),
+        IHostAttributes.build(new HostAttributes().setHost(id).setMode(mode)));
+  }
+
+  private static OfferResourceIndex index(OfferOrder order) {
+    OfferResourceIndex index = new OfferResourceIndex(DEV_TIER, order);
+    index.add(LARGE_DRAINING);
+    index.add(MEDIUM);
+    index.add(LARGE);
+    index.add(SMALL);
+    return index;
+  }
+
+  @Test
+  public void testArbitrary() {
+    // Offers are tried in the order they were added, after the host maintenance preference.
+    OfferResourceIndex index = index(OfferOrder.ARBITRARY);
+    assertEquals(
+        ImmutableList.of(MEDIUM, LARGE, SMALL, LARGE_DRAINING),
+        index.getCandidates(bag(1.0, 512, 512)));
+    assertEquals(
+        ImmutableList.of(MEDIUM, LARGE, LARGE_DRAINING),
+        index.getCandidates(bag(2.0, 512, 512)));
+  }
+
+  @Test
+  public void testBestFit() {
+    OfferResourceIndex index = index(OfferOrder.BEST_FIT);
+    assertEquals(
+        ImmutableList.of(SMALL, MEDIUM, LARGE, LARGE_DRAINING),
+        index.getCandidates(bag(1.0, 512, 512)));
+    assertEquals(
+        ImmutableList.of(MEDIUM, LARGE, LARGE_DRAINING),
+        index.getCandidates(bag(2.0, 512, 512)));
+  }
+
+  @Test
+  public void testWorstFit() {
+    OfferResourceIndex index = index(OfferOrder.WORST_FIT);
+    assertEquals(
+        ImmutableList.of(LARGE, MEDIUM, SMALL, LARGE_DRAINING),
+        index.getCandidates(bag(1.0, 512, 512)));
+    assertEquals(
+        ImmutableList.of(LARGE, LARGE_DRAINING),
+        index.getCandidates(bag(1.0, 4096, 512)));
+  }
+
+  @Test
+  public void testRemove() {
+    OfferResourceIndex index = index(OfferOrder.BEST_FIT);
+    index.remove(MEDIUM);
+    index.remove(LARGE_DRAINING);
+    // Removing an offer twice is a no-op.
+    index.remove(MEDIUM);
+    assertEquals(ImmutableList.of(SMALL, LARGE), index.getCandidates(bag(1.0, 512, 512)));
+    assertEquals(ImmutableList.of(), index.getCandidates(bag(8.0, 512, 512)));
+  }
+
+  @Test
+  public void testExactFit() {
+    OfferResourceIndex index = index(OfferOrder.BEST_FIT);
+    assertEquals(
+        ImmutableList.of(MEDIUM, LARGE, LARGE_DRAINING),
+        index.getCandidates(bag(2.0, 2048, 2048)));
+  }
+
+  @Test
+  public void testNearestMiss() {
+    OfferResourceIndex index = index(OfferOrder.BEST_FIT);
+    assertEquals(
+        Optional.of(MEDIUM),
+        index.getNearestMiss(bag(2.0, 4096, 512), Predicates.alwaysTrue()));
+    assertEquals(
+        Optional.of(SMALL),
+        index.getNearestMiss(bag(2.0, 4096, 512), offer -> !offer.equals(MEDIUM)));
+    // Offers of a preferred host maintenance mode win ties.
+    assertEquals(
+        Optional.of(LARGE),
+        index.getNearestMiss(bag(8.0, 512, 512), Predicates.alwaysTrue()));
+    assertEquals(
+        Optional.absent(),
+        index.getNearestMiss(bag(1.0, 512, 512), Predicates.alwaysTrue()));
+  }
+
+  @Test
+  public void testFits() {
+    assertTrue(OfferResourceIndex.fits(bag(1.0, 1024, 1024), bag(1.0, 1024, 1024)));
+    assertTrue(OfferResourceIndex.fits(bag(1.0, 1024, 1024), ResourceBag.EMPTY));
+    assertFalse(OfferResourceIndex.fits(bag(1.0, 1024, 1024), bag(1.0, 1024, 2048)));
+    assertFalse(OfferResourceIndex.fits(ResourceBag.EMPTY, bag(0.5, 0, 0)));
+  }
+}
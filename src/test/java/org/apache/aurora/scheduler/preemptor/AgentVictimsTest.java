@@ -0,0 +1,123 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.preemptor;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import org.apache.aurora.gen.AssignedTask;
+import org.apache.aurora.gen.JobKey;
+import org.apache.aurora.gen.TaskConfig;
+import org.apache.aurora.scheduler.storage.entities.IAssignedTask;
+import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
+import org.junit.Test;
+
+import static org.apache.aurora.gen.Resource.diskMb;
+import static org.apache.aurora.gen.Resource.numCpus;
+import static org.apache.aurora.gen.Resource.ramMb;
+import static org.apache.aurora.scheduler.base.TaskTestUtil.DEV_TIER_NAME;
+import static org.apache.aurora.scheduler.base.TaskTestUtil.PROD_TIER_NAME;
+import static org.apache.aurora.scheduler.base.TaskTestUtil.TIER_MANAGER;
+import static org.apache.aurora.scheduler.mesos.TestExecutorSettings.THERMOS_EXECUTOR;
+import static org.apache.aurora.scheduler.resources.ResourceBag.EMPTY;
+import static org.apache.aurora.scheduler.resources.ResourceTestUtil.bag;
+import static org.junit.Assert.assertEquals;
+
+public class AgentVictimsTest {
+  private static final String ROLE_A = "role_a";
+  private static final String ROLE_B = "role_b";
+
+  private static final PreemptionVictim DEV_A_1 = victim("dev_a_1", ROLE_A, DEV_TIER_NAME, 1);
+  private static final PreemptionVictim DEV_A_5 = victim("dev_a_5", ROLE_A, DEV_TIER_NAME, 5);
+  private static final PreemptionVictim DEV_A_9 = victim("dev_a_9", ROLE_A, DEV_TIER_NAME, 9);
+  private static final PreemptionVictim DEV_B_1 = victim("dev_b_1", ROLE_B, DEV_TIER_NAME, 1);
+  private static final PreemptionVictim PROD_A_1 = victim("prod_a_1", ROLE_A, PROD_TIER_NAME, 1);
+  private static final PreemptionVictim PROD_B_1 = victim("prod_b_1", ROLE_B, PROD_TIER_NAME, 1);
+
+  private static final AgentVictims VICTIMS = AgentVictims.create(
+      ImmutableList.of(DEV_A_9, DEV_A_1, DEV_B_1, PROD_A_1, DEV_A_5, PROD_B_1),
+      TIER_MANAGER,
+      THERMOS_EXECUTOR);
+
+  private static TaskConfig config(String role, String tier, int priority) {
+    return new TaskConfig()
+        .setJob(new JobKey(role, "env", "job"))
+        .setTier(tier)
+        .setPriority(priority)
+        .setResources(ImmutableSet.of(numCpus(1.0), ramMb(1024), diskMb(128)));
+  }
+
+  private static PreemptionVictim victim(String taskId, String role, String tier, int priority) {
+    return PreemptionVictim.fromTask(IAssignedTask.build(new AssignedTask()
+        .setTaskId(taskId)
+        .setSlaveId("slave")
+        .setSlaveHost("host")
+        .setTask(config(role, tier, priority))));
+  }
+
+  private static ITaskConfig pending(String role, int priority) {
+    return ITaskConfig.build(config(role, DEV_TIER_NAME, priority));
+  }
+
+  @Test
+  public void testPreemptiblePendingTask() {
+    assertEquals(
+        ImmutableList.of(DEV_A_1, DEV_A_5),
+        VICTIMS.getEligibleVictims(pending(ROLE_A, 9), true));
+    assertEquals(bag(2, 2048, 256), VICTIMS.getEligibleReclaimable(pending(ROLE_A, 9), true));
+
+    assertEquals(
+        ImmutableList.of(DEV_A_1, DEV_A_5, DEV_A_9),
+        VICTIMS.getEligibleVictims(pending(ROLE_A, 10), true));
+    assertEquals(
+        ImmutableList.of(DEV_B_1),
+        VICTIMS.getEligibleVictims(pending(ROLE_B, 2), true));
+  }
+
+  @Test
+  public void testPriorityMustBeLower() {
+    assertEquals(ImmutableList.of(), VICTIMS.getEligibleVictims(pending(ROLE_A, 1), true));
+    assertEquals(EMPTY, VICTIMS.getEligibleReclaimable(pending(ROLE_A, 1), true));
+  }
+
+  @Test
+  public void testNonPreemptiblePendingTask() {
+    assertEquals(
+        ImmutableSet.of(DEV_A_1, DEV_A_5, DEV_A_9, DEV_B_1, PROD_A_1),
+        ImmutableSet.copyOf(VICTIMS.getEligibleVictims(pending(ROLE_A, 2), false)));
+    assertEquals(bag(5, 5120, 640), VICTIMS.getEligibleReclaimable(pending(ROLE_A, 2), false));
+
+    assertEquals(
+        ImmutableSet.of(DEV_A_1, DEV_A_5, DEV_A_9, DEV_B_1),
+        ImmutableSet.copyOf(VICTIMS.getEligibleVictims(pending(ROLE_A, 1), false)));
+    assertEquals(bag(4, 4096, 512), VICTIMS.getEligibleReclaimable(pending(ROLE_A, 1), false));
+  }
+
+  @Test
+  public void testEmpty() {
+    AgentVictims empty = AgentVictims.create(ImmutableList.of(), TIER_MANAGER, THERMOS_EXECUTOR);
+    assertEquals(AgentVictims.EMPTY_AGENT, empty);
+    assertEquals(ImmutableSet.of(), empty.getVictims());
+    assertEquals(ImmutableList.of(), empty.getEligibleVictims(pending(ROLE_A, 10), false));
+    assertEquals(EMPTY, empty.getEligibleReclaimable(pending(ROLE_A, 10), false));
+  }
+
+  @Test
+  public void testGetReclaimable() {
+    assertEquals(
+        ImmutableSet.of(DEV_A_1, DEV_A_5, DEV_A_9, DEV_B_1, PROD_A_1, PROD_B_1),
+        VICTIMS.getVictims());
+    assertEquals(bag(1, 1024, 128), VICTIMS.getReclaimable(DEV_A_5));
+  }
+}
@@ -35,6 +35,9 @@ import static org.apache.aurora.gen.ScheduleStatus.KILLING;
 import static org.apache.aurora.gen.ScheduleStatus.PENDING;
 import static org.apache.aurora.gen.ScheduleStatus.RUNNING;
 import static org.apache.aurora.gen.ScheduleStatus.THROTTLED;
+import static org.apache.aurora.scheduler.base.TaskTestUtil.DEV_TIER_NAME;
+import static org.apache.aurora.scheduler.base.TaskTestUtil.TIER_MANAGER;
+import static org.apache.aurora.scheduler.mesos.TestExecutorSettings.THERMOS_EXECUTOR;
 import static org.junit.Assert.assertEquals;
 
 public class ClusterStateImplTest {
@@ -43,12 +46,12 @@ public class ClusterStateImplTest {
 
   @Before
   public void setUp() {
-    state = new ClusterStateImpl();
+    state = new ClusterStateImpl(TIER_MANAGER, THERMOS_EXECUTOR);
   }
 
   @Test(expected = UnsupportedOperationException.class)
   public void testImmutable() {
-    state.getSlavesToActiveTasks().clear();
+    state.getSlavesToVictims().clear();
   }
 
   @Test
@@ -113,7 +116,9 @@ public class ClusterStateImplTest {
     for (IAssignedTask task : tasks) {
       victims.put(task.getSlaveId(), PreemptionVictim.fromTask(task));
     }
-    assertEquals(victims.build(), state.getSlavesToActiveTasks());
+    ImmutableMultimap.Builder<String, PreemptionVictim> actual = ImmutableSetMultimap.builder();
+    state.getSlavesToVictims().forEach((slave, index) -> actual.putAll(slave, index.getVictims()));
+    assertEquals(victims.build(), actual.build());
   }
 
   private IAssignedTask makeTask(String taskId, String slaveId) {
@@ -121,7 +126,7 @@ public class ClusterStateImplTest {
         .setTaskId(taskId)
         .setSlaveId(slaveId)
         .setSlaveHost(slaveId + "host")
-        .setTask(new TaskConfig().setJob(new JobKey("role", "env", "job"))));
+        .setTask(new TaskConfig().setJob(new JobKey("role", "env", "job")).setTier(DEV_TIER_NAME)));
   }
 
   private void changeState(IAssignedTask assignedTask, ScheduleStatus status) {
@@ -14,6 +14,12 @@
 package org.apache.aurora.scheduler.preemptor;
 
 import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 
 import javax.annotation.Nullable;
 
@@ -21,8 +27,12 @@ import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMultiset;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import org.apache.aurora.common.quantity.Amount;
 import org.apache.aurora.common.quantity.Time;
@@ -39,7 +49,9 @@ import org.apache.aurora.scheduler.base.JobKeys;
 import org.apache.aurora.scheduler.base.Query;
 import org.apache.aurora.scheduler.base.TaskGroupKey;
 import org.apache.aurora.scheduler.filter.AttributeAggregate;
+import org.apache.aurora.scheduler.filter.AttributeAggregateIndex;
 import org.apache.aurora.scheduler.offers.OfferManager;
+import org.apache.aurora.scheduler.preemptor.PendingTaskProcessor.SlotSearchSettings;
 import org.apache.aurora.scheduler.stats.CachedCounters;
 import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
 import org.apache.aurora.scheduler.storage.entities.IJobKey;
@@ -48,19 +60,26 @@ import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
 import org.apache.aurora.scheduler.storage.testing.StorageTestUtil;
 import org.apache.aurora.scheduler.testing.FakeStatsProvider;
 import org.apache.mesos.v1.Protos;
+import org.easymock.EasyMock;
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.apache.aurora.gen.ScheduleStatus.PENDING;
+import static org.apache.aurora.scheduler.base.TaskTestUtil.PROD_TIER_NAME;
+import static org.apache.aurora.scheduler.base.TaskTestUtil.TIER_MANAGER;
+import static org.apache.aurora.scheduler.mesos.TestExecutorSettings.THERMOS_EXECUTOR;
+import static org.apache.aurora.scheduler.preemptor.PreemptorMetrics.SLOT_SEARCH_TIMEOUTS;
 import static org.apache.aurora.scheduler.preemptor.PreemptorMetrics.TASK_PROCESSOR_RUN_NAME;
 import static org.apache.aurora.scheduler.preemptor.PreemptorMetrics.UNMATCHED_TASKS;
 import static org.apache.aurora.scheduler.preemptor.PreemptorMetrics.attemptsStatName;
 import static org.apache.aurora.scheduler.preemptor.PreemptorMetrics.slotSearchStatName;
 import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.anyString;
 import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class PendingTaskProcessorTest extends EasyMockTest {
@@ -77,22 +96,36 @@ public class PendingTaskProcessorTest extends EasyMockTest {
   private static final Amount<Long, Time> PREEMPTION_DELAY = Amount.of(30L, Time.SECONDS);
   private static final Amount<Long, Time> EXPIRATION = Amount.of(10L, Time.MINUTES);
   private static final Integer RESERVATION_BATCH_SIZE = 5;
+  private static final Amount<Long, Time> SEARCH_BUDGET = Amount.of(1L, Time.MINUTES);
 
   private StorageTestUtil storageUtil;
   private OfferManager offerManager;
   private FakeStatsProvider statsProvider;
   private PreemptionVictimFilter preemptionVictimFilter;
+  private AttributeAggregateIndex attributeAggregates;
   private PendingTaskProcessor slotFinder;
   private BiCache<PreemptionProposal, TaskGroupKey> slotCache;
   private ClusterState clusterState;
   private FakeClock clock;
+  private Set<Thread> attributeFetchThreads;
 
   @Before
   public void setUp() {
     storageUtil = new StorageTestUtil(this);
     storageUtil.expectOperations();
+    attributeFetchThreads = Sets.newConcurrentHashSet();
     offerManager = createMock(OfferManager.class);
     preemptionVictimFilter = createMock(PreemptionVictimFilter.class);
+    attributeAggregates = createMock(AttributeAggregateIndex.class);
+    expect(attributeAggregates.getJobActiveState(eq(storageUtil.storeProvider), anyObject()))
+        .andReturn(AttributeAggregate.empty())
+        .anyTimes();
+    expect(storageUtil.attributeStore.getHostAttributes(anyString()))
+        .andAnswer(() -> {
+          attributeFetchThreads.add(Thread.currentThread());
+          return Optional.of(hostAttributes((String) EasyMock.getCurrentArguments()[0]));
+        })
+        .anyTimes();
     statsProvider = new FakeStatsProvider();
     clusterState = createMock(ClusterState.class);
     clock = new FakeClock();
@@ -101,16 +134,31 @@ public class PendingTaskProcessorTest extends EasyMockTest {
         new BiCache.BiCacheSettings(EXPIRATION, CACHE_STAT),
         clock);
 
-    slotFinder = new PendingTaskProcessor(
+    slotFinder = createSlotFinder(1);
+  }
+
+  private static IHostAttributes hostAttributes(String host) {
+    return IHostAttributes.build(new HostAttributes().setHost(host).setMode(MaintenanceMode.NONE));
+  }
+
+  private PendingTaskProcessor createSlotFinder(int parallelism) {
+    return createSlotFinder(parallelism, MoreExecutors.directExecutor());
+  }
+
+  private PendingTaskProcessor createSlotFinder(int parallelism, Executor executor) {
+    return new PendingTaskProcessor(
         storageUtil.storage,
         offerManager,
         preemptionVictimFilter,
+        attributeAggregates,
         new PreemptorMetrics(new CachedCounters(statsProvider)),
         PREEMPTION_DELAY,
         slotCache,
         clusterState,
         clock,
-        RESERVATION_BATCH_SIZE);
+        RESERVATION_BATCH_SIZE,
+        new SlotSearchSettings(parallelism, SEARCH_BUDGET),
+        executor);
   }
 
   @Test
@@ -215,6 +263,111 @@ public class PendingTaskProcessorTest extends EasyMockTest {
     assertEquals(2L, statsProvider.getLongValue(CACHE_STAT));
   }
 
+  @Test
+  public void testParallelSearchReservesInSlaveOrder() throws Exception {
+    IScheduledTask task1 = makeTask(JOB_A, "1");
+    IScheduledTask task2 = makeTask(JOB_A, "2");
+    expectGetPendingTasks(task1, task2);
+    expectGetClusterState(TASK_A, TASK_B);
+    expectOffers(makeOffer(SLAVE_ID_1), makeOffer(SLAVE_ID_2));
+
+    // Both slaves are evaluated for the first task, the second slave is evaluated again for the
+    // second task after the first slave is reserved.
+    expect(preemptionVictimFilter.filterPreemptionVictims(
+        eq(task1.getAssignedTask().getTask()),
+        anyObject(AgentVictims.class),
+        anyObject(AttributeAggregate.class),
+        anyObject(),
+        anyObject()))
+        .andAnswer(() -> {
+          AgentVictims victims = (AgentVictims) EasyMock.getCurrentArguments()[1];
+          return Optional.of(victims.getVictims());
+        })
+        .times(3);
+
+    control.replay();
+
+    clock.advance(PREEMPTION_DELAY);
+
+    createSlotFinder(2).run();
+    assertEquals(
+        Optional.of(group(task1)),
+        slotCache.get(createPreemptionProposal(TASK_A, SLAVE_ID_1)));
+    assertEquals(
+        Optional.of(group(task1)),
+        slotCache.get(createPreemptionProposal(TASK_B, SLAVE_ID_2)));
+    assertEquals(2L, statsProvider.getLongValue(slotSearchStatName(true, true)));
+    assertEquals(0L, statsProvider.getLongValue(UNMATCHED_TASKS));
+  }
+
+  @Test
+  public void testHostAttributesFetchedOnCallingThread() throws Exception {
+    // Slaves are evaluated on other threads, which must not use the store provider.
+    expectGetPendingTasks(TASK_A);
+    expectGetClusterState(TASK_A, TASK_B);
+    expectOffers(makeOffer(SLAVE_ID_1), makeOffer(SLAVE_ID_2));
+    Set<Thread> searchThreads = Sets.newConcurrentHashSet();
+    expect(preemptionVictimFilter.filterPreemptionVictims(
+        eq(TASK_A.getAssignedTask().getTask()),
+        anyObject(AgentVictims.class),
+        anyObject(AttributeAggregate.class),
+        anyObject(),
+        anyObject()))
+        .andAnswer(() -> {
+          searchThreads.add(Thread.currentThread());
+          AgentVictims victims = (AgentVictims) EasyMock.getCurrentArguments()[1];
+          @SuppressWarnings("unchecked")
+          Function<String, Optional<IHostAttributes>> lookup =
+              (Function<String, Optional<IHostAttributes>>) EasyMock.getCurrentArguments()[4];
+          String host = Iterables.getOnlyElement(victims.getVictims()).getSlaveHost();
+          assertEquals(Optional.of(hostAttributes(host)), lookup.apply(host));
+          return Optional.absent();
+        })
+        .times(2);
+
+    control.replay();
+
+    clock.advance(PREEMPTION_DELAY);
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      createSlotFinder(2, executor).run();
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(ImmutableSet.of(Thread.currentThread()), attributeFetchThreads);
+    assertFalse(searchThreads.contains(Thread.currentThread()));
+    assertEquals(2L, statsProvider.getLongValue(slotSearchStatName(false, true)));
+  }
+
+  @Test
+  public void testSearchTimeBudget() throws Exception {
+    expectGetPendingTasks(TASK_A);
+    expectGetClusterState(TASK_A, TASK_B);
+    expectOffers(makeOffer(SLAVE_ID_1), makeOffer(SLAVE_ID_2));
+    expect(preemptionVictimFilter.filterPreemptionVictims(
+        eq(TASK_A.getAssignedTask().getTask()),
+        anyObject(AgentVictims.class),
+        anyObject(AttributeAggregate.class),
+        anyObject(),
+        anyObject()))
+        .andAnswer(() -> {
+          clock.advance(SEARCH_BUDGET);
+          return Optional.absent();
+        });
+
+    control.replay();
+
+    clock.advance(PREEMPTION_DELAY);
+
+    slotFinder.run();
+    assertEquals(1L, statsProvider.getLongValue(attemptsStatName(true)));
+    assertEquals(1L, statsProvider.getLongValue(slotSearchStatName(false, true)));
+    // The group was not fully evaluated, so it is not considered unmatched.
+    assertEquals(0L, statsProvider.getLongValue(UNMATCHED_TASKS));
+    assertEquals(1L, statsProvider.getLongValue(SLOT_SEARCH_TIMEOUTS));
+  }
+
   @Test
   public void testNoVictims() throws Exception {
     expectGetClusterState();
@@ -287,6 +440,12 @@ public class PendingTaskProcessorTest extends EasyMockTest {
     );
   }
 
+  private Map<String, AgentVictims> getAgentVictims(IScheduledTask... tasks) {
+    return Maps.transformValues(
+        getVictims(tasks).asMap(),
+        victims -> AgentVictims.create(victims, TIER_MANAGER, THERMOS_EXECUTOR));
+  }
+
   private HostOffer makeOffer(String slaveId) {
     Protos.Offer.Builder builder = Protos.Offer.newBuilder();
     builder.getIdBuilder().setValue("id");
@@ -303,16 +462,16 @@ public class PendingTaskProcessorTest extends EasyMockTest {
   }
 
   private void expectGetClusterState(IScheduledTask... returnedTasks) {
-    expect(clusterState.getSlavesToActiveTasks()).andReturn(getVictims(returnedTasks));
+    expect(clusterState.getSlavesToVictims()).andReturn(getAgentVictims(returnedTasks));
   }
 
   private void expectSlotSearch(ITaskConfig config, IScheduledTask... victims) {
     expect(preemptionVictimFilter.filterPreemptionVictims(
         eq(config),
-        anyObject(),
+        anyObject(AgentVictims.class),
         anyObject(AttributeAggregate.class),
         anyObject(),
-        eq(storageUtil.storeProvider)));
+        anyObject()));
     expectLastCall().andReturn(
         victims.length == 0
             ? Optional.absent()
@@ -338,10 +497,12 @@ public class PendingTaskProcessorTest extends EasyMockTest {
     ScheduledTask task = new ScheduledTask()
         .setAssignedTask(new AssignedTask()
             .setSlaveId(slaveId)
+            .setSlaveHost(slaveId)
             .setTaskId(taskId)
             .setTask(new TaskConfig()
                 .setPriority(1)
                 .setProduction(true)
+                .setTier(PROD_TIER_NAME)
                 .setJob(key.newBuilder())));
     task.addToTaskEvents(new TaskEvent(0, PENDING));
     return IScheduledTask.build(task);
@@ -23,8 +23,12 @@ import org.apache.aurora.common.quantity.Amount;
 import org.apache.aurora.common.quantity.Time;
 import org.apache.aurora.common.testing.easymock.EasyMockTest;
 import org.apache.aurora.gen.AssignedTask;
+import org.apache.aurora.scheduler.TierManager;
+import org.apache.aurora.scheduler.configuration.executor.ExecutorSettings;
 import org.apache.aurora.scheduler.filter.AttributeAggregate;
+import org.apache.aurora.scheduler.filter.AttributeAggregateIndex;
 import org.apache.aurora.scheduler.filter.SchedulingFilter;
+import org.apache.aurora.scheduler.mesos.TestExecutorSettings;
 import org.apache.aurora.scheduler.state.StateManager;
 import org.apache.aurora.scheduler.state.TaskAssigner;
 import org.apache.aurora.scheduler.storage.Storage;
@@ -55,11 +59,14 @@ public class PreemptorModuleTest extends EasyMockTest {
 
           @Override
           protected void configure() {
+            bindMock(AttributeAggregateIndex.class);
             bindMock(SchedulingFilter.class);
             bindMock(StateManager.class);
             bindMock(TaskAssigner.class);
+            bindMock(TierManager.class);
             bindMock(Thread.UncaughtExceptionHandler.class);
             bind(Storage.class).toInstance(storageUtil.storage);
+            bind(ExecutorSettings.class).toInstance(TestExecutorSettings.THERMOS_EXECUTOR);
           }
         });
   }
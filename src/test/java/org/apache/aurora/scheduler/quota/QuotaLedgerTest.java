@@ -0,0 +1,177 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.quota;
+
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+
+import org.apache.aurora.common.testing.easymock.EasyMockTest;
+import org.apache.aurora.gen.JobConfiguration;
+import org.apache.aurora.gen.ScheduleStatus;
+import org.apache.aurora.gen.ScheduledTask;
+import org.apache.aurora.scheduler.base.JobKeys;
+import org.apache.aurora.scheduler.base.Query;
+import org.apache.aurora.scheduler.base.TaskTestUtil;
+import org.apache.aurora.scheduler.storage.entities.IAssignedTask;
+import org.apache.aurora.scheduler.storage.entities.IJobConfiguration;
+import org.apache.aurora.scheduler.storage.entities.IJobKey;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+import org.apache.aurora.scheduler.storage.testing.StorageTestUtil;
+import org.apache.aurora.scheduler.testing.FakeStatsProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.apache.aurora.gen.Resource.diskMb;
+import static org.apache.aurora.gen.Resource.numCpus;
+import static org.apache.aurora.gen.Resource.ramMb;
+import static org.apache.aurora.gen.ScheduleStatus.FINISHED;
+import static org.apache.aurora.gen.ScheduleStatus.PENDING;
+import static org.apache.aurora.gen.ScheduleStatus.RUNNING;
+import static org.apache.aurora.scheduler.quota.QuotaManager.PROD_SHARED;
+import static org.apache.aurora.scheduler.resources.ResourceBag.EMPTY;
+import static org.apache.aurora.scheduler.resources.ResourceTestUtil.bag;
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
+
+public class QuotaLedgerTest extends EasyMockTest {
+  private static final String ROLE = "role";
+  private static final IJobKey JOB = JobKeys.from(ROLE, "env", "job");
+  private static final Query.Builder ACTIVE_QUERY = Query.roleScoped(ROLE).active();
+
+  private static final IScheduledTask TASK_A = makeTask("a", 1, RUNNING);
+  private static final IScheduledTask TASK_B = makeTask("b", 2, RUNNING);
+
+  private StorageTestUtil storageUtil;
+  private FakeStatsProvider statsProvider;
+
+  @Before
+  public void setUp() {
+    storageUtil = new StorageTestUtil(this);
+    statsProvider = new FakeStatsProvider();
+    storageUtil.expectOperations();
+  }
+
+  private static IScheduledTask makeTask(String taskId, int cpus, ScheduleStatus status) {
+    ScheduledTask builder = TaskTestUtil.makeTask(taskId, JOB).newBuilder().setStatus(status);
+    builder.getAssignedTask().getTask()
+        .setResources(ImmutableSet.of(numCpus(cpus), ramMb(cpus), diskMb(cpus)))
+        .setProduction(true);
+    return IScheduledTask.build(builder);
+  }
+
+  private void expectLoad(int times, IScheduledTask... tasks) {
+    storageUtil.expectTaskFetch(ACTIVE_QUERY, tasks).times(times);
+    expect(storageUtil.jobStore.fetchJobs()).andReturn(ImmutableSet.of()).times(times);
+  }
+
+  private Set<String> getTaskIds(QuotaLedger ledger) {
+    return ledger.withUsage(ROLE, storageUtil.storeProvider, usage -> ImmutableSet.copyOf(
+        Iterables.transform(usage.getTasks(JOB), IAssignedTask::getTaskId)));
+  }
+
+  @Test
+  public void testDisabled() {
+    expectLoad(2, TASK_A);
+
+    control.replay();
+
+    QuotaLedger ledger = new QuotaLedger(false, false, statsProvider);
+    assertEquals(ImmutableSet.of("a"), getTaskIds(ledger));
+    ledger.tasksSaved(ImmutableSet.of(TASK_B));
+    assertEquals(ImmutableSet.of("a"), getTaskIds(ledger));
+  }
+
+  @Test
+  public void testMaintainedFromWrites() {
+    expectLoad(1, TASK_A);
+
+    control.replay();
+
+    QuotaLedger ledger = new QuotaLedger(true, false, statsProvider);
+    assertEquals(
+        bag(1, 1, 1),
+        ledger.withUsage(ROLE, storageUtil.storeProvider,
+            usage -> usage.getConsumption(JOB, PROD_SHARED)));
+
+    ledger.tasksSaved(ImmutableSet.of(makeTask("b", 2, PENDING)));
+    assertEquals(ImmutableSet.of("a", "b"), getTaskIds(ledger));
+    assertEquals(
+        bag(3, 3, 3),
+        ledger.withUsage(ROLE, storageUtil.storeProvider,
+            usage -> usage.getConsumption(JOB, PROD_SHARED)));
+
+    ledger.tasksSaved(ImmutableSet.of(TASK_B));
+    assertEquals(ImmutableSet.of("a", "b"), getTaskIds(ledger));
+
+    ledger.tasksSaved(ImmutableSet.of(makeTask("a", 1, FINISHED)));
+    assertEquals(ImmutableSet.of("b"), getTaskIds(ledger));
+
+    ledger.tasksDeleted(ImmutableSet.of(TASK_B));
+    assertEquals(ImmutableSet.of(), getTaskIds(ledger));
+    assertEquals(
+        EMPTY,
+        ledger.withUsage(ROLE, storageUtil.storeProvider,
+            usage -> usage.getConsumption(JOB, PROD_SHARED)));
+  }
+
+  @Test
+  public void testIgnoresRolesNotLoaded() {
+    expectLoad(1, TASK_A);
+
+    control.replay();
+
+    QuotaLedger ledger = new QuotaLedger(true, false, statsProvider);
+    ledger.tasksSaved(ImmutableSet.of(TASK_B));
+    ledger.tasksDeleted(ImmutableSet.of(TASK_A));
+    assertEquals(ImmutableSet.of("a"), getTaskIds(ledger));
+  }
+
+  @Test
+  public void testCronJobChanged() {
+    expectLoad(1, TASK_A);
+    expectLoad(1, TASK_A, TASK_B);
+    expectLoad(1, TASK_B);
+
+    control.replay();
+
+    QuotaLedger ledger = new QuotaLedger(true, false, statsProvider);
+    assertEquals(ImmutableSet.of("a"), getTaskIds(ledger));
+    ledger.cronJobSaved(IJobConfiguration.build(new JobConfiguration().setKey(JOB.newBuilder())));
+    assertEquals(ImmutableSet.of("a", "b"), getTaskIds(ledger));
+    ledger.cronJobRemoved(JOB);
+    assertEquals(ImmutableSet.of("b"), getTaskIds(ledger));
+  }
+
+  @Test
+  public void testReconcile() {
+    expectLoad(2, TASK_A);
+    expectLoad(2, TASK_A, TASK_B);
+
+    control.replay();
+
+    QuotaLedger ledger = new QuotaLedger(true, true, statsProvider);
+    assertEquals(ImmutableSet.of("a"), getTaskIds(ledger));
+    assertEquals(ImmutableSet.of("a"), getTaskIds(ledger));
+    assertEquals(0L, statsProvider.getLongValue(QuotaLedger.MISMATCHES));
+
+    // The second task was added without a write through the ledger.
+    assertEquals(ImmutableSet.of("a", "b"), getTaskIds(ledger));
+    assertEquals(1L, statsProvider.getLongValue(QuotaLedger.MISMATCHES));
+
+    assertEquals(ImmutableSet.of("a", "b"), getTaskIds(ledger));
+    assertEquals(1L, statsProvider.getLongValue(QuotaLedger.MISMATCHES));
+  }
+}
@@ -50,6 +50,7 @@ import org.apache.aurora.scheduler.storage.entities.IResourceAggregate;
 import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
 import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
 import org.apache.aurora.scheduler.storage.testing.StorageTestUtil;
+import org.apache.aurora.scheduler.testing.FakeStatsProvider;
 import org.easymock.IExpectationSetters;
 import org.junit.Before;
 import org.junit.Test;
@@ -58,6 +59,7 @@ import static org.apache.aurora.gen.Resource.diskMb;
 import static org.apache.aurora.gen.Resource.namedPort;
 import static org.apache.aurora.gen.Resource.numCpus;
 import static org.apache.aurora.gen.Resource.ramMb;
+import static org.apache.aurora.gen.ScheduleStatus.FINISHED;
 import static org.apache.aurora.scheduler.quota.QuotaCheckResult.Result.INSUFFICIENT_QUOTA;
 import static org.apache.aurora.scheduler.quota.QuotaCheckResult.Result.SUFFICIENT_QUOTA;
 import static org.apache.aurora.scheduler.quota.QuotaManager.QuotaManagerImpl.updateQuery;
@@ -88,7 +90,7 @@ public class QuotaManagerImplTest extends EasyMockTest {
     storageUtil = new StorageTestUtil(this);
     storeProvider = storageUtil.storeProvider;
     jobUpdateStore = storageUtil.jobUpdateStore;
-    quotaManager = new QuotaManagerImpl();
+    quotaManager = new QuotaManagerImpl(new QuotaLedger(false, false, new FakeStatsProvider()));
     storageUtil.expectOperations();
   }
 
@@ -113,6 +115,35 @@ public class QuotaManagerImplTest extends EasyMockTest {
         quotaManager.getQuotaInfo(ROLE, storeProvider));
   }
 
+  @Test
+  public void testGetQuotaInfoFromLedger() {
+    QuotaLedger ledger = new QuotaLedger(true, false, new FakeStatsProvider());
+    quotaManager = new QuotaManagerImpl(ledger);
+    IScheduledTask prodSharedTask = prodTask("foo1", 3, 3, 3);
+    IScheduledTask nonProdSharedTask = nonProdTask("bar1", 2, 2, 2);
+    IScheduledTask addedTask = createTask("foo1", "foo1id2", 1, 1, 1, true, 1);
+
+    expectQuota(aggregate(4, 4, 4)).times(2);
+    // The role is only loaded from storage once.
+    expectTasks(prodSharedTask, nonProdSharedTask);
+    expectNoJobUpdates().times(2);
+    expectNoCronJobs();
+
+    control.replay();
+
+    assertEquals(
+        new QuotaInfo(bag(4, 4, 4), bag(3, 3, 3), EMPTY, bag(2, 2, 2), EMPTY),
+        quotaManager.getQuotaInfo(ROLE, storeProvider));
+
+    ledger.tasksSaved(ImmutableSet.of(
+        addedTask,
+        IScheduledTask.build(nonProdSharedTask.newBuilder().setStatus(FINISHED))));
+
+    assertEquals(
+        new QuotaInfo(bag(4, 4, 4), bag(4, 4, 4), EMPTY, EMPTY, EMPTY),
+        quotaManager.getQuotaInfo(ROLE, storeProvider));
+  }
+
   @Test
   public void testGetQuotaInfoWithCronTasks() {
     IScheduledTask prodTask = prodTask("pc", 6, 6, 6);
@@ -30,6 +30,9 @@ import static org.apache.aurora.scheduler.resources.ResourceType.DISK_MB;
 import static org.apache.aurora.scheduler.resources.ResourceType.PORTS;
 import static org.apache.aurora.scheduler.resources.ResourceType.RAM_MB;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 public class ResourceBagTest {
   @Test
@@ -89,4 +92,46 @@ public class ResourceBagTest {
         new ResourceBag(ImmutableMap.of(CPUS, -1.0)),
         bag(-1.0, 128, 1024).filter(IS_NEGATIVE));
   }
+
+  @Test
+  public void testFitsWithin() {
+    assertTrue(SMALL.fitsWithin(SMALL));
+    assertTrue(SMALL.fitsWithin(LARGE));
+    assertFalse(LARGE.fitsWithin(SMALL));
+    assertFalse(bag(1.0, 1024, 8192).fitsWithin(bag(2.0, 2048, 4096)));
+
+    // Missing values on the right are treated as zero.
+    assertTrue(new ResourceBag(ImmutableMap.of(PORTS, 0.0)).fitsWithin(SMALL));
+    assertFalse(new ResourceBag(ImmutableMap.of(PORTS, 1.0)).fitsWithin(SMALL));
+  }
+
+  @Test
+  public void testAccumulator() {
+    ResourceBag.Accumulator accumulator = ResourceBag.accumulator();
+    assertEquals(new ResourceBag(ImmutableMap.of()), accumulator.build());
+
+    accumulator.add(MEDIUM).add(MEDIUM);
+    ResourceBag sum = accumulator.build();
+    assertEquals(LARGE, sum);
+
+    accumulator.subtract(SMALL).add(new ResourceBag(ImmutableMap.of(PORTS, 2.0)));
+    assertEquals(
+        new ResourceBag(ImmutableMap.of(CPUS, 7.0, RAM_MB, 15360.0, DISK_MB, 28672.0, PORTS, 2.0)),
+        accumulator.build());
+
+    // Built bags are not affected by further accumulation.
+    assertEquals(LARGE, sum);
+  }
+
+  @Test
+  public void testEquals() {
+    assertEquals(bag(1.0, 32, 128), bag(1.0, 32, 128));
+    assertEquals(bag(1.0, 32, 128).hashCode(), bag(1.0, 32, 128).hashCode());
+    assertEquals(SMALL.getResourceVectors(), bag(1.0, 1024, 4096).getResourceVectors());
+
+    // A resource present with a zero value is not the same as a missing resource.
+    assertNotEquals(
+        new ResourceBag(ImmutableMap.of(CPUS, 1.0)),
+        new ResourceBag(ImmutableMap.of(CPUS, 1.0, PORTS, 0.0)));
+  }
 }
@@ -16,6 +16,7 @@ package org.apache.aurora.scheduler.resources;
 import java.util.EnumSet;
 import java.util.Set;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -197,4 +198,37 @@ public class ResourceManagerTest {
   public void testAggregateFromBag() {
     assertEquals(aggregate(1.0, 1024, 4096), ResourceManager.aggregateFromBag(ResourceBag.SMALL));
   }
+
+  @Test
+  public void testSubtractResources() {
+    Offer offer = ResourceTestUtil.offer(
+        mesosScalar(CPUS, 4.0),
+        mesosScalar(RAM_MB, 1024),
+        mesosRange(PORTS, 80, 81, 82));
+    assertEquals(
+        ResourceTestUtil.offer(
+            mesosScalar(CPUS, 2.5),
+            mesosScalar(RAM_MB, 0),
+            mesosRange(PORTS, 80, 82)),
+        ResourceManager.subtractResources(
+            offer,
+            ImmutableList.of(
+                mesosScalar(CPUS, 1.5),
+                mesosScalar(RAM_MB, 1024),
+                mesosRange(PORTS, 81))));
+  }
+
+  @Test(expected = ResourceManager.InsufficientResourcesException.class)
+  public void testSubtractResourcesInsufficient() {
+    ResourceManager.subtractResources(
+        ResourceTestUtil.offer(mesosScalar(CPUS, 1.0)),
+        ImmutableList.of(mesosScalar(CPUS, 2.0)));
+  }
+
+  @Test(expected = ResourceManager.InsufficientResourcesException.class)
+  public void testSubtractResourcesRevocableMismatch() {
+    ResourceManager.subtractResources(
+        ResourceTestUtil.offer(mesosScalar(CPUS, 2.0)),
+        ImmutableList.of(mesosScalar(CPUS, 1.0, true)));
+  }
 }
@@ -17,7 +17,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
 
-import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -41,6 +40,8 @@ import org.apache.aurora.scheduler.configuration.executor.ExecutorSettings;
 import org.apache.aurora.scheduler.events.EventSink;
 import org.apache.aurora.scheduler.events.PubsubEvent.TaskStateChange;
 import org.apache.aurora.scheduler.events.PubsubEventModule;
+import org.apache.aurora.scheduler.filter.AttributeAggregateIndex;
+import org.apache.aurora.scheduler.filter.AttributeAggregateIndex.AttributeAggregateIndexImpl;
 import org.apache.aurora.scheduler.filter.SchedulingFilter.ResourceRequest;
 import org.apache.aurora.scheduler.preemptor.BiCache;
 import org.apache.aurora.scheduler.preemptor.Preemptor;
@@ -52,7 +53,6 @@ import org.apache.aurora.scheduler.state.TaskAssigner;
 import org.apache.aurora.scheduler.storage.Storage;
 import org.apache.aurora.scheduler.storage.Storage.MutateWork.NoResult;
 import org.apache.aurora.scheduler.storage.db.DbUtil;
-import org.apache.aurora.scheduler.storage.entities.IJobKey;
 import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
 import org.apache.aurora.scheduler.storage.testing.StorageTestUtil;
 import org.apache.aurora.scheduler.testing.FakeStatsProvider;
@@ -68,6 +68,7 @@ import static org.apache.aurora.scheduler.filter.AttributeAggregate.empty;
 import static org.apache.aurora.scheduler.mesos.TestExecutorSettings.THERMOS_EXECUTOR;
 import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
 import static org.junit.Assert.assertEquals;
 
 public class TaskSchedulerImplTest extends EasyMockTest {
@@ -87,6 +88,7 @@ public class TaskSchedulerImplTest extends EasyMockTest {
   private TaskScheduler scheduler;
   private Preemptor preemptor;
   private BiCache<String, TaskGroupKey> reservations;
+  private AttributeAggregateIndex attributeAggregates;
   private EventSink eventSink;
 
   @Before
@@ -95,13 +97,16 @@ public class TaskSchedulerImplTest extends EasyMockTest {
     assigner = createMock(TaskAssigner.class);
     preemptor = createMock(Preemptor.class);
     reservations = createMock(new Clazz<BiCache<String, TaskGroupKey>>() { });
+    attributeAggregates = createMock(AttributeAggregateIndex.class);
+    attributeAggregates.tasksAssigned(EasyMock.anyObject(), EasyMock.anyObject());
+    expectLastCall().anyTimes();
 
-    Injector injector = getInjector(storageUtil.storage);
+    Injector injector = getInjector(storageUtil.storage, attributeAggregates);
     scheduler = injector.getInstance(TaskScheduler.class);
     eventSink = PubsubTestUtil.startPubsub(injector);
   }
 
-  private Injector getInjector(Storage storageImpl) {
+  private Injector getInjector(Storage storageImpl, AttributeAggregateIndex attributeIndex) {
     return Guice.createInjector(
         new PubsubEventModule(),
         new AbstractModule() {
@@ -113,6 +118,7 @@ public class TaskSchedulerImplTest extends EasyMockTest {
             bind(new TypeLiteral<BiCache<String, TaskGroupKey>>() { }).toInstance(reservations);
             bind(TaskScheduler.class).to(TaskSchedulerImpl.class);
             bind(Preemptor.class).toInstance(preemptor);
+            bind(AttributeAggregateIndex.class).toInstance(attributeIndex);
             bind(TaskAssigner.class).toInstance(assigner);
             bind(Clock.class).toInstance(createMock(Clock.class));
             bind(StatsProvider.class).toInstance(new FakeStatsProvider());
@@ -312,7 +318,7 @@ public class TaskSchedulerImplTest extends EasyMockTest {
     // Ensures that tasks in THROTTLED state are not considered part of the active job state.
     Storage memStorage = DbUtil.createStorage();
 
-    Injector injector = getInjector(memStorage);
+    Injector injector = getInjector(memStorage, new AttributeAggregateIndexImpl(memStorage));
     scheduler = injector.getInstance(TaskScheduler.class);
     eventSink = PubsubTestUtil.startPubsub(injector);
 
@@ -362,10 +368,9 @@ public class TaskSchedulerImplTest extends EasyMockTest {
   }
 
   private void expectActiveJobFetch(IScheduledTask task) {
-    storageUtil.expectTaskFetch(
-        Query.jobScoped(((Function<IScheduledTask, IJobKey>) Tasks::getJob).apply(task))
-            .byStatus(Tasks.SLAVE_ASSIGNED_STATES),
-        ImmutableSet.of());
+    expect(attributeAggregates.getJobActiveState(
+        storageUtil.mutableStoreProvider,
+        Tasks.getJob(task))).andReturn(empty());
   }
 
   private void expectAddReservation(IScheduledTask task, String slaveId) {
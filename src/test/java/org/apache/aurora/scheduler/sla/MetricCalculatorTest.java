@@ -13,36 +13,50 @@
  */
 package org.apache.aurora.scheduler.sla;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Range;
 
 import org.apache.aurora.common.quantity.Amount;
 import org.apache.aurora.common.quantity.Time;
 import org.apache.aurora.common.stats.StatsProvider;
 import org.apache.aurora.common.testing.easymock.EasyMockTest;
 import org.apache.aurora.common.util.testing.FakeClock;
-import org.apache.aurora.scheduler.base.Query;
+import org.apache.aurora.gen.ScheduledTask;
+import org.apache.aurora.scheduler.base.JobKeys;
+import org.apache.aurora.scheduler.base.Tasks;
+import org.apache.aurora.scheduler.events.PubsubEvent.TaskStateChange;
 import org.apache.aurora.scheduler.sla.MetricCalculator.MetricCalculatorSettings;
 import org.apache.aurora.scheduler.sla.SlaGroup.GroupType;
 import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
-import org.apache.aurora.scheduler.storage.testing.StorageTestUtil;
+import org.apache.aurora.scheduler.storage.entities.ITaskEvent;
 import org.easymock.Capture;
 import org.easymock.CaptureType;
 import org.easymock.EasyMock;
+import org.junit.Before;
 import org.junit.Test;
 
+import static org.apache.aurora.gen.ScheduleStatus.INIT;
+import static org.apache.aurora.gen.ScheduleStatus.KILLED;
+import static org.apache.aurora.gen.ScheduleStatus.LOST;
 import static org.apache.aurora.gen.ScheduleStatus.PENDING;
+import static org.apache.aurora.gen.ScheduleStatus.RUNNING;
 import static org.apache.aurora.scheduler.sla.MetricCalculator.MetricCategory.JOB_UPTIMES;
 import static org.apache.aurora.scheduler.sla.MetricCalculator.MetricCategory.MEDIANS;
 import static org.apache.aurora.scheduler.sla.MetricCalculator.MetricCategory.PLATFORM_UPTIME;
 import static org.apache.aurora.scheduler.sla.MetricCalculator.NAME_QUALIFIER_NON_PROD;
 import static org.apache.aurora.scheduler.sla.MetricCalculator.NAME_QUALIFIER_PROD;
 import static org.apache.aurora.scheduler.sla.SlaAlgorithm.AlgorithmType;
+import static org.apache.aurora.scheduler.sla.SlaAlgorithm.AlgorithmType.AGGREGATE_PLATFORM_UPTIME;
 import static org.apache.aurora.scheduler.sla.SlaTestUtil.makeTask;
 import static org.easymock.EasyMock.expect;
 import static org.junit.Assert.assertEquals;
@@ -63,39 +77,50 @@ public class MetricCalculatorTest extends EasyMockTest {
           .putAll(PLATFORM_UPTIME.getMetrics())
           .build();
 
-  @Test
-  public void testRun() {
-    FakeClock clock = new FakeClock();
+  private FakeClock clock;
+  private StatsProvider untracked;
+  private Capture<String> names;
+  private Capture<Supplier<Number>> values;
+  private MetricCalculator calculator;
+
+  @Before
+  public void setUp() {
+    clock = new FakeClock();
     StatsProvider statsProvider = createMock(StatsProvider.class);
-    StatsProvider untracked = createMock(StatsProvider.class);
+    untracked = createMock(StatsProvider.class);
     MetricCalculatorSettings settings = new MetricCalculatorSettings(
         10000,
         ImmutableSet.of(JOB_UPTIMES, MEDIANS, PLATFORM_UPTIME),
         ImmutableSet.of(JOB_UPTIMES, MEDIANS, PLATFORM_UPTIME));
-    StorageTestUtil storageUtil = new StorageTestUtil(this);
-    MetricCalculator calculator = new MetricCalculator(
-        storageUtil.storage,
-        clock,
-        settings,
-        statsProvider);
+    calculator = new MetricCalculator(clock, settings, statsProvider);
 
     expect(statsProvider.untracked()).andReturn(untracked).anyTimes();
 
-    Capture<String> names = new Capture<>(CaptureType.ALL);
-    expect(untracked.makeGauge(EasyMock.capture(names), EasyMock.anyObject()))
+    names = new Capture<>(CaptureType.ALL);
+    values = new Capture<>(CaptureType.ALL);
+    expect(untracked.makeGauge(EasyMock.capture(names), EasyMock.capture(values)))
         .andReturn(EasyMock.anyObject())
         .anyTimes();
+  }
 
-    IScheduledTask task1 = makeTask(ImmutableMap.of(clock.nowMillis() - 1000, PENDING), 0);
-    IScheduledTask task2 = makeTask(ImmutableMap.of(clock.nowMillis() - 2000, PENDING), 1);
-    IScheduledTask task3 = makeTask(ImmutableMap.of(clock.nowMillis() - 3000, PENDING), 2);
-    IScheduledTask task4 = makeTask(ImmutableMap.of(clock.nowMillis() - 4000, PENDING), 3, false);
+  @Test
+  public void testRun() {
+    IScheduledTask task1 =
+        withId(makeTask(ImmutableMap.of(clock.nowMillis() - 1000, PENDING), 0), "task1");
+    IScheduledTask task2 =
+        withId(makeTask(ImmutableMap.of(clock.nowMillis() - 2000, PENDING), 1), "task2");
+    IScheduledTask task3 =
+        withId(makeTask(ImmutableMap.of(clock.nowMillis() - 3000, PENDING), 2), "task3");
+    IScheduledTask task4 =
+        withId(makeTask(ImmutableMap.of(clock.nowMillis() - 4000, PENDING), 3, false), "task4");
 
     clock.advance(Amount.of(10L, Time.SECONDS));
-    storageUtil.expectTaskFetch(Query.unscoped(), task1, task2, task3, task4);
-    storageUtil.expectOperations();
 
     control.replay();
+
+    for (IScheduledTask task : ImmutableList.of(task1, task2, task3, task4)) {
+      calculator.taskChangedState(TaskStateChange.initialized(task));
+    }
     calculator.run();
 
     Set<String> metricNames = generateMetricNames(
@@ -105,6 +130,58 @@ public class MetricCalculatorTest extends EasyMockTest {
     assertEquals(metricNames, ImmutableSet.copyOf(names.getValues()));
   }
 
+  @Test
+  public void testPlatformUptimeFromEvents() {
+    long start = clock.nowMillis();
+    IScheduledTask lost = withId(
+        makeTask(ImmutableMap.of(start, PENDING, start + 1000, RUNNING, start + 5000, LOST), 0),
+        "lost");
+    IScheduledTask rescheduled = withId(
+        makeTask(ImmutableMap.of(start + 6000, PENDING, start + 8000, RUNNING), 0),
+        "rescheduled");
+    IScheduledTask killed = withId(
+        makeTask(ImmutableMap.of(start, PENDING, start + 2000, RUNNING, start + 7000, KILLED), 1),
+        "killed");
+
+    clock.advance(Amount.of(10L, Time.SECONDS));
+
+    control.replay();
+
+    // The first task is loaded from storage when it has already run, the others are followed
+    // through their transitions.
+    calculator.taskChangedState(TaskStateChange.initialized(prefix(lost, 2)));
+    calculator.taskChangedState(TaskStateChange.transition(lost, RUNNING));
+    calculator.taskChangedState(TaskStateChange.transition(prefix(rescheduled, 1), INIT));
+    calculator.taskChangedState(TaskStateChange.transition(rescheduled, PENDING));
+    for (int i = 1; i <= 3; i++) {
+      calculator.taskChangedState(TaskStateChange.transition(prefix(killed, i), PENDING));
+    }
+    calculator.run();
+
+    Range<Long> timeRange = Range.closedOpen(clock.nowMillis() - 10000, clock.nowMillis());
+    String metricName = "sla_" + JobKeys.canonicalString(Tasks.getJob(lost)) + "_"
+        + AGGREGATE_PLATFORM_UPTIME.getAlgorithmName() + NAME_QUALIFIER_PROD;
+    assertEquals(
+        AGGREGATE_PLATFORM_UPTIME.getAlgorithm().calculate(
+            ImmutableList.of(lost, rescheduled, killed),
+            timeRange),
+        values.getValues().get(names.getValues().indexOf(metricName)).get());
+  }
+
+  private static IScheduledTask withId(IScheduledTask task, String taskId) {
+    ScheduledTask builder = task.newBuilder();
+    builder.getAssignedTask().setTaskId(taskId);
+    return IScheduledTask.build(builder);
+  }
+
+  // Gets a task as of its first events.
+  private static IScheduledTask prefix(IScheduledTask task, int numEvents) {
+    List<ITaskEvent> events = task.getTaskEvents().subList(0, numEvents);
+    return IScheduledTask.build(task.newBuilder()
+        .setStatus(Iterables.getLast(events).getStatus())
+        .setTaskEvents(ITaskEvent.toBuildersList(events)));
+  }
+
   private Set<String> generateMetricNames(
       Set<IScheduledTask> tasks,
       Set<Multimap<AlgorithmType, SlaGroup.GroupType>> definitions) {
@@ -17,10 +17,13 @@ import java.util.Map;
 import java.util.Set;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 
 import org.apache.aurora.common.testing.easymock.EasyMockTest;
+import org.apache.aurora.common.util.testing.FakeTicker;
 import org.apache.aurora.gen.AssignedTask;
 import org.apache.aurora.gen.Attribute;
 import org.apache.aurora.gen.HostAttributes;
@@ -30,14 +33,18 @@ import org.apache.aurora.scheduler.HostOffer;
 import org.apache.aurora.scheduler.TierManager;
 import org.apache.aurora.scheduler.base.TaskGroupKey;
 import org.apache.aurora.scheduler.base.Tasks;
+import org.apache.aurora.scheduler.events.PubsubEvent.Vetoed;
 import org.apache.aurora.scheduler.filter.AttributeAggregate;
 import org.apache.aurora.scheduler.filter.SchedulingFilter;
 import org.apache.aurora.scheduler.filter.SchedulingFilter.ResourceRequest;
 import org.apache.aurora.scheduler.filter.SchedulingFilter.UnusedResource;
 import org.apache.aurora.scheduler.filter.SchedulingFilter.Veto;
+import org.apache.aurora.scheduler.filter.SchedulingFilterImpl;
 import org.apache.aurora.scheduler.mesos.MesosTaskFactory;
+import org.apache.aurora.scheduler.metadata.NearestFit;
 import org.apache.aurora.scheduler.offers.OfferManager;
 import org.apache.aurora.scheduler.resources.ResourceBag;
+import org.apache.aurora.scheduler.scheduling.TaskGroup;
 import org.apache.aurora.scheduler.state.TaskAssigner.TaskAssignerImpl;
 import org.apache.aurora.scheduler.storage.entities.IAssignedTask;
 import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
@@ -63,11 +70,13 @@ import static org.apache.aurora.scheduler.base.TaskTestUtil.JOB;
 import static org.apache.aurora.scheduler.base.TaskTestUtil.makeTask;
 import static org.apache.aurora.scheduler.filter.AttributeAggregate.empty;
 import static org.apache.aurora.scheduler.resources.ResourceManager.bagFromMesosResources;
+import static org.apache.aurora.scheduler.resources.ResourceTestUtil.bag;
 import static org.apache.aurora.scheduler.resources.ResourceTestUtil.mesosRange;
 import static org.apache.aurora.scheduler.resources.ResourceTestUtil.offer;
 import static org.apache.aurora.scheduler.resources.ResourceType.PORTS;
 import static org.apache.aurora.scheduler.state.TaskAssigner.TaskAssignerImpl.ASSIGNER_EVALUATED_OFFERS;
 import static org.apache.aurora.scheduler.state.TaskAssigner.TaskAssignerImpl.ASSIGNER_LAUNCH_FAILURES;
+import static org.apache.aurora.scheduler.state.TaskAssigner.TaskAssignerImpl.ASSIGNER_SHARED_OFFER_LAUNCHES;
 import static org.apache.aurora.scheduler.state.TaskAssigner.TaskAssignerImpl.LAUNCH_FAILED_MSG;
 import static org.apache.aurora.scheduler.storage.Storage.MutableStoreProvider;
 import static org.apache.mesos.v1.Protos.Offer;
@@ -141,7 +150,8 @@ public class TaskAssignerImplTest extends EasyMockTest {
         taskFactory,
         offerManager,
         tierManager,
-        statsProvider);
+        statsProvider,
+        1);
     resourceRequest = new ResourceRequest(
         TASK.getAssignedTask().getTask(),
         ResourceBag.EMPTY,
@@ -159,8 +169,11 @@ public class TaskAssignerImplTest extends EasyMockTest {
 
   @Test
   public void testAssignPartialNoVetoes() throws Exception {
-    expect(offerManager.getOffers(GROUP_KEY)).andReturn(ImmutableSet.of(OFFER));
-    offerManager.launchTask(MESOS_OFFER.getId(), TASK_INFO);
+    expect(offerManager.getOffers(GROUP_KEY, ResourceBag.EMPTY, DEV_TIER))
+        .andReturn(ImmutableSet.of(OFFER));
+    expect(offerManager.getNearestMiss(GROUP_KEY, ResourceBag.EMPTY, DEV_TIER))
+        .andReturn(Optional.absent());
+    offerManager.launchTasks(MESOS_OFFER.getId(), ImmutableList.of(TASK_INFO));
     expect(tierManager.getTier(TASK.getAssignedTask().getTask())).andReturn(DEV_TIER);
     expect(filter.filter(UNUSED, resourceRequest)).andReturn(ImmutableSet.of());
     expectAssignTask(MESOS_OFFER);
@@ -185,7 +198,10 @@ public class TaskAssignerImplTest extends EasyMockTest {
 
   @Test
   public void testAssignVetoesWithStaticBan() throws Exception {
-    expect(offerManager.getOffers(GROUP_KEY)).andReturn(ImmutableSet.of(OFFER));
+    expect(offerManager.getOffers(GROUP_KEY, ResourceBag.EMPTY, DEV_TIER))
+        .andReturn(ImmutableSet.of(OFFER));
+    expect(offerManager.getNearestMiss(GROUP_KEY, ResourceBag.EMPTY, DEV_TIER))
+        .andReturn(Optional.absent());
     offerManager.banOffer(MESOS_OFFER.getId(), GROUP_KEY);
     expect(tierManager.getTier(TASK.getAssignedTask().getTask())).andReturn(DEV_TIER);
     expect(filter.filter(UNUSED, resourceRequest))
@@ -207,7 +223,10 @@ public class TaskAssignerImplTest extends EasyMockTest {
 
   @Test
   public void testAssignVetoesWithNoStaticBan() throws Exception {
-    expect(offerManager.getOffers(GROUP_KEY)).andReturn(ImmutableSet.of(OFFER));
+    expect(offerManager.getOffers(GROUP_KEY, ResourceBag.EMPTY, DEV_TIER))
+        .andReturn(ImmutableSet.of(OFFER));
+    expect(offerManager.getNearestMiss(GROUP_KEY, ResourceBag.EMPTY, DEV_TIER))
+        .andReturn(Optional.absent());
     expect(tierManager.getTier(TASK.getAssignedTask().getTask())).andReturn(DEV_TIER);
     expect(filter.filter(UNUSED, resourceRequest))
         .andReturn(ImmutableSet.of(Veto.unsatisfiedLimit("limit")));
@@ -228,8 +247,9 @@ public class TaskAssignerImplTest extends EasyMockTest {
 
   @Test
   public void testAssignmentClearedOnError() throws Exception {
-    expect(offerManager.getOffers(GROUP_KEY)).andReturn(ImmutableSet.of(OFFER, OFFER_2));
-    offerManager.launchTask(MESOS_OFFER.getId(), TASK_INFO);
+    expect(offerManager.getOffers(GROUP_KEY, ResourceBag.EMPTY, DEV_TIER))
+        .andReturn(ImmutableSet.of(OFFER, OFFER_2));
+    offerManager.launchTasks(MESOS_OFFER.getId(), ImmutableList.of(TASK_INFO));
     expectLastCall().andThrow(new OfferManager.LaunchException("expected"));
     expect(tierManager.getTier(TASK.getAssignedTask().getTask())).andReturn(DEV_TIER);
     expect(filter.filter(UNUSED, resourceRequest)).andReturn(ImmutableSet.of());
@@ -264,7 +284,11 @@ public class TaskAssignerImplTest extends EasyMockTest {
   @Test
   public void testAssignmentSkippedForReservedSlave() throws Exception {
     expect(tierManager.getTier(TASK.getAssignedTask().getTask())).andReturn(DEV_TIER);
-    expect(offerManager.getOffers(GROUP_KEY)).andReturn(ImmutableSet.of(OFFER));
+    expect(offerManager.getOffers(GROUP_KEY, ResourceBag.EMPTY, DEV_TIER))
+        .andReturn(ImmutableSet.of(OFFER));
+    // The reserved offer is not filtered when it is the nearest offer skipped by the index either.
+    expect(offerManager.getNearestMiss(GROUP_KEY, ResourceBag.EMPTY, DEV_TIER))
+        .andReturn(Optional.of(OFFER));
 
     control.replay();
 
@@ -286,7 +310,8 @@ public class TaskAssignerImplTest extends EasyMockTest {
     // Ensures slave/task reservation relationship is only enforced in slave->task direction
     // and permissive in task->slave direction. In other words, a task with a slave reservation
     // should still be tried against other unreserved slaves.
-    expect(offerManager.getOffers(GROUP_KEY)).andReturn(ImmutableSet.of(OFFER_2, OFFER));
+    expect(offerManager.getOffers(GROUP_KEY, ResourceBag.EMPTY, DEV_TIER))
+        .andReturn(ImmutableSet.of(OFFER_2, OFFER));
     expect(tierManager.getTier(TASK.getAssignedTask().getTask())).andReturn(DEV_TIER);
     expect(filter.filter(
         new UnusedResource(
@@ -296,7 +321,7 @@ public class TaskAssignerImplTest extends EasyMockTest {
     expectAssignTask(OFFER_2.getOffer());
     expect(taskFactory.createFrom(TASK.getAssignedTask(), OFFER_2.getOffer()))
         .andReturn(TASK_INFO);
-    offerManager.launchTask(OFFER_2.getOffer().getId(), TASK_INFO);
+    offerManager.launchTasks(OFFER_2.getOffer().getId(), ImmutableList.of(TASK_INFO));
 
     control.replay();
 
@@ -329,7 +354,8 @@ public class TaskAssignerImplTest extends EasyMockTest {
             .build(),
         IHostAttributes.build(new HostAttributes()));
 
-    expect(offerManager.getOffers(GROUP_KEY)).andReturn(ImmutableSet.of(mismatched, OFFER));
+    expect(offerManager.getOffers(GROUP_KEY, ResourceBag.EMPTY, DEV_TIER))
+        .andReturn(ImmutableSet.of(mismatched, OFFER));
     expect(tierManager.getTier(TASK.getAssignedTask().getTask())).andReturn(DEV_TIER);
     expect(filter.filter(
         new UnusedResource(
@@ -347,7 +373,7 @@ public class TaskAssignerImplTest extends EasyMockTest {
     expectAssignTask(MESOS_OFFER);
     expect(taskFactory.createFrom(TASK.getAssignedTask(), OFFER.getOffer()))
         .andReturn(TASK_INFO);
-    offerManager.launchTask(OFFER.getOffer().getId(), TASK_INFO);
+    offerManager.launchTasks(OFFER.getOffer().getId(), ImmutableList.of(TASK_INFO));
 
     control.replay();
 
@@ -363,6 +389,178 @@ public class TaskAssignerImplTest extends EasyMockTest {
     assertEquals(2L, statsProvider.getLongValue(ASSIGNER_EVALUATED_OFFERS));
   }
 
+  @Test
+  public void testAssignMultipleTasksPerOffer() throws Exception {
+    TaskAssignerImpl multiAssigner = new TaskAssignerImpl(
+        stateManager,
+        filter,
+        taskFactory,
+        offerManager,
+        tierManager,
+        statsProvider,
+        2);
+    IScheduledTask task2 = makeTask("id2", JOB);
+    TaskInfo taskInfo2 = TASK_INFO.toBuilder()
+        .setTaskId(TaskID.newBuilder().setValue(Tasks.id(task2)))
+        .build();
+
+    expect(offerManager.getOffers(GROUP_KEY, ResourceBag.EMPTY, DEV_TIER))
+        .andReturn(ImmutableSet.of(OFFER));
+    expect(offerManager.getNearestMiss(GROUP_KEY, ResourceBag.EMPTY, DEV_TIER))
+        .andReturn(Optional.absent());
+    expect(tierManager.getTier(TASK.getAssignedTask().getTask())).andReturn(DEV_TIER);
+    expect(filter.filter(UNUSED, resourceRequest)).andReturn(ImmutableSet.of());
+    // The resources left in the offer after the first launch are matched again.
+    expect(filter.isMatch(UNUSED, resourceRequest)).andReturn(true);
+    expectAssignTask(MESOS_OFFER);
+    expect(taskFactory.createFrom(TASK.getAssignedTask(), MESOS_OFFER)).andReturn(TASK_INFO);
+    expectAssignTask(MESOS_OFFER, task2);
+    expect(taskFactory.createFrom(task2.getAssignedTask(), MESOS_OFFER)).andReturn(taskInfo2);
+    offerManager.launchTasks(MESOS_OFFER.getId(), ImmutableList.of(TASK_INFO, taskInfo2));
+
+    control.replay();
+
+    assertEquals(
+        ImmutableSet.of(Tasks.id(TASK), Tasks.id(task2)),
+        multiAssigner.maybeAssign(
+            storeProvider,
+            resourceRequest,
+            GROUP_KEY,
+            ImmutableSet.of(Tasks.id(TASK), Tasks.id(task2), "id3"),
+            NO_RESERVATION));
+    assertEquals(1L, statsProvider.getLongValue(ASSIGNER_EVALUATED_OFFERS));
+    assertEquals(1L, statsProvider.getLongValue(ASSIGNER_SHARED_OFFER_LAUNCHES));
+  }
+
+  @Test
+  public void testAssignMultipleTasksStopsWhenOfferExhausted() throws Exception {
+    TaskAssignerImpl multiAssigner = new TaskAssignerImpl(
+        stateManager,
+        filter,
+        taskFactory,
+        offerManager,
+        tierManager,
+        statsProvider,
+        2);
+
+    expect(offerManager.getOffers(GROUP_KEY, ResourceBag.EMPTY, DEV_TIER))
+        .andReturn(ImmutableSet.of(OFFER));
+    expect(offerManager.getNearestMiss(GROUP_KEY, ResourceBag.EMPTY, DEV_TIER))
+        .andReturn(Optional.absent());
+    expect(tierManager.getTier(TASK.getAssignedTask().getTask())).andReturn(DEV_TIER);
+    expect(filter.filter(UNUSED, resourceRequest)).andReturn(ImmutableSet.of());
+    expect(filter.isMatch(UNUSED, resourceRequest)).andReturn(false);
+    expectAssignTask(MESOS_OFFER);
+    expect(taskFactory.createFrom(TASK.getAssignedTask(), MESOS_OFFER)).andReturn(TASK_INFO);
+    offerManager.launchTasks(MESOS_OFFER.getId(), ImmutableList.of(TASK_INFO));
+
+    control.replay();
+
+    assertEquals(
+        ImmutableSet.of(Tasks.id(TASK)),
+        multiAssigner.maybeAssign(
+            storeProvider,
+            resourceRequest,
+            GROUP_KEY,
+            ImmutableSet.of(Tasks.id(TASK), "id2"),
+            NO_RESERVATION));
+    assertEquals(0L, statsProvider.getLongValue(ASSIGNER_SHARED_OFFER_LAUNCHES));
+  }
+
+  @Test
+  public void testNearestOfferSkippedByIndexIsFiltered() throws Exception {
+    // Only the nearest offer the resource index skipped as too small is filtered, so that its
+    // vetoes are reported and the offer is banned for the group.
+    expect(tierManager.getTier(TASK.getAssignedTask().getTask())).andReturn(DEV_TIER);
+    expect(offerManager.getOffers(GROUP_KEY, ResourceBag.EMPTY, DEV_TIER))
+        .andReturn(ImmutableSet.of(OFFER_2));
+    expect(filter.filter(
+        new UnusedResource(
+            bagFromMesosResources(OFFER_2.getOffer().getResourcesList()),
+            OFFER_2.getAttributes()),
+        resourceRequest))
+        .andReturn(ImmutableSet.of(Veto.unsatisfiedLimit("limit")));
+    expect(offerManager.getNearestMiss(GROUP_KEY, ResourceBag.EMPTY, DEV_TIER))
+        .andReturn(Optional.of(OFFER));
+    expect(filter.filter(UNUSED, resourceRequest))
+        .andReturn(ImmutableSet.of(Veto.insufficientResources("CPU", 1)));
+    offerManager.banOffer(MESOS_OFFER.getId(), GROUP_KEY);
+
+    control.replay();
+
+    assertEquals(
+        NO_ASSIGNMENT,
+        assigner.maybeAssign(
+            storeProvider,
+            resourceRequest,
+            GROUP_KEY,
+            ImmutableSet.of(Tasks.id(TASK)),
+            NO_RESERVATION));
+    assertEquals(1L, statsProvider.getLongValue(ASSIGNER_EVALUATED_OFFERS));
+  }
+
+  @Test
+  public void testPendingReasonForOffersSkippedByIndex() throws Exception {
+    // The pending reason of a task that fits no offer comes from the nearest offer skipped by the
+    // resource index, although the index returns no offers.
+    ITaskConfig config = ITaskConfig.build(
+        TASK.getAssignedTask().getTask().newBuilder().setConstraints(ImmutableSet.of()));
+    TaskGroupKey groupKey = TaskGroupKey.from(config);
+    NearestFit nearestFit = new NearestFit(new FakeTicker());
+    SchedulingFilter realFilter = new SchedulingFilterImpl();
+    SchedulingFilter notifyingFilter = new SchedulingFilter() {
+      @Override
+      public boolean isMatch(UnusedResource resource, ResourceRequest request) {
+        return realFilter.isMatch(resource, request);
+      }
+
+      @Override
+      public Set<Veto> filter(UnusedResource resource, ResourceRequest request) {
+        Set<Veto> vetoes = realFilter.filter(resource, request);
+        if (!vetoes.isEmpty()) {
+          nearestFit.vetoed(new Vetoed(groupKey, vetoes));
+        }
+        return vetoes;
+      }
+    };
+    TaskAssignerImpl notifyingAssigner = new TaskAssignerImpl(
+        stateManager,
+        notifyingFilter,
+        taskFactory,
+        offerManager,
+        tierManager,
+        statsProvider,
+        1);
+    ResourceRequest request = new ResourceRequest(config, bag(1, 1, 1), empty());
+
+    expect(tierManager.getTier(config)).andReturn(DEV_TIER);
+    expect(offerManager.getOffers(groupKey, bag(1, 1, 1), DEV_TIER))
+        .andReturn(ImmutableSet.of());
+    expect(offerManager.getNearestMiss(groupKey, bag(1, 1, 1), DEV_TIER))
+        .andReturn(Optional.of(OFFER));
+    offerManager.banOffer(MESOS_OFFER.getId(), groupKey);
+
+    control.replay();
+
+    assertEquals(
+        NO_ASSIGNMENT,
+        notifyingAssigner.maybeAssign(
+            storeProvider,
+            request,
+            groupKey,
+            ImmutableSet.of(Tasks.id(TASK)),
+            NO_RESERVATION));
+    Set<Veto> expected = new SchedulingFilterImpl().filter(UNUSED, request);
+    assertEquals(
+        ImmutableSet.of("Insufficient: CPU", "Insufficient: RAM", "Insufficient: DISK"),
+        ImmutableSet.copyOf(Iterables.transform(expected, Veto::getReason)));
+    assertEquals(expected, nearestFit.getNearestFit(groupKey));
+    assertEquals(
+        ImmutableSet.copyOf(Iterables.transform(expected, Veto::getReason)),
+        ImmutableSet.copyOf(Iterables.getOnlyElement(nearestFit.getPendingReasons(
+            ImmutableList.of(new TaskGroup(groupKey, Tasks.id(TASK)))).values())));
+  }
+
   @Test
   public void testResourceMapperCallback() {
     AssignedTask builder = TASK.newBuilder().getAssignedTask();
@@ -376,11 +574,15 @@ public class TaskAssignerImplTest extends EasyMockTest {
   }
 
   private void expectAssignTask(Offer offer) {
+    expectAssignTask(offer, TASK);
+  }
+
+  private void expectAssignTask(Offer offer, IScheduledTask task) {
     expect(stateManager.assignTask(
         eq(storeProvider),
-        eq(Tasks.id(TASK)),
+        eq(Tasks.id(task)),
         eq(offer.getHostname()),
         eq(offer.getAgentId()),
-        anyObject())).andReturn(TASK.getAssignedTask());
+        anyObject())).andReturn(task.getAssignedTask());
   }
 }
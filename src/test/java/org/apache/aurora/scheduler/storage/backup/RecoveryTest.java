@@ -65,6 +65,8 @@ public class RecoveryTest extends EasyMockTest {
   private Storage primaryStorage;
   private MutableStoreProvider storeProvider;
   private Command shutDownNow;
+  private File backupDir;
+  private ScheduledExecutorService executor;
   private FakeClock clock;
   private StorageBackupImpl storageBackup;
   private RecoveryImpl recovery;
@@ -73,19 +75,19 @@ public class RecoveryTest extends EasyMockTest {
 
   @Before
   public void setUp() throws IOException {
-    final File backupDir = temporaryFolder.newFolder();
+    backupDir = temporaryFolder.newFolder();
     snapshotStore = createMock(new Clazz<SnapshotStore<Snapshot>>() { });
     distributedStore = createMock(DistributedSnapshotStore.class);
     primaryStorage = createMock(Storage.class);
     storeProvider = createMock(MutableStoreProvider.class);
     shutDownNow = createMock(Command.class);
-    ScheduledExecutorService executor = createMock(ScheduledExecutorService.class);
+    executor = createMock(ScheduledExecutorService.class);
     clock = FakeScheduledExecutor.scheduleExecutor(executor);
     TemporaryStorageFactory factory = new TemporaryStorageFactory(TaskTestUtil.THRIFT_BACKFILL);
     storageBackup = new StorageBackupImpl(
         snapshotStore,
         clock,
-        new BackupConfig(backupDir, 5, INTERVAL),
+        new BackupConfig(backupDir, 5, INTERVAL, false),
         executor);
 
     recovery = new RecoveryImpl(backupDir, factory, primaryStorage, distributedStore, shutDownNow);
@@ -150,6 +152,28 @@ public class RecoveryTest extends EasyMockTest {
     assertEquals(modified, snapshot.getValue());
   }
 
+  @Test
+  public void testStageCompressedBackup() throws Exception {
+    expect(snapshotStore.createSnapshot()).andReturn(SNAPSHOT1);
+
+    control.replay();
+
+    storageBackup = new StorageBackupImpl(
+        snapshotStore,
+        clock,
+        new BackupConfig(backupDir, 5, INTERVAL, true),
+        executor);
+    clock.advance(INTERVAL);
+    storageBackup.createSnapshot();
+    String backup1 = storageBackup.createBackupName() + StorageBackupImpl.COMPRESSED_SUFFIX;
+    assertEquals(ImmutableSet.of(backup1), recovery.listBackups());
+
+    recovery.stage(backup1);
+    assertEquals(
+        IScheduledTask.setFromBuilders(SNAPSHOT1.getTasks()),
+        ImmutableSet.copyOf(recovery.query(Query.unscoped())));
+  }
+
   @Test(expected = RecoveryException.class)
   public void testLoadUnknownBackup() throws Exception {
     control.replay();
@@ -14,15 +14,19 @@
 package org.apache.aurora.scheduler.storage.backup;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.zip.GZIPInputStream;
 
 import javax.annotation.Nullable;
 
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
 
 import org.apache.aurora.codec.ThriftBinaryCodec;
@@ -59,6 +63,7 @@ public class StorageBackupTest extends EasyMockTest {
   private static final Amount<Long, Time> INTERVAL = Amount.of(1L, Time.HOURS);
 
   private SnapshotStore<Snapshot> delegate;
+  private ScheduledExecutorService executor;
   private FakeClock clock;
   private BackupConfig config;
   private StorageBackupImpl storageBackup;
@@ -69,9 +74,9 @@ public class StorageBackupTest extends EasyMockTest {
   public void setUp() throws IOException {
     delegate = createMock(new Clazz<SnapshotStore<Snapshot>>() { });
     final File backupDir = temporaryFolder.newFolder();
-    ScheduledExecutorService executor = createMock(ScheduledExecutorService.class);
+    executor = createMock(ScheduledExecutorService.class);
     clock = FakeScheduledExecutor.scheduleExecutor(executor);
-    config = new BackupConfig(backupDir, MAX_BACKUPS, INTERVAL);
+    config = new BackupConfig(backupDir, MAX_BACKUPS, INTERVAL, false);
     clock.advance(Amount.of(365 * 30L, Time.DAYS));
     storageBackup = new StorageBackupImpl(delegate, clock, config, executor);
   }
@@ -101,6 +106,27 @@ public class StorageBackupTest extends EasyMockTest {
     assertEquals(snapshot, restored);
   }
 
+  @Test
+  public void testCompressedBackup() throws Exception {
+    Snapshot snapshot = makeSnapshot();
+    expect(delegate.createSnapshot()).andReturn(snapshot);
+
+    control.replay();
+
+    config = new BackupConfig(config.getDir(), MAX_BACKUPS, INTERVAL, true);
+    storageBackup = new StorageBackupImpl(delegate, clock, config, executor);
+    clock.advance(INTERVAL);
+    assertEquals(snapshot, storageBackup.createSnapshot());
+    assertBackupCount(1);
+
+    File backup = new File(
+        config.getDir(),
+        storageBackup.createBackupName() + StorageBackupImpl.COMPRESSED_SUFFIX);
+    try (InputStream in = new GZIPInputStream(new FileInputStream(backup))) {
+      assertEquals(snapshot, ThriftBinaryCodec.decode(Snapshot.class, ByteStreams.toByteArray(in)));
+    }
+  }
+
   @Test
   public void testDirectoryMissing() {
     Snapshot snapshot = makeSnapshot();
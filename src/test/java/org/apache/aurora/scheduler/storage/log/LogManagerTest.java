@@ -21,9 +21,12 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -34,6 +37,8 @@ import com.google.common.hash.Hashing;
 
 import org.apache.aurora.codec.ThriftBinaryCodec;
 import org.apache.aurora.codec.ThriftBinaryCodec.CodingException;
+import org.apache.aurora.common.application.Lifecycle;
+import org.apache.aurora.common.base.Command;
 import org.apache.aurora.common.quantity.Amount;
 import org.apache.aurora.common.quantity.Data;
 import org.apache.aurora.common.testing.easymock.EasyMockTest;
@@ -41,6 +46,7 @@ import org.apache.aurora.gen.AssignedTask;
 import org.apache.aurora.gen.Attribute;
 import org.apache.aurora.gen.HostAttributes;
 import org.apache.aurora.gen.ScheduledTask;
+import org.apache.aurora.gen.storage.Codec;
 import org.apache.aurora.gen.storage.DeduplicatedSnapshot;
 import org.apache.aurora.gen.storage.Frame;
 import org.apache.aurora.gen.storage.FrameChunk;
@@ -59,18 +65,26 @@ import org.apache.aurora.scheduler.base.TaskTestUtil;
 import org.apache.aurora.scheduler.log.Log.Entry;
 import org.apache.aurora.scheduler.log.Log.Position;
 import org.apache.aurora.scheduler.log.Log.Stream;
+import org.apache.aurora.scheduler.log.Log.Stream.StreamAccessException;
+import org.apache.aurora.scheduler.storage.log.StreamManager.PendingSnapshot;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
 import org.easymock.EasyMock;
 import org.easymock.IArgumentMatcher;
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.apache.aurora.scheduler.storage.log.SnapshotDeduplicator.SnapshotDeduplicatorImpl;
+import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.expect;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class LogManagerTest extends EasyMockTest {
 
@@ -88,12 +102,16 @@ public class LogManagerTest extends EasyMockTest {
   private Stream stream;
   private Position position1;
   private Position position2;
+  private Command shutdownCommand;
+  private Lifecycle lifecycle;
 
   @Before
   public void setUp() {
     stream = createMock(Stream.class);
     position1 = createMock(Position.class);
     position2 = createMock(Position.class);
+    shutdownCommand = createMock(Command.class);
+    lifecycle = new Lifecycle(shutdownCommand);
   }
 
   private StreamManager createNoMessagesStreamManager() {
@@ -105,7 +123,12 @@ public class LogManagerTest extends EasyMockTest {
         stream,
         new EntrySerializer.EntrySerializerImpl(maxEntrySize, Hashing.md5()),
         Hashing.md5(),
-        new SnapshotDeduplicatorImpl());
+        new SnapshotDeduplicatorImpl(),
+        false,
+        false,
+        1,
+        Codec.DEFLATE,
+        lifecycle);
   }
 
   @Test
@@ -257,6 +280,96 @@ public class LogManagerTest extends EasyMockTest {
     assertEquals(position1, streamTransaction.commit());
   }
 
+  private StreamManager createGroupCommitStreamManager() {
+    return new StreamManagerImpl(
+        stream,
+        new EntrySerializer.EntrySerializerImpl(NO_FRAMES_EVER_SIZE, Hashing.md5()),
+        Hashing.md5(),
+        new SnapshotDeduplicatorImpl(),
+        true,
+        false,
+        1,
+        Codec.DEFLATE,
+        lifecycle);
+  }
+
+  @Test
+  public void testGroupCommit() throws CodingException {
+    SaveTasks saveTasks1 = createSaveTasks("1");
+    SaveTasks saveTasks2 = createSaveTasks("2");
+    Op deleteJob = Op.removeJob(new RemoveJob(JobKeys.from("role", "env", "name").newBuilder()));
+    expectTransaction(position1, Op.saveTasks(createSaveTasks("2", "1")), deleteJob);
+
+    control.replay();
+
+    StreamManager streamManager = createGroupCommitStreamManager();
+    StreamTransaction tr1 = streamManager.startTransaction();
+    tr1.add(Op.saveTasks(saveTasks1));
+    StreamTransaction tr2 = streamManager.startTransaction();
+    tr2.add(Op.saveTasks(saveTasks2));
+    tr2.add(deleteJob);
+
+    // Both transactions are appended as a single entry, coalescing ops across transactions.
+    StreamTransaction.PendingCommit commit1 = tr1.submit();
+    StreamTransaction.PendingCommit commit2 = tr2.submit();
+    assertSame(position1, commit2.await());
+    assertSame(position1, commit1.await());
+    assertNull(streamManager.startTransaction().commit());
+  }
+
+  @Test
+  public void testGroupCommitAppendsAfterSubmit() throws CodingException {
+    // A submitted transaction is only durable once its commit is awaited.  Storage writers apply
+    // their changes locally before that, so the changes are visible before they are durable.
+    AtomicBoolean appended = new AtomicBoolean(false);
+    expect(stream.append(EasyMock.anyObject(byte[].class))).andAnswer(() -> {
+      appended.set(true);
+      return position1;
+    });
+
+    control.replay();
+
+    StreamManager streamManager = createGroupCommitStreamManager();
+    StreamTransaction transaction = streamManager.startTransaction();
+    transaction.add(Op.saveFrameworkId(new SaveFrameworkId("jake")));
+    StreamTransaction.PendingCommit commit = transaction.submit();
+    assertFalse(appended.get());
+    assertSame(position1, commit.await());
+    assertTrue(appended.get());
+  }
+
+  @Test
+  public void testGroupCommitFailure() throws CodingException {
+    Op saveFrameworkId = Op.saveFrameworkId(new SaveFrameworkId("jake"));
+    expect(stream.append(EasyMock.anyObject(byte[].class)))
+        .andThrow(new StreamAccessException("Append failed", null));
+    // Local storage is ahead of the log, the scheduler must give up leadership.
+    shutdownCommand.execute();
+
+    control.replay();
+
+    StreamManager streamManager = createGroupCommitStreamManager();
+    StreamTransaction transaction = streamManager.startTransaction();
+    transaction.add(saveFrameworkId);
+    try {
+      transaction.commit();
+      fail();
+    } catch (StreamAccessException e) {
+      // Expected.
+    }
+
+    // Further transactions are rejected until the scheduler has shut down.
+    assertFalse(lifecycle.isAlive());
+    StreamTransaction next = streamManager.startTransaction();
+    next.add(saveFrameworkId);
+    try {
+      next.submit();
+      fail();
+    } catch (StreamAccessException e) {
+      // Expected.
+    }
+  }
+
   @Test
   public void testTransactionSnapshot() throws CodingException {
     Snapshot snapshot = createSnapshot();
@@ -269,6 +382,28 @@ public class LogManagerTest extends EasyMockTest {
     createNoMessagesStreamManager().snapshot(snapshot);
   }
 
+  @Test
+  public void testGrowthSinceSnapshot() throws CodingException {
+    Snapshot snapshot = createSnapshot();
+    DeduplicatedSnapshot deduplicated = new SnapshotDeduplicatorImpl().deduplicate(snapshot);
+    expectAppend(position1, Entries.deflate(LogEntry.deduplicatedSnapshot(deduplicated)));
+    stream.truncateBefore(position1);
+    Op saveFrameworkId = Op.saveFrameworkId(new SaveFrameworkId("jake"));
+    expectTransaction(position2, saveFrameworkId);
+
+    StreamManager streamManager = createNoMessagesStreamManager();
+    control.replay();
+
+    assertEquals(Optional.absent(), streamManager.getGrowthSinceSnapshot());
+    streamManager.snapshot(snapshot);
+    assertEquals(Optional.of(0.0), streamManager.getGrowthSinceSnapshot());
+
+    StreamTransaction transaction = streamManager.startTransaction();
+    transaction.add(saveFrameworkId);
+    transaction.commit();
+    assertTrue(streamManager.getGrowthSinceSnapshot().get() > 0.0);
+  }
+
   @Test
   public void testTransactionOps() throws CodingException {
     Op saveFrameworkId = Op.saveFrameworkId(new SaveFrameworkId("jake"));
@@ -394,7 +529,12 @@ public class LogManagerTest extends EasyMockTest {
         mockStream,
         new EntrySerializer.EntrySerializerImpl(message1.chunkSize, Hashing.md5()),
         Hashing.md5(),
-        new SnapshotDeduplicatorImpl());
+        new SnapshotDeduplicatorImpl(),
+        false,
+        false,
+        1,
+        Codec.DEFLATE,
+        lifecycle);
     StreamTransaction tr1 = streamManager.startTransaction();
     tr1.add(op1);
 
@@ -504,11 +644,196 @@ public class LogManagerTest extends EasyMockTest {
         stream,
         new EntrySerializer.EntrySerializerImpl(NO_FRAMES_EVER_SIZE, md5),
         md5,
-        new SnapshotDeduplicatorImpl());
+        new SnapshotDeduplicatorImpl(),
+        false,
+        false,
+        1,
+        Codec.DEFLATE,
+        lifecycle);
     streamManager.snapshot(snapshot);
     streamManager.readFromBeginning(reader);
   }
 
+  @Test
+  public void testWriteAndReadBlockCompressedEntry() throws Exception {
+    // Large enough to be compressed as several blocks.
+    Snapshot snapshot = createSnapshot()
+        .setDbScript(ImmutableList.of(Strings.repeat("insert", 1024 * 1024)));
+    Capture<byte[]> appended = createCapture();
+    expect(stream.append(capture(appended))).andReturn(position1);
+    stream.truncateBefore(position1);
+    expect(stream.readAll()).andAnswer(
+        () -> Iterators.singletonIterator((Entry) () -> appended.getValue()));
+
+    Consumer<LogEntry> reader = createMock(new Clazz<Consumer<LogEntry>>() { });
+    reader.accept(LogEntry.snapshot(snapshot));
+
+    control.replay();
+
+    HashFunction md5 = Hashing.md5();
+    StreamManagerImpl streamManager = new StreamManagerImpl(
+        stream,
+        new EntrySerializer.EntrySerializerImpl(NO_FRAMES_EVER_SIZE, md5),
+        md5,
+        new SnapshotDeduplicatorImpl(),
+        false,
+        false,
+        1,
+        Codec.DEFLATE_FAST,
+        lifecycle);
+    streamManager.snapshot(snapshot);
+
+    LogEntry written = ThriftBinaryCodec.decodeNonNull(LogEntry.class, appended.getValue());
+    assertEquals(Codec.DEFLATE_FAST, written.getBlockCompressedEntry().getCodec());
+    assertTrue(written.getBlockCompressedEntry().getBlocksSize() > 1);
+    streamManager.readFromBeginning(reader);
+  }
+
+  @Test
+  public void testWriteAndReadStreamedSnapshot() throws Exception {
+    Snapshot snapshot = createSnapshot();
+    Capture<byte[]> appended = new Capture<>(CaptureType.ALL);
+    expect(stream.append(capture(appended))).andReturn(position1);
+    expect(stream.append(capture(appended))).andReturn(null).atLeastOnce();
+    stream.truncateBefore(position1);
+    expect(stream.readAll()).andAnswer(() -> Iterators.transform(
+        appended.getValues().iterator(),
+        contents -> (Entry) () -> contents));
+
+    Consumer<LogEntry> reader = createMock(new Clazz<Consumer<LogEntry>>() { });
+    reader.accept(LogEntry.snapshot(snapshot));
+
+    control.replay();
+
+    HashFunction md5 = Hashing.md5();
+    StreamManagerImpl streamManager = new StreamManagerImpl(
+        stream,
+        new EntrySerializer.EntrySerializerImpl(Amount.of(64, Data.BYTES), md5),
+        md5,
+        new SnapshotDeduplicatorImpl(),
+        false,
+        true,
+        1,
+        Codec.DEFLATE,
+        lifecycle);
+    streamManager.snapshot(snapshot);
+
+    // A header, several chunks of at most 64 bytes and a trailer.
+    assertTrue(appended.getValues().size() > 3);
+    Frame header = ThriftBinaryCodec.decode(LogEntry.class, appended.getValues().get(0)).getFrame();
+    assertTrue(header.getHeader().isStreamed());
+
+    streamManager.readFromBeginning(reader);
+  }
+
+  @Test
+  public void testReadAbortedStreamedSnapshot() throws Exception {
+    LogEntry transaction = createLogEntry(Op.saveFrameworkId(new SaveFrameworkId("jake")));
+    byte[] header = encode(LogEntry.frame(Frame.header(new FrameHeader()
+        .setChunkCount(0)
+        .setChecksum(new byte[0])
+        .setStreamed(true))));
+    byte[] chunk =
+        encode(LogEntry.frame(Frame.chunk(new FrameChunk(ByteBuffer.wrap(new byte[1])))));
+    byte[] standard = encode(transaction);
+    List<Entry> entries = ImmutableList.of(() -> header, () -> chunk, () -> standard);
+    expect(stream.readAll()).andReturn(entries.iterator());
+
+    Consumer<LogEntry> reader = createMock(new Clazz<Consumer<LogEntry>>() { });
+    reader.accept(transaction);
+
+    control.replay();
+
+    createNoMessagesStreamManager().readFromBeginning(reader);
+  }
+
+  @Test
+  public void testTransactionsInterleavedWithStartedSnapshot() throws Exception {
+    Snapshot snapshot = createSnapshot();
+    Op saveFrameworkId = Op.saveFrameworkId(new SaveFrameworkId("jake"));
+    Capture<byte[]> appended = new Capture<>(CaptureType.ALL);
+    expect(stream.append(capture(appended))).andReturn(position1);
+    expect(stream.append(capture(appended))).andReturn(null).atLeastOnce();
+    stream.truncateBefore(position1);
+    expect(stream.readAll()).andAnswer(() -> Iterators.transform(
+        appended.getValues().iterator(),
+        contents -> (Entry) () -> contents));
+
+    Consumer<LogEntry> reader = createMock(new Clazz<Consumer<LogEntry>>() { });
+    reader.accept(LogEntry.snapshot(snapshot));
+    reader.accept(createLogEntry(saveFrameworkId));
+
+    control.replay();
+
+    HashFunction md5 = Hashing.md5();
+    StreamManagerImpl streamManager = new StreamManagerImpl(
+        stream,
+        new EntrySerializer.EntrySerializerImpl(Amount.of(64, Data.BYTES), md5),
+        md5,
+        new SnapshotDeduplicatorImpl(),
+        false,
+        false,
+        1,
+        Codec.DEFLATE,
+        lifecycle);
+    PendingSnapshot pendingSnapshot = streamManager.startSnapshot();
+    StreamTransaction transaction = streamManager.startTransaction();
+    transaction.add(saveFrameworkId);
+    transaction.submit().await();
+    pendingSnapshot.write(snapshot);
+    // The transaction is not part of the snapshot, and still counts towards the next one.
+    assertEquals(1, streamManager.getUnSnapshottedTransactions());
+
+    // The transaction lands in between the header and the remaining frames of the snapshot.
+    Frame header = ThriftBinaryCodec.decode(LogEntry.class, appended.getValues().get(0)).getFrame();
+    assertTrue(header.getHeader().isStreamed());
+    assertEquals(
+        createLogEntry(saveFrameworkId),
+        ThriftBinaryCodec.decode(LogEntry.class, appended.getValues().get(1)));
+
+    streamManager.readFromBeginning(reader);
+  }
+
+  @Test
+  public void testReadPipelined() throws Exception {
+    Snapshot snapshot = createSnapshot();
+    Capture<byte[]> appended = new Capture<>(CaptureType.ALL);
+    expect(stream.append(capture(appended))).andReturn(position1);
+    expect(stream.append(capture(appended))).andReturn(null).atLeastOnce();
+    stream.truncateBefore(position1);
+    expect(stream.readAll()).andAnswer(() -> Iterators.transform(
+        appended.getValues().iterator(),
+        contents -> (Entry) () -> contents));
+
+    control.replay();
+
+    HashFunction md5 = Hashing.md5();
+    StreamManagerImpl streamManager = new StreamManagerImpl(
+        stream,
+        new EntrySerializer.EntrySerializerImpl(Amount.of(64, Data.BYTES), md5),
+        md5,
+        new SnapshotDeduplicatorImpl(),
+        false,
+        true,
+        4,
+        Codec.DEFLATE,
+        lifecycle);
+    streamManager.snapshot(snapshot);
+    List<LogEntry> expected = Lists.newArrayList(LogEntry.snapshot(snapshot));
+    for (int i = 0; i < 20; i++) {
+      // Alternate between entries that fit in a single log entry and entries that are framed.
+      Op op = Op.saveFrameworkId(new SaveFrameworkId(Strings.repeat("framework", i % 2 * 10)));
+      StreamTransaction transaction = streamManager.startTransaction();
+      transaction.add(op);
+      transaction.submit().await();
+      expected.add(createLogEntry(op));
+    }
+
+    List<LogEntry> read = Lists.newArrayList();
+    streamManager.readFromBeginning(read::add);
+    assertEquals(expected, read);
+  }
+
   private Snapshot createSnapshot() {
     return new Snapshot()
         .setTimestamp(1L)
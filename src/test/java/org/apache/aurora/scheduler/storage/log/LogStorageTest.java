@@ -30,6 +30,8 @@ import com.google.common.hash.Hashing;
 
 import org.apache.aurora.codec.ThriftBinaryCodec;
 import org.apache.aurora.codec.ThriftBinaryCodec.CodingException;
+import org.apache.aurora.common.application.Lifecycle;
+import org.apache.aurora.common.base.Command;
 import org.apache.aurora.common.quantity.Amount;
 import org.apache.aurora.common.quantity.Data;
 import org.apache.aurora.common.quantity.Time;
@@ -56,6 +58,7 @@ import org.apache.aurora.gen.ResourceAggregate;
 import org.apache.aurora.gen.ScheduleStatus;
 import org.apache.aurora.gen.ScheduledTask;
 import org.apache.aurora.gen.TaskConfig;
+import org.apache.aurora.gen.storage.Codec;
 import org.apache.aurora.gen.storage.DeduplicatedSnapshot;
 import org.apache.aurora.gen.storage.LogEntry;
 import org.apache.aurora.gen.storage.Op;
@@ -88,6 +91,7 @@ import org.apache.aurora.scheduler.log.Log.Position;
 import org.apache.aurora.scheduler.log.Log.Stream;
 import org.apache.aurora.scheduler.resources.ResourceTestUtil;
 import org.apache.aurora.scheduler.storage.AttributeStore;
+import org.apache.aurora.scheduler.storage.MutationObserver;
 import org.apache.aurora.scheduler.storage.SnapshotStore;
 import org.apache.aurora.scheduler.storage.Storage.MutableStoreProvider;
 import org.apache.aurora.scheduler.storage.Storage.MutateWork;
@@ -146,19 +150,26 @@ public class LogStorageTest extends EasyMockTest {
   private SnapshotStore<Snapshot> snapshotStore;
   private StorageTestUtil storageUtil;
   private EventSink eventSink;
+  private Set<MutationObserver> mutationObservers;
 
   @Before
   public void setUp() {
     log = createMock(Log.class);
     deduplicator = createMock(SnapshotDeduplicator.class);
 
+    Lifecycle lifecycle = new Lifecycle(createMock(Command.class));
     StreamManagerFactory streamManagerFactory = logStream -> {
       HashFunction md5 = Hashing.md5();
       return new StreamManagerImpl(
           logStream,
           new EntrySerializer.EntrySerializerImpl(Amount.of(1, Data.GB), md5),
           md5,
-          deduplicator);
+          deduplicator,
+          false,
+          false,
+          1,
+          Codec.DEFLATE,
+          lifecycle);
     };
     LogManager logManager = new LogManager(log, streamManagerFactory);
 
@@ -166,12 +177,16 @@ public class LogStorageTest extends EasyMockTest {
     snapshotStore = createMock(new Clazz<SnapshotStore<Snapshot>>() { });
     storageUtil = new StorageTestUtil(this);
     eventSink = createMock(EventSink.class);
+    mutationObservers = Sets.newHashSet();
 
     logStorage = new LogStorage(
         logManager,
         schedulingService,
         snapshotStore,
         SNAPSHOT_INTERVAL,
+        false,
+        0.0,
+        0,
         storageUtil.storage,
         storageUtil.schedulerStore,
         storageUtil.jobStore,
@@ -181,6 +196,7 @@ public class LogStorageTest extends EasyMockTest {
         storageUtil.attributeStore,
         storageUtil.jobUpdateStore,
         eventSink,
+        mutationObservers,
         new ReentrantLock(),
         TaskTestUtil.THRIFT_BACKFILL);
 
@@ -264,7 +280,8 @@ public class LogStorageTest extends EasyMockTest {
         Sets.complementOf(EnumSet.of(
             LogEntry._Fields.FRAME,
             LogEntry._Fields.DEDUPLICATED_SNAPSHOT,
-            LogEntry._Fields.DEFLATED_ENTRY)),
+            LogEntry._Fields.DEFLATED_ENTRY,
+            LogEntry._Fields.BLOCK_COMPRESSED_ENTRY)),
         EnumSet.copyOf(logStorage.buildLogEntryReplayActions().keySet()));
 
     // Assert all Transaction types have handlers defined.
@@ -506,6 +523,7 @@ public class LogStorageTest extends EasyMockTest {
       protected void setupExpectations() throws Exception {
         storageUtil.expectWrite();
         storageUtil.jobStore.saveAcceptedJob(jobConfig);
+        eventSink.post(new PubsubEvent.JobConfigurationChanged(JOB_KEY));
         streamMatcher.expectTransaction(
             Op.saveCronJob(new SaveCronJob(jobConfig.newBuilder())))
             .andReturn(position);
@@ -525,6 +543,7 @@ public class LogStorageTest extends EasyMockTest {
       protected void setupExpectations() throws Exception {
         storageUtil.expectWrite();
         storageUtil.jobStore.removeJob(JOB_KEY);
+        eventSink.post(new PubsubEvent.JobConfigurationChanged(JOB_KEY));
         streamMatcher.expectTransaction(
             Op.removeJob(new RemoveJob().setJobKey(JOB_KEY.newBuilder())))
             .andReturn(position);
@@ -557,6 +576,34 @@ public class LogStorageTest extends EasyMockTest {
     }.run();
   }
 
+  @Test
+  public void testObserversNotifiedOfTransactionEnd() throws Exception {
+    Set<IScheduledTask> tasks = ImmutableSet.of(task("a", ScheduleStatus.INIT));
+    MutationObserver observer = createMock(MutationObserver.class);
+    mutationObservers.add(observer);
+    new AbstractMutationFixture() {
+      @Override
+      protected void setupExpectations() throws Exception {
+        storageUtil.expectWrite();
+        storageUtil.taskStore.saveTasks(tasks);
+        observer.tasksSaved(tasks);
+        streamMatcher.expectTransaction(
+            Op.saveTasks(new SaveTasks(IScheduledTask.toBuildersSet(tasks))))
+            .andReturn(position);
+        // Ends once for the initialization transaction when starting, and once for the outermost
+        // transaction of the mutation.
+        observer.transactionEnded();
+        expectLastCall().times(2);
+      }
+
+      @Override
+      protected void performMutations(MutableStoreProvider storeProvider) {
+        logStorage.write((NoResult.Quiet)
+            innerProvider -> innerProvider.getUnsafeTaskStore().saveTasks(tasks));
+      }
+    }.run();
+  }
+
   @Test
   public void testMutateTasks() throws Exception {
     String taskId = "fred";
@@ -583,13 +630,14 @@ public class LogStorageTest extends EasyMockTest {
   public void testUnsafeModifyInPlace() throws Exception {
     String taskId = "wilma";
     String taskId2 = "barney";
-    ITaskConfig updatedConfig = task(taskId, ScheduleStatus.RUNNING).getAssignedTask().getTask();
+    ITaskConfig updatedConfig = ITaskConfig.build(new TaskConfig().setJob(JOB_KEY.newBuilder()));
     new AbstractMutationFixture() {
       @Override
       protected void setupExpectations() throws Exception {
         storageUtil.expectWrite();
         expect(storageUtil.taskStore.unsafeModifyInPlace(taskId2, updatedConfig)).andReturn(false);
         expect(storageUtil.taskStore.unsafeModifyInPlace(taskId, updatedConfig)).andReturn(true);
+        eventSink.post(new PubsubEvent.JobConfigurationChanged(JOB_KEY));
         streamMatcher.expectTransaction(
             Op.rewriteTask(new RewriteTask(taskId, updatedConfig.newBuilder())))
             .andReturn(position);
@@ -30,6 +30,8 @@ import org.apache.aurora.gen.storage.DeduplicatedSnapshot;
 import org.apache.aurora.gen.storage.SchedulerMetadata;
 import org.apache.aurora.gen.storage.Snapshot;
 import org.apache.aurora.scheduler.storage.log.SnapshotDeduplicator.SnapshotDeduplicatorImpl;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.transport.TMemoryBuffer;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
@@ -128,4 +130,29 @@ public class SnapshotDeduplicatorImplTest {
         snapshot,
         snapshotDeduplicator.reduplicate(snapshotDeduplicator.deduplicate(snapshot)));
   }
+
+  private DeduplicatedSnapshot writeDeduplicated(Snapshot snapshot) throws Exception {
+    TMemoryBuffer buffer = new TMemoryBuffer(1024);
+    snapshotDeduplicator.writeDeduplicated(snapshot, new TBinaryProtocol(buffer));
+    DeduplicatedSnapshot deduplicated = new DeduplicatedSnapshot();
+    deduplicated.read(new TBinaryProtocol(buffer));
+    return deduplicated;
+  }
+
+  @Test
+  public void testWriteDeduplicatedRoundTrip() throws Exception {
+    Snapshot snapshot = makeSnapshot();
+    DeduplicatedSnapshot deduplicated = writeDeduplicated(snapshot);
+
+    assertEquals(2, deduplicated.getTaskConfigsSize());
+    assertEquals(snapshot, snapshotDeduplicator.reduplicate(deduplicated));
+    assertEquals("The snapshot should not be modified.", makeSnapshot(), snapshot);
+  }
+
+  @Test
+  public void testWriteDeduplicatedEmptyRoundTrip() throws Exception {
+    Snapshot snapshot = new Snapshot();
+
+    assertEquals(snapshot, snapshotDeduplicator.reduplicate(writeDeduplicated(snapshot)));
+  }
 }
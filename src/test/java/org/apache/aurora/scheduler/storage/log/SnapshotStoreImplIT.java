@@ -85,11 +85,21 @@ public class SnapshotStoreImplIT {
 
   private static final long NOW = 10335463456L;
   private static final IJobKey JOB_KEY = JobKeys.from("role", "env", "job");
+  private static final int RECOVERY_THREADS = 4;
 
   private Storage storage;
   private SnapshotStore<Snapshot> snapshotStore;
 
   private void setUpStore(boolean dbTaskStore, Set<String> hydrateFields) {
+    setUpStore(dbTaskStore, dbTaskStore, hydrateFields, RECOVERY_THREADS);
+  }
+
+  private void setUpStore(
+      boolean dbTaskStore,
+      boolean useDbSnapshotForTaskStore,
+      Set<String> hydrateFields,
+      int recoveryThreads) {
+
     storage = dbTaskStore
         ? createStorage()
         : createStorageInjector(
@@ -102,10 +112,11 @@ public class SnapshotStoreImplIT {
         generateBuildInfo(),
         clock,
         storage,
-        dbTaskStore,
+        useDbSnapshotForTaskStore,
         hydrateFields,
         createStorageInjector(testModuleWithWorkQueue()).getInstance(MigrationManager.class),
-        TaskTestUtil.THRIFT_BACKFILL);
+        TaskTestUtil.THRIFT_BACKFILL,
+        recoveryThreads);
   }
 
   private static Snapshot makeComparable(Snapshot snapshot) {
@@ -193,6 +204,34 @@ public class SnapshotStoreImplIT {
     assertEquals(makeComparable(snapshot1), makeComparable(snapshot2));
   }
 
+  @Test
+  public void testSingleRecoveryThread() {
+    setUpStore(false, false, ALL_H2_STORE_FIELDS, 1);
+    populateStore();
+
+    Snapshot snapshot1 = snapshotStore.createSnapshot();
+    snapshotStore.applySnapshot(snapshot1);
+    Snapshot snapshot2 = snapshotStore.createSnapshot();
+    assertEquals(expected(), makeComparable(snapshot2));
+    assertEquals(makeComparable(snapshot1), makeComparable(snapshot2));
+  }
+
+  @Test
+  public void testDBTaskStoreWithoutFlag() {
+    // Restoring a backup binds the task store from flags, but does not snapshot into the
+    // database.  Tasks must then be restored on the transaction thread, after the dbsnapshot.
+    setUpStore(true, false, ALL_H2_STORE_FIELDS, RECOVERY_THREADS);
+    populateStore();
+
+    Snapshot snapshot1 = snapshotStore.createSnapshot();
+    assertFalse(snapshot1.isExperimentalTaskStore());
+
+    snapshotStore.applySnapshot(snapshot1);
+    Snapshot snapshot2 = snapshotStore.createSnapshot();
+    assertEquals(expected(), makeComparable(snapshot2));
+    assertEquals(makeComparable(snapshot1), makeComparable(snapshot2));
+  }
+
   @Test
   public void testBackfill() {
     setUpStore(false, ALL_H2_STORE_FIELDS);
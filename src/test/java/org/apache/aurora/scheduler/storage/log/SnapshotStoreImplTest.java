@@ -0,0 +1,67 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.storage.log;
+
+import java.sql.Statement;
+
+import com.google.common.collect.ImmutableList;
+
+import org.apache.aurora.common.testing.easymock.EasyMockTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.expect;
+
+public class SnapshotStoreImplTest extends EasyMockTest {
+
+  private Statement statement;
+
+  @Before
+  public void setUp() {
+    control.checkOrder(true);
+    statement = createMock(Statement.class);
+  }
+
+  @Test
+  public void testBatchedBySize() throws Exception {
+    statement.addBatch("a");
+    statement.addBatch("bb");
+    expect(statement.executeBatch()).andReturn(new int[] {1, 1});
+    statement.addBatch("cccc");
+    expect(statement.executeBatch()).andReturn(new int[] {1});
+    statement.addBatch("d");
+    expect(statement.executeBatch()).andReturn(new int[] {1});
+
+    control.replay();
+
+    SnapshotStoreImpl.executeBatched(statement, ImmutableList.of("a", "bb", "cccc", "d"), 3);
+  }
+
+  @Test
+  public void testNoTrailingEmptyBatch() throws Exception {
+    statement.addBatch("aaa");
+    expect(statement.executeBatch()).andReturn(new int[] {1});
+
+    control.replay();
+
+    SnapshotStoreImpl.executeBatched(statement, ImmutableList.of("aaa"), 3);
+  }
+
+  @Test
+  public void testEmptyScript() throws Exception {
+    control.replay();
+
+    SnapshotStoreImpl.executeBatched(statement, ImmutableList.of(), 3);
+  }
+}
@@ -22,13 +22,19 @@ import com.google.common.collect.ImmutableSet;
 import org.apache.aurora.common.testing.easymock.EasyMockTest;
 import org.apache.aurora.gen.Attribute;
 import org.apache.aurora.gen.HostAttributes;
+import org.apache.aurora.gen.JobConfiguration;
 import org.apache.aurora.gen.JobUpdateKey;
 import org.apache.aurora.gen.MaintenanceMode;
 import org.apache.aurora.gen.storage.Op;
 import org.apache.aurora.gen.storage.PruneJobUpdateHistory;
+import org.apache.aurora.gen.storage.RemoveJob;
+import org.apache.aurora.gen.storage.RemoveTasks;
+import org.apache.aurora.gen.storage.RewriteTask;
+import org.apache.aurora.gen.storage.SaveCronJob;
 import org.apache.aurora.gen.storage.SaveHostAttributes;
 import org.apache.aurora.gen.storage.SaveTasks;
 import org.apache.aurora.scheduler.base.JobKeys;
+import org.apache.aurora.scheduler.base.Query;
 import org.apache.aurora.scheduler.base.TaskTestUtil;
 import org.apache.aurora.scheduler.events.EventSink;
 import org.apache.aurora.scheduler.events.PubsubEvent;
@@ -36,12 +42,15 @@ import org.apache.aurora.scheduler.storage.AttributeStore;
 import org.apache.aurora.scheduler.storage.CronJobStore;
 import org.apache.aurora.scheduler.storage.JobUpdateStore;
 import org.apache.aurora.scheduler.storage.LockStore;
+import org.apache.aurora.scheduler.storage.MutationObserver;
 import org.apache.aurora.scheduler.storage.QuotaStore;
 import org.apache.aurora.scheduler.storage.SchedulerStore;
 import org.apache.aurora.scheduler.storage.TaskStore;
 import org.apache.aurora.scheduler.storage.entities.IHostAttributes;
+import org.apache.aurora.scheduler.storage.entities.IJobConfiguration;
 import org.apache.aurora.scheduler.storage.entities.IJobUpdateKey;
 import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
+import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
 import org.junit.Before;
 import org.junit.Test;
 import org.slf4j.LoggerFactory;
@@ -54,31 +63,36 @@ import static org.junit.Assert.assertTrue;
 public class WriteAheadStorageTest extends EasyMockTest {
 
   private LogStorage.TransactionManager transactionManager;
+  private CronJobStore.Mutable jobStore;
   private TaskStore.Mutable taskStore;
   private AttributeStore.Mutable attributeStore;
   private JobUpdateStore.Mutable jobUpdateStore;
   private EventSink eventSink;
+  private MutationObserver observer;
   private WriteAheadStorage storage;
 
   @Before
   public void setUp() {
     transactionManager = createMock(LogStorage.TransactionManager.class);
+    jobStore = createMock(CronJobStore.Mutable.class);
     taskStore = createMock(TaskStore.Mutable.class);
     attributeStore = createMock(AttributeStore.Mutable.class);
     jobUpdateStore = createMock(JobUpdateStore.Mutable.class);
     eventSink = createMock(EventSink.class);
+    observer = createMock(MutationObserver.class);
 
     storage = new WriteAheadStorage(
         transactionManager,
         createMock(SchedulerStore.Mutable.class),
-        createMock(CronJobStore.Mutable.class),
+        jobStore,
         taskStore,
         createMock(LockStore.Mutable.class),
         createMock(QuotaStore.Mutable.class),
         attributeStore,
         jobUpdateStore,
         LoggerFactory.getLogger(WriteAheadStorageTest.class),
-        eventSink);
+        eventSink,
+        ImmutableSet.of(observer));
   }
 
   private void expectOp(Op op) {
@@ -118,12 +132,87 @@ public class WriteAheadStorageTest extends EasyMockTest {
 
     expect(taskStore.mutateTask(taskId, mutator)).andReturn(mutated);
     expectOp(Op.saveTasks(new SaveTasks(ImmutableSet.of(mutated.get().newBuilder()))));
+    observer.tasksSaved(ImmutableSet.of(mutated.get()));
 
     control.replay();
 
     assertEquals(mutated, storage.mutateTask(taskId, mutator));
   }
 
+  @Test
+  public void testSaveTasks() {
+    Set<IScheduledTask> tasks = ImmutableSet.of(TaskTestUtil.makeTask("a", TaskTestUtil.JOB));
+
+    expectOp(Op.saveTasks(new SaveTasks(IScheduledTask.toBuildersSet(tasks))));
+    taskStore.saveTasks(tasks);
+    observer.tasksSaved(tasks);
+
+    control.replay();
+
+    storage.saveTasks(tasks);
+  }
+
+  @Test
+  public void testDeleteTasks() {
+    IScheduledTask task = TaskTestUtil.makeTask("a", TaskTestUtil.JOB);
+    Set<String> taskIds = ImmutableSet.of("a", "b");
+
+    expectOp(Op.removeTasks(new RemoveTasks(taskIds)));
+    expect(taskStore.fetchTasks(Query.taskScoped(taskIds))).andReturn(ImmutableSet.of(task));
+    taskStore.deleteTasks(taskIds);
+    observer.tasksDeleted(ImmutableSet.of(task));
+
+    control.replay();
+
+    storage.deleteTasks(taskIds);
+  }
+
+  @Test
+  public void testUnsafeModifyInPlace() {
+    IScheduledTask task = TaskTestUtil.makeTask("a", TaskTestUtil.JOB);
+    ITaskConfig config = task.getAssignedTask().getTask();
+
+    expect(taskStore.unsafeModifyInPlace("a", config)).andReturn(true);
+    expectOp(Op.rewriteTask(new RewriteTask("a", config.newBuilder())));
+    expect(taskStore.fetchTask("a")).andReturn(Optional.of(task));
+    observer.tasksSaved(ImmutableSet.of(task));
+    eventSink.post(new PubsubEvent.JobConfigurationChanged(TaskTestUtil.JOB));
+
+    expect(taskStore.unsafeModifyInPlace("a", config)).andReturn(false);
+
+    control.replay();
+
+    assertTrue(storage.unsafeModifyInPlace("a", config));
+    assertFalse(storage.unsafeModifyInPlace("a", config));
+  }
+
+  @Test
+  public void testSaveAcceptedJob() {
+    IJobConfiguration job =
+        IJobConfiguration.build(new JobConfiguration().setKey(TaskTestUtil.JOB.newBuilder()));
+
+    expectOp(Op.saveCronJob(new SaveCronJob(job.newBuilder())));
+    jobStore.saveAcceptedJob(job);
+    observer.cronJobSaved(job);
+    eventSink.post(new PubsubEvent.JobConfigurationChanged(TaskTestUtil.JOB));
+
+    control.replay();
+
+    storage.saveAcceptedJob(job);
+  }
+
+  @Test
+  public void testRemoveJob() {
+    expectOp(Op.removeJob(new RemoveJob().setJobKey(TaskTestUtil.JOB.newBuilder())));
+    jobStore.removeJob(TaskTestUtil.JOB);
+    observer.cronJobRemoved(TaskTestUtil.JOB);
+    eventSink.post(new PubsubEvent.JobConfigurationChanged(TaskTestUtil.JOB));
+
+    control.replay();
+
+    storage.removeJob(TaskTestUtil.JOB);
+  }
+
   @Test
   public void testSaveHostAttributes() {
     IHostAttributes attributes = IHostAttributes.build(
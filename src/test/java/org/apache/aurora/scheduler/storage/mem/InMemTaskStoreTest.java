@@ -22,16 +22,19 @@ import com.google.inject.util.Modules;
 import org.apache.aurora.common.stats.SlidingStats;
 import org.apache.aurora.common.stats.StatsProvider;
 import org.apache.aurora.common.util.Clock;
+import org.apache.aurora.scheduler.base.Query;
 import org.apache.aurora.scheduler.base.Tasks;
 import org.apache.aurora.scheduler.storage.AbstractTaskStoreTest;
 import org.apache.aurora.scheduler.storage.Storage.MutateWork.NoResult;
 import org.apache.aurora.scheduler.storage.TaskStore;
 import org.apache.aurora.scheduler.storage.db.DbModule;
 import org.apache.aurora.scheduler.storage.db.InstrumentingInterceptor;
+import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
 import org.apache.aurora.scheduler.testing.FakeStatsProvider;
 import org.junit.Test;
 
 import static org.apache.aurora.common.inject.Bindings.KeyFactory.PLAIN;
+import static org.apache.aurora.gen.ScheduleStatus.RUNNING;
 import static org.easymock.EasyMock.createMock;
 import static org.junit.Assert.assertEquals;
 
@@ -68,4 +71,31 @@ public class InMemTaskStoreTest extends AbstractTaskStoreTest {
       assertEquals(0L, statsProvider.getLongValue(MemTaskStore.getIndexSizeStatName("job")));
     });
   }
+
+  @Test
+  public void testIntersectSecondaryIndices() {
+    storage.write((NoResult.Quiet) storeProvider -> {
+      TaskStore.Mutable taskStore = storeProvider.getUnsafeTaskStore();
+      taskStore.saveTasks(ImmutableSet.of(TASK_A, TASK_B, TASK_C, TASK_D));
+      taskStore.mutateTask(
+          Tasks.id(TASK_C),
+          task -> IScheduledTask.build(task.newBuilder().setStatus(RUNNING)));
+
+      assertEquals(
+          ImmutableSet.of(Tasks.id(TASK_C)),
+          Tasks.ids(taskStore.fetchTasks(Query.statusScoped(RUNNING))));
+      assertEquals(1L, statsProvider.getLongValue("task_queries_by_status"));
+
+      assertEquals(
+          ImmutableSet.of(),
+          Tasks.ids(taskStore.fetchTasks(Query.roleScoped("role-a").byStatus(RUNNING))));
+      assertEquals(
+          ImmutableSet.of(Tasks.id(TASK_C)),
+          Tasks.ids(taskStore.fetchTasks(Query.roleScoped("role-c").byStatus(RUNNING))));
+      assertEquals(3L, statsProvider.getLongValue("task_queries_by_status"));
+      assertEquals(2L, statsProvider.getLongValue("task_queries_by_role"));
+      assertEquals(0L, statsProvider.getLongValue("task_queries_all"));
+      assertEquals(4L, statsProvider.getLongValue(MemTaskStore.getIndexSizeStatName("status")));
+    });
+  }
 }
@@ -13,6 +13,7 @@
  */
 package org.apache.aurora.scheduler.thrift;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
@@ -61,6 +62,7 @@ import org.apache.aurora.gen.Result;
 import org.apache.aurora.gen.RoleSummary;
 import org.apache.aurora.gen.RoleSummaryResult;
 import org.apache.aurora.gen.ScheduleStatus;
+import org.apache.aurora.gen.ScheduleStatusResult;
 import org.apache.aurora.gen.ScheduledTask;
 import org.apache.aurora.gen.TaskConfig;
 import org.apache.aurora.gen.TaskQuery;
@@ -89,6 +91,7 @@ import org.apache.aurora.scheduler.storage.entities.IResponse;
 import org.apache.aurora.scheduler.storage.entities.IScheduledTask;
 import org.apache.aurora.scheduler.storage.entities.ITaskConfig;
 import org.apache.aurora.scheduler.storage.testing.StorageTestUtil;
+import org.apache.aurora.scheduler.testing.FakeStatsProvider;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -119,9 +122,11 @@ import static org.apache.aurora.scheduler.thrift.ReadOnlySchedulerImpl.NO_CRON;
 import static org.easymock.EasyMock.expect;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class ReadOnlySchedulerImplTest extends EasyMockTest {
+  private static final int MAX_TASKS_PER_PAGE = 3;
   private static final ImmutableSet<Metadata> METADATA =
       ImmutableSet.of(new Metadata("k1", "v1"), new Metadata("k2", "v2"), new Metadata("k3", "v3"));
 
@@ -148,7 +153,9 @@ public class ReadOnlySchedulerImplTest extends EasyMockTest {
         nearestFit,
         cronPredictor,
         quotaManager,
-        tierManager);
+        tierManager,
+        MAX_TASKS_PER_PAGE,
+        new SummaryCache(false, new FakeStatsProvider()));
   }
 
   @Test
@@ -359,6 +366,18 @@ public class ReadOnlySchedulerImplTest extends EasyMockTest {
     assertEquals(expected, response.getResult().getScheduleStatusResult().getTasks());
   }
 
+  @Test
+  public void testGetTasksStatusCopiesTasksOnce() throws Exception {
+    Builder query = Query.unscoped();
+    storageUtil.expectTaskFetch(query, ImmutableSet.copyOf(makeDefaultScheduledTasks(2)));
+
+    control.replay();
+
+    Response response = assertOkResponse(thrift.getTasksStatus(new TaskQuery()));
+    List<ScheduledTask> tasks = response.getResult().getScheduleStatusResult().getTasks();
+    assertSame(tasks.get(0), tasks.get(0));
+  }
+
   @Test
   public void testGetPendingReasonFailsSlavesSet() throws Exception {
     Builder query = Query.unscoped().bySlave("host1");
@@ -506,6 +525,52 @@ public class ReadOnlySchedulerImplTest extends EasyMockTest {
     assertEquals(Lists.newArrayList(8, 9), page3Ids);
   }
 
+  @Test
+  public void testGetTasksStatusCursorPagination() throws Exception {
+    List<IScheduledTask> tasks = Lists.newArrayList();
+    for (IScheduledTask task : makeDefaultScheduledTasks(7)) {
+      ScheduledTask builder = task.newBuilder();
+      builder.getAssignedTask().setTaskId("task-" + builder.getAssignedTask().getInstanceId());
+      tasks.add(IScheduledTask.build(builder));
+    }
+    Collections.reverse(tasks);
+
+    TaskQuery page1Query = setupCursorQuery(tasks, "", 0);
+    TaskQuery page2Query = setupCursorQuery(tasks, "task-2", 2);
+    TaskQuery page3Query = setupCursorQuery(tasks, "task-4", 10);
+
+    control.replay();
+
+    ScheduleStatusResult page1 = assertOkResponse(thrift.getTasksStatus(page1Query))
+        .getResult().getScheduleStatusResult();
+    ScheduleStatusResult page2 = assertOkResponse(thrift.getTasksStatus(page2Query))
+        .getResult().getScheduleStatusResult();
+    ScheduleStatusResult page3 = assertOkResponse(thrift.getTasksStatus(page3Query))
+        .getResult().getScheduleStatusResult();
+
+    assertEquals(ImmutableList.of(0, 1, 2), Lists.transform(page1.getTasks(), TO_INSTANCE_ID));
+    assertEquals("task-2", page1.getNextCursor());
+    assertEquals(ImmutableList.of(3, 4), Lists.transform(page2.getTasks(), TO_INSTANCE_ID));
+    assertEquals("task-4", page2.getNextCursor());
+    assertEquals(ImmutableList.of(5, 6), Lists.transform(page3.getTasks(), TO_INSTANCE_ID));
+    assertFalse(page3.isSetNextCursor());
+  }
+
+  @Test
+  public void testGetTasksStatusCursorWithOffset() throws Exception {
+    control.replay();
+
+    TaskQuery query = new TaskQuery().setCursor("").setOffset(1);
+    assertResponse(INVALID_REQUEST, thrift.getTasksStatus(query));
+    assertResponse(INVALID_REQUEST, thrift.getTasksWithoutConfigs(query));
+  }
+
+  private TaskQuery setupCursorQuery(Iterable<IScheduledTask> tasks, String cursor, int limit) {
+    TaskQuery query = new TaskQuery().setCursor(cursor).setLimit(limit);
+    storageUtil.expectTaskFetch(Query.arbitrary(query), ImmutableSet.copyOf(tasks));
+    return query;
+  }
+
   private TaskQuery setupPaginatedQuery(Iterable<IScheduledTask> tasks, int offset, int limit) {
     TaskQuery query = new TaskQuery().setOffset(offset).setLimit(limit);
     Builder builder = Query.arbitrary(query);
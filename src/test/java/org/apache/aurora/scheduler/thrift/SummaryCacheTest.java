@@ -0,0 +1,194 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aurora.scheduler.thrift;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+
+import org.apache.aurora.gen.JobConfiguration;
+import org.apache.aurora.scheduler.base.JobKeys;
+import org.apache.aurora.scheduler.base.TaskTestUtil;
+import org.apache.aurora.scheduler.events.PubsubEvent.JobConfigurationChanged;
+import org.apache.aurora.scheduler.events.PubsubEvent.TaskStateChange;
+import org.apache.aurora.scheduler.events.PubsubEvent.TasksDeleted;
+import org.apache.aurora.scheduler.storage.entities.IJobConfiguration;
+import org.apache.aurora.scheduler.storage.entities.IJobKey;
+import org.apache.aurora.scheduler.testing.FakeStatsProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.apache.aurora.scheduler.thrift.SummaryCache.HITS;
+import static org.apache.aurora.scheduler.thrift.SummaryCache.INVALIDATIONS;
+import static org.apache.aurora.scheduler.thrift.SummaryCache.MISSES;
+import static org.junit.Assert.assertEquals;
+
+public class SummaryCacheTest {
+  private static final IJobKey JOB_A = JobKeys.from("role-a", "env", "job");
+  private static final IJobKey JOB_B = JobKeys.from("role-b", "env", "job");
+  private static final Optional<String> ROLE_A = Optional.of(JOB_A.getRole());
+  private static final Optional<String> ROLE_B = Optional.of(JOB_B.getRole());
+  private static final Optional<String> ALL = Optional.absent();
+
+  private FakeStatsProvider statsProvider;
+  private SummaryCache cache;
+  private AtomicInteger loads;
+
+  @Before
+  public void setUp() {
+    statsProvider = new FakeStatsProvider();
+    cache = new SummaryCache(true, statsProvider);
+    loads = new AtomicInteger();
+  }
+
+  private Set<IJobConfiguration> load(IJobKey... jobKeys) {
+    loads.incrementAndGet();
+    ImmutableSet.Builder<IJobConfiguration> jobs = ImmutableSet.builder();
+    for (IJobKey jobKey : jobKeys) {
+      jobs.add(IJobConfiguration.build(new JobConfiguration().setKey(jobKey.newBuilder())));
+    }
+    return jobs.build();
+  }
+
+  private Set<IJobConfiguration> getJobs(Optional<String> role) {
+    return cache.getJobs(role, () -> load(JOB_A));
+  }
+
+  @Test
+  public void testCachesPerRole() {
+    Set<IJobConfiguration> jobs = getJobs(ROLE_A);
+    assertEquals(jobs, getJobs(ROLE_A));
+    assertEquals(1, loads.get());
+
+    getJobs(ROLE_B);
+    getJobs(ALL);
+    getJobs(ALL);
+    assertEquals(3, loads.get());
+    assertEquals(2L, statsProvider.getLongValue(HITS));
+    assertEquals(3L, statsProvider.getLongValue(MISSES));
+  }
+
+  @Test
+  public void testInvalidateRole() {
+    getJobs(ROLE_A);
+    getJobs(ROLE_B);
+    getJobs(ALL);
+
+    cache.taskChangedState(TaskStateChange.initialized(TaskTestUtil.makeTask("a", JOB_A)));
+    assertEquals(1L, statsProvider.getLongValue(INVALIDATIONS));
+
+    getJobs(ROLE_A);
+    getJobs(ROLE_B);
+    getJobs(ALL);
+    assertEquals(5, loads.get());
+
+    cache.tasksDeleted(new TasksDeleted(ImmutableSet.of(
+        TaskTestUtil.makeTask("b1", JOB_B),
+        TaskTestUtil.makeTask("b2", JOB_B))));
+    assertEquals(2L, statsProvider.getLongValue(INVALIDATIONS));
+
+    getJobs(ROLE_A);
+    getJobs(ROLE_B);
+    getJobs(ALL);
+    assertEquals(7, loads.get());
+
+    cache.jobConfigurationChanged(new JobConfigurationChanged(JOB_A));
+    getJobs(ROLE_A);
+    getJobs(ROLE_B);
+    assertEquals(8, loads.get());
+  }
+
+  @Test
+  public void testInvalidatedFromStorage() {
+    getJobs(ROLE_A);
+    getJobs(ROLE_B);
+
+    cache.tasksSaved(ImmutableSet.of(
+        TaskTestUtil.makeTask("a1", JOB_A),
+        TaskTestUtil.makeTask("a2", JOB_A)));
+    cache.transactionEnded();
+    assertEquals(1L, statsProvider.getLongValue(INVALIDATIONS));
+    getJobs(ROLE_A);
+    getJobs(ROLE_B);
+    assertEquals(3, loads.get());
+
+    cache.tasksDeleted(ImmutableSet.of(TaskTestUtil.makeTask("b", JOB_B)));
+    cache.transactionEnded();
+    getJobs(ROLE_A);
+    getJobs(ROLE_B);
+    assertEquals(4, loads.get());
+
+    cache.cronJobSaved(IJobConfiguration.build(new JobConfiguration().setKey(JOB_A.newBuilder())));
+    cache.cronJobRemoved(JOB_A);
+    cache.transactionEnded();
+    getJobs(ROLE_A);
+    assertEquals(5, loads.get());
+    assertEquals(3L, statsProvider.getLongValue(INVALIDATIONS));
+
+    // Nothing changed in this transaction.
+    cache.transactionEnded();
+    assertEquals(3L, statsProvider.getLongValue(INVALIDATIONS));
+  }
+
+  @Test
+  public void testInvalidatedAfterTransaction() {
+    getJobs(ROLE_A);
+    cache.tasksSaved(ImmutableSet.of(TaskTestUtil.makeTask("a", JOB_A)));
+
+    // Results are served from the cache until the transaction ends, and results loaded before then
+    // may include uncommitted changes, so they are dropped once it ends.
+    getJobs(ROLE_A);
+    assertEquals(1, loads.get());
+    cache.transactionEnded();
+    getJobs(ROLE_A);
+    getJobs(ROLE_A);
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void testInvalidateAllRoles() {
+    cache.getRoleSummaries(ImmutableSet::of);
+    cache.getRoleSummaries(ImmutableSet::of);
+    assertEquals(1L, statsProvider.getLongValue(MISSES));
+
+    cache.jobConfigurationChanged(new JobConfigurationChanged(JOB_B));
+    cache.getRoleSummaries(ImmutableSet::of);
+    assertEquals(2L, statsProvider.getLongValue(MISSES));
+  }
+
+  @Test
+  public void testInvalidatedWhileLoading() {
+    Set<IJobConfiguration> stale = cache.getJobs(ROLE_A, () -> {
+      cache.jobConfigurationChanged(new JobConfigurationChanged(JOB_A));
+      return load();
+    });
+    assertEquals(ImmutableSet.of(), stale);
+
+    // The result loaded before the invalidation must not have been cached.
+    assertEquals(load(JOB_A), getJobs(ROLE_A));
+    assertEquals(load(JOB_A), getJobs(ROLE_A));
+    assertEquals(1L, statsProvider.getLongValue(HITS));
+  }
+
+  @Test
+  public void testDisabled() {
+    cache = new SummaryCache(false, statsProvider);
+    getJobs(ROLE_A);
+    getJobs(ROLE_A);
+    assertEquals(2, loads.get());
+    assertEquals(0L, statsProvider.getLongValue(HITS));
+  }
+}